@@ -1,14 +1,29 @@
 package com.merchant.demo;
 
+import com.merchant.demo.config.CatalogProperties;
+import com.merchant.demo.config.InventorySyncProperties;
+import com.merchant.demo.config.JobProperties;
+import com.merchant.demo.config.MatchingProperties;
+import com.merchant.demo.config.MediaProperties;
+import com.merchant.demo.config.PointsProperties;
+import com.merchant.demo.config.PriceLogProperties;
 import com.merchant.demo.config.ShopifyAdapterProperties;
+import com.merchant.demo.config.StorefrontProperties;
+import com.merchant.demo.config.WebhookProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
 @SpringBootApplication
-@EnableConfigurationProperties(ShopifyAdapterProperties.class)
+@EnableAsync
+@EnableScheduling
+@EnableConfigurationProperties({ShopifyAdapterProperties.class, MatchingProperties.class, CatalogProperties.class,
+		PriceLogProperties.class, PointsProperties.class, InventorySyncProperties.class,
+		WebhookProperties.class, JobProperties.class, MediaProperties.class, StorefrontProperties.class})
 public class DemoApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,84 @@
+package com.merchant.demo.adapter;
+
+import com.merchant.demo.config.MediaProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * {@link MediaStorage} on the local file system under {@code app.media.storage-dir}:
+ * {@code originals/ab/cd/<sha256>} and {@code thumbnails/ab/cd/<sha256>.jpg}. Files are written to a temp
+ * file and moved into place, so readers never see a partial file.
+ */
+@Component
+public class LocalMediaStorage implements MediaStorage {
+
+    private final Path root;
+
+    public LocalMediaStorage(MediaProperties mediaProperties) {
+        this.root = Path.of(mediaProperties.getStorageDir()).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void putOriginal(String sha256, byte[] content) {
+        write(originalPath(sha256), content, false);
+    }
+
+    @Override
+    public void putThumbnail(String sha256, byte[] jpeg) {
+        write(thumbnailPath(sha256), jpeg, true);
+    }
+
+    @Override
+    public Optional<Resource> getOriginal(String sha256) {
+        return existing(originalPath(sha256));
+    }
+
+    @Override
+    public Optional<Resource> getThumbnail(String sha256) {
+        return existing(thumbnailPath(sha256));
+    }
+
+    private Path originalPath(String sha256) {
+        return shard("originals", sha256).resolve(sha256);
+    }
+
+    private Path thumbnailPath(String sha256) {
+        return shard("thumbnails", sha256).resolve(sha256 + ".jpg");
+    }
+
+    /** Two directory levels keep directories small with millions of files. */
+    private Path shard(String kind, String sha256) {
+        if (!sha256.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Not a SHA-256 hex digest: " + sha256);
+        }
+        return root.resolve(kind).resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4));
+    }
+
+    private static Optional<Resource> existing(Path path) {
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    private static void write(Path target, byte[] content, boolean replace) {
+        if (!replace && Files.exists(target)) return;
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            try {
+                Files.write(tmp, content);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store " + target, e);
+        }
+    }
+}
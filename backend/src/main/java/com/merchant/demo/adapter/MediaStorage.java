@@ -0,0 +1,23 @@
+package com.merchant.demo.adapter;
+
+import org.springframework.core.io.Resource;
+
+import java.util.Optional;
+
+/**
+ * Content-addressed blob store for mirrored images: every object is keyed by the SHA-256 of the original
+ * file, so writes are idempotent and identical images are stored once. {@link LocalMediaStorage} keeps them
+ * on disk; an object-store implementation only has to provide the same four operations.
+ */
+public interface MediaStorage {
+
+    /** Store the original file unless an object with this hash already exists. */
+    void putOriginal(String sha256, byte[] content);
+
+    /** Store the JPEG thumbnail of the original with this hash. */
+    void putThumbnail(String sha256, byte[] jpeg);
+
+    Optional<Resource> getOriginal(String sha256);
+
+    Optional<Resource> getThumbnail(String sha256);
+}
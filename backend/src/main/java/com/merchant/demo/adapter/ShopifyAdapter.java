@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * Production-ready adapter for syncing merchant catalog from Shopify Admin GraphQL API.
@@ -45,13 +46,7 @@ public class ShopifyAdapter {
     public List<ProductNode> fetchAllProducts(ShopifyConfig config) {
         validateConfig(config);
         String storeHost = normalizeStoreHost(config.storeUrl());
-        String endpoint = "https://" + storeHost + "/admin/api/" + shopifyConfig.getApiVersion() + "/graphql.json";
-
-        WebClient client = webClientBuilder
-                .baseUrl(endpoint)
-                .defaultHeader("X-Shopify-Access-Token", config.accessToken())
-                .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                .build();
+        WebClient client = buildClient(storeHost, config);
 
         log.info("Starting catalog sync for store: {}", storeHost);
 
@@ -61,11 +56,12 @@ public class ShopifyAdapter {
 
         try {
             while (hasNextPage) {
-                String requestBody = createRequestBody(cursor);
-                ShopifyProductResponse response = executeWithRetry(client, requestBody);
+                String requestBody = createRequestBody(buildProductsQuery(), cursor);
+                ShopifyProductResponse response = executeWithRetry(client, requestBody,
+                        ShopifyProductResponse.class, ShopifyProductResponse::errors);
 
                 if (response == null || response.data() == null) {
-                    throwOnGraphQLErrors(response);
+                    throwOnGraphQLErrors(response != null ? response.errors() : null);
                     throw new RuntimeException("Empty response from Shopify");
                 }
 
@@ -94,21 +90,128 @@ public class ShopifyAdapter {
         return allProducts;
     }
 
-    private ShopifyProductResponse executeWithRetry(WebClient client, String requestBody) {
+    /**
+     * Fetches only variant ids and inventory quantities for the whole store (stock-only sync).
+     * Costs a fraction of the products query, so it can run far more often than catalog syncs.
+     *
+     * @param config merchant's store URL and access token (must be non-null, non-blank)
+     * @return inventory per variant GID; never null
+     * @throws IllegalArgumentException if config is invalid
+     * @throws RuntimeException        on persistent API/network errors after retries
+     */
+    public List<VariantInventoryResponse.VariantInventoryNode> fetchInventoryLevels(ShopifyConfig config) {
+        validateConfig(config);
+        String storeHost = normalizeStoreHost(config.storeUrl());
+        WebClient client = buildClient(storeHost, config);
+        String query = buildInventoryQuery();
+
+        List<VariantInventoryResponse.VariantInventoryNode> levels = new ArrayList<>();
+        String cursor = null;
+        boolean hasNextPage = true;
+
+        try {
+            while (hasNextPage) {
+                VariantInventoryResponse response = executeWithRetry(client, createRequestBody(query, cursor),
+                        VariantInventoryResponse.class, VariantInventoryResponse::errors);
+
+                if (response == null || response.data() == null || response.data().productVariants() == null) {
+                    throwOnGraphQLErrors(response != null ? response.errors() : null);
+                    throw new RuntimeException("Empty response from Shopify");
+                }
+
+                VariantInventoryResponse.VariantInventoryConnection connection = response.data().productVariants();
+                for (VariantInventoryResponse.VariantInventoryEdge edge : connection.edges()) {
+                    if (edge.node() != null) levels.add(edge.node());
+                }
+
+                hasNextPage = connection.pageInfo().hasNextPage();
+                cursor = connection.pageInfo().endCursor();
+
+                if (hasNextPage) {
+                    sleep(shopifyConfig.getPageDelayMs());
+                }
+            }
+        } catch (WebClientResponseException e) {
+            log.error("Shopify API error for store {}: status={} body={}", storeHost, e.getStatusCode(), e.getResponseBodyAsString());
+            throw new RuntimeException("Shopify API error: " + e.getStatusCode(), e);
+        } catch (Exception e) {
+            log.error("Unexpected error during inventory sync for store: {}", storeHost, e);
+            throw new RuntimeException("Inventory sync failed: " + e.getMessage(), e);
+        }
+
+        log.debug("Fetched inventory for {} variants from store: {}", levels.size(), storeHost);
+        return levels;
+    }
+
+    /**
+     * Current total inventory of the variants behind the given inventory items (GIDs), as needed for
+     * {@code inventory_levels/update} webhooks, which only carry the item and one location's quantity.
+     *
+     * @return one entry per item that still has a variant
+     */
+    public List<VariantInventoryResponse.VariantInventoryNode> fetchInventoryByItemIds(ShopifyConfig config,
+                                                                                    List<String> inventoryItemIds) {
+        validateConfig(config);
+        String storeHost = normalizeStoreHost(config.storeUrl());
+        WebClient client = buildClient(storeHost, config);
+        String query = """
+            query inventoryItems($ids: [ID!]!) {
+              nodes(ids: $ids) {
+                ... on InventoryItem {
+                  id
+                  variant { id inventoryQuantity }
+                }
+              }
+            }
+            """;
+
+        List<VariantInventoryResponse.VariantInventoryNode> levels = new ArrayList<>();
+        int pageSize = shopifyConfig.getInventoryPageSize();
+        try {
+            for (int from = 0; from < inventoryItemIds.size(); from += pageSize) {
+                List<String> ids = inventoryItemIds.subList(from, Math.min(from + pageSize, inventoryItemIds.size()));
+                InventoryItemNodesResponse response = executeWithRetry(client,
+                        createRequestBody(query, Map.of("ids", ids)),
+                        InventoryItemNodesResponse.class, InventoryItemNodesResponse::errors);
+                if (response == null || response.data() == null || response.data().nodes() == null) {
+                    throw new RuntimeException("Empty response from Shopify");
+                }
+                for (InventoryItemNodesResponse.InventoryItemNode node : response.data().nodes()) {
+                    if (node != null && node.variant() != null) levels.add(node.variant());
+                }
+            }
+        } catch (WebClientResponseException e) {
+            log.error("Shopify API error for store {}: status={} body={}", storeHost, e.getStatusCode(), e.getResponseBodyAsString());
+            throw new RuntimeException("Shopify API error: " + e.getStatusCode(), e);
+        }
+        return levels;
+    }
+
+    private WebClient buildClient(String storeHost, ShopifyConfig config) {
+        String endpoint = "https://" + storeHost + "/admin/api/" + shopifyConfig.getApiVersion() + "/graphql.json";
+        return webClientBuilder
+                .baseUrl(endpoint)
+                .defaultHeader("X-Shopify-Access-Token", config.accessToken())
+                .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+
+    private <T> T executeWithRetry(WebClient client, String requestBody, Class<T> responseType,
+                                   Function<T, ShopifyProductResponse.Errors[]> errors) {
         Exception lastException = null;
         int maxRetries = shopifyConfig.getMaxRetries();
         long backoffMs = shopifyConfig.getRetryBackoffMs();
 
         for (int attempt = 0; attempt <= maxRetries; attempt++) {
             try {
-                ShopifyProductResponse response = client.post()
+                T response = client.post()
                         .bodyValue(requestBody)
                         .retrieve()
-                        .bodyToMono(ShopifyProductResponse.class)
+                        .bodyToMono(responseType)
                         .timeout(shopifyConfig.getRequestTimeout())
                         .block();
 
-                throwOnGraphQLErrors(response);
+                throwOnGraphQLErrors(response != null ? errors.apply(response) : null);
                 return response;
             } catch (WebClientResponseException e) {
                 lastException = e;
@@ -144,9 +247,9 @@ public class ShopifyAdapter {
         throw new RuntimeException("Shopify request failed after retries", lastException);
     }
 
-    private static void throwOnGraphQLErrors(ShopifyProductResponse response) {
-        if (response != null && response.errors() != null && response.errors().length > 0) {
-            String msg = response.errors()[0].message();
+    private static void throwOnGraphQLErrors(ShopifyProductResponse.Errors[] errors) {
+        if (errors != null && errors.length > 0) {
+            String msg = errors[0].message();
             throw new RuntimeException("Shopify GraphQL error: " + msg);
         }
     }
@@ -161,7 +264,8 @@ public class ShopifyAdapter {
         }
     }
 
-    private static String normalizeStoreHost(String storeUrl) {
+    /** "my-store", "https://my-store.myshopify.com/admin" -> "my-store.myshopify.com" */
+    public static String normalizeStoreHost(String storeUrl) {
         String host = storeUrl
                 .replace("https://", "")
                 .replace("http://", "")
@@ -222,7 +326,9 @@ public class ShopifyAdapter {
                           sku
                           barcode
                           price
+                          inventoryQuantity
                           selectedOptions { name value }
+                          media(first: 1) { edges { node { id } } }
                         }
                       }
                     }
@@ -233,11 +339,32 @@ public class ShopifyAdapter {
             """.formatted(pageSize, mediaFirst, variantsFirst);
     }
 
-    private String createRequestBody(String cursor) {
+    /** Variant ids and stock only; no product fields, media or options. */
+    private String buildInventoryQuery() {
+        return """
+            query getInventory($cursor: String) {
+              productVariants(first: %d, after: $cursor) {
+                pageInfo { hasNextPage endCursor }
+                edges {
+                  node {
+                    id
+                    inventoryQuantity
+                  }
+                }
+              }
+            }
+            """.formatted(shopifyConfig.getInventoryPageSize());
+    }
+
+    private String createRequestBody(String query, String cursor) {
+        Map<String, Object> variables = new java.util.HashMap<>();
+        variables.put("cursor", cursor);
+        return createRequestBody(query, variables);
+    }
+
+    private String createRequestBody(String query, Map<String, Object> variables) {
         try {
-            Map<String, Object> variables = new java.util.HashMap<>();
-            variables.put("cursor", cursor);
-            GraphQLRequest request = new GraphQLRequest(buildProductsQuery(), variables);
+            GraphQLRequest request = new GraphQLRequest(query, variables);
             return objectMapper.writeValueAsString(request);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Error building GraphQL request", e);
@@ -0,0 +1,82 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for writing to the master catalog (review decisions), exporting it and importing merchant
+ * catalog files.
+ * All values are configurable via application.properties under {@code app.catalog}.
+ */
+@ConfigurationProperties(prefix = "app.catalog")
+@Validated
+public class CatalogProperties {
+
+    /** Maximum variants generated from one options definition when creating a master product. */
+    @Min(1)
+    @Max(100_000)
+    private int maxGeneratedVariants = 5000;
+
+    /** Rows fetched per round trip by the catalog export cursor. */
+    @Min(100)
+    @Max(100_000)
+    private int exportFetchSize = 5000;
+
+    /** Longest CSV field accepted by a catalog file import; longer ones reject their row. */
+    @Min(1024)
+    @Max(16_777_216)
+    private int importMaxFieldChars = 65_536;
+
+    /** Longest CSV record or JSONL line (one whole product) accepted by a catalog file import. */
+    @Min(4096)
+    @Max(67_108_864)
+    private int importMaxLineChars = 1_048_576;
+
+    /** Most CSV rows or JSONL variants of one product in a catalog file import; more reject the product. */
+    @Min(1)
+    @Max(100_000)
+    private int importMaxRowsPerProduct = 5000;
+
+    public int getMaxGeneratedVariants() {
+        return maxGeneratedVariants;
+    }
+
+    public void setMaxGeneratedVariants(int maxGeneratedVariants) {
+        this.maxGeneratedVariants = maxGeneratedVariants;
+    }
+
+    public int getExportFetchSize() {
+        return exportFetchSize;
+    }
+
+    public void setExportFetchSize(int exportFetchSize) {
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    public int getImportMaxFieldChars() {
+        return importMaxFieldChars;
+    }
+
+    public void setImportMaxFieldChars(int importMaxFieldChars) {
+        this.importMaxFieldChars = importMaxFieldChars;
+    }
+
+    public int getImportMaxLineChars() {
+        return importMaxLineChars;
+    }
+
+    public void setImportMaxLineChars(int importMaxLineChars) {
+        this.importMaxLineChars = importMaxLineChars;
+    }
+
+    public int getImportMaxRowsPerProduct() {
+        return importMaxRowsPerProduct;
+    }
+
+    public void setImportMaxRowsPerProduct(int importMaxRowsPerProduct) {
+        this.importMaxRowsPerProduct = importMaxRowsPerProduct;
+    }
+}
@@ -0,0 +1,38 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for the scheduled stock-only sync of Shopify merchants.
+ * All values are configurable via application.properties under {@code app.inventory-sync}.
+ */
+@ConfigurationProperties(prefix = "app.inventory-sync")
+@Validated
+public class InventorySyncProperties {
+
+    /** Run the stock-only sync for all configured merchants on a fixed delay. */
+    private boolean enabled = true;
+
+    /** Delay between two stock-only sync rounds (ms). */
+    @Min(10_000)
+    private long intervalMs = 300_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public void setIntervalMs(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+}
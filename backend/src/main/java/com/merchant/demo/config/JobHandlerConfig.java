@@ -0,0 +1,49 @@
+package com.merchant.demo.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.merchant.demo.service.InventorySyncService;
+import com.merchant.demo.service.JobHandler;
+import com.merchant.demo.service.JobQueue;
+import com.merchant.demo.service.PricingService;
+import com.merchant.demo.service.ProductMatchingService;
+import com.merchant.demo.service.ProductSyncService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Job types run by the job queue workers; every merchant job carries {@code {"merchant_id": <id>}}.
+ */
+@Configuration
+public class JobHandlerConfig {
+
+    @Bean
+    public JobHandler merchantSyncJobHandler(ProductSyncService productSyncService) {
+        return JobHandler.of(JobQueue.MERCHANT_SYNC,
+                payload -> productSyncService.syncProductsForMerchant(merchantId(payload)));
+    }
+
+    @Bean
+    public JobHandler merchantInventorySyncJobHandler(InventorySyncService inventorySyncService) {
+        return JobHandler.of(JobQueue.MERCHANT_INVENTORY_SYNC,
+                payload -> inventorySyncService.syncInventory(merchantId(payload)));
+    }
+
+    @Bean
+    public JobHandler merchantMatchingJobHandler(ProductMatchingService productMatchingService) {
+        return JobHandler.of(JobQueue.MERCHANT_MATCHING,
+                payload -> productMatchingService.matchMerchant(merchantId(payload)));
+    }
+
+    @Bean
+    public JobHandler merchantRepriceJobHandler(PricingService pricingService) {
+        return JobHandler.of(JobQueue.MERCHANT_REPRICE,
+                payload -> pricingService.repriceMerchant(merchantId(payload)));
+    }
+
+    private static Integer merchantId(JsonNode payload) {
+        if (!payload.hasNonNull("merchant_id")) {
+            throw new IllegalArgumentException("merchant_id is required");
+        }
+        return payload.get("merchant_id").asInt();
+    }
+}
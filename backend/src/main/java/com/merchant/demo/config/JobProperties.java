@@ -0,0 +1,113 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for the Postgres-backed job queue and its worker pool.
+ * All values are configurable via application.properties under {@code app.jobs}.
+ */
+@ConfigurationProperties(prefix = "app.jobs")
+@Validated
+public class JobProperties {
+
+    /** Start workers on this instance (enqueueing works either way). */
+    private boolean workersEnabled = true;
+
+    /** Worker threads on this instance. */
+    @Min(1)
+    @Max(64)
+    private int workers = 4;
+
+    /** Idle delay between claim attempts of a worker (ms). */
+    @Min(50)
+    private long pollIntervalMs = 1000;
+
+    /** Visibility timeout: a running job whose lease is not renewed within this time is requeued (ms). */
+    @Min(10_000)
+    private long leaseMs = 120_000;
+
+    /** How often running jobs renew their lease and expired leases are requeued (ms); well below leaseMs. */
+    @Min(1000)
+    private long heartbeatMs = 30_000;
+
+    /** Base retry delay, doubled per attempt (ms). */
+    @Min(0)
+    private long retryBackoffMs = 10_000;
+
+    /** Default attempts per job. */
+    @Min(1)
+    @Max(50)
+    private int maxAttempts = 5;
+
+    /** Finished jobs are deleted after this many days. */
+    @Min(1)
+    private int retentionDays = 14;
+
+    public boolean isWorkersEnabled() {
+        return workersEnabled;
+    }
+
+    public void setWorkersEnabled(boolean workersEnabled) {
+        this.workersEnabled = workersEnabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public long getLeaseMs() {
+        return leaseMs;
+    }
+
+    public void setLeaseMs(long leaseMs) {
+        this.leaseMs = leaseMs;
+    }
+
+    public long getHeartbeatMs() {
+        return heartbeatMs;
+    }
+
+    public void setHeartbeatMs(long heartbeatMs) {
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+}
@@ -0,0 +1,130 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for matching staging products to master products after each sync.
+ * All values are configurable via application.properties under {@code app.matching}.
+ */
+@ConfigurationProperties(prefix = "app.matching")
+@Validated
+public class MatchingProperties {
+
+    /** Run matching automatically after every successful catalog sync. */
+    private boolean enabled = true;
+
+    /** Staging products matched per batch (one GTIN query, one title query, one batched update). */
+    @Min(1)
+    @Max(5000)
+    private int batchSize = 500;
+
+    /** Confidence (0-100) at or above which a staging product is moved to AUTO_MATCHED. */
+    @Min(0)
+    @Max(100)
+    private int autoMatchThreshold = 90;
+
+    /** Minimum trigram title similarity (plus vendor bonus) for a title-based suggestion. */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double minTitleScore = 0.45;
+
+    /** Added to the title similarity when the staging vendor equals the master product's brand name. */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double vendorBonus = 0.15;
+
+    /** Suggest master products whose images are near-duplicates of the staging product's images. */
+    private boolean imageMatchingEnabled = true;
+
+    /** Largest perceptual hash (dHash) Hamming distance, out of 64 bits, treated as the same picture. */
+    @Min(0)
+    @Max(7)
+    private int imageMaxDistance = 4;
+
+    /** Confidence (0-100) of an identical image; each differing hash bit costs 2 points. */
+    @Min(0)
+    @Max(100)
+    private int imageMatchConfidence = 85;
+
+    /** How often the master image hash index is checked for changes (ms). */
+    @Min(1000)
+    private long imageIndexRefreshMs = 300_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getAutoMatchThreshold() {
+        return autoMatchThreshold;
+    }
+
+    public void setAutoMatchThreshold(int autoMatchThreshold) {
+        this.autoMatchThreshold = autoMatchThreshold;
+    }
+
+    public double getMinTitleScore() {
+        return minTitleScore;
+    }
+
+    public void setMinTitleScore(double minTitleScore) {
+        this.minTitleScore = minTitleScore;
+    }
+
+    public double getVendorBonus() {
+        return vendorBonus;
+    }
+
+    public void setVendorBonus(double vendorBonus) {
+        this.vendorBonus = vendorBonus;
+    }
+
+    public boolean isImageMatchingEnabled() {
+        return imageMatchingEnabled;
+    }
+
+    public void setImageMatchingEnabled(boolean imageMatchingEnabled) {
+        this.imageMatchingEnabled = imageMatchingEnabled;
+    }
+
+    public int getImageMaxDistance() {
+        return imageMaxDistance;
+    }
+
+    public void setImageMaxDistance(int imageMaxDistance) {
+        this.imageMaxDistance = imageMaxDistance;
+    }
+
+    public int getImageMatchConfidence() {
+        return imageMatchConfidence;
+    }
+
+    public void setImageMatchConfidence(int imageMatchConfidence) {
+        this.imageMatchConfidence = imageMatchConfidence;
+    }
+
+    public long getImageIndexRefreshMs() {
+        return imageIndexRefreshMs;
+    }
+
+    public void setImageIndexRefreshMs(long imageIndexRefreshMs) {
+        this.imageIndexRefreshMs = imageIndexRefreshMs;
+    }
+}
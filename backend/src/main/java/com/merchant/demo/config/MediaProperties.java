@@ -0,0 +1,175 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Configuration for mirroring product images to local storage.
+ * All values are configurable via application.properties under {@code app.media}.
+ */
+@ConfigurationProperties(prefix = "app.media")
+@Validated
+public class MediaProperties {
+
+    /** Run the mirror poller on this instance. */
+    private boolean mirrorEnabled = true;
+
+    /** Root directory of the local media store (originals and thumbnails). */
+    @NotBlank
+    private String storageDir = "media-store";
+
+    /** Prefix of mirrored image URLs handed to clients (e.g. https://api.example.com); empty for relative URLs. */
+    private String publicBaseUrl = "";
+
+    /** Delay between mirror polls (ms). */
+    @Min(100)
+    private long pollIntervalMs = 5000;
+
+    /** Source URLs claimed per poll. */
+    @Min(1)
+    @Max(1000)
+    private int batchSize = 50;
+
+    /** Downloads in flight at once on this instance. */
+    @Min(1)
+    @Max(64)
+    private int downloadConcurrency = 4;
+
+    /** Timeout of a single download (ms). */
+    @Min(1000)
+    private long downloadTimeoutMs = 20_000;
+
+    /** Larger images are not mirrored (bytes). */
+    @Min(1024)
+    private int maxBytes = 20 * 1024 * 1024;
+
+    /** Images whose header declares more pixels are stored without a thumbnail or hash (width x height). */
+    @Min(1_000_000)
+    private long maxPixels = 40_000_000;
+
+    /** Longest edge of generated thumbnails (px). */
+    @Min(32)
+    @Max(2048)
+    private int thumbnailSize = 320;
+
+    /** A claimed URL not finished within this time is picked up again (ms). */
+    @Min(10_000)
+    private long claimTimeoutMs = 300_000;
+
+    /** Attempts before a source URL is marked FAILED. */
+    @Min(1)
+    @Max(50)
+    private int maxAttempts = 5;
+
+    /** Base delay before retrying a failed download, doubled per attempt (ms). */
+    @Min(1000)
+    private long retryBackoffMs = 60_000;
+
+    public boolean isMirrorEnabled() {
+        return mirrorEnabled;
+    }
+
+    public void setMirrorEnabled(boolean mirrorEnabled) {
+        this.mirrorEnabled = mirrorEnabled;
+    }
+
+    public String getStorageDir() {
+        return storageDir;
+    }
+
+    public void setStorageDir(String storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    public String getPublicBaseUrl() {
+        return publicBaseUrl;
+    }
+
+    public void setPublicBaseUrl(String publicBaseUrl) {
+        this.publicBaseUrl = publicBaseUrl;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getDownloadConcurrency() {
+        return downloadConcurrency;
+    }
+
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = downloadConcurrency;
+    }
+
+    public long getDownloadTimeoutMs() {
+        return downloadTimeoutMs;
+    }
+
+    public void setDownloadTimeoutMs(long downloadTimeoutMs) {
+        this.downloadTimeoutMs = downloadTimeoutMs;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxPixels() {
+        return maxPixels;
+    }
+
+    public void setMaxPixels(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public void setThumbnailSize(int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    public long getClaimTimeoutMs() {
+        return claimTimeoutMs;
+    }
+
+    public void setClaimTimeoutMs(long claimTimeoutMs) {
+        this.claimTimeoutMs = claimTimeoutMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        this.retryBackoffMs = retryBackoffMs;
+    }
+}
@@ -0,0 +1,41 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for loyalty points pricing.
+ * All values are configurable via application.properties under {@code app.points}.
+ */
+@ConfigurationProperties(prefix = "app.points")
+@Validated
+public class PointsProperties {
+
+    /** How often the conversion rule snapshot is checked for changes (ms). */
+    @Min(1000)
+    private long refreshIntervalMs = 60_000;
+
+    /** Maximum variant ids per points pricing request. */
+    @Min(1)
+    @Max(10_000)
+    private int maxBatchSize = 5000;
+
+    public long getRefreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    public void setRefreshIntervalMs(long refreshIntervalMs) {
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -0,0 +1,40 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for the offer price history ({@code offer_price_log}).
+ * All values are configurable via application.properties under {@code app.price-log}.
+ */
+@ConfigurationProperties(prefix = "app.price-log")
+@Validated
+public class PriceLogProperties {
+
+    /** Monthly partitions kept ready ahead of the current month, so inserts never fall into the default partition. */
+    @Min(1)
+    @Max(24)
+    private int partitionMonthsAhead = 3;
+
+    /** Cron for partition maintenance (also runs once at startup). */
+    private String partitionCron = "0 15 3 * * *";
+
+    public int getPartitionMonthsAhead() {
+        return partitionMonthsAhead;
+    }
+
+    public void setPartitionMonthsAhead(int partitionMonthsAhead) {
+        this.partitionMonthsAhead = partitionMonthsAhead;
+    }
+
+    public String getPartitionCron() {
+        return partitionCron;
+    }
+
+    public void setPartitionCron(String partitionCron) {
+        this.partitionCron = partitionCron;
+    }
+}
@@ -37,6 +37,10 @@ public class SecurityConfig {
                 .requestMatchers("/api/health").permitAll() // Allow public access to health check
                 .requestMatchers("/api/merchants/**").permitAll() // Allow public access to merchants
                 .requestMatchers("/api/admin/**").permitAll() // Allow public access to merchants
+                .requestMatchers("/api/partners/**").permitAll() // Loyalty partner storefront APIs
+                .requestMatchers("/api/webhooks/**").permitAll() // Shopify webhooks (HMAC-verified)
+                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/media/**").permitAll() // Mirrored product images
+                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/store/**").permitAll() // Storefront catalog reads
                 .anyRequest().authenticated() // Secure everything else
             );
 
@@ -49,6 +49,11 @@ public class ShopifyAdapterProperties {
     @Max(250)
     private int variantsFirst = 100;
 
+    /** Variants per page in the stock-only inventory query (Shopify max 250). */
+    @Min(1)
+    @Max(250)
+    private int inventoryPageSize = 250;
+
     public String getApiVersion() {
         return apiVersion;
     }
@@ -112,4 +117,12 @@ public class ShopifyAdapterProperties {
     public void setVariantsFirst(int variantsFirst) {
         this.variantsFirst = variantsFirst;
     }
+
+    public int getInventoryPageSize() {
+        return inventoryPageSize;
+    }
+
+    public void setInventoryPageSize(int inventoryPageSize) {
+        this.inventoryPageSize = inventoryPageSize;
+    }
 }
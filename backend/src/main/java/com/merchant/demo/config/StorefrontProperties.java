@@ -0,0 +1,117 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for the storefront catalog read API and its product documents.
+ * All values are configurable via application.properties under {@code app.storefront}.
+ */
+@ConfigurationProperties(prefix = "app.storefront")
+@Validated
+public class StorefrontProperties {
+
+    /** Rebuild queued product documents on this instance. */
+    private boolean documentRefreshEnabled = true;
+
+    /** Delay between polls of the product document queue (ms). */
+    @Min(100)
+    private long documentRefreshIntervalMs = 1000;
+
+    /** Products rebuilt per transaction. */
+    @Min(1)
+    @Max(5000)
+    private int documentBatchSize = 500;
+
+    /**
+     * Timeout of one document rebuild transaction (seconds). Bounds how long after its {@code built_at} stamp
+     * a document can commit, which is how far back the facet index re-reads changes.
+     */
+    @Min(1)
+    @Max(300)
+    private int documentRefreshTimeoutSeconds = 30;
+
+    /** Maximum product ids per batched lookup. */
+    @Min(1)
+    @Max(1000)
+    private int maxLookupIds = 200;
+
+    /** Keep the in-memory facet index of the catalog search up to date on this instance. */
+    private boolean facetIndexEnabled = true;
+
+    /** Delay between checks for changed product documents to apply to the facet index (ms). */
+    @Min(100)
+    private long facetRefreshIntervalMs = 5000;
+
+    /** Maximum products per catalog search page. */
+    @Min(1)
+    @Max(500)
+    private int maxPageSize = 100;
+
+    public boolean isDocumentRefreshEnabled() {
+        return documentRefreshEnabled;
+    }
+
+    public void setDocumentRefreshEnabled(boolean documentRefreshEnabled) {
+        this.documentRefreshEnabled = documentRefreshEnabled;
+    }
+
+    public int getDocumentRefreshTimeoutSeconds() {
+        return documentRefreshTimeoutSeconds;
+    }
+
+    public void setDocumentRefreshTimeoutSeconds(int documentRefreshTimeoutSeconds) {
+        this.documentRefreshTimeoutSeconds = documentRefreshTimeoutSeconds;
+    }
+
+    public long getDocumentRefreshIntervalMs() {
+        return documentRefreshIntervalMs;
+    }
+
+    public void setDocumentRefreshIntervalMs(long documentRefreshIntervalMs) {
+        this.documentRefreshIntervalMs = documentRefreshIntervalMs;
+    }
+
+    public int getDocumentBatchSize() {
+        return documentBatchSize;
+    }
+
+    public void setDocumentBatchSize(int documentBatchSize) {
+        this.documentBatchSize = documentBatchSize;
+    }
+
+    public int getMaxLookupIds() {
+        return maxLookupIds;
+    }
+
+    public void setMaxLookupIds(int maxLookupIds) {
+        this.maxLookupIds = maxLookupIds;
+    }
+
+    public boolean isFacetIndexEnabled() {
+        return facetIndexEnabled;
+    }
+
+    public void setFacetIndexEnabled(boolean facetIndexEnabled) {
+        this.facetIndexEnabled = facetIndexEnabled;
+    }
+
+    public long getFacetRefreshIntervalMs() {
+        return facetRefreshIntervalMs;
+    }
+
+    public void setFacetRefreshIntervalMs(long facetRefreshIntervalMs) {
+        this.facetRefreshIntervalMs = facetRefreshIntervalMs;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+}
@@ -0,0 +1,117 @@
+package com.merchant.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configuration for Shopify webhook ingestion and the webhook event processor.
+ * All values are configurable via application.properties under {@code app.webhooks}.
+ */
+@ConfigurationProperties(prefix = "app.webhooks")
+@Validated
+public class WebhookProperties {
+
+    /** HMAC secret for stores whose source_config has no webhook_secret (the app's API secret). */
+    private String shopifySecret = "";
+
+    /** How long an event waits for newer events on the same product/item before it is applied (ms). */
+    @Min(0)
+    @Max(600_000)
+    private long coalesceWindowMs = 5000;
+
+    /** Delay between processor polls (ms). */
+    @Min(100)
+    private long pollIntervalMs = 2000;
+
+    /** Events claimed per poll. */
+    @Min(1)
+    @Max(1000)
+    private int batchSize = 200;
+
+    /** A claimed event not finished within this time is picked up again (ms). */
+    @Min(10_000)
+    private long claimTimeoutMs = 300_000;
+
+    /** Attempts before an event is marked FAILED. */
+    @Min(1)
+    @Max(50)
+    private int maxAttempts = 5;
+
+    /**
+     * Product events that hit a running catalog sync of their merchant wait this long before they are claimed
+     * again (ms). Waiting does not count as an attempt.
+     */
+    @Min(1000)
+    private long syncBusyDelayMs = 30_000;
+
+    /** Processed events are deleted after this many days. */
+    @Min(1)
+    private int retentionDays = 7;
+
+    public String getShopifySecret() {
+        return shopifySecret;
+    }
+
+    public void setShopifySecret(String shopifySecret) {
+        this.shopifySecret = shopifySecret;
+    }
+
+    public long getCoalesceWindowMs() {
+        return coalesceWindowMs;
+    }
+
+    public void setCoalesceWindowMs(long coalesceWindowMs) {
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getClaimTimeoutMs() {
+        return claimTimeoutMs;
+    }
+
+    public void setClaimTimeoutMs(long claimTimeoutMs) {
+        this.claimTimeoutMs = claimTimeoutMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getSyncBusyDelayMs() {
+        return syncBusyDelayMs;
+    }
+
+    public void setSyncBusyDelayMs(long syncBusyDelayMs) {
+        this.syncBusyDelayMs = syncBusyDelayMs;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+}
@@ -1,12 +1,23 @@
 package com.merchant.demo.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.merchant.demo.dto.admin.*;
 import com.merchant.demo.service.AdminService;
+import com.merchant.demo.service.BulkReviewService;
+import com.merchant.demo.service.CatalogExportService;
+import com.merchant.demo.service.JobQueue;
+import com.merchant.demo.service.MarginRuleService;
+import com.merchant.demo.service.PricingService;
+import com.merchant.demo.service.ProductMatchingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
@@ -18,6 +29,12 @@ import java.util.NoSuchElementException;
 public class AdminController {
 
     private final AdminService adminService;
+    private final ProductMatchingService productMatchingService;
+    private final BulkReviewService bulkReviewService;
+    private final MarginRuleService marginRuleService;
+    private final PricingService pricingService;
+    private final JobQueue jobQueue;
+    private final CatalogExportService catalogExportService;
 
     @GetMapping("/stats")
     public ResponseEntity<AdminStatsDto> getStats() {
@@ -59,6 +76,35 @@ public class AdminController {
         }
     }
 
+    /** Active variants of a master product with their images, for storefront rendering. */
+    @GetMapping("/products/{productId}/variants/images")
+    public ResponseEntity<java.util.List<MasterVariantImagesDto>> getProductVariantImages(@PathVariable Integer productId) {
+        try {
+            return ResponseEntity.ok(adminService.getProductVariantImages(productId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Find master variants by option values, e.g. {@code /variants/by-attributes?Color=Red&Size=M&product_id=12}.
+     * Every query parameter other than product_id and limit is treated as an option name.
+     */
+    @GetMapping("/variants/by-attributes")
+    public ResponseEntity<java.util.List<MasterVariantDto>> findVariantsByAttributes(
+            @RequestParam(name = "product_id", required = false) Integer productId,
+            @RequestParam(required = false, defaultValue = "50") int limit,
+            @RequestParam java.util.Map<String, String> params) {
+        java.util.Map<String, String> attributes = new java.util.LinkedHashMap<>(params);
+        attributes.remove("product_id");
+        attributes.remove("limit");
+        try {
+            return ResponseEntity.ok(adminService.findVariantsByAttributes(productId, attributes, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @GetMapping("/products/search")
     public ResponseEntity<java.util.List<MasterProductSearchDto>> searchProducts(
             @RequestParam(required = false, defaultValue = "") String q) {
@@ -76,6 +122,29 @@ public class AdminController {
         }
     }
 
+    /**
+     * Full catalog dump: products, variants and offers as CSV (one row per offer) or JSONL (one product per line),
+     * streamed from a database cursor, e.g. {@code /export/catalog?format=jsonl}.
+     */
+    @GetMapping("/export/catalog")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(
+            @RequestParam(required = false, defaultValue = "csv") String format) {
+        CatalogExportService.Format exportFormat;
+        try {
+            exportFormat = CatalogExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        StreamingResponseBody body = out -> catalogExportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("catalog." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     @GetMapping("/products")
     public ResponseEntity<org.springframework.data.domain.Page<MasterProductListItemDto>> getMasterProducts(
             @PageableDefault(size = 20) Pageable pageable) {
@@ -108,6 +177,117 @@ public class AdminController {
         }
     }
 
+    /** Apply many decisions at once; each item reports its own outcome, so one bad decision does not fail the request. */
+    @PostMapping("/review/decisions/bulk")
+    public ResponseEntity<BulkReviewDecisionResultDto> submitBulkDecisions(@RequestBody BulkReviewDecisionRequest request) {
+        try {
+            return ResponseEntity.ok(bulkReviewService.submitDecisions(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /** Re-run auto-matching for a merchant's undecided staging products (normally triggered after sync). */
+    @PostMapping("/merchants/{merchantId}/match")
+    public ResponseEntity<MatchingRunDto> runMatching(@PathVariable Integer merchantId) {
+        return ResponseEntity.ok(productMatchingService.matchMerchant(merchantId));
+    }
+
+    // ── Margin rules & pricing ──────────────────────────────────────────
+
+    @GetMapping("/merchants/{merchantId}/margin-rules")
+    public ResponseEntity<java.util.List<MarginRuleDto>> listMarginRules(@PathVariable Integer merchantId) {
+        try {
+            return ResponseEntity.ok(marginRuleService.listRules(merchantId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Create a margin rule; the merchant's offers are repriced in the background once it commits. */
+    @PostMapping("/merchants/{merchantId}/margin-rules")
+    public ResponseEntity<MarginRuleDto> createMarginRule(
+            @PathVariable Integer merchantId,
+            @RequestBody CreateMarginRuleRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(marginRuleService.createRule(merchantId, request));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/margin-rules/{ruleId}")
+    public ResponseEntity<Void> deactivateMarginRule(@PathVariable Integer ruleId) {
+        try {
+            marginRuleService.deactivateRule(ruleId);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Recompute settlement prices for all of a merchant's offers (normally triggered by rule changes). */
+    @PostMapping("/merchants/{merchantId}/reprice")
+    public ResponseEntity<RepriceRunDto> repriceMerchant(@PathVariable Integer merchantId) {
+        return ResponseEntity.ok(pricingService.repriceMerchant(merchantId));
+    }
+
+    // ── Background jobs ─────────────────────────────────────────────────
+
+    /** Queue a background job, e.g. {@code {"job_type": "merchant.matching", "payload": {"merchant_id": 3}}}. */
+    @PostMapping("/jobs")
+    public ResponseEntity<JobDto> enqueueJob(@RequestBody EnqueueJobRequest request) {
+        try {
+            JsonNode payload = request.getPayload();
+            // Merchant jobs share the merchant's concurrency/dedupe key with event-triggered ones
+            String key = payload != null && payload.hasNonNull("merchant_id")
+                    ? "merchant:" + payload.get("merchant_id").asInt() : null;
+            int priority = request.getPriority() != null ? request.getPriority() : JobQueue.PRIORITY_INTERACTIVE;
+            long jobId = jobQueue.enqueue(request.getJobType(), payload, priority, key, key);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobQueue.getJob(jobId));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<JobDto> getJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(jobQueue.getJob(jobId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Offer price in effect at a point in time, e.g. {@code /offers/42/price?at=2026-03-10T12:00:00Z}. */
+    @GetMapping("/offers/{offerId}/price")
+    public ResponseEntity<OfferPriceDto> getOfferPriceAt(
+            @PathVariable Integer offerId,
+            @RequestParam(required = false) java.time.Instant at) {
+        try {
+            return ResponseEntity.ok(pricingService.getPriceAt(offerId, at != null ? at : java.time.Instant.now()));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Price history of an offer; defaults to the last 90 days. */
+    @GetMapping("/offers/{offerId}/price-history")
+    public ResponseEntity<java.util.List<OfferPriceDto>> getOfferPriceHistory(
+            @PathVariable Integer offerId,
+            @RequestParam(required = false) java.time.Instant from,
+            @RequestParam(required = false) java.time.Instant to) {
+        java.time.Instant end = to != null ? to : java.time.Instant.now();
+        java.time.Instant start = from != null ? from : end.minus(java.time.Duration.ofDays(90));
+        try {
+            return ResponseEntity.ok(pricingService.getPriceHistory(offerId, start, end));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     // ── Brand CRUD ──────────────────────────────────────────────────────
 
     @PostMapping("/brands")
@@ -0,0 +1,56 @@
+package com.merchant.demo.controller;
+
+import com.merchant.demo.service.MediaMirrorService;
+import com.merchant.demo.service.MediaMirrorService.MirroredFile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+
+/**
+ * Mirrored product images. URLs are content-addressed (SHA-256), so responses never change and are cached
+ * for a year as immutable.
+ */
+@RestController
+@RequestMapping("/api/media")
+@RequiredArgsConstructor
+public class MediaController {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final MediaMirrorService mediaMirrorService;
+
+    @GetMapping("/{sha256}")
+    public ResponseEntity<Resource> getOriginal(@PathVariable String sha256) {
+        try {
+            return serve(sha256, mediaMirrorService.getOriginal(sha256));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{sha256}/thumbnail")
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String sha256) {
+        try {
+            return serve(sha256 + "-t", mediaMirrorService.getThumbnail(sha256));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<Resource> serve(String etag, MirroredFile file) {
+        return ResponseEntity.ok()
+                .cacheControl(IMMUTABLE)
+                .eTag(etag)
+                .contentType(MediaType.parseMediaType(file.contentType()))
+                .header("X-Content-Type-Options", "nosniff")
+                .body(file.resource());
+    }
+}
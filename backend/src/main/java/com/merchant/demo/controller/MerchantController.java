@@ -2,14 +2,19 @@ package com.merchant.demo.controller;
 
 import com.merchant.demo.dto.CreateMerchantRequest;
 import com.merchant.demo.dto.DashboardStatsDto;
+import com.merchant.demo.dto.InventorySyncResultDto;
 import com.merchant.demo.dto.IssueProductDto;
 import com.merchant.demo.dto.StagingProductListItemDto;
 import com.merchant.demo.dto.SyncResultDto;
+import com.merchant.demo.dto.SyncRowErrorDto;
 import com.merchant.demo.dto.UpdateMerchantRequest;
 import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.service.CatalogFileParser;
+import com.merchant.demo.service.InventorySyncService;
 import com.merchant.demo.service.MerchantService;
 import com.merchant.demo.service.ProductSyncService;
 import com.merchant.demo.service.StagingProductService;
+import com.merchant.demo.service.SyncInProgressException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -20,6 +25,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -28,8 +35,11 @@ import java.util.NoSuchElementException;
 @RequiredArgsConstructor
 public class MerchantController {
 
+    private static final int MAX_ERRORS_PAGE = 1000;
+
     private final MerchantService merchantService;
     private final ProductSyncService productSyncService;
+    private final InventorySyncService inventorySyncService;
     private final StagingProductService stagingProductService;
 
     @GetMapping
@@ -59,24 +69,102 @@ public class MerchantController {
         } catch (NoSuchElementException e) {
             // Translate Service exceptions to HTTP Status codes
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating merchant");
         }
     }
 
+    /**
+     * Full catalog sync. When one is already running for the merchant (on any instance), answers 202 with that
+     * sync's progress instead of starting another; poll /sync/status until it finishes.
+     */
     @PostMapping("/{merchantId}/sync")
     public ResponseEntity<SyncResultDto> syncMerchantProducts(@PathVariable Integer merchantId) {
         try {
             SyncResultDto result = productSyncService.syncProductsForMerchant(merchantId);
             return ResponseEntity.ok(result);
+        } catch (SyncInProgressException e) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(e.getRunning());
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             // A generic catch-all for other potential issues during sync
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to sync products: " + e.getMessage());
         }
     }
 
+    /**
+     * Catalog file import for merchants with source_type FILE. The request body is the file itself (CSV with a
+     * header row, or JSONL), read while it streams in; rejected rows are listed by /sync/{syncLogId}/errors.
+     * Like /sync, answers 202 with the running sync's progress when one is already running for the merchant.
+     */
+    @PostMapping("/{merchantId}/import")
+    public ResponseEntity<SyncResultDto> importCatalogFile(
+            @PathVariable Integer merchantId,
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body) {
+        try {
+            return ResponseEntity.ok(productSyncService.importCatalogFile(merchantId,
+                    CatalogFileParser.Format.parse(format), body));
+        } catch (SyncInProgressException e) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(e.getRunning());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to read the uploaded file: " + e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to import products: " + e.getMessage());
+        }
+    }
+
+    /** Rows a file import rejected, in file order. */
+    @GetMapping("/{merchantId}/sync/{syncLogId}/errors")
+    public ResponseEntity<List<SyncRowErrorDto>> getSyncErrors(
+            @PathVariable Integer merchantId,
+            @PathVariable Integer syncLogId,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_ERRORS_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_ERRORS_PAGE);
+        }
+        return ResponseEntity.ok(productSyncService.getSyncErrors(merchantId, syncLogId, limit).stream()
+                .map(error -> SyncRowErrorDto.builder()
+                        .rowNumber(error.rowNumber())
+                        .productId(error.externalProductId())
+                        .message(error.message())
+                        .build())
+                .toList());
+    }
+
+    /** Latest catalog sync run of the merchant (progress while IN_PROGRESS). */
+    @GetMapping("/{merchantId}/sync/status")
+    public ResponseEntity<SyncResultDto> getSyncStatus(@PathVariable Integer merchantId) {
+        try {
+            return ResponseEntity.ok(productSyncService.getSyncStatus(merchantId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Stock-only sync: updates current_stock of live offers without a full catalog sync. */
+    @PostMapping("/{merchantId}/sync/inventory")
+    public ResponseEntity<InventorySyncResultDto> syncMerchantInventory(@PathVariable Integer merchantId) {
+        try {
+            return ResponseEntity.ok(inventorySyncService.syncInventory(merchantId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to sync inventory: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{merchantId}/staging")
     public ResponseEntity<Page<StagingProductListItemDto>> getStaging(
             @PathVariable Integer merchantId,
@@ -0,0 +1,37 @@
+package com.merchant.demo.controller;
+
+import com.merchant.demo.dto.partner.PointsPriceBatchDto;
+import com.merchant.demo.dto.partner.PointsPriceRequest;
+import com.merchant.demo.service.PointsPricingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Endpoints for loyalty partners' storefronts.
+ */
+@RestController
+@RequestMapping("/api/partners")
+@RequiredArgsConstructor
+public class PartnerController {
+
+    private final PointsPricingService pointsPricingService;
+
+    /** Points prices of the live offers of up to {@code app.points.max-batch-size} variants. */
+    @PostMapping("/{partnerId}/points-prices")
+    public ResponseEntity<PointsPriceBatchDto> getPointsPrices(
+            @PathVariable Integer partnerId,
+            @RequestBody PointsPriceRequest request) {
+        try {
+            return ResponseEntity.ok(pointsPricingService.priceVariants(partnerId, request.getVariantIds()));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
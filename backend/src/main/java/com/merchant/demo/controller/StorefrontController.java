@@ -0,0 +1,132 @@
+package com.merchant.demo.controller;
+
+import com.merchant.demo.dto.store.BestOfferDto;
+import com.merchant.demo.dto.store.CatalogSearchDto;
+import com.merchant.demo.repository.ProductDocumentRepository.StoredDocument;
+import com.merchant.demo.service.BestOfferService;
+import com.merchant.demo.service.CatalogSearchService;
+import com.merchant.demo.service.ProductDocumentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+
+/**
+ * Read-only storefront catalog. Responses are the stored product documents written out as is
+ * (snake_case JSON: product, brand, categories, media, active variants with images and best offer);
+ * the faceted search returns product ids to fetch them by.
+ */
+@RestController
+@RequestMapping("/api/store")
+@RequiredArgsConstructor
+public class StorefrontController {
+
+    private static final Set<String> SEARCH_PARAMS =
+            Set.of("brand_id", "category_id", "min_price", "max_price", "page", "size");
+
+    private final ProductDocumentService productDocumentService;
+    private final BestOfferService bestOfferService;
+    private final CatalogSearchService catalogSearchService;
+
+    /**
+     * One product; the ETag is the document version, so unchanged products answer 304. Versions are never reused
+     * (V22), and the separator differs from the per-product versions before that, so no ETag a client still holds
+     * can match a different document.
+     */
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<String> getProduct(@PathVariable Integer productId, WebRequest request) {
+        StoredDocument document;
+        try {
+            document = productDocumentService.getProduct(productId);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        String etag = "\"" + document.productId() + ":" + document.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.json());
+    }
+
+    /** Several products by id ({@code ?ids=1,2,3}), in request order; unknown or inactive ids are skipped. */
+    @GetMapping("/products")
+    public ResponseEntity<String> getProducts(@RequestParam List<Integer> ids) {
+        List<StoredDocument> documents;
+        try {
+            documents = productDocumentService.getProducts(ids);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        StringBuilder body = new StringBuilder(documents.stream().mapToInt(d -> d.json().length() + 1).sum() + 16);
+        body.append("{\"products\":[");
+        for (int i = 0; i < documents.size(); i++) {
+            if (i > 0) body.append(',');
+            body.append(documents.get(i).json());
+        }
+        body.append("]}");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.toString());
+    }
+
+    /**
+     * Faceted product search, e.g. {@code /catalog?category_id=4&brand_id=1,2&Color=Red&Color=Blue&max_price=500000}.
+     * Every query parameter other than brand_id, category_id, min_price, max_price, page and size is treated as an
+     * option name; repeated values match any of them, and all options must match on the same variant
+     * ({@code Color=Red&Size=M} needs a Red/M variant). Prices are settlement prices in minor units.
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<CatalogSearchDto> searchCatalog(
+            @RequestParam(name = "brand_id", required = false) List<Integer> brandIds,
+            @RequestParam(name = "category_id", required = false) List<Integer> categoryIds,
+            @RequestParam(name = "min_price", required = false) Long minPrice,
+            @RequestParam(name = "max_price", required = false) Long maxPrice,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam MultiValueMap<String, String> params) {
+        Map<String, List<String>> options = new LinkedHashMap<>(params);
+        options.keySet().removeAll(SEARCH_PARAMS);
+        try {
+            return ResponseEntity.ok(catalogSearchService.search(idSet(brandIds), idSet(categoryIds), options,
+                    minPrice, maxPrice, page, size));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static Set<Integer> idSet(List<Integer> ids) {
+        if (ids == null) return Set.of();
+        Set<Integer> set = new HashSet<>(ids);
+        set.remove(null);
+        return set;
+    }
+
+    /** The offer shown for a master variant; 404 when no merchant has it live and in stock. */
+    @GetMapping("/variants/{variantId}/best-offer")
+    public ResponseEntity<BestOfferDto> getBestOffer(@PathVariable Integer variantId) {
+        try {
+            return ResponseEntity.ok(bestOfferService.getBestOffer(variantId));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /** Best offers of several variants ({@code ?ids=1,2,3}), in request order; variants without one are skipped. */
+    @GetMapping("/variants/best-offers")
+    public ResponseEntity<List<BestOfferDto>> getBestOffers(@RequestParam List<Integer> ids) {
+        try {
+            return ResponseEntity.ok(bestOfferService.getBestOffers(ids));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.merchant.demo.controller;
+
+import com.merchant.demo.service.WebhookIngestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Receives Shopify webhooks. Events are verified and queued, then applied asynchronously; Shopify only
+ * needs a fast 200 (it retries anything else).
+ */
+@RestController
+@RequestMapping("/api/webhooks")
+@RequiredArgsConstructor
+public class WebhookController {
+
+    private final WebhookIngestionService webhookIngestionService;
+
+    @PostMapping("/shopify")
+    public ResponseEntity<Void> receiveShopifyWebhook(
+            @RequestHeader(value = "X-Shopify-Topic", required = false) String topic,
+            @RequestHeader(value = "X-Shopify-Shop-Domain", required = false) String shopDomain,
+            @RequestHeader(value = "X-Shopify-Hmac-Sha256", required = false) String hmac,
+            @RequestHeader(value = "X-Shopify-Webhook-Id", required = false) String webhookId,
+            @RequestBody byte[] body) {
+        try {
+            webhookIngestionService.ingest(topic, shopDomain, hmac, webhookId, body);
+            return ResponseEntity.ok().build();
+        } catch (SecurityException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
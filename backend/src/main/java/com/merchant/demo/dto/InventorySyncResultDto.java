@@ -0,0 +1,15 @@
+package com.merchant.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySyncResultDto {
+    private int variantsFetched;
+    /** Live offers whose stock changed. */
+    private int offersUpdated;
+    private long durationMs;
+}
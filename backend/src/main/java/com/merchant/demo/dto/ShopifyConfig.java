@@ -5,5 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 // Using a record for an immutable data carrier
 public record ShopifyConfig(
     @JsonProperty("store_url") String storeUrl,
-    @JsonProperty("access_token") String accessToken
-) {}
\ No newline at end of file
+    @JsonProperty("access_token") String accessToken,
+    // Signs this store's webhooks (X-Shopify-Hmac-Sha256); falls back to app.webhooks.shopify-secret
+    @JsonProperty("webhook_secret") String webhookSecret
+) {}
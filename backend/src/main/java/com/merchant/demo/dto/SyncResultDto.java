@@ -11,4 +11,10 @@ public class SyncResultDto {
     private String message;
     private int productsSynced;
     private int variantsSynced;
-}
\ No newline at end of file
+    /** Live offers whose price or stock changed. */
+    private int offersUpdated;
+    /** The sync_logs row of this run (poll it via /sync/status while IN_PROGRESS). */
+    private Integer syncLogId;
+    /** IN_PROGRESS, SUCCESS, PARTIAL_SUCCESS (file import with rejected rows) or FAILED. */
+    private String status;
+}
@@ -0,0 +1,24 @@
+package com.merchant.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A row a catalog file import rejected. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncRowErrorDto {
+    /** CSV record number (header = 1) or JSONL line number. */
+    @JsonProperty("row_number")
+    private long rowNumber;
+
+    @JsonProperty("product_id")
+    private String productId;
+
+    @JsonProperty("message")
+    private String message;
+}
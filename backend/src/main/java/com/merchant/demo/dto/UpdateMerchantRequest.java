@@ -14,9 +14,13 @@ public class UpdateMerchantRequest {
 
     @JsonProperty("source_config")
     private Map<String, Object> sourceConfig;
+
+    /** SHOPIFY (catalog synced from the store) or FILE (catalog imported from CSV / JSONL files). */
+    @JsonProperty("source_type")
+    private String sourceType;
     
     // Helper to check if the DTO is effectively empty
     public boolean isEmpty() {
-        return name == null && shopifyConfigured == null && sourceConfig == null;
+        return name == null && shopifyConfigured == null && sourceConfig == null && sourceType == null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkReviewDecisionRequest {
+
+    private List<ItemDto> decisions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemDto {
+        @JsonProperty("staging_id")
+        private Integer stagingId;
+        /** Same payload as the single-product decision endpoint. */
+        private ReviewDecisionRequest decision;
+    }
+}
@@ -0,0 +1,41 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkReviewDecisionResultDto {
+
+    public static final String OUTCOME_APPROVED = "APPROVED";
+    public static final String OUTCOME_REJECTED = "REJECTED";
+    public static final String OUTCOME_FAILED = "FAILED";
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    /** One entry per request item, in request order. */
+    private List<ItemResultDto> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResultDto {
+        @JsonProperty("staging_id")
+        private Integer stagingId;
+        private String action;
+        private String outcome;
+        /** Created (CREATE_NEW) or linked (LINK_EXISTING) master product. */
+        @JsonProperty("product_id")
+        private Integer productId;
+        private String error;
+    }
+}
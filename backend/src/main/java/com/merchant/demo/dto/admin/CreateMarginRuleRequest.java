@@ -0,0 +1,29 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateMarginRuleRequest {
+    /** Optional: narrow the rule to one brand. */
+    @JsonProperty("brand_id")
+    private Integer brandId;
+    /** Optional: narrow the rule to one category (and its subcategories). */
+    @JsonProperty("category_id")
+    private Integer categoryId;
+    @JsonProperty("margin_percentage")
+    private BigDecimal marginPercentage;
+    /** Defaults to now. */
+    @JsonProperty("valid_from")
+    private Instant validFrom;
+    /** Null = open-ended. */
+    @JsonProperty("valid_to")
+    private Instant validTo;
+}
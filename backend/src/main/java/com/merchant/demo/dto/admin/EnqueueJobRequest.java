@@ -0,0 +1,21 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnqueueJobRequest {
+    @JsonProperty("job_type")
+    private String jobType;
+    /** Handler-specific, e.g. {"merchant_id": 42}. */
+    @JsonProperty("payload")
+    private JsonNode payload;
+    /** Optional; lower runs first (default 100). */
+    @JsonProperty("priority")
+    private Integer priority;
+}
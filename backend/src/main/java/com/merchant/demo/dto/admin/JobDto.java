@@ -0,0 +1,58 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobDto {
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("job_type")
+    private String jobType;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("priority")
+    private int priority;
+
+    @JsonProperty("concurrency_key")
+    private String concurrencyKey;
+
+    @JsonProperty("attempts")
+    private int attempts;
+
+    @JsonProperty("max_attempts")
+    private int maxAttempts;
+
+    @JsonProperty("payload")
+    private JsonNode payload;
+
+    @JsonProperty("result")
+    private JsonNode result;
+
+    @JsonProperty("last_error")
+    private String lastError;
+
+    @JsonProperty("run_after")
+    private Instant runAfter;
+
+    @JsonProperty("created_at")
+    private Instant createdAt;
+
+    @JsonProperty("started_at")
+    private Instant startedAt;
+
+    @JsonProperty("finished_at")
+    private Instant finishedAt;
+}
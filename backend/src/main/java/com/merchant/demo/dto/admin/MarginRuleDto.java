@@ -0,0 +1,33 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarginRuleDto {
+    @JsonProperty("id")
+    private Integer id;
+    @JsonProperty("merchant_id")
+    private Integer merchantId;
+    @JsonProperty("brand_id")
+    private Integer brandId;
+    @JsonProperty("category_id")
+    private Integer categoryId;
+    @JsonProperty("margin_percentage")
+    private BigDecimal marginPercentage;
+    @JsonProperty("valid_from")
+    private Instant validFrom;
+    @JsonProperty("valid_to")
+    private Instant validTo;
+    @JsonProperty("is_active")
+    private Boolean isActive;
+}
@@ -15,6 +15,8 @@ import java.util.Map;
 public class MasterVariantDto {
     @JsonProperty("id")
     private Integer id;
+    @JsonProperty("product_id")
+    private Integer productId;
     @JsonProperty("internal_sku")
     private String internalSku;
     @JsonProperty("gtin")
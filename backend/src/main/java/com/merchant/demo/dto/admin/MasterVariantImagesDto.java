@@ -0,0 +1,48 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/** An active master variant with its images, in media position order. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MasterVariantImagesDto {
+    @JsonProperty("id")
+    private Integer id;
+    @JsonProperty("internal_sku")
+    private String internalSku;
+    @JsonProperty("gtin")
+    private String gtin;
+    @JsonProperty("options")
+    private Map<String, String> options;
+    @JsonProperty("images")
+    private List<VariantImageDto> images;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VariantImageDto {
+        @JsonProperty("media_id")
+        private Integer mediaId;
+        @JsonProperty("src_url")
+        private String srcUrl;
+        @JsonProperty("alt_text")
+        private String altText;
+        @JsonProperty("position")
+        private Integer position;
+        /** Locally mirrored copy (null until mirrored). */
+        @JsonProperty("mirror_url")
+        private String mirrorUrl;
+        @JsonProperty("thumbnail_url")
+        private String thumbnailUrl;
+    }
+}
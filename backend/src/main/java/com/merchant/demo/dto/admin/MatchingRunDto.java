@@ -0,0 +1,33 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchingRunDto {
+    @JsonProperty("merchant_id")
+    private Integer merchantId;
+
+    @JsonProperty("processed")
+    private int processed;
+
+    /** Staging products that received (or kept) a suggested master product. */
+    @JsonProperty("suggested")
+    private int suggested;
+
+    @JsonProperty("auto_matched")
+    private int autoMatched;
+
+    /** Rows whose suggestion, score or status actually changed. */
+    @JsonProperty("updated")
+    private int updated;
+
+    @JsonProperty("duration_ms")
+    private long durationMs;
+}
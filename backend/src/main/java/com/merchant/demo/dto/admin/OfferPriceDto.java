@@ -0,0 +1,32 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/** One entry of an offer's price history; valid_to is null for the current price. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfferPriceDto {
+    @JsonProperty("offer_id")
+    private Integer offerId;
+    @JsonProperty("currency_code")
+    private String currencyCode;
+    @JsonProperty("price_minor")
+    private Long priceMinor;
+    @JsonProperty("settlement_price_minor")
+    private Long settlementPriceMinor;
+    @JsonProperty("applied_margin_percentage")
+    private BigDecimal appliedMarginPercentage;
+    @JsonProperty("valid_from")
+    private Instant validFrom;
+    @JsonProperty("valid_to")
+    private Instant validTo;
+}
@@ -0,0 +1,26 @@
+package com.merchant.demo.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepriceRunDto {
+    @JsonProperty("merchant_id")
+    private Integer merchantId;
+
+    @JsonProperty("processed")
+    private int processed;
+
+    /** Offers whose settlement price actually changed. */
+    @JsonProperty("updated")
+    private int updated;
+
+    @JsonProperty("duration_ms")
+    private long durationMs;
+}
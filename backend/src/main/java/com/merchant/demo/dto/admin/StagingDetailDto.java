@@ -71,6 +71,11 @@ public class StagingDetailDto {
         private String altText;
         @JsonProperty("position")
         private Integer position;
+        /** Locally mirrored copy (null until mirrored). */
+        @JsonProperty("mirror_url")
+        private String mirrorUrl;
+        @JsonProperty("thumbnail_url")
+        private String thumbnailUrl;
     }
 
     @Data
@@ -88,5 +93,8 @@ public class StagingDetailDto {
         private Long rawPriceMinor;
         @JsonProperty("raw_options")
         private Map<String, String> rawOptions;
+        /** Staging media shown for this variant on Shopify, if it is among the product's media. */
+        @JsonProperty("image_media_id")
+        private Integer imageMediaId;
     }
 }
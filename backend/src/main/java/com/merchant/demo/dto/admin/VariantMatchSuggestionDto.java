@@ -30,4 +30,8 @@ public class VariantMatchSuggestionDto {
 
     @JsonProperty("match_reason")
     private String matchReason;
+
+    /** 0-100; 100 for barcode, lower for SKU and options matches, 0 when nothing matched. */
+    @JsonProperty("match_confidence")
+    private Integer matchConfidence;
 }
@@ -0,0 +1,35 @@
+package com.merchant.demo.dto.partner;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfferPointsPriceDto {
+    @JsonProperty("variant_id")
+    private Integer variantId;
+
+    @JsonProperty("offer_id")
+    private Integer offerId;
+
+    @JsonProperty("merchant_id")
+    private Integer merchantId;
+
+    @JsonProperty("currency_code")
+    private String currencyCode;
+
+    @JsonProperty("price_minor")
+    private Long priceMinor;
+
+    /** Null when the partner has no conversion rule for the offer's currency. */
+    @JsonProperty("points_price")
+    private Long pointsPrice;
+
+    @JsonProperty("current_stock")
+    private Integer currentStock;
+}
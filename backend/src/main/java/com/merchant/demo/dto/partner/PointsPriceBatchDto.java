@@ -0,0 +1,34 @@
+package com.merchant.demo.dto.partner;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsPriceBatchDto {
+    @JsonProperty("partner_id")
+    private Integer partnerId;
+
+    /** Version of the conversion rule snapshot the prices were computed with. */
+    @JsonProperty("rates_version")
+    private long ratesVersion;
+
+    @JsonProperty("priced_at")
+    private Instant pricedAt;
+
+    /** Live offers of the requested variants, cheapest first per variant. */
+    @JsonProperty("offers")
+    private List<OfferPointsPriceDto> offers;
+
+    /** Requested variants without any live offer. */
+    @JsonProperty("unavailable_variant_ids")
+    private List<Integer> unavailableVariantIds;
+}
@@ -0,0 +1,16 @@
+package com.merchant.demo.dto.partner;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsPriceRequest {
+    @JsonProperty("variant_ids")
+    private List<Integer> variantIds;
+}
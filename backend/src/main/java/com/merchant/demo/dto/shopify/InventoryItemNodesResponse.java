@@ -0,0 +1,13 @@
+package com.merchant.demo.dto.shopify;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+// Root response of nodes(ids: [InventoryItem GIDs]) { ... on InventoryItem { variant { id inventoryQuantity } } }
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record InventoryItemNodesResponse(DataWrapper data, ShopifyProductResponse.Errors[] errors) {
+    public record DataWrapper(List<InventoryItemNode> nodes) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record InventoryItemNode(String id, VariantInventoryResponse.VariantInventoryNode variant) {}
+}
@@ -0,0 +1,101 @@
+package com.merchant.demo.dto.shopify;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST-shaped product body of the {@code products/create} and {@code products/update} webhooks.
+ * {@link #toProductNode()} maps it onto the GraphQL shape the catalog sync upserts, so webhooks and
+ * full syncs share one upsert path.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ProductWebhookPayload(
+        Long id,
+        @JsonProperty("admin_graphql_api_id") String adminGraphqlApiId,
+        String title,
+        @JsonProperty("body_html") String bodyHtml,
+        String vendor,
+        @JsonProperty("product_type") String productType,
+        /** Comma-separated. */
+        String tags,
+        List<Option> options,
+        List<Variant> variants,
+        List<Image> images
+) {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Option(String name, Integer position, List<String> values) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Variant(
+            Long id,
+            @JsonProperty("admin_graphql_api_id") String adminGraphqlApiId,
+            String sku,
+            String barcode,
+            String price,
+            @JsonProperty("inventory_quantity") Integer inventoryQuantity,
+            @JsonProperty("image_id") Long imageId,
+            String option1,
+            String option2,
+            String option3
+    ) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Image(
+            Long id,
+            @JsonProperty("admin_graphql_api_id") String adminGraphqlApiId,
+            String src,
+            String alt
+    ) {}
+
+    public String productGid() {
+        return adminGraphqlApiId != null ? adminGraphqlApiId : "gid://shopify/Product/" + id;
+    }
+
+    public ProductNode toProductNode() {
+        List<Option> sortedOptions = options != null
+                ? options.stream().sorted(Comparator.comparing(o -> o.position() != null ? o.position() : 0)).toList()
+                : List.of();
+
+        Map<Long, String> imageGids = new HashMap<>();
+        List<MediaConnection.MediaEdge> mediaEdges = new ArrayList<>();
+        for (Image image : images != null ? images : List.<Image>of()) {
+            String gid = image.adminGraphqlApiId() != null ? image.adminGraphqlApiId() : "gid://shopify/ProductImage/" + image.id();
+            if (image.id() != null) imageGids.put(image.id(), gid);
+            mediaEdges.add(new MediaConnection.MediaEdge(new MediaConnection.MediaNode(gid, "IMAGE", image.alt(),
+                    new MediaConnection.MediaImage(image.src(), image.alt()), null)));
+        }
+
+        List<VariantConnection.VariantEdge> variantEdges = new ArrayList<>();
+        for (Variant v : variants != null ? variants : List.<Variant>of()) {
+            List<VariantNode.SelectedOption> selected = new ArrayList<>();
+            String[] values = {v.option1(), v.option2(), v.option3()};
+            for (int i = 0; i < sortedOptions.size() && i < values.length; i++) {
+                if (values[i] != null) selected.add(new VariantNode.SelectedOption(sortedOptions.get(i).name(), values[i]));
+            }
+            String gid = v.adminGraphqlApiId() != null ? v.adminGraphqlApiId() : "gid://shopify/ProductVariant/" + v.id();
+            // The variant's image_id refers to one of the product images above
+            String imageGid = v.imageId() != null ? imageGids.get(v.imageId()) : null;
+            MediaConnection variantMedia = imageGid != null
+                    ? new MediaConnection(List.of(new MediaConnection.MediaEdge(
+                            new MediaConnection.MediaNode(imageGid, "IMAGE", null, null, null))))
+                    : null;
+            variantEdges.add(new VariantConnection.VariantEdge(
+                    new VariantNode(gid, v.sku(), v.barcode(), v.price(), v.inventoryQuantity(), selected, variantMedia)));
+        }
+
+        List<String> tagList = tags == null || tags.isBlank() ? List.of()
+                : Arrays.stream(tags.split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+
+        return new ProductNode(productGid(), title, bodyHtml, vendor, productType, tagList,
+                sortedOptions.stream().map(o -> new OptionNode(o.name(), o.values())).toList(),
+                new VariantConnection(variantEdges),
+                new MediaConnection(mediaEdges));
+    }
+}
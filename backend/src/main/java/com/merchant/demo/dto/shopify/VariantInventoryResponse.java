@@ -0,0 +1,18 @@
+package com.merchant.demo.dto.shopify;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+// Root response of the stock-only productVariants query
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record VariantInventoryResponse(DataWrapper data, ShopifyProductResponse.Errors[] errors) {
+    public record DataWrapper(VariantInventoryConnection productVariants) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record VariantInventoryConnection(List<VariantInventoryEdge> edges, ProductConnection.PageInfo pageInfo) {}
+
+    public record VariantInventoryEdge(VariantInventoryNode node) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record VariantInventoryNode(String id, Integer inventoryQuantity) {}
+}
@@ -9,7 +9,19 @@ public record VariantNode(
     String sku,
     String barcode,
     String price,
-    List<SelectedOption> selectedOptions
+    Integer inventoryQuantity,
+    List<SelectedOption> selectedOptions,
+    MediaConnection media
 ) {
     public record SelectedOption(String name, String value) {}
+
+    /** Id of the variant's image (its first media), or null. */
+    public String imageMediaId() {
+        if (media == null || media.edges() == null) return null;
+        return media.edges().stream()
+                .filter(e -> e != null && e.node() != null && e.node().id() != null)
+                .map(e -> e.node().id())
+                .findFirst()
+                .orElse(null);
+    }
 }
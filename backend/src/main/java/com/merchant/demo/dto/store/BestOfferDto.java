@@ -0,0 +1,34 @@
+package com.merchant.demo.dto.store;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BestOfferDto {
+    @JsonProperty("variant_id")
+    private Integer variantId;
+
+    @JsonProperty("offer_id")
+    private Integer offerId;
+
+    @JsonProperty("merchant_id")
+    private Integer merchantId;
+
+    @JsonProperty("currency_code")
+    private String currencyCode;
+
+    @JsonProperty("price_minor")
+    private Long priceMinor;
+
+    @JsonProperty("settlement_price_minor")
+    private Long settlementPriceMinor;
+
+    @JsonProperty("stock")
+    private Integer stock;
+}
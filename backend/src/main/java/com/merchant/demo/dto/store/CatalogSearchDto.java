@@ -0,0 +1,49 @@
+package com.merchant.demo.dto.store;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of matching product ids plus facet counts. Each facet is counted under the other facets' filters,
+ * so the values of a facet that is being filtered on keep their counts.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogSearchDto {
+    @JsonProperty("total_elements")
+    private Integer totalElements;
+
+    @JsonProperty("page")
+    private Integer page;
+
+    @JsonProperty("size")
+    private Integer size;
+
+    @JsonProperty("product_ids")
+    private List<Integer> productIds;
+
+    @JsonProperty("brands")
+    private List<FacetCountDto> brands;
+
+    /** Counts include the products of subcategories. */
+    @JsonProperty("categories")
+    private List<FacetCountDto> categories;
+
+    /** Normalized option name -> value -> count, most frequent values first. */
+    @JsonProperty("options")
+    private Map<String, Map<String, Integer>> options;
+
+    @JsonProperty("min_price_minor")
+    private Long minPriceMinor;
+
+    @JsonProperty("max_price_minor")
+    private Long maxPriceMinor;
+}
@@ -0,0 +1,19 @@
+package com.merchant.demo.dto.store;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    @JsonProperty("id")
+    private Integer id;
+
+    @JsonProperty("count")
+    private Integer count;
+}
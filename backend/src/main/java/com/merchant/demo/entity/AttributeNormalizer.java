@@ -0,0 +1,83 @@
+package com.merchant.demo.entity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical form of variant options, stored in {@code variants.normalized_attributes} and used for
+ * option-based matching: names and values are lowercased, trimmed and whitespace-collapsed, then mapped
+ * through a small synonym table so e.g. {"Colour":"Extra Large"} and {"color":"XL"} compare equal.
+ * <p>
+ * V4__variant_normalized_attributes.sql backfills existing rows with the same rules; keep the two in sync.
+ */
+public final class AttributeNormalizer {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, String> NAME_SYNONYMS = Map.of(
+            "colour", "color",
+            "colours", "color",
+            "colors", "color",
+            "sizes", "size");
+
+    private static final Map<String, String> VALUE_SYNONYMS = Map.ofEntries(
+            Map.entry("extra small", "xs"),
+            Map.entry("x-small", "xs"),
+            Map.entry("x small", "xs"),
+            Map.entry("xsmall", "xs"),
+            Map.entry("small", "s"),
+            Map.entry("sm", "s"),
+            Map.entry("medium", "m"),
+            Map.entry("med", "m"),
+            Map.entry("large", "l"),
+            Map.entry("lg", "l"),
+            Map.entry("extra large", "xl"),
+            Map.entry("x-large", "xl"),
+            Map.entry("x large", "xl"),
+            Map.entry("xlarge", "xl"),
+            Map.entry("extra extra large", "xxl"),
+            Map.entry("xx-large", "xxl"),
+            Map.entry("xxlarge", "xxl"),
+            Map.entry("2xl", "xxl"),
+            Map.entry("xxx-large", "xxxl"),
+            Map.entry("xxxlarge", "xxxl"),
+            Map.entry("3xl", "xxxl"),
+            Map.entry("grey", "gray"));
+
+    private AttributeNormalizer() {
+    }
+
+    public static OptionSet normalize(OptionSet options) {
+        if (options == null || options.isEmpty()) return OptionSet.EMPTY;
+        Map<String, String> normalized = new LinkedHashMap<>(options.size() * 2);
+        options.asMap().forEach((name, value) -> {
+            String n = clean(name);
+            normalized.put(NAME_SYNONYMS.getOrDefault(n, n), normalizeValue(value));
+        });
+        return OptionSet.of(normalized);
+    }
+
+    public static OptionSet normalize(Map<String, String> options) {
+        return normalize(OptionSet.of(options));
+    }
+
+    /** Matching key of the canonical form; equal for options that should be treated as the same variant. */
+    public static String key(OptionSet options) {
+        return normalize(options).normalizedKey();
+    }
+
+    /** Canonical JSON for {@code variants.normalized_attributes}. */
+    public static String toJson(String optionsJson) {
+        return normalize(OptionSet.parseJson(optionsJson)).toJson();
+    }
+
+    static String normalizeValue(String value) {
+        String v = clean(value);
+        return VALUE_SYNONYMS.getOrDefault(v, v);
+    }
+
+    private static String clean(String s) {
+        return WHITESPACE.matcher(s.trim().toLowerCase()).replaceAll(" ");
+    }
+}
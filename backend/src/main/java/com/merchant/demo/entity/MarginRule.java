@@ -0,0 +1,48 @@
+package com.merchant.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Platform margin for a merchant's offers, optionally narrowed to a brand and/or category and
+ * bounded by a validity window ({@code valid_to} null = open-ended).
+ */
+@Entity
+@Table(name = "margin_rules")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarginRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "merchant_id", nullable = false)
+    private Integer merchantId;
+
+    @Column(name = "brand_id")
+    private Integer brandId;
+
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "margin_percentage", nullable = false, precision = 5, scale = 2)
+    private BigDecimal marginPercentage;
+
+    @Column(name = "valid_from", nullable = false)
+    private Instant validFrom;
+
+    @Column(name = "valid_to")
+    private Instant validTo;
+
+    @Column(name = "is_active")
+    private Boolean isActive;
+
+    public boolean isValidAt(Instant at) {
+        return !validFrom.isAfter(at) && (validTo == null || validTo.isAfter(at));
+    }
+}
@@ -15,7 +15,8 @@ import java.time.Instant;
 public class Media {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "media_id_seq")
+    @SequenceGenerator(name = "media_id_seq", sequenceName = "media_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "product_id", nullable = false)
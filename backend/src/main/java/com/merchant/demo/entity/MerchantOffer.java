@@ -15,7 +15,8 @@ import java.time.Instant;
 @AllArgsConstructor
 public class MerchantOffer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "merchant_offers_id_seq")
+    @SequenceGenerator(name = "merchant_offers_id_seq", sequenceName = "merchant_offers_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "merchant_id", nullable = false)
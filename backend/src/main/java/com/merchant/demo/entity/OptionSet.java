@@ -0,0 +1,151 @@
+package com.merchant.demo.entity;
+
+import java.util.*;
+
+/**
+ * Immutable, pre-parsed variant options such as {"Color":"Red","Size":"M"}.
+ * <p>
+ * Keys are held in a sorted array with a parallel value array (option names and short values are interned,
+ * since the same few recur across every variant). The normalized key used for matching (lowercased, trimmed,
+ * sorted "name=value" pairs) and its hash are computed once at construction. JSON is read and written by
+ * {@link OptionSetJsonCodec} with Jackson's streaming API, so hot paths never build a tree.
+ */
+public final class OptionSet {
+
+    public static final OptionSet EMPTY = new OptionSet(new String[0], new String[0]);
+
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private final String[] keys;
+    private final String[] values;
+    private final String normalizedKey;
+    private final int normalizedHash;
+
+    private OptionSet(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        String[] pairs = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            pairs[i] = keys[i].toLowerCase().trim() + "=" + values[i].toLowerCase().trim();
+        }
+        Arrays.sort(pairs);
+        this.normalizedKey = String.join("|", pairs);
+        this.normalizedHash = normalizedKey.hashCode();
+    }
+
+    public static OptionSet of(Map<String, String> options) {
+        if (options == null || options.isEmpty()) return EMPTY;
+        TreeMap<String, String> sorted = new TreeMap<>();
+        options.forEach((k, v) -> {
+            if (k != null && v != null) sorted.put(k, v);
+        });
+        return fromSorted(sorted);
+    }
+
+    /**
+     * Parse a flat JSON object of option values. Numbers and booleans are kept as text and nulls are dropped;
+     * anything else (nested values, malformed input) yields {@link #EMPTY}, like the previous Jackson-based parsing.
+     */
+    public static OptionSet parseJson(String json) {
+        if (json == null || json.isBlank()) return EMPTY;
+        try {
+            return fromSorted(OptionSetJsonCodec.read(json));
+        } catch (IllegalArgumentException e) {
+            return EMPTY;
+        }
+    }
+
+    private static OptionSet fromSorted(TreeMap<String, String> sorted) {
+        if (sorted.isEmpty()) return EMPTY;
+        String[] keys = new String[sorted.size()];
+        String[] values = new String[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, String> e : sorted.entrySet()) {
+            keys[i] = intern(e.getKey());
+            values[i] = intern(e.getValue());
+            i++;
+        }
+        return new OptionSet(keys, values);
+    }
+
+    private static String intern(String s) {
+        return s.length() <= MAX_INTERNED_LENGTH ? s.intern() : s;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public String get(String key) {
+        int i = Arrays.binarySearch(keys, key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    /** Lowercased, trimmed, sorted "name=value" pairs joined by "|"; equal for options that should match. */
+    public String normalizedKey() {
+        return normalizedKey;
+    }
+
+    public int normalizedHash() {
+        return normalizedHash;
+    }
+
+    /** True when both sets are equal after normalization (case and surrounding whitespace ignored). */
+    public boolean matches(OptionSet other) {
+        return other != null && normalizedHash == other.normalizedHash && normalizedKey.equals(other.normalizedKey);
+    }
+
+    /** Only the options whose lowercased, trimmed name is in {@code normalizedNames}. */
+    public OptionSet retainNormalizedNames(Set<String> normalizedNames) {
+        int kept = 0;
+        for (String key : keys) {
+            if (normalizedNames.contains(key.toLowerCase().trim())) kept++;
+        }
+        if (kept == keys.length) return this;
+        if (kept == 0) return EMPTY;
+        String[] k = new String[kept];
+        String[] v = new String[kept];
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (normalizedNames.contains(keys[i].toLowerCase().trim())) {
+                k[j] = keys[i];
+                v[j++] = values[i];
+            }
+        }
+        return new OptionSet(k, v);
+    }
+
+    /** Unmodifiable view in key order, for DTOs. */
+    public Map<String, String> asMap() {
+        Map<String, String> map = new LinkedHashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public String toJson() {
+        return keys.length == 0 ? "{}" : OptionSetJsonCodec.write(keys, values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OptionSet other)) return false;
+        return Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
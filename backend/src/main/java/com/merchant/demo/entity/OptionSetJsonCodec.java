@@ -0,0 +1,67 @@
+package com.merchant.demo.entity;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.TreeMap;
+
+/**
+ * JSON codec for {@link OptionSet}: flat objects of scalar values, read and written with Jackson's streaming
+ * parser and generator so escaping and unicode handling are Jackson's, without building a tree per variant.
+ * Entities are not Spring beans, so this holds its own {@link JsonFactory} rather than the application ObjectMapper.
+ */
+final class OptionSetJsonCodec {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private OptionSetJsonCodec() {
+    }
+
+    /**
+     * Read a flat JSON object into a sorted map. Numbers and booleans are kept as their JSON text and nulls are
+     * dropped; nested values, trailing content and malformed input throw {@link IllegalArgumentException}.
+     */
+    static TreeMap<String, String> read(String json) {
+        TreeMap<String, String> result = new TreeMap<>();
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == null || value.isStructStart()) {
+                    throw new IllegalArgumentException("Unsupported value for '" + key + "'");
+                }
+                if (value != JsonToken.VALUE_NULL) result.put(key, parser.getText());
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new IllegalArgumentException("Trailing content after JSON object");
+            }
+            return result;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed options JSON", e);
+        }
+    }
+
+    /** Write parallel key/value arrays as a JSON object, in array order. */
+    static String write(String[] keys, String[] values) {
+        StringWriter out = new StringWriter(16 * keys.length + 2);
+        try (JsonGenerator generator = JSON.createGenerator(out)) {
+            generator.writeStartObject();
+            for (int i = 0; i < keys.length; i++) {
+                generator.writeStringField(keys[i], values[i]);
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
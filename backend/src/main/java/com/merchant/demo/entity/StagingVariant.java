@@ -3,21 +3,28 @@ package com.merchant.demo.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 
+/**
+ * Staging copy of a Shopify variant. Catalog syncs update variants in place, so UPDATEs only carry the columns
+ * that changed ({@code @DynamicUpdate}) and ids come from a pooled sequence so new variants insert in batches.
+ */
 @Entity
 @Table(name = "staging_variants")
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = "stagingProduct") // Avoid recursion in logs
+@ToString(exclude = {"stagingProduct", "optionSet"}) // Avoid recursion in logs
 public class StagingVariant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "staging_variants_id_seq")
+    @SequenceGenerator(name = "staging_variants_id_seq", sequenceName = "staging_variants_id_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -36,10 +43,19 @@ public class StagingVariant {
     @Column(name = "raw_price_minor")
     private Long rawPriceMinor;
 
+    /** Shopify media id of the variant's image; matches {@link StagingMedia#getExternalMediaId()}. */
+    @Column(name = "external_media_id")
+    private String externalMediaId;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "raw_options", columnDefinition = "jsonb")
     private String rawOptions;
 
+    /** Parsed view of {@link #rawOptions}, built on first access and reset whenever the JSON changes. */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private OptionSet optionSet;
+
     @Builder.Default
     private String status = "PENDING";
 
@@ -52,4 +68,22 @@ public class StagingVariant {
 
     @Column(name = "matched_variant_id")
     private Integer matchedVariantId;
-}
\ No newline at end of file
+
+    public void setRawOptions(String rawOptions) {
+        this.rawOptions = rawOptions;
+        this.optionSet = null;
+    }
+
+    /** Typed raw options; the JSON column is parsed at most once per loaded entity. */
+    public OptionSet getOptionSet() {
+        if (optionSet == null) {
+            optionSet = OptionSet.parseJson(rawOptions);
+        }
+        return optionSet;
+    }
+
+    public void setOptionSet(OptionSet optionSet) {
+        this.optionSet = optionSet != null ? optionSet : OptionSet.EMPTY;
+        this.rawOptions = this.optionSet.toJson();
+    }
+}
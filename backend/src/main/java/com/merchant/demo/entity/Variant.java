@@ -17,7 +17,8 @@ import java.time.Instant;
 @AllArgsConstructor
 public class Variant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "variants_id_seq")
+    @SequenceGenerator(name = "variants_id_seq", sequenceName = "variants_id_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -34,9 +35,16 @@ public class Variant {
     @JdbcTypeCode(SqlTypes.JSON)
     private String options;
 
+    /** Parsed view of {@link #options}, built on first access and reset whenever the JSON changes. */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private OptionSet optionSet;
+
     @Column(name = "is_active")
     private Boolean isActive;
 
+    /** Canonical options (see {@link AttributeNormalizer}), recomputed on every write; GIN-indexed for lookups. */
     @Column(name = "normalized_attributes", columnDefinition = "jsonb")
     @JdbcTypeCode(SqlTypes.JSON)
     private String normalizedAttributes;
@@ -51,4 +59,28 @@ public class Variant {
 
     @Column(nullable = false)
     private String status;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeAttributes() {
+        normalizedAttributes = AttributeNormalizer.normalize(getOptionSet()).toJson();
+    }
+
+    public void setOptions(String options) {
+        this.options = options;
+        this.optionSet = null;
+    }
+
+    /** Typed options; the JSON column is parsed at most once per loaded entity. */
+    public OptionSet getOptionSet() {
+        if (optionSet == null) {
+            optionSet = OptionSet.parseJson(options);
+        }
+        return optionSet;
+    }
+
+    public void setOptionSet(OptionSet optionSet) {
+        this.optionSet = optionSet != null ? optionSet : OptionSet.EMPTY;
+        this.options = this.optionSet.toJson();
+    }
 }
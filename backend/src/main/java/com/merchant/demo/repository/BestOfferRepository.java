@@ -0,0 +1,159 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Best offer per master variant ({@code variant_best_offers}).
+ * <p>
+ * Offer writers call {@link #refreshForOffers} with the offers they changed, in their own transaction; the
+ * affected variants are re-resolved in one statement (DISTINCT ON over idx_offers_variant_best), only rows whose
+ * best offer actually changed are written, and the products of those variants are queued for a storefront
+ * document rebuild. Settlement prices are compared as stored: offers of one variant share a currency.
+ * <p>
+ * Two writers changing offers of the same variant must not each resolve from a snapshot missing the other's
+ * change (READ COMMITTED), or whichever writes last leaves a stale best offer. The variant rows are therefore
+ * locked, in id order, before resolving: the later writer waits for the earlier one to commit and then resolves
+ * with a fresh snapshot that includes its offers.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BestOfferRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final RowMapper<BestOffer> BEST_OFFER = (rs, i) -> new BestOffer(
+            rs.getInt("variant_id"),
+            rs.getInt("offer_id"),
+            rs.getInt("merchant_id"),
+            rs.getString("currency_code"),
+            rs.getLong("price_minor"),
+            rs.getLong("settlement_price_minor"),
+            rs.getInt("stock"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ProductDocumentRepository productDocumentRepository;
+
+    /** Re-resolve the variants of the given offers; returns the number of variants whose best offer changed. */
+    public int refreshForOffers(Collection<Integer> offerIds) {
+        List<Integer> ids = List.copyOf(offerIds);
+        Set<Integer> variantIds = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            variantIds.addAll(jdbc.queryForList("SELECT DISTINCT variant_id FROM merchant_offers WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()))),
+                    Integer.class));
+        }
+        return refreshVariants(variantIds);
+    }
+
+    /** Re-resolve the given variants; returns the number whose best offer changed. */
+    public int refreshVariants(Collection<Integer> variantIds) {
+        // Ascending across chunks too, so concurrent refreshes take the variant locks in the same order
+        List<Integer> ids = variantIds.stream().distinct().sorted().toList();
+        int changed = 0;
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Integer> changedIds = resolve(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())));
+            productDocumentRepository.enqueueForVariants(changedIds);
+            changed += changedIds.size();
+        }
+        return changed;
+    }
+
+    /*
+    variants pkey, one index probe per id. NO KEY UPDATE: serializes resolvers without blocking offer inserts,
+    whose foreign key check only takes KEY SHARE on the variant.
+    */
+    private void lockVariants(List<Integer> variantIds) {
+        jdbc.queryForList("SELECT id FROM variants WHERE id IN (:ids) ORDER BY id FOR NO KEY UPDATE",
+                new MapSqlParameterSource("ids", variantIds), Integer.class);
+    }
+
+    /*
+    DISTINCT ON reads the first entry per variant of idx_offers_variant_best; removed and upserted rows are
+    returned so their products can be queued. Runs as its own statement after lockVariants, so it reads what
+    was committed while waiting for the locks.
+    */
+    private List<Integer> resolve(List<Integer> variantIds) {
+        lockVariants(variantIds);
+        return jdbc.queryForList("""
+                WITH best AS (
+                    SELECT DISTINCT ON (o.variant_id)
+                           o.variant_id, o.id, o.merchant_id, o.currency_code, o.cached_price_minor,
+                           o.cached_settlement_price_minor, o.current_stock
+                    FROM merchant_offers o
+                    WHERE o.variant_id IN (:ids) AND o.is_active AND o.offer_status = 'LIVE' AND o.current_stock > 0
+                    ORDER BY o.variant_id, o.cached_settlement_price_minor, o.current_stock DESC, o.created_at, o.id
+                ), removed AS (
+                    DELETE FROM variant_best_offers b
+                    WHERE b.variant_id IN (:ids) AND NOT EXISTS (SELECT 1 FROM best WHERE best.variant_id = b.variant_id)
+                    RETURNING b.variant_id
+                ), upserted AS (
+                    INSERT INTO variant_best_offers AS b (variant_id, offer_id, merchant_id, currency_code, price_minor,
+                                                          settlement_price_minor, stock, updated_at)
+                    SELECT variant_id, id, merchant_id, currency_code, cached_price_minor, cached_settlement_price_minor,
+                           current_stock, now()
+                    FROM best
+                    ON CONFLICT (variant_id) DO UPDATE
+                        SET offer_id = EXCLUDED.offer_id, merchant_id = EXCLUDED.merchant_id,
+                            currency_code = EXCLUDED.currency_code, price_minor = EXCLUDED.price_minor,
+                            settlement_price_minor = EXCLUDED.settlement_price_minor, stock = EXCLUDED.stock,
+                            updated_at = now()
+                        WHERE (b.offer_id, b.currency_code, b.price_minor, b.settlement_price_minor, b.stock)
+                              IS DISTINCT FROM (EXCLUDED.offer_id, EXCLUDED.currency_code, EXCLUDED.price_minor,
+                                                EXCLUDED.settlement_price_minor, EXCLUDED.stock)
+                    RETURNING b.variant_id
+                )
+                SELECT variant_id FROM removed
+                UNION ALL
+                SELECT variant_id FROM upserted
+                """, new MapSqlParameterSource("ids", variantIds), Integer.class);
+    }
+
+    /*
+    ... WHERE merchant_id = ? AND variant_id > ? ORDER BY variant_id LIMIT ?;   -- keyset over merchant_offers_merchant_id_variant_id_key
+    */
+    /** Variants a merchant has offers on, in id order after {@code afterVariantId}. */
+    public List<Integer> findMerchantVariantIds(Integer merchantId, int afterVariantId, int limit) {
+        return jdbc.queryForList("""
+                SELECT variant_id FROM merchant_offers
+                WHERE merchant_id = :merchantId AND variant_id > :afterVariantId
+                ORDER BY variant_id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("afterVariantId", afterVariantId)
+                        .addValue("limit", limit),
+                Integer.class);
+    }
+
+    /*
+    variant_best_offers pkey, one index probe
+    */
+    public Optional<BestOffer> findByVariantId(Integer variantId) {
+        return jdbc.query("""
+                SELECT variant_id, offer_id, merchant_id, currency_code, price_minor, settlement_price_minor, stock
+                FROM variant_best_offers
+                WHERE variant_id = :variantId
+                """, new MapSqlParameterSource("variantId", variantId), BEST_OFFER).stream().findFirst();
+    }
+
+    public Map<Integer, BestOffer> findByVariantIds(Collection<Integer> variantIds) {
+        Map<Integer, BestOffer> offers = new HashMap<>(variantIds.size() * 2);
+        if (variantIds.isEmpty()) return offers;
+        jdbc.query("""
+                SELECT variant_id, offer_id, merchant_id, currency_code, price_minor, settlement_price_minor, stock
+                FROM variant_best_offers
+                WHERE variant_id IN (:variantIds)
+                """, new MapSqlParameterSource("variantIds", List.copyOf(variantIds)), BEST_OFFER)
+                .forEach(o -> offers.put(o.variantId(), o));
+        return offers;
+    }
+
+    public record BestOffer(int variantId, int offerId, int merchantId, String currencyCode, long priceMinor,
+                            long settlementPriceMinor, int stock) {}
+}
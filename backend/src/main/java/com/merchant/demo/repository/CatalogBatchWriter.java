@@ -0,0 +1,207 @@
+package com.merchant.demo.repository;
+
+import com.merchant.demo.entity.AttributeNormalizer;
+import com.merchant.demo.repository.CatalogWriteBatch.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC batch writer for review decisions: one batched statement per table instead of a
+ * {@code save()} per row. Must be called inside a transaction; ids are pre-allocated from
+ * their sequences so child rows can be written in the same pass. Staging decisions are written first and fail
+ * the batch with an {@link OptimisticLockingFailureException} when a staging product was approved since it was
+ * planned. Every product the batch touches is queued for a storefront document rebuild, and the variants of new
+ * offers get their best offer re-resolved.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogBatchWriter {
+
+    /**
+     * Increment of the sequences shared with Hibernate's pooled optimizer (see V3 migration and
+     * {@code @SequenceGenerator(allocationSize = 50)} on Variant, Media and MerchantOffer).
+     */
+    static final int POOLED_BLOCK_SIZE = 50;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ProductDocumentRepository productDocumentRepository;
+    private final BestOfferRepository bestOfferRepository;
+
+    public void write(CatalogWriteBatch batch) {
+        // Decisions first: plan() checked the staging status in an earlier transaction, so a decision whose
+        // product was approved since then must fail before any of its master rows are written
+        int[] decided = batchUpdate("""
+                UPDATE staging_products SET
+                    status = :status,
+                    rejection_reason = CASE WHEN :status = 'REJECTED' THEN :rejectionReason ELSE rejection_reason END,
+                    admin_notes = CASE WHEN :status = 'REJECTED' THEN :adminNotes ELSE admin_notes END,
+                    updated_at = now()
+                WHERE id = :stagingId AND status IS DISTINCT FROM 'APPROVED'
+                """, batch.getStagingDecisions(), d -> new MapSqlParameterSource()
+                .addValue("stagingId", d.stagingId())
+                .addValue("status", d.status())
+                .addValue("rejectionReason", d.rejectionReason(), Types.VARCHAR)
+                .addValue("adminNotes", d.adminNotes(), Types.VARCHAR));
+
+        List<Integer> alreadyApproved = new ArrayList<>();
+        for (int i = 0; i < decided.length; i++) {
+            if (decided[i] == 0) alreadyApproved.add(batch.getStagingDecisions().get(i).stagingId());
+        }
+        if (!alreadyApproved.isEmpty()) {
+            throw new OptimisticLockingFailureException("Staging product already approved: "
+                    + alreadyApproved.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+        }
+
+        List<Integer> productIds = allocateIds("products_id_seq", batch.getProducts().size(), 1);
+        for (int i = 0; i < productIds.size(); i++) {
+            batch.getProducts().get(i).setId(productIds.get(i));
+        }
+        List<Integer> variantIds = allocateIds("variants_id_seq", batch.getVariants().size(), POOLED_BLOCK_SIZE);
+        for (int i = 0; i < variantIds.size(); i++) {
+            batch.getVariants().get(i).setId(variantIds.get(i));
+        }
+        List<Integer> mediaIds = allocateIds("media_id_seq", batch.getMedia().size(), POOLED_BLOCK_SIZE);
+        List<Integer> offerIds = allocateIds("merchant_offers_id_seq", batch.getOffers().size(), POOLED_BLOCK_SIZE);
+        Map<NewMedia, Integer> mediaIdOf = new IdentityHashMap<>(batch.getMedia().size() * 2);
+        for (int i = 0; i < mediaIds.size(); i++) {
+            mediaIdOf.put(batch.getMedia().get(i), mediaIds.get(i));
+        }
+
+        batchUpdate("""
+                INSERT INTO products (id, brand_id, title, slug, description, image_url, specifications,
+                                      options_definition, status, created_at, updated_at)
+                VALUES (:id, :brandId, :title, :slug, :description, :imageUrl, CAST(:specifications AS jsonb),
+                        CAST(:optionsDefinition AS jsonb), 'ACTIVE', now(), now())
+                """, batch.getProducts(), p -> new MapSqlParameterSource()
+                .addValue("id", p.getId())
+                .addValue("brandId", p.getBrandId(), Types.INTEGER)
+                .addValue("title", p.getTitle())
+                .addValue("slug", p.getSlug())
+                .addValue("description", p.getDescription(), Types.VARCHAR)
+                .addValue("imageUrl", p.getImageUrl(), Types.VARCHAR)
+                .addValue("specifications", p.getSpecifications())
+                .addValue("optionsDefinition", p.getOptionsDefinition()));
+
+        batchUpdate("""
+                UPDATE products SET image_url = :imageUrl, updated_at = now()
+                WHERE id = :productId AND (image_url IS NULL OR image_url = '')
+                """, batch.getImageUpdates(), u -> new MapSqlParameterSource()
+                .addValue("productId", u.productId())
+                .addValue("imageUrl", u.imageUrl()));
+
+        batchUpdate("""
+                INSERT INTO media (id, product_id, src_url, alt_text, "position", created_at)
+                VALUES (:id, :productId, :srcUrl, :altText, :position, now())
+                """, batch.getMedia(), (m, i) -> new MapSqlParameterSource()
+                .addValue("id", mediaIds.get(i))
+                .addValue("productId", m.resolveProductId())
+                .addValue("srcUrl", m.srcUrl())
+                .addValue("altText", m.altText(), Types.VARCHAR)
+                .addValue("position", m.position()));
+
+        batchUpdate("""
+                INSERT INTO product_categories (product_id, category_id)
+                VALUES (:productId, :categoryId)
+                ON CONFLICT DO NOTHING
+                """, batch.getProductCategories(), c -> new MapSqlParameterSource()
+                .addValue("productId", c.newProduct().getId())
+                .addValue("categoryId", c.categoryId()));
+
+        batchUpdate("""
+                INSERT INTO variants (id, product_id, internal_sku, options, normalized_attributes, is_active, status,
+                                      created_at, updated_at)
+                VALUES (:id, :productId, :internalSku, CAST(:options AS jsonb), CAST(:normalizedAttributes AS jsonb), true,
+                        'ACTIVE', now(), now())
+                """, batch.getVariants(), v -> new MapSqlParameterSource()
+                .addValue("id", v.getId())
+                .addValue("productId", v.resolveProductId())
+                .addValue("internalSku", v.getInternalSku())
+                .addValue("options", v.getOptions())
+                .addValue("normalizedAttributes", AttributeNormalizer.toJson(v.getOptions())));
+
+        batchUpdate("""
+                INSERT INTO variant_media (variant_id, media_id)
+                VALUES (:variantId, :mediaId)
+                ON CONFLICT DO NOTHING
+                """, batch.getVariantMedia(), vm -> new MapSqlParameterSource()
+                .addValue("variantId", vm.resolveVariantId())
+                .addValue("mediaId", mediaIdOf.get(vm.media())));
+
+        // Same semantics as the single-decision path: an existing (merchant, variant) offer is left untouched
+        batchUpdate("""
+                INSERT INTO merchant_offers (id, merchant_id, variant_id, external_product_id, external_variant_id, merchant_sku,
+                                             currency_code, cached_price_minor, cached_settlement_price_minor,
+                                             current_stock, is_active, offer_status, created_at, updated_at)
+                VALUES (:id, :merchantId, :variantId, :externalProductId, :externalVariantId, :merchantSku,
+                        'INR', :priceMinor, :priceMinor, 0, true, 'LIVE', now(), now())
+                ON CONFLICT (merchant_id, variant_id) DO NOTHING
+                """, batch.getOffers(), (o, i) -> new MapSqlParameterSource()
+                .addValue("id", offerIds.get(i))
+                .addValue("merchantId", o.merchantId())
+                .addValue("variantId", o.resolveVariantId())
+                .addValue("externalProductId", o.externalProductId(), Types.VARCHAR)
+                .addValue("externalVariantId", o.externalVariantId(), Types.VARCHAR)
+                .addValue("merchantSku", o.merchantSku(), Types.VARCHAR)
+                .addValue("priceMinor", o.priceMinor()));
+
+        Set<Integer> touchedProductIds = new HashSet<>(productIds);
+        batch.getImageUpdates().forEach(u -> touchedProductIds.add(u.productId()));
+        batch.getMedia().forEach(m -> touchedProductIds.add(m.resolveProductId()));
+        batch.getVariants().forEach(v -> touchedProductIds.add(v.resolveProductId()));
+        productDocumentRepository.enqueueProducts(touchedProductIds);
+        bestOfferRepository.refreshForOffers(offerIds);
+    }
+
+    /*
+    SELECT nextval('<sequence>') FROM generate_series(1, ?);   -- one round trip per allocation
+    */
+    /**
+     * Allocate {@code count} ids. For pooled sequences each nextval value {@code v} reserves the block
+     * {@code (v - blockSize, v]}, exactly as Hibernate's pooled optimizer interprets it, so ids handed out
+     * here never collide with ids Hibernate hands out from the same sequence.
+     */
+    private List<Integer> allocateIds(String sequence, int count, int blockSize) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + blockSize - 1) / blockSize;
+            List<Integer> values = jdbc.queryForList("SELECT nextval('" + sequence + "') FROM generate_series(1, :blocks)",
+                    new MapSqlParameterSource("blocks", blocks), Integer.class);
+            for (int v : values) {
+                // A fresh sequence starts at 1, which only covers itself
+                for (int id = Math.max(1, v - blockSize + 1); id <= v && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private <T> int[] batchUpdate(String sql, List<T> rows, Function<T, MapSqlParameterSource> params) {
+        return batchUpdate(sql, rows, (row, i) -> params.apply(row));
+    }
+
+    /** @return the update count of each row */
+    private <T> int[] batchUpdate(String sql, List<T> rows, BiFunction<T, Integer, MapSqlParameterSource> params) {
+        if (rows.isEmpty()) return new int[0];
+        SqlParameterSource[] batch = new SqlParameterSource[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            batch[i] = params.apply(rows.get(i), i);
+        }
+        return jdbc.batchUpdate(sql, batch);
+    }
+}
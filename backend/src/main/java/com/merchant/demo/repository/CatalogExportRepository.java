@@ -0,0 +1,81 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Reads the whole master catalog (products, variants, offers) as one flat, ordered row stream for exports.
+ * Rows go straight from the driver to the handler; nothing is held in memory or in a persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogExportRepository {
+
+    private static final String CATALOG_ROWS = """
+            SELECT p.id AS product_id, p.title, p.slug, p.status AS product_status, p.brand_id, b.name AS brand_name,
+                   v.id AS variant_id, v.internal_sku, v.gtin, v.options::text AS options, v.status AS variant_status,
+                   v.is_active AS variant_is_active,
+                   o.id AS offer_id, o.merchant_id, o.merchant_sku, o.currency_code, o.cached_price_minor,
+                   o.cached_settlement_price_minor, o.current_stock, o.offer_status, o.is_active AS offer_is_active
+            FROM products p
+            LEFT JOIN brands b ON b.id = p.brand_id
+            LEFT JOIN variants v ON v.product_id = p.id
+            LEFT JOIN merchant_offers o ON o.variant_id = v.id
+            ORDER BY p.id, v.id, o.id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /*
+    Merge joins over products_pkey, variants by product_id and merchant_offers by variant_id. PostgreSQL only
+    streams with a fetch size inside a transaction (otherwise the driver buffers the whole result), so callers
+    must hold one open.
+    */
+    /** Every product with its variants and their offers, one row per offer (or per variant / product without). */
+    public void forEachCatalogRow(int fetchSize, ExportRowHandler handler) {
+        jdbc.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(CATALOG_ROWS, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(new ExportRow(
+                rs.getInt("product_id"),
+                rs.getString("title"),
+                rs.getString("slug"),
+                rs.getString("product_status"),
+                (Integer) rs.getObject("brand_id"),
+                rs.getString("brand_name"),
+                (Integer) rs.getObject("variant_id"),
+                rs.getString("internal_sku"),
+                rs.getString("gtin"),
+                rs.getString("options"),
+                rs.getString("variant_status"),
+                (Boolean) rs.getObject("variant_is_active"),
+                (Integer) rs.getObject("offer_id"),
+                (Integer) rs.getObject("merchant_id"),
+                rs.getString("merchant_sku"),
+                rs.getString("currency_code"),
+                (Long) rs.getObject("cached_price_minor"),
+                (Long) rs.getObject("cached_settlement_price_minor"),
+                (Integer) rs.getObject("current_stock"),
+                rs.getString("offer_status"),
+                (Boolean) rs.getObject("offer_is_active"))));
+    }
+
+    /** One export row; variant and offer columns are null for a product without variants / a variant without offers. */
+    public record ExportRow(int productId, String title, String slug, String productStatus, Integer brandId,
+                            String brandName, Integer variantId, String internalSku, String gtin, String optionsJson,
+                            String variantStatus, Boolean variantIsActive, Integer offerId, Integer merchantId,
+                            String merchantSku, String currencyCode, Long priceMinor, Long settlementPriceMinor,
+                            Integer stock, String offerStatus, Boolean offerIsActive) {}
+
+    @FunctionalInterface
+    public interface ExportRowHandler {
+        void accept(ExportRow row);
+    }
+}
@@ -0,0 +1,98 @@
+package com.merchant.demo.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows produced by review decisions, written together by {@link CatalogBatchWriter}.
+ * New products and variants get their ids assigned by the writer, so child rows reference
+ * either an existing id or the new row object.
+ */
+@Getter
+public class CatalogWriteBatch {
+
+    private final List<NewProduct> products = new ArrayList<>();
+    private final List<NewVariant> variants = new ArrayList<>();
+    private final List<NewMedia> media = new ArrayList<>();
+    private final List<NewProductCategory> productCategories = new ArrayList<>();
+    private final List<NewOffer> offers = new ArrayList<>();
+    private final List<NewVariantMedia> variantMedia = new ArrayList<>();
+    private final List<ImageUpdate> imageUpdates = new ArrayList<>();
+    private final List<StagingDecision> stagingDecisions = new ArrayList<>();
+
+    public void addAll(CatalogWriteBatch other) {
+        products.addAll(other.products);
+        variants.addAll(other.variants);
+        media.addAll(other.media);
+        productCategories.addAll(other.productCategories);
+        offers.addAll(other.offers);
+        variantMedia.addAll(other.variantMedia);
+        imageUpdates.addAll(other.imageUpdates);
+        stagingDecisions.addAll(other.stagingDecisions);
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NewProduct {
+        private Integer id;
+        private String title;
+        private String slug;
+        private String description;
+        private Integer brandId;
+        private String imageUrl;
+        private String specifications;
+        private String optionsDefinition;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NewVariant {
+        private Integer id;
+        /** Existing master product, or null when {@link #newProduct} is set. */
+        private Integer productId;
+        private NewProduct newProduct;
+        private String internalSku;
+        private String options;
+
+        public Integer resolveProductId() {
+            return newProduct != null ? newProduct.getId() : productId;
+        }
+    }
+
+    public record NewMedia(Integer productId, NewProduct newProduct, String srcUrl, String altText, int position) {
+        public Integer resolveProductId() {
+            return newProduct != null ? newProduct.getId() : productId;
+        }
+    }
+
+    public record NewProductCategory(NewProduct newProduct, Integer categoryId) {}
+
+    public record NewOffer(Integer merchantId, Integer variantId, NewVariant newVariant,
+                           String externalProductId, String externalVariantId, String merchantSku, long priceMinor) {
+        public Integer resolveVariantId() {
+            return newVariant != null ? newVariant.getId() : variantId;
+        }
+    }
+
+    /** Variant image: links an existing or new variant to a media row written in the same batch. */
+    public record NewVariantMedia(Integer variantId, NewVariant newVariant, NewMedia media) {
+        public Integer resolveVariantId() {
+            return newVariant != null ? newVariant.getId() : variantId;
+        }
+    }
+
+    /** Set the main image of an existing master product if it has none yet. */
+    public record ImageUpdate(Integer productId, String imageUrl) {}
+
+    public record StagingDecision(Integer stagingId, String status, String rejectionReason, String adminNotes) {}
+}
@@ -0,0 +1,84 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Perceptual hashes of product images, resolved through the mirror: image URL -> {@code media_sources} ->
+ * {@code media_assets.dhash}. Images that are not mirrored (or not decodable) yet have no hash.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageHashRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /*
+    Seq scan of image_index_change_log: one row per writing transaction since the last purge
+    */
+    /**
+     * Changes whenever a master image, its mirrored asset, a hash or a product's status changes: triggers log
+     * every transaction with such a write in {@code image_index_change_log} (V21, V25). Pruning the log changes it
+     * as well, which only costs one extra rebuild.
+     */
+    public String findMasterHashesFingerprint() {
+        return jdbc.getJdbcTemplate().queryForObject("""
+                SELECT count(*) || ':' || coalesce(sum(xact_id::text::numeric), 0) FROM image_index_change_log
+                """, String.class);
+    }
+
+    /** Drop change log rows older than {@code retentionHours}; returns the number deleted. */
+    public int purgeChangeLog(int retentionHours) {
+        return jdbc.update("""
+                DELETE FROM image_index_change_log WHERE changed_at < now() - make_interval(hours => :hours)
+                """, new MapSqlParameterSource("hours", retentionHours));
+    }
+
+    /*
+    Seq scan of media hash-joined to products, media_sources (pk) and media_assets (pk); rows go straight
+    into the handler instead of a List of records.
+    */
+    public void forEachMasterHash(HashHandler handler) {
+        jdbc.getJdbcTemplate().query("""
+                SELECT DISTINCT m.product_id, a.dhash
+                FROM media m
+                JOIN products p ON p.id = m.product_id AND p.status = 'ACTIVE'
+                JOIN media_sources s ON s.source_url = m.src_url
+                JOIN media_assets a ON a.sha256 = s.sha256
+                WHERE a.dhash IS NOT NULL
+                """, (RowCallbackHandler) rs -> handler.accept(rs.getInt("product_id"), rs.getLong("dhash")));
+    }
+
+    /** staging product id -> distinct hashes of its mirrored images. */
+    public Map<Integer, long[]> findStagingHashes(Collection<Integer> stagingIds) {
+        List<Integer> ids = List.copyOf(stagingIds);
+        Map<Integer, List<Long>> collected = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            jdbc.query("""
+                    SELECT DISTINCT sm.staging_product_id, a.dhash
+                    FROM staging_media sm
+                    JOIN media_sources s ON s.source_url = sm.source_url
+                    JOIN media_assets a ON a.sha256 = s.sha256
+                    WHERE sm.staging_product_id IN (:ids) AND a.dhash IS NOT NULL
+                    """, new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()))),
+                    (RowCallbackHandler) rs -> collected
+                            .computeIfAbsent(rs.getInt("staging_product_id"), k -> new ArrayList<>())
+                            .add(rs.getLong("dhash")));
+        }
+        Map<Integer, long[]> hashes = new HashMap<>(collected.size() * 2);
+        collected.forEach((id, list) -> hashes.put(id, list.stream().mapToLong(Long::longValue).toArray()));
+        return hashes;
+    }
+
+    @FunctionalInterface
+    public interface HashHandler {
+        void accept(int productId, long dhash);
+    }
+}
@@ -0,0 +1,182 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Set-based SQL for the {@code jobs} queue. Each statement is atomic on its own, so callers do not need a
+ * surrounding transaction; claims use {@code FOR UPDATE SKIP LOCKED} so concurrent workers (also on other
+ * instances) never pick the same job.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobRepository {
+
+    private static final String JOB_COLUMNS = """
+            id, job_type, payload::text AS payload, priority, status, concurrency_key, attempts, max_attempts,
+            run_after, locked_by, locked_until, last_error, result::text AS result, created_at, started_at, finished_at
+            """;
+
+    private static final RowMapper<JobRow> JOB_ROW = (rs, i) -> new JobRow(
+            rs.getLong("id"),
+            rs.getString("job_type"),
+            rs.getString("payload"),
+            rs.getInt("priority"),
+            rs.getString("status"),
+            rs.getString("concurrency_key"),
+            rs.getInt("attempts"),
+            rs.getInt("max_attempts"),
+            instant(rs.getTimestamp("run_after")),
+            rs.getString("locked_by"),
+            instant(rs.getTimestamp("locked_until")),
+            rs.getString("last_error"),
+            rs.getString("result"),
+            instant(rs.getTimestamp("created_at")),
+            instant(rs.getTimestamp("started_at")),
+            instant(rs.getTimestamp("finished_at")));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Insert a job. With a dedupe key, an identical job that is still queued absorbs this one.
+     *
+     * @return the new job id, or the id of the queued job it was merged into
+     */
+    public long enqueue(String jobType, String payloadJson, int priority, String concurrencyKey, String dedupeKey,
+                        int maxAttempts, Instant runAfter) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("jobType", jobType)
+                .addValue("payload", payloadJson)
+                .addValue("priority", priority)
+                .addValue("concurrencyKey", concurrencyKey, Types.VARCHAR)
+                .addValue("dedupeKey", dedupeKey, Types.VARCHAR)
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("runAfter", Timestamp.from(runAfter));
+        List<Long> ids = jdbc.queryForList("""
+                INSERT INTO jobs (job_type, payload, priority, concurrency_key, dedupe_key, max_attempts, run_after)
+                VALUES (:jobType, CAST(:payload AS jsonb), :priority, :concurrencyKey, :dedupeKey, :maxAttempts, :runAfter)
+                ON CONFLICT (job_type, dedupe_key) WHERE status = 'QUEUED' AND dedupe_key IS NOT NULL
+                DO UPDATE SET priority = least(jobs.priority, EXCLUDED.priority),
+                              run_after = least(jobs.run_after, EXCLUDED.run_after)
+                RETURNING id
+                """, params, Long.class);
+        return ids.get(0);
+    }
+
+    /**
+     * Claim the next due job whose concurrency key is free and lease it to {@code workerId}.
+     * A concurrent claim of another job with the same key loses on the unique index and returns empty.
+     */
+    public Optional<JobRow> claimNext(String workerId, long leaseMs) {
+        try {
+            return jdbc.query("""
+                    UPDATE jobs j
+                    SET status = 'RUNNING', locked_by = :workerId, attempts = j.attempts + 1,
+                        locked_until = now() + make_interval(secs => :leaseSeconds), started_at = now()
+                    WHERE j.id = (
+                        SELECT q.id FROM jobs q
+                        WHERE q.status = 'QUEUED' AND q.run_after <= now()
+                          AND (q.concurrency_key IS NULL OR NOT EXISTS (
+                                SELECT 1 FROM jobs r WHERE r.concurrency_key = q.concurrency_key AND r.status = 'RUNNING'))
+                        ORDER BY q.priority, q.run_after, q.id
+                        LIMIT 1
+                        FOR UPDATE SKIP LOCKED)
+                    RETURNING\s""" + JOB_COLUMNS, new MapSqlParameterSource()
+                            .addValue("workerId", workerId)
+                            .addValue("leaseSeconds", leaseMs / 1000.0),
+                    JOB_ROW).stream().findFirst();
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** Renew the leases of the jobs a worker is still running. */
+    public int extendLeases(Collection<Long> ids, String workerId, long leaseMs) {
+        if (ids.isEmpty()) return 0;
+        return jdbc.update("""
+                UPDATE jobs SET locked_until = now() + make_interval(secs => :leaseSeconds)
+                WHERE id IN (:ids) AND status = 'RUNNING' AND locked_by = :workerId
+                """, new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("workerId", workerId)
+                .addValue("leaseSeconds", leaseMs / 1000.0));
+    }
+
+    /** @return false if the lease was lost meanwhile (the job was requeued and may run again) */
+    public boolean complete(long id, String workerId, String resultJson) {
+        return jdbc.update("""
+                UPDATE jobs
+                SET status = 'SUCCEEDED', result = CAST(:result AS jsonb), finished_at = now(),
+                    locked_by = NULL, locked_until = NULL, last_error = NULL
+                WHERE id = :id AND status = 'RUNNING' AND locked_by = :workerId
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("workerId", workerId)
+                .addValue("result", resultJson, Types.VARCHAR)) > 0;
+    }
+
+    /**
+     * Requeue with exponential backoff ({@code backoffMs * 2^(attempts-1)}), or FAILED when attempts are used
+     * up or the error is {@code permanent}.
+     */
+    public void fail(long id, String workerId, String error, long backoffMs, boolean permanent) {
+        jdbc.update("""
+                UPDATE jobs
+                SET status = CASE WHEN :permanent OR attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END,
+                    run_after = now() + make_interval(secs => :backoffSeconds * power(2, attempts - 1)),
+                    finished_at = CASE WHEN :permanent OR attempts >= max_attempts THEN now() END,
+                    locked_by = NULL, locked_until = NULL, last_error = left(:error, 4000)
+                WHERE id = :id AND status = 'RUNNING' AND locked_by = :workerId
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("workerId", workerId)
+                .addValue("error", error != null ? error : "unknown error")
+                .addValue("backoffSeconds", backoffMs / 1000.0)
+                .addValue("permanent", permanent));
+    }
+
+    /** Jobs whose worker stopped renewing its lease (crash, shutdown) go back to the queue. */
+    public int requeueExpired() {
+        return jdbc.getJdbcTemplate().update("""
+                UPDATE jobs
+                SET status = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END,
+                    finished_at = CASE WHEN attempts >= max_attempts THEN now() END,
+                    last_error = 'Lease expired on ' || COALESCE(locked_by, 'unknown worker'),
+                    locked_by = NULL, locked_until = NULL
+                WHERE status = 'RUNNING' AND locked_until < now()
+                """);
+    }
+
+    public Optional<JobRow> findById(long id) {
+        return jdbc.query("SELECT " + JOB_COLUMNS + " FROM jobs WHERE id = :id",
+                new MapSqlParameterSource("id", id), JOB_ROW).stream().findFirst();
+    }
+
+    /** Delete finished jobs older than {@code retentionDays}. */
+    public int purgeFinished(int retentionDays) {
+        return jdbc.update("""
+                DELETE FROM jobs
+                WHERE status IN ('SUCCEEDED', 'FAILED') AND finished_at < now() - make_interval(days => :days)
+                """, new MapSqlParameterSource("days", retentionDays));
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts != null ? ts.toInstant() : null;
+    }
+
+    public record JobRow(long id, String jobType, String payloadJson, int priority, String status,
+                         String concurrencyKey, int attempts, int maxAttempts, Instant runAfter, String lockedBy,
+                         Instant lockedUntil, String lastError, String resultJson, Instant createdAt,
+                         Instant startedAt, Instant finishedAt) {}
+}
@@ -0,0 +1,13 @@
+package com.merchant.demo.repository;
+
+import com.merchant.demo.entity.MarginRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface MarginRuleRepository extends JpaRepository<MarginRule, Integer> {
+
+    List<MarginRule> findByMerchantIdAndIsActiveTrue(Integer merchantId);
+
+    List<MarginRule> findByMerchantIdOrderByValidFromDescIdDesc(Integer merchantId);
+}
@@ -0,0 +1,159 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * SQL for the image mirror: source URLs waiting to be downloaded ({@code media_sources}) and the
+ * content-addressed files they resolved to ({@code media_assets}). Each statement is atomic on its own;
+ * claims use {@code FOR UPDATE SKIP LOCKED} so several instances share the work.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MediaMirrorRepository {
+
+    /** Longer URLs are not mirrored (they would not fit the primary key index). */
+    public static final int MAX_URL_LENGTH = 2000;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Queue http(s) URLs for mirroring; URLs seen before are ignored. */
+    public void registerSources(Collection<String> urls) {
+        SqlParameterSource[] batch = urls.stream()
+                .filter(MediaMirrorRepository::isMirrorable)
+                .distinct()
+                .map(url -> new MapSqlParameterSource("url", url))
+                .toArray(SqlParameterSource[]::new);
+        if (batch.length == 0) return;
+        jdbc.batchUpdate("INSERT INTO media_sources (source_url) VALUES (:url) ON CONFLICT DO NOTHING", batch);
+    }
+
+    /** Claim up to {@code limit} due URLs; a claim not completed within the timeout becomes due again. */
+    public List<PendingSource> claimDue(int limit, long claimTimeoutMs) {
+        return jdbc.query("""
+                UPDATE media_sources s
+                SET attempts = s.attempts + 1,
+                    next_attempt_at = now() + make_interval(secs => :timeoutSeconds)
+                WHERE s.source_url IN (
+                    SELECT source_url FROM media_sources
+                    WHERE status = 'PENDING' AND next_attempt_at <= now()
+                    ORDER BY next_attempt_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING s.source_url, s.attempts
+                """, new MapSqlParameterSource()
+                        .addValue("limit", limit)
+                        .addValue("timeoutSeconds", claimTimeoutMs / 1000.0),
+                (rs, i) -> new PendingSource(rs.getString("source_url"), rs.getInt("attempts")));
+    }
+
+    /** Record a stored file; identical content stored before is kept as is. */
+    public void saveAsset(MediaAsset asset) {
+        jdbc.update("""
+                INSERT INTO media_assets (sha256, content_type, byte_size, width, height, has_thumbnail, dhash)
+                VALUES (:sha256, :contentType, :byteSize, :width, :height, :hasThumbnail, :dhash)
+                ON CONFLICT (sha256) DO NOTHING
+                """, new MapSqlParameterSource()
+                .addValue("sha256", asset.sha256())
+                .addValue("contentType", asset.contentType())
+                .addValue("byteSize", asset.byteSize())
+                .addValue("width", asset.width(), Types.INTEGER)
+                .addValue("height", asset.height(), Types.INTEGER)
+                .addValue("hasThumbnail", asset.hasThumbnail())
+                .addValue("dhash", asset.dhash(), Types.BIGINT));
+    }
+
+    public void markMirrored(String sourceUrl, String sha256) {
+        jdbc.update("""
+                UPDATE media_sources
+                SET status = 'MIRRORED', sha256 = :sha256, mirrored_at = now(), last_error = NULL
+                WHERE source_url = :url
+                """, new MapSqlParameterSource()
+                .addValue("url", sourceUrl)
+                .addValue("sha256", sha256));
+    }
+
+    /** Retry later with exponential backoff, or give up when {@code permanent} or out of attempts. */
+    public void markFailed(String sourceUrl, String error, boolean permanent, int maxAttempts, long backoffMs) {
+        jdbc.update("""
+                UPDATE media_sources
+                SET status = CASE WHEN :permanent OR attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END,
+                    next_attempt_at = now() + make_interval(secs => :backoffSeconds * power(2, attempts - 1)),
+                    last_error = left(:error, 2000)
+                WHERE source_url = :url
+                """, new MapSqlParameterSource()
+                .addValue("url", sourceUrl)
+                .addValue("error", error != null ? error : "unknown error")
+                .addValue("permanent", permanent)
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("backoffSeconds", backoffMs / 1000.0));
+    }
+
+    /** source URL -> SHA-256 of its mirrored file, for the URLs that have been mirrored. */
+    public Map<String, String> findMirrored(Collection<String> sourceUrls) {
+        List<String> urls = sourceUrls.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, String> mirrored = new HashMap<>();
+        for (int from = 0; from < urls.size(); from += CHUNK_SIZE) {
+            jdbc.query("""
+                    SELECT source_url, sha256 FROM media_sources
+                    WHERE source_url IN (:urls) AND status = 'MIRRORED'
+                    """, new MapSqlParameterSource("urls", urls.subList(from, Math.min(from + CHUNK_SIZE, urls.size()))),
+                    (RowCallbackHandler) rs -> mirrored.put(rs.getString("source_url"), rs.getString("sha256")));
+        }
+        return mirrored;
+    }
+
+    /** Decodable assets stored before perceptual hashing existed, in SHA-256 order after {@code afterSha256}. */
+    public List<String> findUnhashedAssets(String afterSha256, int limit) {
+        return jdbc.queryForList("""
+                SELECT sha256 FROM media_assets
+                WHERE dhash IS NULL AND has_thumbnail AND sha256 > :after
+                ORDER BY sha256
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("after", afterSha256)
+                        .addValue("limit", limit),
+                String.class);
+    }
+
+    public void saveHash(String sha256, long dhash) {
+        jdbc.update("UPDATE media_assets SET dhash = :dhash WHERE sha256 = :sha256", new MapSqlParameterSource()
+                .addValue("sha256", sha256)
+                .addValue("dhash", dhash));
+    }
+
+    public Optional<MediaAsset> findAsset(String sha256) {
+        List<MediaAsset> rows = jdbc.query("""
+                SELECT sha256, content_type, byte_size, width, height, has_thumbnail, dhash
+                FROM media_assets WHERE sha256 = :sha256
+                """, new MapSqlParameterSource("sha256", sha256),
+                (rs, i) -> new MediaAsset(
+                        rs.getString("sha256"),
+                        rs.getString("content_type"),
+                        rs.getLong("byte_size"),
+                        (Integer) rs.getObject("width"),
+                        (Integer) rs.getObject("height"),
+                        rs.getBoolean("has_thumbnail"),
+                        (Long) rs.getObject("dhash")));
+        return rows.stream().findFirst();
+    }
+
+    private static boolean isMirrorable(String url) {
+        return url != null && url.length() <= MAX_URL_LENGTH
+                && (url.startsWith("https://") || url.startsWith("http://"));
+    }
+
+    public record PendingSource(String sourceUrl, int attempts) {}
+
+    public record MediaAsset(String sha256, String contentType, long byteSize, Integer width, Integer height,
+                             boolean hasThumbnail, Long dhash) {}
+}
@@ -2,10 +2,17 @@ package com.merchant.demo.repository;
 
 import com.merchant.demo.entity.Media;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MediaRepository extends JpaRepository<Media, Integer> {
 
     List<Media> findByProductIdOrderByPositionAsc(Integer productId);
+
+    /** [productId, max(position)] for each of the given products that has media. */
+    @Query("SELECT m.productId, MAX(m.position) FROM Media m WHERE m.productId IN :productIds GROUP BY m.productId")
+    List<Object[]> findMaxPositionByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
@@ -2,8 +2,24 @@ package com.merchant.demo.repository;
 
 import com.merchant.demo.entity.Merchant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.Optional;
 
 public interface MerchantRepository extends JpaRepository<Merchant, Integer> {
     List<Merchant> findByIsActiveTrueOrderByName();
-}
\ No newline at end of file
+
+    /*
+    SELECT * FROM merchants WHERE shop_domain = ? AND is_active AND source_type = 'SHOPIFY' ORDER BY name LIMIT 1;
+        -- idx_merchants_shop_domain (shop_domain is generated from source_config.store_url, see V20)
+    */
+    /**
+     * Active Shopify-sourced merchant for a lowercased, normalized Shopify host ("my-store.myshopify.com");
+     * merchants that switched to file imports keep their store_url but no longer take webhooks.
+     */
+    @Query(value = "SELECT * FROM merchants WHERE shop_domain = :shopDomain AND is_active " +
+                   "AND source_type = 'SHOPIFY' ORDER BY name, id LIMIT 1", nativeQuery = true)
+    Optional<Merchant> findActiveByShopDomain(@Param("shopDomain") String shopDomain);
+}
@@ -0,0 +1,141 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only price history of merchant offers ({@code offer_price_log}, range-partitioned by month on valid_from).
+ * <p>
+ * Each offer has at most one open row (valid_to IS NULL). {@link #append} closes it and appends the new price in
+ * two JDBC batches; entries equal to the current open row are no-ops, so callers may pass unchanged prices.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OfferPriceLogRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    private static final RowMapper<PriceLogEntry> PRICE_LOG_ENTRY = (rs, i) -> new PriceLogEntry(
+            rs.getInt("offer_id"),
+            rs.getString("currency_code"),
+            rs.getLong("price_minor"),
+            rs.getLong("settlement_price_minor"),
+            rs.getBigDecimal("applied_margin_percentage"),
+            rs.getTimestamp("valid_from").toInstant(),
+            rs.getTimestamp("valid_to") != null ? rs.getTimestamp("valid_to").toInstant() : null);
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Record new prices effective at {@code at}. Must run in the same transaction as the offer update.
+     *
+     * @return number of rows appended (entries equal to the open row are skipped)
+     */
+    public int append(List<PriceChange> changes, Instant at) {
+        if (changes.isEmpty()) return 0;
+        Timestamp ts = Timestamp.from(at);
+        SqlParameterSource[] batch = changes.stream()
+                .map(c -> new MapSqlParameterSource()
+                        .addValue("offerId", c.offerId())
+                        .addValue("currencyCode", c.currencyCode())
+                        .addValue("price", c.priceMinor())
+                        .addValue("settlement", c.settlementPriceMinor())
+                        .addValue("margin", c.marginPercentage() != null ? c.marginPercentage() : BigDecimal.ZERO)
+                        .addValue("at", ts))
+                .toArray(SqlParameterSource[]::new);
+
+        // 1. Close the open row when the price differs (idx_offer_price_log_open)
+        jdbc.batchUpdate("""
+                UPDATE offer_price_log SET valid_to = :at
+                WHERE offer_id = :offerId AND valid_to IS NULL
+                  AND (price_minor, settlement_price_minor, currency_code) IS DISTINCT FROM (:price, :settlement, :currencyCode)
+                """, batch);
+
+        // 2. Append unless an (identical) open row is still there
+        int[] counts = jdbc.batchUpdate("""
+                INSERT INTO offer_price_log (offer_id, currency_code, price_minor, settlement_price_minor,
+                                             applied_margin_percentage, valid_from)
+                SELECT :offerId, CAST(:currencyCode AS text), CAST(:price AS bigint), CAST(:settlement AS bigint),
+                       CAST(:margin AS numeric), CAST(:at AS timestamptz)
+                WHERE NOT EXISTS (SELECT 1 FROM offer_price_log WHERE offer_id = :offerId AND valid_to IS NULL)
+                """, batch);
+        int appended = 0;
+        for (int c : counts) {
+            appended += Math.max(c, 0);
+        }
+        return appended;
+    }
+
+    /*
+    SELECT ... FROM offer_price_log
+    WHERE offer_id = ? AND valid_from <= ? AND (valid_to IS NULL OR valid_to > ?)
+    ORDER BY valid_from DESC LIMIT 1;
+    -- prunes partitions after T; ordered append over idx_offer_price_log_offer_from stops at the first hit
+    */
+    public Optional<PriceLogEntry> findPriceAt(Integer offerId, Instant at) {
+        List<PriceLogEntry> rows = jdbc.query("""
+                SELECT offer_id, currency_code, price_minor, settlement_price_minor, applied_margin_percentage,
+                       valid_from, valid_to
+                FROM offer_price_log
+                WHERE offer_id = :offerId AND valid_from <= :at AND (valid_to IS NULL OR valid_to > :at)
+                ORDER BY valid_from DESC
+                LIMIT 1
+                """, new MapSqlParameterSource()
+                        .addValue("offerId", offerId)
+                        .addValue("at", Timestamp.from(at)),
+                PRICE_LOG_ENTRY);
+        return rows.stream().findFirst();
+    }
+
+    /** Price rows of one offer in effect at any point of [from, to), oldest first. */
+    public List<PriceLogEntry> findHistory(Integer offerId, Instant from, Instant to, int limit) {
+        return jdbc.query("""
+                SELECT offer_id, currency_code, price_minor, settlement_price_minor, applied_margin_percentage,
+                       valid_from, valid_to
+                FROM offer_price_log
+                WHERE offer_id = :offerId AND valid_from < :to AND (valid_to IS NULL OR valid_to > :from)
+                ORDER BY valid_from
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("offerId", offerId)
+                        .addValue("from", Timestamp.from(from))
+                        .addValue("to", Timestamp.from(to))
+                        .addValue("limit", limit),
+                PRICE_LOG_ENTRY);
+    }
+
+    /**
+     * Create the monthly partition starting at {@code monthStart} (UTC) if it does not exist yet.
+     *
+     * @return the partition table name
+     */
+    public String createMonthlyPartition(LocalDate monthStart) {
+        LocalDate start = monthStart.withDayOfMonth(1);
+        String name = "offer_price_log_" + start.format(PARTITION_SUFFIX);
+        // DDL cannot take bind parameters; the name and bounds are derived from a LocalDate only
+        jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS public." + name
+                + " PARTITION OF public.offer_price_log FOR VALUES FROM ('"
+                + start.atStartOfDay(ZoneOffset.UTC).toInstant() + "') TO ('"
+                + start.plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant() + "')");
+        return name;
+    }
+
+    public record PriceChange(int offerId, String currencyCode, long priceMinor, long settlementPriceMinor,
+                              BigDecimal marginPercentage) {}
+
+    public record PriceLogEntry(int offerId, String currencyCode, long priceMinor, long settlementPriceMinor,
+                                BigDecimal appliedMarginPercentage, Instant validFrom, Instant validTo) {}
+}
@@ -0,0 +1,139 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Applies price and stock from a catalog sync to a merchant's live offers, matched by external_variant_id.
+ * <p>
+ * Current values are read in one query per chunk and diffed in memory, so only offers whose price or stock
+ * actually changed are updated (one JDBC batch). Catalog syncs also stamp last_synced_at on the unchanged rest
+ * in one statement; stock-only syncs leave unchanged rows alone, so a periodic run over a mostly static
+ * inventory writes (and bloats) nothing. The best offers of the affected variants are re-resolved. Must be called inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OfferSyncWriter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final BestOfferRepository bestOfferRepository;
+
+    /**
+     * Apply a catalog sync: changed offers are updated and every other matched offer gets last_synced_at stamped.
+     *
+     * @return the offers whose price or stock changed (before/after values)
+     */
+    public List<OfferDelta> apply(Integer merchantId, Collection<SyncedVariant> variants, Instant syncedAt) {
+        return apply(merchantId, variants, syncedAt, true);
+    }
+
+    /**
+     * Apply a stock-only sync: only offers whose values changed are written (and get last_synced_at stamped).
+     *
+     * @return the offers whose price or stock changed (before/after values)
+     */
+    public List<OfferDelta> applyChanges(Integer merchantId, Collection<SyncedVariant> variants, Instant syncedAt) {
+        return apply(merchantId, variants, syncedAt, false);
+    }
+
+    private List<OfferDelta> apply(Integer merchantId, Collection<SyncedVariant> variants, Instant syncedAt,
+                                   boolean stampUnchanged) {
+        Map<String, SyncedVariant> byExternalId = new LinkedHashMap<>();
+        for (SyncedVariant v : variants) {
+            if (v.externalVariantId() != null) byExternalId.put(v.externalVariantId(), v);
+        }
+        List<OfferDelta> deltas = new ArrayList<>();
+        List<Integer> unchangedIds = new ArrayList<>();
+        List<String> externalIds = new ArrayList<>(byExternalId.keySet());
+        for (int from = 0; from < externalIds.size(); from += CHUNK_SIZE) {
+            List<String> chunk = externalIds.subList(from, Math.min(from + CHUNK_SIZE, externalIds.size()));
+            for (OfferState offer : findOffers(merchantId, chunk)) {
+                SyncedVariant incoming = byExternalId.get(offer.externalVariantId());
+                long price = incoming.priceMinor() != null ? incoming.priceMinor() : offer.priceMinor();
+                // Stock is only known when the sync fetched inventory; keep the stored value otherwise
+                Integer stock = incoming.stock() != null ? incoming.stock() : offer.stock();
+                if (price != offer.priceMinor() || !Objects.equals(stock, offer.stock())) {
+                    deltas.add(new OfferDelta(offer.offerId(), offer.priceMinor(), price, offer.stock(), stock));
+                } else if (stampUnchanged) {
+                    unchangedIds.add(offer.offerId());
+                }
+            }
+        }
+
+        Timestamp ts = Timestamp.from(syncedAt);
+        if (!deltas.isEmpty()) {
+            jdbc.batchUpdate("""
+                    UPDATE merchant_offers
+                    SET cached_price_minor = :price, current_stock = :stock, last_synced_at = :syncedAt, updated_at = now()
+                    WHERE id = :id
+                    """, deltas.stream()
+                    .map(d -> new MapSqlParameterSource()
+                            .addValue("id", d.offerId())
+                            .addValue("price", d.newPriceMinor())
+                            .addValue("stock", d.newStock(), Types.INTEGER)
+                            .addValue("syncedAt", ts))
+                    .toArray(SqlParameterSource[]::new));
+            bestOfferRepository.refreshForOffers(deltas.stream().map(OfferDelta::offerId).toList());
+        }
+        for (int from = 0; from < unchangedIds.size(); from += CHUNK_SIZE) {
+            jdbc.update("UPDATE merchant_offers SET last_synced_at = :syncedAt WHERE id IN (:ids)",
+                    new MapSqlParameterSource()
+                            .addValue("syncedAt", ts)
+                            .addValue("ids", unchangedIds.subList(from, Math.min(from + CHUNK_SIZE, unchangedIds.size()))));
+        }
+        return deltas;
+    }
+
+    /** Take all offers of a deleted Shopify product offline; returns the number of offers deactivated. */
+    public int deactivateByExternalProductId(Integer merchantId, String externalProductId) {
+        List<Integer> offerIds = jdbc.queryForList("""
+                UPDATE merchant_offers SET is_active = false, updated_at = now()
+                WHERE merchant_id = :merchantId AND external_product_id = :externalProductId AND is_active
+                RETURNING id
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("externalProductId", externalProductId),
+                Integer.class);
+        bestOfferRepository.refreshForOffers(offerIds);
+        return offerIds.size();
+    }
+
+    /*
+    ... WHERE merchant_id = ? AND external_variant_id IN (...)   -- idx_offers_merchant_external_variant
+    */
+    private List<OfferState> findOffers(Integer merchantId, List<String> externalVariantIds) {
+        return jdbc.query("""
+                SELECT id, external_variant_id, cached_price_minor, current_stock
+                FROM merchant_offers
+                WHERE merchant_id = :merchantId AND external_variant_id IN (:externalVariantIds)
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("externalVariantIds", externalVariantIds),
+                (rs, i) -> new OfferState(
+                        rs.getInt("id"),
+                        rs.getString("external_variant_id"),
+                        rs.getLong("cached_price_minor"),
+                        (Integer) rs.getObject("current_stock")));
+    }
+
+    /** Price/stock of one Shopify variant as fetched; null means "not fetched". */
+    public record SyncedVariant(String externalVariantId, Long priceMinor, Integer stock) {}
+
+    public record OfferDelta(int offerId, long oldPriceMinor, long newPriceMinor, Integer oldStock, Integer newStock) {
+        public boolean priceChanged() {
+            return oldPriceMinor != newPriceMinor;
+        }
+    }
+
+    private record OfferState(int offerId, String externalVariantId, long priceMinor, Integer stock) {}
+}
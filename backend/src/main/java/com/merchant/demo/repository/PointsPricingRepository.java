@@ -0,0 +1,97 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Reads loyalty partners, point conversion rules and currencies for the in-memory points rate snapshot,
+ * and the offers of a batch of variants for points pricing.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PointsPricingRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Digest of everything the snapshot is built from. The tables are small, so hashing them is cheaper
+     * than reloading and rebuilding the snapshot on every refresh tick.
+     */
+    public String findRatesFingerprint() {
+        return jdbc.getJdbcTemplate().queryForObject("""
+                SELECT md5(
+                    (SELECT COALESCE(string_agg(concat_ws(':', id, partner_id, currency_code, points_to_currency_rate,
+                                                          valid_from, valid_to, is_active), ',' ORDER BY id), '')
+                     FROM point_conversion_rules)
+                    || '|' ||
+                    (SELECT COALESCE(string_agg(concat_ws(':', id, is_active), ',' ORDER BY id), '') FROM loyalty_partners)
+                    || '|' ||
+                    (SELECT COALESCE(string_agg(concat_ws(':', code, minor_units), ',' ORDER BY code), '') FROM currencies))
+                """, String.class);
+    }
+
+    public Set<Integer> findActivePartnerIds() {
+        return new HashSet<>(jdbc.getJdbcTemplate()
+                .queryForList("SELECT id FROM loyalty_partners WHERE is_active", Integer.class));
+    }
+
+    /** currency code -> minor units (2 for INR/USD, 0 for JPY, ...). */
+    public Map<String, Integer> findCurrencyMinorUnits() {
+        Map<String, Integer> minorUnits = new HashMap<>();
+        jdbc.getJdbcTemplate().query("SELECT code, minor_units FROM currencies",
+                (RowCallbackHandler) rs -> minorUnits.put(rs.getString("code"), rs.getInt("minor_units")));
+        return minorUnits;
+    }
+
+    public List<ConversionRuleRow> findActiveConversionRules() {
+        return jdbc.getJdbcTemplate().query("""
+                SELECT r.id, r.partner_id, r.currency_code, r.points_to_currency_rate, r.valid_from, r.valid_to
+                FROM point_conversion_rules r
+                JOIN loyalty_partners p ON p.id = r.partner_id AND p.is_active
+                WHERE r.is_active
+                """, (rs, i) -> {
+            Timestamp validTo = rs.getTimestamp("valid_to");
+            return new ConversionRuleRow(
+                    rs.getInt("id"),
+                    rs.getInt("partner_id"),
+                    rs.getString("currency_code"),
+                    rs.getBigDecimal("points_to_currency_rate"),
+                    rs.getTimestamp("valid_from").toInstant(),
+                    validTo != null ? validTo.toInstant() : null);
+        });
+    }
+
+    /*
+    ... WHERE o.variant_id IN (...) AND o.is_active AND o.offer_status = 'LIVE';   -- idx_offers_variant
+    */
+    public List<OfferPriceRow> findLiveOffersByVariantIds(Collection<Integer> variantIds) {
+        if (variantIds.isEmpty()) return List.of();
+        return jdbc.query("""
+                SELECT o.id, o.variant_id, o.merchant_id, o.currency_code, o.cached_price_minor, o.current_stock
+                FROM merchant_offers o
+                WHERE o.variant_id IN (:variantIds) AND o.is_active AND o.offer_status = 'LIVE'
+                ORDER BY o.variant_id, o.cached_price_minor, o.id
+                """, new MapSqlParameterSource("variantIds", variantIds),
+                (rs, i) -> new OfferPriceRow(
+                        rs.getInt("id"),
+                        rs.getInt("variant_id"),
+                        rs.getInt("merchant_id"),
+                        rs.getString("currency_code"),
+                        rs.getLong("cached_price_minor"),
+                        (Integer) rs.getObject("current_stock")));
+    }
+
+    public record ConversionRuleRow(int id, int partnerId, String currencyCode, BigDecimal pointsToCurrencyRate,
+                                    Instant validFrom, Instant validTo) {}
+
+    public record OfferPriceRow(int offerId, int variantId, int merchantId, String currencyCode, long priceMinor,
+                                Integer currentStock) {}
+}
@@ -0,0 +1,172 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Set-based SQL for repricing: reads offers together with the brand and categories their margin
+ * rule depends on, and writes settlement prices back in one JDBC batch per page.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PricingRepository {
+
+    private static final String OFFER_PRICING_COLUMNS = """
+            SELECT o.id, o.currency_code, o.cached_price_minor, o.cached_settlement_price_minor, p.brand_id,
+                   ARRAY(SELECT pc.category_id FROM product_categories pc WHERE pc.product_id = p.id) AS category_ids
+            FROM merchant_offers o
+            JOIN variants v ON v.id = o.variant_id
+            JOIN products p ON p.id = v.product_id
+            """;
+
+    private static final RowMapper<OfferPricingRow> OFFER_PRICING_ROW = (rs, i) -> new OfferPricingRow(
+            rs.getInt("id"),
+            rs.getString("currency_code"),
+            rs.getLong("cached_price_minor"),
+            rs.getLong("cached_settlement_price_minor"),
+            (Integer) rs.getObject("brand_id"),
+            intList(rs, "category_ids"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /*
+    ... WHERE o.merchant_id = ? AND o.id > ? ORDER BY o.id LIMIT ?;   -- keyset over idx_offers_merchant_id_id
+    */
+    public List<OfferPricingRow> findOffersForPricing(Integer merchantId, int afterId, int limit) {
+        return jdbc.query(OFFER_PRICING_COLUMNS + """
+                WHERE o.merchant_id = :merchantId AND o.id > :afterId
+                ORDER BY o.id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                OFFER_PRICING_ROW);
+    }
+
+    /** A merchant's offers on the variants of the given master products. */
+    public List<OfferPricingRow> findOffersForPricing(Integer merchantId, Collection<Integer> productIds) {
+        if (productIds.isEmpty()) return List.of();
+        return jdbc.query(OFFER_PRICING_COLUMNS + """
+                WHERE o.merchant_id = :merchantId AND v.product_id IN (:productIds)
+                ORDER BY o.id
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("productIds", productIds),
+                OFFER_PRICING_ROW);
+    }
+
+    /** A merchant's offers by id. */
+    public List<OfferPricingRow> findOffersForPricingByIds(Integer merchantId, Collection<Integer> offerIds) {
+        if (offerIds.isEmpty()) return List.of();
+        return jdbc.query(OFFER_PRICING_COLUMNS + """
+                WHERE o.merchant_id = :merchantId AND o.id IN (:offerIds)
+                ORDER BY o.id
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("offerIds", offerIds),
+                OFFER_PRICING_ROW);
+    }
+
+    /** category id -> parent id for every category that has a parent. */
+    public Map<Integer, Integer> findCategoryParents() {
+        Map<Integer, Integer> parents = new HashMap<>();
+        jdbc.query("SELECT id, parent_id FROM categories WHERE parent_id IS NOT NULL",
+                (RowCallbackHandler) rs -> parents.put(rs.getInt("id"), rs.getInt("parent_id")));
+        return parents;
+    }
+
+    /**
+     * Write settlement prices in one JDBC batch; rows already at the target price are skipped.
+     *
+     * @return the updates that actually changed a row
+     */
+    public List<SettlementUpdate> updateSettlementPrices(List<SettlementUpdate> updates) {
+        if (updates.isEmpty()) return List.of();
+        SqlParameterSource[] batch = updates.stream()
+                .map(u -> new MapSqlParameterSource()
+                        .addValue("id", u.offerId())
+                        .addValue("settlement", u.settlementPriceMinor()))
+                .toArray(SqlParameterSource[]::new);
+        int[] counts = jdbc.batchUpdate("""
+                UPDATE merchant_offers
+                SET cached_settlement_price_minor = :settlement, updated_at = now()
+                WHERE id = :id AND cached_settlement_price_minor <> :settlement
+                """, batch);
+        List<SettlementUpdate> applied = new ArrayList<>(updates.size());
+        for (int i = 0; i < counts.length; i++) {
+            // SUCCESS_NO_INFO (-2) means the driver did not report counts: assume the row changed
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) applied.add(updates.get(i));
+        }
+        return applied;
+    }
+
+    /**
+     * Lock the margin-rule boundary checkpoint for the caller's transaction (one checker at a time across
+     * instances) and return the window from the last check up to the database clock.
+     */
+    public RuleBoundaryWindow lockRuleBoundaryWindow() {
+        return jdbc.queryForObject("SELECT checked_through, now() AS now FROM margin_rule_boundary_checkpoint FOR UPDATE",
+                new MapSqlParameterSource(), (rs, i) -> new RuleBoundaryWindow(
+                        rs.getTimestamp("checked_through").toInstant(), rs.getTimestamp("now").toInstant()));
+    }
+
+    public void advanceRuleBoundaryCheckpoint(Instant through) {
+        jdbc.update("UPDATE margin_rule_boundary_checkpoint SET checked_through = GREATEST(checked_through, :through)",
+                new MapSqlParameterSource("through", Timestamp.from(through)));
+    }
+
+    /*
+    SELECT DISTINCT merchant_id FROM margin_rules
+    WHERE is_active AND ((valid_from > ? AND valid_from <= ?) OR (valid_to > ? AND valid_to <= ?));
+        -- BitmapOr of idx_margin_rules_valid_from and idx_margin_rules_valid_to (partial, active rules)
+    */
+    /** Merchants with an active rule that took effect or expired in {@code (window.after, window.through]}. */
+    public List<Integer> findMerchantsWithRuleBoundariesIn(RuleBoundaryWindow window) {
+        return jdbc.queryForList("""
+                SELECT DISTINCT merchant_id FROM margin_rules
+                WHERE is_active
+                  AND ((valid_from > :after AND valid_from <= :through)
+                       OR (valid_to > :after AND valid_to <= :through))
+                ORDER BY merchant_id
+                """, new MapSqlParameterSource()
+                        .addValue("after", Timestamp.from(window.after()))
+                        .addValue("through", Timestamp.from(window.through())),
+                Integer.class);
+    }
+
+    private static List<Integer> intList(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) return List.of();
+        try {
+            Object[] values = (Object[]) array.getArray();
+            List<Integer> result = new ArrayList<>(values.length);
+            for (Object value : values) {
+                if (value != null) result.add(((Number) value).intValue());
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+
+    public record OfferPricingRow(int offerId, String currencyCode, long priceMinor, long settlementPriceMinor,
+                                  Integer brandId, List<Integer> categoryIds) {}
+
+    public record SettlementUpdate(int offerId, long settlementPriceMinor) {}
+
+    public record RuleBoundaryWindow(Instant after, Instant through) {}
+}
@@ -0,0 +1,209 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Storefront product documents ({@code product_documents}) and the queue of products whose document is stale.
+ * <p>
+ * Catalog writers call the {@code enqueue*} methods inside their own transaction, so a change and its queue row
+ * commit together; the refresher claims queued products and rebuilds their documents in one set-based
+ * statement. Reads return the stored JSON text as is.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductDocumentRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public void enqueueProducts(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(new LinkedHashSet<>(productIds));
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            jdbc.update("""
+                    INSERT INTO product_document_queue (product_id)
+                    SELECT id FROM products WHERE id IN (:ids)
+                    ON CONFLICT DO NOTHING
+                    """, new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()))));
+        }
+    }
+
+    /** Queue the products of the given variants. */
+    public void enqueueForVariants(Collection<Integer> variantIds) {
+        List<Integer> ids = List.copyOf(variantIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            jdbc.update("""
+                    INSERT INTO product_document_queue (product_id)
+                    SELECT DISTINCT product_id FROM variants WHERE id IN (:ids)
+                    ON CONFLICT DO NOTHING
+                    """, new MapSqlParameterSource("ids", ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()))));
+        }
+    }
+
+    public void enqueueForBrand(Integer brandId) {
+        jdbc.update("""
+                INSERT INTO product_document_queue (product_id)
+                SELECT id FROM products WHERE brand_id = :brandId
+                ON CONFLICT DO NOTHING
+                """, new MapSqlParameterSource("brandId", brandId));
+    }
+
+    public void enqueueForCategory(Integer categoryId) {
+        jdbc.update("""
+                INSERT INTO product_document_queue (product_id)
+                SELECT product_id FROM product_categories WHERE category_id = :categoryId
+                ON CONFLICT DO NOTHING
+                """, new MapSqlParameterSource("categoryId", categoryId));
+    }
+
+    /*
+    media by idx_media_src_url (hash), one probe per URL
+    */
+    public void enqueueForSourceUrls(Collection<String> sourceUrls) {
+        if (sourceUrls.isEmpty()) return;
+        jdbc.update("""
+                INSERT INTO product_document_queue (product_id)
+                SELECT DISTINCT product_id FROM media WHERE src_url IN (:urls)
+                ON CONFLICT DO NOTHING
+                """, new MapSqlParameterSource("urls", List.copyOf(sourceUrls)));
+    }
+
+    /**
+     * Remove up to {@code limit} queued products, oldest first, and return them. Rows claimed by a concurrent
+     * refresher are skipped; must be called in the transaction that rebuilds the documents.
+     */
+    public List<Integer> claimQueued(int limit) {
+        return jdbc.queryForList("""
+                DELETE FROM product_document_queue
+                WHERE product_id IN (
+                    SELECT product_id FROM product_document_queue
+                    ORDER BY queued_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING product_id
+                """, new MapSqlParameterSource("limit", limit), Integer.class);
+    }
+
+    /**
+     * Rebuild the documents of the given products from the catalog tables; products that are gone or not ACTIVE
+     * lose their document. Unchanged documents keep their version; new and changed
+     * ones take the next value of {@code product_document_version_seq}, so a version is never reused, even for a
+     * product whose document was deleted and built again. {@code built_at} is the wall clock time of the write, not
+     * the transaction start, so it trails the commit by at most the rebuild transaction's timeout.
+     *
+     * @param mediaUrlPrefix prefix of mirrored image URLs ({@code <prefix><sha256>}, thumbnails {@code .../thumbnail})
+     * @return number of documents written (created or changed)
+     */
+    public int rebuild(Collection<Integer> productIds, String mediaUrlPrefix) {
+        if (productIds.isEmpty()) return 0;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", List.copyOf(productIds))
+                .addValue("mediaUrlPrefix", mediaUrlPrefix);
+        jdbc.update("""
+                DELETE FROM product_documents d
+                WHERE d.product_id IN (:ids)
+                  AND NOT EXISTS (SELECT 1 FROM products p WHERE p.id = d.product_id AND p.status = 'ACTIVE')
+                """, params);
+        return jdbc.update("""
+                INSERT INTO product_documents AS d (product_id, document, built_at)
+                SELECT p.id, jsonb_build_object(
+                    'id', p.id,
+                    'title', p.title,
+                    'slug', p.slug,
+                    'description', p.description,
+                    'image_url', p.image_url,
+                    'specifications', p.specifications,
+                    'options_definition', p.options_definition,
+                    'rating', p.rating,
+                    'review_count', p.review_count,
+                    'brand', (SELECT jsonb_build_object('id', b.id, 'name', b.name, 'slug', b.slug, 'logo_url', b.logo_url)
+                              FROM brands b
+                              WHERE b.id = p.brand_id AND b.is_active),
+                    'categories', COALESCE((
+                        SELECT jsonb_agg(jsonb_build_object('id', c.id, 'name', c.name, 'slug', c.slug, 'path', c.path)
+                                         ORDER BY c.id)
+                        FROM product_categories pc
+                        JOIN categories c ON c.id = pc.category_id AND c.is_active
+                        WHERE pc.product_id = p.id), '[]'::jsonb),
+                    'media', COALESCE((
+                        SELECT jsonb_agg(jsonb_build_object(
+                                   'id', m.id,
+                                   'src_url', m.src_url,
+                                   'alt_text', m.alt_text,
+                                   'position', m."position",
+                                   'mirror_url', :mediaUrlPrefix || s.sha256,
+                                   'thumbnail_url', :mediaUrlPrefix || s.sha256 || '/thumbnail')
+                               ORDER BY m."position", m.id)
+                        FROM media m
+                        LEFT JOIN media_sources s ON s.source_url = m.src_url AND s.status = 'MIRRORED'
+                        WHERE m.product_id = p.id), '[]'::jsonb),
+                    'variants', COALESCE((
+                        SELECT jsonb_agg(jsonb_build_object(
+                                   'id', v.id,
+                                   'internal_sku', v.internal_sku,
+                                   'gtin', v.gtin,
+                                   'options', v.options,
+                                   'media_ids', COALESCE((SELECT jsonb_agg(vm.media_id ORDER BY vm.media_id)
+                                                         FROM variant_media vm
+                                                         WHERE vm.variant_id = v.id), '[]'::jsonb),
+                                   'best_offer', (
+                                       SELECT jsonb_build_object(
+                                                  'offer_id', bo.offer_id,
+                                                  'merchant_id', bo.merchant_id,
+                                                  'currency_code', bo.currency_code,
+                                                  'price_minor', bo.price_minor,
+                                                  'settlement_price_minor', bo.settlement_price_minor,
+                                                  'stock', bo.stock)
+                                       FROM variant_best_offers bo
+                                       WHERE bo.variant_id = v.id))
+                               ORDER BY v.id)
+                        FROM variants v
+                        WHERE v.product_id = p.id AND v.is_active AND v.status = 'ACTIVE'), '[]'::jsonb)),
+                       clock_timestamp()
+                FROM products p
+                WHERE p.id IN (:ids) AND p.status = 'ACTIVE'
+                ON CONFLICT (product_id) DO UPDATE
+                    SET document = EXCLUDED.document, version = nextval('product_document_version_seq'),
+                        built_at = EXCLUDED.built_at
+                    WHERE d.document IS DISTINCT FROM EXCLUDED.document
+                """, params);
+    }
+
+    /*
+    product_documents pkey, one index probe
+    */
+    public Optional<StoredDocument> findDocument(Integer productId) {
+        return jdbc.query("""
+                SELECT product_id, version, document::text AS document
+                FROM product_documents
+                WHERE product_id = :productId
+                """, new MapSqlParameterSource("productId", productId), (rs, i) -> new StoredDocument(
+                        rs.getInt("product_id"), rs.getLong("version"), rs.getString("document")))
+                .stream().findFirst();
+    }
+
+    /*
+    product_documents pkey, one index probe per id
+    */
+    public Map<Integer, StoredDocument> findDocuments(Collection<Integer> productIds) {
+        Map<Integer, StoredDocument> documents = new HashMap<>(productIds.size() * 2);
+        if (productIds.isEmpty()) return documents;
+        jdbc.query("""
+                SELECT product_id, version, document::text AS document
+                FROM product_documents
+                WHERE product_id IN (:ids)
+                """, new MapSqlParameterSource("ids", List.copyOf(productIds)),
+                (RowCallbackHandler) rs -> documents.put(rs.getInt("product_id"), new StoredDocument(
+                        rs.getInt("product_id"), rs.getLong("version"), rs.getString("document"))));
+        return documents;
+    }
+
+    /** A product's document as stored (JSON text, snake_case keys). */
+    public record StoredDocument(int productId, long version, String json) {}
+}
@@ -0,0 +1,167 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Facet values of storefront products (those with a product document): brand, categories, normalized option
+ * combinations of active variants and the lowest best-offer price. Document build times serve as the change
+ * feed: every catalog change that alters what the storefront shows rebuilds the product's document.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductFacetRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /*
+    ... WHERE product_id > ? ORDER BY product_id LIMIT ?;   -- keyset over product_documents_pkey
+    */
+    public List<Integer> findDocumentProductIds(int afterProductId, int limit) {
+        return jdbc.queryForList("""
+                SELECT product_id FROM product_documents
+                WHERE product_id > :afterProductId
+                ORDER BY product_id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("afterProductId", afterProductId)
+                        .addValue("limit", limit),
+                Integer.class);
+    }
+
+    /*
+    Range scan of idx_product_documents_built_at
+    */
+    /** Products whose document was built, rebuilt with changes, after {@code since}. */
+    public DocumentChanges findChangedSince(Instant since) {
+        List<Integer> productIds = new ArrayList<>();
+        Instant[] latest = {since};
+        jdbc.query("SELECT product_id, built_at FROM product_documents WHERE built_at > :since",
+                new MapSqlParameterSource("since", Timestamp.from(since)),
+                (RowCallbackHandler) rs -> {
+                    productIds.add(rs.getInt("product_id"));
+                    Instant builtAt = rs.getTimestamp("built_at").toInstant();
+                    if (builtAt.isAfter(latest[0])) latest[0] = builtAt;
+                });
+        return new DocumentChanges(productIds, latest[0]);
+    }
+
+    /** Count and id sum of all documents; a cheap check that no document appeared or disappeared unseen. */
+    public DocumentStats findDocumentStats() {
+        return jdbc.getJdbcTemplate().queryForObject("""
+                SELECT count(*) AS documents, coalesce(sum(product_id), 0) AS product_id_sum,
+                       coalesce(max(built_at), 'epoch'::timestamptz) AS latest_built_at
+                FROM product_documents
+                """, (rs, i) -> new DocumentStats(rs.getInt("documents"), rs.getLong("product_id_sum"),
+                rs.getTimestamp("latest_built_at").toInstant()));
+    }
+
+    /** category id -> parent id for every category that has a parent. */
+    public Map<Integer, Integer> findCategoryParents() {
+        Map<Integer, Integer> parents = new HashMap<>();
+        jdbc.query("SELECT id, parent_id FROM categories WHERE parent_id IS NOT NULL",
+                (RowCallbackHandler) rs -> parents.put(rs.getInt("id"), rs.getInt("parent_id")));
+        return parents;
+    }
+
+    /**
+     * Facets of the given products, keyed and ordered by product id; products without a document are left out.
+     * Brands and categories count only while active, as in the documents.
+     */
+    public Map<Integer, ProductFacets> findFacets(Collection<Integer> productIds) {
+        List<Integer> ids = productIds.stream().sorted().toList();
+        Map<Integer, ProductFacets> facets = new LinkedHashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            loadFacets(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())), facets);
+        }
+        return facets;
+    }
+
+    /*
+    product_documents pkey probes, then product_categories / variants by product_id and variant_best_offers pkey
+    per product; option combinations through jsonb_each_text of the variants' normalized_attributes, rows of one
+    variant adjacent
+    */
+    private void loadFacets(List<Integer> productIds, Map<Integer, ProductFacets> facets) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", productIds);
+        jdbc.query("""
+                SELECT p.id, CASE WHEN b.is_active THEN p.brand_id END AS brand_id,
+                       ARRAY(SELECT pc.category_id
+                             FROM product_categories pc
+                             JOIN categories c ON c.id = pc.category_id AND c.is_active
+                             WHERE pc.product_id = p.id) AS category_ids,
+                       (SELECT min(bo.settlement_price_minor)
+                        FROM variants v
+                        JOIN variant_best_offers bo ON bo.variant_id = v.id
+                        WHERE v.product_id = p.id AND v.is_active AND v.status = 'ACTIVE') AS from_price_minor
+                FROM product_documents d
+                JOIN products p ON p.id = d.product_id
+                LEFT JOIN brands b ON b.id = p.brand_id
+                WHERE d.product_id IN (:ids)
+                ORDER BY p.id
+                """, params, (RowCallbackHandler) rs -> {
+            int productId = rs.getInt("id");
+            facets.put(productId, new ProductFacets(productId, (Integer) rs.getObject("brand_id"),
+                    intList(rs, "category_ids"), new ArrayList<>(), (Long) rs.getObject("from_price_minor")));
+        });
+        Map<Integer, Map<String, String>> optionsByVariant = new LinkedHashMap<>();
+        Map<Integer, Integer> productByVariant = new HashMap<>();
+        jdbc.query("""
+                SELECT v.product_id, v.id AS variant_id, kv.key, kv.value
+                FROM variants v
+                CROSS JOIN LATERAL jsonb_each_text(v.normalized_attributes) kv
+                WHERE v.product_id IN (:ids) AND v.is_active AND v.status = 'ACTIVE' AND kv.value IS NOT NULL
+                ORDER BY v.product_id, v.id
+                """, params, (RowCallbackHandler) rs -> {
+            int variantId = rs.getInt("variant_id");
+            productByVariant.put(variantId, rs.getInt("product_id"));
+            optionsByVariant.computeIfAbsent(variantId, k -> new HashMap<>())
+                    .put(rs.getString("key"), rs.getString("value"));
+        });
+        optionsByVariant.forEach((variantId, options) -> {
+            ProductFacets product = facets.get(productByVariant.get(variantId));
+            // Variants that differ only outside their options need one entry
+            if (product != null && !product.variantOptions().contains(options)) product.variantOptions().add(options);
+        });
+    }
+
+    private static List<Integer> intList(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) return List.of();
+        try {
+            Object[] values = (Object[]) array.getArray();
+            List<Integer> result = new ArrayList<>(values.length);
+            for (Object value : values) {
+                if (value != null) result.add(((Number) value).intValue());
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+
+    /**
+     * Facets of one product: brand, directly assigned categories, the distinct normalized option combinations
+     * (option name -> value) of its active variants, and the lowest best-offer settlement price of those variants
+     * (null without offers).
+     */
+    public record ProductFacets(int productId, Integer brandId, List<Integer> categoryIds,
+                                List<Map<String, String>> variantOptions, Long fromPriceMinor) {}
+
+    /** Changed products and the latest build time among them ({@code since} when nothing changed). */
+    public record DocumentChanges(List<Integer> productIds, Instant latestBuiltAt) {}
+
+    public record DocumentStats(int documents, long productIdSum, Instant latestBuiltAt) {}
+}
@@ -0,0 +1,138 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based SQL for the post-sync matching stage. Each method works on a whole batch of
+ * staging product ids so matching costs a handful of statements per batch, not per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StagingMatchRepository {
+
+    /** Statuses that have not been decided by an admin yet and may (re)receive suggestions. */
+    public static final List<String> MATCHABLE_STATUSES = List.of("PENDING_SYNC", "PENDING", "NEEDS_REVIEW", "AUTO_MATCHED");
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /*
+    SELECT id FROM staging_products
+    WHERE merchant_id = ? AND status IN (...) AND id > ?
+    ORDER BY id LIMIT ?;   -- keyset pagination over idx_staging_prod_merchant_status
+    */
+    public List<Integer> findMatchableIds(Integer merchantId, int afterId, int limit) {
+        return jdbc.queryForList("""
+                SELECT id FROM staging_products
+                WHERE merchant_id = :merchantId AND status IN (:statuses) AND id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("merchantId", merchantId)
+                        .addValue("statuses", MATCHABLE_STATUSES)
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Integer.class);
+    }
+
+    /**
+     * Join staging variant barcodes against the global GTIN index (idx_variants_gtin_global).
+     * Returns one row per (staging product, master product) pair with how many of the staging
+     * product's barcoded variants hit that master product.
+     */
+    public List<GtinHit> findGtinHits(Collection<Integer> stagingIds) {
+        return jdbc.query("""
+                SELECT sv.staging_product_id AS staging_id,
+                       v.product_id           AS product_id,
+                       COUNT(DISTINCT sv.id)  AS matched,
+                       (SELECT COUNT(*) FROM staging_variants t
+                         WHERE t.staging_product_id = sv.staging_product_id
+                           AND t.raw_barcode IS NOT NULL AND t.raw_barcode <> '') AS barcoded
+                FROM staging_variants sv
+                JOIN variants v ON v.gtin = sv.raw_barcode AND v.gtin IS NOT NULL AND v.is_active = true
+                WHERE sv.staging_product_id IN (:ids)
+                  AND sv.raw_barcode IS NOT NULL AND sv.raw_barcode <> ''
+                GROUP BY sv.staging_product_id, v.product_id
+                """, new MapSqlParameterSource("ids", stagingIds),
+                (rs, i) -> new GtinHit(rs.getInt("staging_id"), rs.getInt("product_id"),
+                        rs.getInt("matched"), rs.getInt("barcoded")));
+    }
+
+    /**
+     * Best trigram title match per staging product (products.title % raw_title uses
+     * idx_products_title_trgm), with a bonus when the staging vendor equals the brand name.
+     */
+    public List<TitleHit> findTitleHits(Collection<Integer> stagingIds, double vendorBonus) {
+        return jdbc.query("""
+                SELECT sp.id AS staging_id, m.product_id, m.score
+                FROM staging_products sp
+                CROSS JOIN LATERAL (
+                    SELECT p.id AS product_id,
+                           similarity(p.title, sp.raw_title)
+                             + CASE WHEN b.name IS NOT NULL AND sp.raw_vendor IS NOT NULL
+                                         AND lower(b.name) = lower(sp.raw_vendor)
+                                    THEN :vendorBonus ELSE 0 END AS score
+                    FROM products p
+                    LEFT JOIN brands b ON b.id = p.brand_id
+                    WHERE p.title % sp.raw_title
+                    ORDER BY score DESC, p.id
+                    LIMIT 1
+                ) m
+                WHERE sp.id IN (:ids) AND sp.raw_title IS NOT NULL AND sp.raw_title <> ''
+                """, new MapSqlParameterSource()
+                        .addValue("ids", stagingIds)
+                        .addValue("vendorBonus", vendorBonus),
+                (rs, i) -> new TitleHit(rs.getInt("staging_id"), rs.getInt("product_id"), rs.getDouble("score")));
+    }
+
+    /**
+     * Write suggestions in one JDBC batch. Rows whose suggestion, score and status are already
+     * current are skipped by the WHERE clause, so re-running after an unchanged sync writes nothing.
+     *
+     * @return number of rows actually changed
+     */
+    public int applySuggestions(List<Suggestion> suggestions, int autoMatchThreshold) {
+        if (suggestions.isEmpty()) return 0;
+        SqlParameterSource[] batch = suggestions.stream()
+                .map(s -> new MapSqlParameterSource()
+                        .addValue("id", s.stagingId())
+                        .addValue("productId", s.productId(), Types.INTEGER)
+                        .addValue("score", s.confidence())
+                        .addValue("auto", s.productId() != null && s.confidence() >= autoMatchThreshold))
+                .toArray(SqlParameterSource[]::new);
+        int[] counts = jdbc.batchUpdate("""
+                UPDATE staging_products SET
+                    suggested_product_id = :productId,
+                    match_confidence_score = :score,
+                    status = CASE
+                        WHEN :auto THEN 'AUTO_MATCHED'
+                        WHEN status = 'AUTO_MATCHED' THEN 'NEEDS_REVIEW'
+                        ELSE status END,
+                    updated_at = now()
+                WHERE id = :id
+                  AND status IN ('PENDING_SYNC', 'PENDING', 'NEEDS_REVIEW', 'AUTO_MATCHED')
+                  AND (suggested_product_id IS DISTINCT FROM :productId
+                       OR match_confidence_score IS DISTINCT FROM :score
+                       OR (:auto AND status <> 'AUTO_MATCHED')
+                       OR (NOT :auto AND status = 'AUTO_MATCHED'))
+                """, batch);
+        int changed = 0;
+        for (int c : counts) {
+            changed += Math.max(c, 0);
+        }
+        return changed;
+    }
+
+    public record GtinHit(int stagingId, int productId, int matched, int barcoded) {}
+
+    public record TitleHit(int stagingId, int productId, double score) {}
+
+    public record Suggestion(int stagingId, Integer productId, int confidence) {}
+}
@@ -0,0 +1,131 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Reconciles {@code staging_media} with the media Shopify returned, matched by external_media_id per staging
+ * product: changed rows are updated in place (keeping their ids, which reviewers reference as selected_media_ids),
+ * new media are inserted and removed media deleted, each as one JDBC batch. Unchanged rows are not written.
+ * Must be called inside a transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StagingMediaSyncWriter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * @param mediaByProduct staging product id -> its complete media list as fetched (empty list removes all)
+     */
+    public MediaSyncResult apply(Map<Integer, List<SyncedMedia>> mediaByProduct) {
+        List<Integer> productIds = new ArrayList<>(mediaByProduct.keySet());
+        List<SqlParameterSource> inserts = new ArrayList<>();
+        List<SqlParameterSource> updates = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+
+        for (int from = 0; from < productIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = productIds.subList(from, Math.min(from + CHUNK_SIZE, productIds.size()));
+            Map<Integer, Map<String, MediaRow>> existingByProduct = new HashMap<>();
+            for (MediaRow row : findMedia(chunk)) {
+                Map<String, MediaRow> existing = existingByProduct.computeIfAbsent(row.stagingProductId(), k -> new HashMap<>());
+                // Rows without an external id (or duplicates of one) cannot be matched: drop them
+                if (row.externalMediaId() == null || existing.putIfAbsent(row.externalMediaId(), row) != null) {
+                    deletes.add(row.id());
+                }
+            }
+
+            for (Integer productId : chunk) {
+                Map<String, MediaRow> existing = existingByProduct.getOrDefault(productId, Map.of());
+                Set<String> seen = new HashSet<>();
+                for (SyncedMedia media : mediaByProduct.get(productId)) {
+                    if (media.externalMediaId() == null || !seen.add(media.externalMediaId())) continue;
+                    MediaRow row = existing.get(media.externalMediaId());
+                    if (row == null) {
+                        inserts.add(params(media).addValue("stagingProductId", productId));
+                    } else if (!row.matches(media)) {
+                        updates.add(params(media).addValue("id", row.id()));
+                    }
+                }
+                existing.forEach((externalId, row) -> {
+                    if (!seen.contains(externalId)) deletes.add(row.id());
+                });
+            }
+        }
+
+        for (int from = 0; from < deletes.size(); from += CHUNK_SIZE) {
+            jdbc.update("DELETE FROM staging_media WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", deletes.subList(from, Math.min(from + CHUNK_SIZE, deletes.size()))));
+        }
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate("""
+                    UPDATE staging_media
+                    SET media_type = :mediaType, source_url = :sourceUrl, alt_text = :altText, position = :position
+                    WHERE id = :id
+                    """, updates.toArray(SqlParameterSource[]::new));
+        }
+        if (!inserts.isEmpty()) {
+            jdbc.batchUpdate("""
+                    INSERT INTO staging_media (staging_product_id, external_media_id, media_type, source_url, alt_text, position)
+                    VALUES (:stagingProductId, :externalMediaId, :mediaType, :sourceUrl, :altText, :position)
+                    """, inserts.toArray(SqlParameterSource[]::new));
+        }
+        return new MediaSyncResult(inserts.size(), updates.size(), deletes.size());
+    }
+
+    /*
+    SELECT ... FROM staging_media WHERE staging_product_id IN (...);   -- idx_staging_media_product
+    */
+    private List<MediaRow> findMedia(List<Integer> stagingProductIds) {
+        return jdbc.query("""
+                SELECT id, staging_product_id, external_media_id, media_type, source_url, alt_text, position
+                FROM staging_media
+                WHERE staging_product_id IN (:ids)
+                ORDER BY id
+                """, new MapSqlParameterSource("ids", stagingProductIds),
+                (rs, i) -> new MediaRow(
+                        rs.getInt("id"),
+                        rs.getInt("staging_product_id"),
+                        rs.getString("external_media_id"),
+                        rs.getString("media_type"),
+                        rs.getString("source_url"),
+                        rs.getString("alt_text"),
+                        (Integer) rs.getObject("position")));
+    }
+
+    private static MapSqlParameterSource params(SyncedMedia media) {
+        return new MapSqlParameterSource()
+                .addValue("externalMediaId", media.externalMediaId())
+                .addValue("mediaType", media.mediaType())
+                .addValue("sourceUrl", media.sourceUrl())
+                .addValue("altText", media.altText(), Types.VARCHAR)
+                .addValue("position", media.position());
+    }
+
+    /** One Shopify media item as fetched. */
+    public record SyncedMedia(String externalMediaId, String mediaType, String sourceUrl, String altText, int position) {}
+
+    public record MediaSyncResult(int inserted, int updated, int deleted) {
+        public boolean isEmpty() {
+            return inserted == 0 && updated == 0 && deleted == 0;
+        }
+    }
+
+    private record MediaRow(int id, int stagingProductId, String externalMediaId, String mediaType, String sourceUrl,
+                            String altText, Integer position) {
+        boolean matches(SyncedMedia media) {
+            return Objects.equals(mediaType, media.mediaType())
+                    && Objects.equals(sourceUrl, media.sourceUrl())
+                    && Objects.equals(altText, media.altText())
+                    && Objects.equals(position, media.position());
+        }
+    }
+}
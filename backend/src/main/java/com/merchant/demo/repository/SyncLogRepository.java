@@ -0,0 +1,222 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-merchant catalog sync coordination: a transaction-scoped Postgres advisory lock that serializes syncs of
+ * one merchant across all backend instances, and the {@code sync_logs} rows that expose a running sync's progress.
+ * <p>
+ * Log writes run in their own transaction so progress is visible to other requests while the sync transaction
+ * is still open. File imports commit per batch and hold the lock only while writing one; between batches their
+ * run keeps the merchant through its heartbeat ({@link #heartbeat}), which must not lapse for more than
+ * {@link #BATCHED_RUN_TIMEOUT_MS}. File imports also record the rows they rejected in {@code sync_log_errors}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SyncLogRepository {
+
+    /** First key of the two-key advisory lock; the merchant id is the second. */
+    static final int SYNC_LOCK_CLASS = 40_001;
+    /** A batched run whose last heartbeat is older than this died mid-import and no longer holds the merchant. */
+    public static final long BATCHED_RUN_TIMEOUT_MS = 10 * 60 * 1000;
+
+    private static final RowMapper<SyncLogRow> SYNC_LOG_ROW = (rs, i) -> new SyncLogRow(
+            rs.getInt("id"),
+            rs.getInt("merchant_id"),
+            rs.getString("status"),
+            instant(rs.getTimestamp("started_at")),
+            instant(rs.getTimestamp("finished_at")),
+            rs.getInt("records_processed"),
+            rs.getInt("records_failed"),
+            rs.getString("notes"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Take the merchant's sync lock for the rest of the caller's transaction (full catalog sync).
+     *
+     * @return false when another transaction holds it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryLockMerchantSync(Integer merchantId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT pg_try_advisory_xact_lock(:lockClass, :merchantId)",
+                lockParams(merchantId), Boolean.class));
+    }
+
+    /**
+     * Take the merchant's sync lock for the rest of the caller's transaction, waiting for the current holder
+     * (one batch of a file import).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockMerchantSync(Integer merchantId) {
+        jdbc.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(:lockClass, :merchantId)", lockParams(merchantId),
+                Integer.class);
+    }
+
+    /**
+     * Take the merchant's sync lock in shared mode for the rest of the caller's transaction: single-product
+     * updates (webhooks) may run alongside each other, but not alongside a full sync.
+     *
+     * @return false when a full sync holds the lock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryLockMerchantSyncShared(Integer merchantId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT pg_try_advisory_xact_lock_shared(:lockClass, :merchantId)",
+                lockParams(merchantId), Boolean.class));
+    }
+
+    /**
+     * Open an IN_PROGRESS run. Call while holding the merchant's sync lock: runs still IN_PROGRESS at that point
+     * belong to an instance that died mid-sync and are closed as FAILED, unless they are batched runs (file
+     * imports) between two batches, with a heartbeat within {@link #BATCHED_RUN_TIMEOUT_MS}.
+     *
+     * @param batched the run commits per batch and keeps the merchant through {@link #heartbeat}
+     * @return the sync log id; empty while a batched run still holds the merchant
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<Integer> start(Integer merchantId, String notes, boolean batched) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("merchantId", merchantId)
+                .addValue("notes", notes)
+                .addValue("batched", batched)
+                .addValue("timeoutMs", BATCHED_RUN_TIMEOUT_MS);
+        jdbc.update("""
+                UPDATE sync_logs
+                SET status = 'FAILED', finished_at = now(), notes = 'Interrupted'
+                WHERE merchant_id = :merchantId AND status = 'IN_PROGRESS'
+                  AND (heartbeat_at IS NULL OR heartbeat_at < now() - :timeoutMs * interval '1 millisecond')
+                """, params);
+        List<Integer> ids = jdbc.queryForList("""
+                INSERT INTO sync_logs (merchant_id, status, started_at, notes, heartbeat_at)
+                SELECT :merchantId, 'IN_PROGRESS', now(), :notes, CASE WHEN :batched THEN now() END
+                WHERE NOT EXISTS (SELECT 1 FROM sync_logs WHERE merchant_id = :merchantId AND status = 'IN_PROGRESS')
+                RETURNING id
+                """, params, Integer.class);
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Record a batched run's progress in the caller's (batch) transaction, so the heartbeat commits with the
+     * batch.
+     *
+     * @return false when the run is no longer IN_PROGRESS: its heartbeat lapsed and another sync closed it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean heartbeat(int syncLogId, int recordsProcessed, String notes) {
+        return jdbc.update("""
+                UPDATE sync_logs SET heartbeat_at = now(), records_processed = :processed, notes = :notes
+                WHERE id = :id AND status = 'IN_PROGRESS'
+                """, new MapSqlParameterSource()
+                .addValue("id", syncLogId)
+                .addValue("processed", recordsProcessed)
+                .addValue("notes", notes)) == 1;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void updateProgress(int syncLogId, int recordsProcessed, String notes) {
+        jdbc.update("""
+                UPDATE sync_logs SET records_processed = :processed, notes = :notes
+                WHERE id = :id AND status = 'IN_PROGRESS'
+                """, new MapSqlParameterSource()
+                .addValue("id", syncLogId)
+                .addValue("processed", recordsProcessed)
+                .addValue("notes", notes));
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void finish(int syncLogId, String status, int recordsProcessed, int recordsFailed, String notes) {
+        jdbc.update("""
+                UPDATE sync_logs
+                SET status = :status, finished_at = now(), records_processed = :processed,
+                    records_failed = :failed, notes = left(:notes, 2000)
+                WHERE id = :id
+                """, new MapSqlParameterSource()
+                .addValue("id", syncLogId)
+                .addValue("status", status)
+                .addValue("processed", recordsProcessed)
+                .addValue("failed", recordsFailed)
+                .addValue("notes", notes));
+    }
+
+    /** Record rows a file import rejected, as one JDBC batch. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void addErrors(int syncLogId, List<RowError> errors) {
+        if (errors.isEmpty()) return;
+        List<SqlParameterSource> batch = new ArrayList<>(errors.size());
+        for (RowError error : errors) {
+            batch.add(new MapSqlParameterSource()
+                    .addValue("syncLogId", syncLogId)
+                    .addValue("rowNumber", error.rowNumber())
+                    .addValue("externalProductId", error.externalProductId())
+                    .addValue("message", error.message()));
+        }
+        jdbc.batchUpdate("""
+                INSERT INTO sync_log_errors (sync_log_id, row_number, external_product_id, message)
+                VALUES (:syncLogId, :rowNumber, :externalProductId, :message)
+                """, batch.toArray(SqlParameterSource[]::new));
+    }
+
+    /*
+    Index scan on idx_sync_log_errors_sync_log (sync_log_id, row_number); the join only checks that the run
+    belongs to the merchant.
+    */
+    /** Rejected rows of one of the merchant's runs, in file order. */
+    public List<RowError> findErrors(Integer merchantId, int syncLogId, int limit) {
+        return jdbc.query("""
+                SELECT e.row_number, e.external_product_id, e.message
+                FROM sync_log_errors e
+                JOIN sync_logs l ON l.id = e.sync_log_id
+                WHERE e.sync_log_id = :syncLogId AND l.merchant_id = :merchantId
+                ORDER BY e.row_number, e.id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                        .addValue("syncLogId", syncLogId)
+                        .addValue("merchantId", merchantId)
+                        .addValue("limit", limit),
+                (rs, i) -> new RowError(rs.getLong("row_number"), rs.getString("external_product_id"),
+                        rs.getString("message")));
+    }
+
+    /*
+    SELECT ... FROM sync_logs WHERE merchant_id = ? ORDER BY id DESC LIMIT 1;   -- idx_sync_logs_merchant_id
+    */
+    public Optional<SyncLogRow> findLatest(Integer merchantId) {
+        List<SyncLogRow> rows = jdbc.query("""
+                SELECT id, merchant_id, status, started_at, finished_at, records_processed, records_failed, notes
+                FROM sync_logs
+                WHERE merchant_id = :merchantId
+                ORDER BY id DESC
+                LIMIT 1
+                """, new MapSqlParameterSource("merchantId", merchantId), SYNC_LOG_ROW);
+        return rows.stream().findFirst();
+    }
+
+    private static MapSqlParameterSource lockParams(Integer merchantId) {
+        return new MapSqlParameterSource()
+                .addValue("lockClass", SYNC_LOCK_CLASS)
+                .addValue("merchantId", merchantId);
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts != null ? ts.toInstant() : null;
+    }
+
+    public record SyncLogRow(int id, int merchantId, String status, Instant startedAt, Instant finishedAt,
+                             int recordsProcessed, int recordsFailed, String notes) {}
+
+    /** A rejected import row: CSV record number (header = 1) or JSONL line number. */
+    public record RowError(long rowNumber, String externalProductId, String message) {}
+}
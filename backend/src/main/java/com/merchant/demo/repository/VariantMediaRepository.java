@@ -0,0 +1,69 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Variant images ({@code variant_media}): which of a product's media rows show a given variant.
+ * Links are written in one JDBC batch; a product's variants are read together with their images in one query.
+ */
+@Repository
+@RequiredArgsConstructor
+public class VariantMediaRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Insert links in one batch; existing links are left as they are. Variants and media must be flushed. */
+    public void insertLinks(Collection<VariantMediaLink> links) {
+        if (links.isEmpty()) return;
+        SqlParameterSource[] batch = links.stream()
+                .map(l -> new MapSqlParameterSource()
+                        .addValue("variantId", l.variantId())
+                        .addValue("mediaId", l.mediaId()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                INSERT INTO variant_media (variant_id, media_id)
+                VALUES (:variantId, :mediaId)
+                ON CONFLICT DO NOTHING
+                """, batch);
+    }
+
+    /*
+    variants via idx_variants_product_id, then variant_media (pk), media (pk) and media_sources (pk) by nested loop;
+    one row per (variant, image), variants without images once with null media columns.
+    */
+    public List<VariantImageRow> findActiveVariantImages(Integer productId) {
+        return jdbc.query("""
+                SELECT v.id, v.internal_sku, v.gtin, v.options::text AS options,
+                       m.id AS media_id, m.src_url, m.alt_text, m."position", s.sha256
+                FROM variants v
+                LEFT JOIN variant_media vm ON vm.variant_id = v.id
+                LEFT JOIN media m ON m.id = vm.media_id
+                LEFT JOIN media_sources s ON s.source_url = m.src_url AND s.status = 'MIRRORED'
+                WHERE v.product_id = :productId AND v.is_active = true
+                ORDER BY v.id, m."position", m.id
+                """, new MapSqlParameterSource("productId", productId),
+                (rs, i) -> new VariantImageRow(
+                        rs.getInt("id"),
+                        rs.getString("internal_sku"),
+                        rs.getString("gtin"),
+                        rs.getString("options"),
+                        (Integer) rs.getObject("media_id"),
+                        rs.getString("src_url"),
+                        rs.getString("alt_text"),
+                        (Integer) rs.getObject("position"),
+                        rs.getString("sha256")));
+    }
+
+    public record VariantMediaLink(int variantId, int mediaId) {}
+
+    /** One variant image, or a variant without images (media columns null). {@code sha256} is set once mirrored. */
+    public record VariantImageRow(int variantId, String internalSku, String gtin, String options, Integer mediaId,
+                                  String srcUrl, String altText, Integer position, String sha256) {}
+}
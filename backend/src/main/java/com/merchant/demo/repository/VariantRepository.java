@@ -2,7 +2,10 @@ package com.merchant.demo.repository;
 
 import com.merchant.demo.entity.Variant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface VariantRepository extends JpaRepository<Variant, Integer> {
@@ -12,4 +15,23 @@ public interface VariantRepository extends JpaRepository<Variant, Integer> {
     List<Variant> findByGtin(String gtin);
 
     List<Variant> findByProductIdAndInternalSku(Integer productId, String internalSku);
+
+    @Query("SELECT v.internalSku FROM Variant v WHERE v.internalSku IN :skus")
+    List<String> findExistingInternalSkus(@Param("skus") Collection<String> skus);
+
+    /*
+    SELECT * FROM variants
+    WHERE normalized_attributes @> '{"color":"red","size":"m"}'::jsonb AND is_active = true
+    ORDER BY product_id, id LIMIT ?;   -- idx_variants_normalized_attrs (GIN, jsonb_path_ops)
+    */
+    @Query(value = "SELECT * FROM variants WHERE normalized_attributes @> CAST(:attributes AS jsonb) " +
+                   "AND is_active = true ORDER BY product_id, id LIMIT :limit", nativeQuery = true)
+    List<Variant> findActiveByNormalizedAttributes(@Param("attributes") String attributesJson, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM variants WHERE product_id = :productId " +
+                   "AND normalized_attributes @> CAST(:attributes AS jsonb) AND is_active = true " +
+                   "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Variant> findActiveByProductIdAndNormalizedAttributes(@Param("productId") Integer productId,
+                                                         @Param("attributes") String attributesJson,
+                                                         @Param("limit") int limit);
 }
@@ -0,0 +1,154 @@
+package com.merchant.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Postgres-backed inbox of Shopify webhook events ({@code webhook_events}).
+ * <p>
+ * Enqueueing coalesces into the waiting PENDING row of the same resource, keeping the payload with the latest
+ * Shopify {@code updated_at} (webhooks are not delivered in order). Processors claim due rows with
+ * {@code FOR UPDATE SKIP LOCKED}, so several instances can drain the inbox without stepping on each other;
+ * a claim that is not completed within the claim timeout becomes claimable again.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WebhookEventRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Store an event, or replace the payload of the resource's waiting event (the window is not extended,
+     * so a steady stream of updates still gets applied). An event whose {@code resourceUpdatedAt} is older than
+     * the waiting payload's, or than an event already being processed or done, is dropped; events without an
+     * {@code updated_at} are taken in arrival order.
+     *
+     * @return false when the event was dropped as out of date
+     */
+    public boolean enqueue(Integer merchantId, String topic, String resourceKey, Instant resourceUpdatedAt,
+                           String webhookId, String payloadJson, long coalesceWindowMs) {
+        return jdbc.update("""
+                INSERT INTO webhook_events (merchant_id, topic, resource_key, resource_updated_at, webhook_id, payload,
+                                            process_after)
+                SELECT :merchantId, :topic, :resourceKey, CAST(:resourceUpdatedAt AS timestamptz), :webhookId,
+                       CAST(:payload AS jsonb), now() + make_interval(secs => :windowSeconds)
+                WHERE NOT EXISTS (SELECT 1 FROM webhook_events s
+                                  WHERE s.merchant_id = :merchantId AND s.resource_key = :resourceKey
+                                    AND s.status IN ('PROCESSING', 'DONE')
+                                    AND s.resource_updated_at > CAST(:resourceUpdatedAt AS timestamptz))
+                ON CONFLICT (merchant_id, resource_key) WHERE status = 'PENDING'
+                DO UPDATE SET topic = EXCLUDED.topic,
+                              resource_updated_at = EXCLUDED.resource_updated_at,
+                              webhook_id = EXCLUDED.webhook_id,
+                              payload = EXCLUDED.payload,
+                              coalesced_count = webhook_events.coalesced_count + 1
+                WHERE webhook_events.resource_updated_at IS NULL OR EXCLUDED.resource_updated_at IS NULL
+                   OR EXCLUDED.resource_updated_at >= webhook_events.resource_updated_at
+                """, new MapSqlParameterSource()
+                .addValue("merchantId", merchantId)
+                .addValue("topic", topic)
+                .addValue("resourceKey", resourceKey)
+                .addValue("resourceUpdatedAt", resourceUpdatedAt != null ? Timestamp.from(resourceUpdatedAt) : null,
+                        Types.TIMESTAMP)
+                .addValue("webhookId", webhookId, Types.VARCHAR)
+                .addValue("payload", payloadJson)
+                .addValue("windowSeconds", coalesceWindowMs / 1000.0)) > 0;
+    }
+
+    /** Claim up to {@code limit} due events (oldest first) for processing. */
+    public List<WebhookEvent> claimDue(int limit, long claimTimeoutMs) {
+        return jdbc.query("""
+                UPDATE webhook_events e
+                SET status = 'PROCESSING', claimed_at = now(), attempts = e.attempts + 1
+                WHERE e.id IN (
+                    SELECT id FROM webhook_events
+                    WHERE (status = 'PENDING' AND process_after <= now())
+                       OR (status = 'PROCESSING' AND claimed_at < now() - make_interval(secs => :timeoutSeconds))
+                    ORDER BY process_after, id
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING e.id, e.merchant_id, e.topic, e.resource_key, e.payload::text AS payload, e.attempts
+                """, new MapSqlParameterSource()
+                        .addValue("limit", limit)
+                        .addValue("timeoutSeconds", claimTimeoutMs / 1000.0),
+                (rs, i) -> new WebhookEvent(
+                        rs.getLong("id"),
+                        rs.getInt("merchant_id"),
+                        rs.getString("topic"),
+                        rs.getString("resource_key"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts")));
+    }
+
+    public void markDone(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbc.update("""
+                UPDATE webhook_events SET status = 'DONE', processed_at = now(), last_error = NULL
+                WHERE id IN (:ids) AND status = 'PROCESSING'
+                """, new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * Put a failed event back with exponential backoff, or mark it FAILED after {@code maxAttempts}.
+     * If a newer event for the same resource is already waiting, that one supersedes the failed one.
+     */
+    public void markFailed(long id, String error, int maxAttempts) {
+        jdbc.update("""
+                UPDATE webhook_events e
+                SET status = CASE
+                        WHEN e.attempts >= :maxAttempts THEN 'FAILED'
+                        WHEN EXISTS (SELECT 1 FROM webhook_events n
+                                     WHERE n.merchant_id = e.merchant_id AND n.resource_key = e.resource_key
+                                       AND n.status = 'PENDING') THEN 'DONE'
+                        ELSE 'PENDING' END,
+                    process_after = now() + make_interval(secs => least(3600, 10 * power(2, e.attempts - 1))),
+                    processed_at = now(),
+                    last_error = left(:error, 2000)
+                WHERE e.id = :id AND e.status = 'PROCESSING'
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("error", error != null ? error : "unknown error")
+                .addValue("maxAttempts", maxAttempts));
+    }
+
+    /**
+     * Put claimed events back without using up an attempt (their merchant is busy, nothing failed), due again
+     * after {@code delayMs}. Events superseded by a newer waiting event for the same resource are done.
+     */
+    public void defer(Collection<Long> ids, long delayMs) {
+        if (ids.isEmpty()) return;
+        jdbc.update("""
+                UPDATE webhook_events e
+                SET status = CASE
+                        WHEN EXISTS (SELECT 1 FROM webhook_events n
+                                     WHERE n.merchant_id = e.merchant_id AND n.resource_key = e.resource_key
+                                       AND n.status = 'PENDING') THEN 'DONE'
+                        ELSE 'PENDING' END,
+                    attempts = greatest(e.attempts - 1, 0),
+                    process_after = now() + make_interval(secs => :delaySeconds),
+                    processed_at = now()
+                WHERE e.id IN (:ids) AND e.status = 'PROCESSING'
+                """, new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("delaySeconds", delayMs / 1000.0));
+    }
+
+    /** Delete DONE events older than {@code retentionDays}; returns the number deleted. */
+    public int purgeProcessed(int retentionDays) {
+        return jdbc.update("""
+                DELETE FROM webhook_events
+                WHERE status = 'DONE' AND processed_at < now() - make_interval(days => :days)
+                """, new MapSqlParameterSource("days", retentionDays));
+    }
+
+    public record WebhookEvent(long id, int merchantId, String topic, String resourceKey, String payloadJson,
+                               int attempts) {}
+}
@@ -1,10 +1,9 @@
 package com.merchant.demo.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.merchant.demo.dto.admin.*;
 import com.merchant.demo.entity.*;
 import com.merchant.demo.repository.*;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,7 +22,10 @@ import java.util.Comparator;
 @RequiredArgsConstructor
 public class AdminService {
 
-    private static final List<String> PENDING_REVIEW_STATUSES = List.of("PENDING", "NEEDS_REVIEW");
+    private static final List<String> PENDING_REVIEW_STATUSES = List.of("PENDING", "NEEDS_REVIEW", "AUTO_MATCHED");
+    /** Generated variants persisted per flush when creating a master product. */
+    private static final int VARIANT_WRITE_CHUNK = 500;
+    private static final int MAX_ATTRIBUTE_LOOKUP_RESULTS = 200;
 
     private final StagingProductRepository stagingProductRepository;
     private final MerchantRepository merchantRepository;
@@ -35,7 +37,13 @@ public class AdminService {
     private final StagingMediaRepository stagingMediaRepository;
     private final CategoryRepository categoryRepository;
     private final ProductCategoryRepository productCategoryRepository;
-    private final ObjectMapper objectMapper;
+    private final ReviewDecisionSupport decisionSupport;
+    private final EntityManager entityManager;
+    private final PricingService pricingService;
+    private final MediaMirrorRepository mediaMirrorRepository;
+    private final MediaMirrorService mediaMirrorService;
+    private final VariantMediaRepository variantMediaRepository;
+    private final ProductDocumentRepository productDocumentRepository;
 
     @Transactional(readOnly = true)
     public StagingDetailDto getStagingDetail(Integer stagingId) {
@@ -48,24 +56,39 @@ public class AdminService {
         List<StagingDetailDto.StagingMediaItemDto> mediaList = new ArrayList<>();
         if (staging.getMedia() != null && !staging.getMedia().isEmpty()) {
             imageUrl = staging.getMedia().get(0).getSourceUrl();
+            // Serve mirrored copies where available instead of hotlinking the merchant's CDN
+            Map<String, String> mirrored = mediaMirrorService.findMirrored(
+                    staging.getMedia().stream().map(StagingMedia::getSourceUrl).toList());
             staging.getMedia().stream()
                     .sorted(Comparator.comparing(m -> m.getPosition() != null ? m.getPosition() : 0))
-                    .forEach(m -> mediaList.add(StagingDetailDto.StagingMediaItemDto.builder()
-                            .id(m.getId())
-                            .sourceUrl(m.getSourceUrl())
-                            .altText(m.getAltText())
-                            .position(m.getPosition())
-                            .build()));
+                    .forEach(m -> {
+                        String sha256 = mirrored.get(m.getSourceUrl());
+                        mediaList.add(StagingDetailDto.StagingMediaItemDto.builder()
+                                .id(m.getId())
+                                .sourceUrl(m.getSourceUrl())
+                                .altText(m.getAltText())
+                                .position(m.getPosition())
+                                .mirrorUrl(sha256 != null ? mediaMirrorService.originalUrl(sha256) : null)
+                                .thumbnailUrl(sha256 != null ? mediaMirrorService.thumbnailUrl(sha256) : null)
+                                .build());
+                    });
+        }
+        Map<String, Integer> mediaIdByExternalId = new HashMap<>();
+        if (staging.getMedia() != null) {
+            staging.getMedia().stream()
+                    .filter(m -> m.getExternalMediaId() != null)
+                    .forEach(m -> mediaIdByExternalId.putIfAbsent(m.getExternalMediaId(), m.getId()));
         }
         List<StagingDetailDto.StagingVariantSummaryDto> variants = staging.getVariants().stream()
                 .map(sv -> {
-                    Map<String, String> options = parseOptions(sv.getRawOptions());
+                    Map<String, String> options = sv.getOptionSet().asMap();
                     return StagingDetailDto.StagingVariantSummaryDto.builder()
                             .stagingVariantId(sv.getId())
                             .rawSku(sv.getRawSku())
                             .rawBarcode(sv.getRawBarcode())
                             .rawPriceMinor(sv.getRawPriceMinor())
                             .rawOptions(options)
+                            .imageMediaId(sv.getExternalMediaId() != null ? mediaIdByExternalId.get(sv.getExternalMediaId()) : null)
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -229,15 +252,70 @@ public class AdminService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new NoSuchElementException("Product not found: " + productId));
         return variantRepository.findByProductId(product.getId()).stream()
-                .map(v -> MasterVariantDto.builder()
-                        .id(v.getId())
-                        .internalSku(v.getInternalSku())
-                        .gtin(v.getGtin())
-                        .options(parseOptions(v.getOptions()))
-                        .build())
+                .map(AdminService::toMasterVariantDto)
                 .collect(Collectors.toList());
     }
 
+    /** A product's active variants with their images, from one query. */
+    @Transactional(readOnly = true)
+    public List<MasterVariantImagesDto> getProductVariantImages(Integer productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new NoSuchElementException("Product not found: " + productId);
+        }
+        List<MasterVariantImagesDto> result = new ArrayList<>();
+        MasterVariantImagesDto current = null;
+        // Rows are ordered by variant, so each variant's images are contiguous
+        for (VariantMediaRepository.VariantImageRow row : variantMediaRepository.findActiveVariantImages(productId)) {
+            if (current == null || !current.getId().equals(row.variantId())) {
+                current = MasterVariantImagesDto.builder()
+                        .id(row.variantId())
+                        .internalSku(row.internalSku())
+                        .gtin(row.gtin())
+                        .options(OptionSet.parseJson(row.options()).asMap())
+                        .images(new ArrayList<>())
+                        .build();
+                result.add(current);
+            }
+            if (row.mediaId() == null) continue;
+            current.getImages().add(MasterVariantImagesDto.VariantImageDto.builder()
+                    .mediaId(row.mediaId())
+                    .srcUrl(row.srcUrl())
+                    .altText(row.altText())
+                    .position(row.position())
+                    .mirrorUrl(row.sha256() != null ? mediaMirrorService.originalUrl(row.sha256()) : null)
+                    .thumbnailUrl(row.sha256() != null ? mediaMirrorService.thumbnailUrl(row.sha256()) : null)
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Active master variants whose normalized attributes contain all the given options (synonyms and case ignored),
+     * e.g. Color=Red, Size=Medium finds {"color":"red","size":"m"} variants. Optionally limited to one product.
+     */
+    @Transactional(readOnly = true)
+    public List<MasterVariantDto> findVariantsByAttributes(Integer productId, Map<String, String> attributes, int limit) {
+        OptionSet normalized = AttributeNormalizer.normalize(attributes);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute is required");
+        }
+        int capped = Math.max(1, Math.min(limit, MAX_ATTRIBUTE_LOOKUP_RESULTS));
+        List<Variant> variants = productId != null
+                ? variantRepository.findActiveByProductIdAndNormalizedAttributes(productId, normalized.toJson(), capped)
+                : variantRepository.findActiveByNormalizedAttributes(normalized.toJson(), capped);
+        return variants.stream().map(AdminService::toMasterVariantDto).collect(Collectors.toList());
+    }
+
+    private static MasterVariantDto toMasterVariantDto(Variant v) {
+        return MasterVariantDto.builder()
+                .id(v.getId())
+                .productId(v.getProduct() != null ? v.getProduct().getId() : null)
+                .internalSku(v.getInternalSku())
+                .gtin(v.getGtin())
+                .options(v.getOptionSet().asMap())
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public VariantMatchResponseDto getVariantMatchSuggestions(Integer stagingId, Integer targetMasterId) {
         StagingProduct staging = stagingProductRepository.findById(stagingId)
@@ -245,53 +323,21 @@ public class AdminService {
         Product master = productRepository.findById(targetMasterId)
                 .orElseThrow(() -> new NoSuchElementException("Master product not found: " + targetMasterId));
 
-        List<Variant> masterVariants = variantRepository.findByProductId(master.getId());
-        List<VariantMatchSuggestionDto> matches = new ArrayList<>();
+        // Index master variants once (GTIN, SKU, options key) so each staging variant is an O(1) lookup
+        VariantMatchIndex index = VariantMatchIndex.build(variantRepository.findByProductId(master.getId()));
+        List<VariantMatchSuggestionDto> matches = new ArrayList<>(staging.getVariants().size());
 
         for (StagingVariant sv : staging.getVariants()) {
-            Integer suggestedId = null;
-            String matchReason = "NONE";
-
-            if (StringUtils.hasText(sv.getRawBarcode())) {
-                for (Variant mv : masterVariants) {
-                    if (sv.getRawBarcode().equals(mv.getGtin())) {
-                        suggestedId = mv.getId();
-                        matchReason = "BARCODE_MATCH";
-                        break;
-                    }
-                }
-            }
-            if (suggestedId == null && StringUtils.hasText(sv.getRawSku())) {
-                for (Variant mv : masterVariants) {
-                    if (sv.getRawSku().equals(mv.getInternalSku())) {
-                        suggestedId = mv.getId();
-                        matchReason = "SKU_MATCH";
-                        break;
-                    }
-                }
-            }
-
-            Map<String, String> options = parseOptions(sv.getRawOptions());
-
-            // Try to match by options if no barcode/sku match found
-            if (suggestedId == null && !options.isEmpty()) {
-                String stagingKey = buildOptionsKey(options);
-                for (Variant mv : masterVariants) {
-                    Map<String, String> mvOptions = parseOptions(mv.getOptions());
-                    if (!mvOptions.isEmpty() && stagingKey.equals(buildOptionsKey(mvOptions))) {
-                        suggestedId = mv.getId();
-                        matchReason = "OPTIONS_MATCH";
-                        break;
-                    }
-                }
-            }
+            OptionSet options = sv.getOptionSet();
+            VariantMatchIndex.Match match = index.match(sv.getRawBarcode(), sv.getRawSku(), options);
             matches.add(VariantMatchSuggestionDto.builder()
                     .stagingVariantId(sv.getId())
                     .stagingSku(sv.getRawSku())
                     .stagingPriceMinor(sv.getRawPriceMinor())
-                    .stagingOptions(options)
-                    .suggestedMasterVariantId(suggestedId)
-                    .matchReason(matchReason)
+                    .stagingOptions(options.asMap())
+                    .suggestedMasterVariantId(match.variantId())
+                    .matchReason(match.reason())
+                    .matchConfidence(match.confidence())
                     .build());
         }
 
@@ -328,26 +374,10 @@ public class AdminService {
             throw new IllegalArgumentException("clean_data.title required for CREATE_NEW");
         }
 
-        String slug = StringUtils.hasText(clean.getSlug()) ? clean.getSlug() : generateSlug(clean.getTitle());
-
-        String specificationsJson = "{}";
-        if (clean.getSpecifications() != null) {
-            try {
-                specificationsJson = objectMapper.writeValueAsString(clean.getSpecifications());
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Invalid specifications JSON");
-            }
-        }
-
-        String optionsDefinitionJson = "{}";
-        if (clean.getOptionsDefinition() != null) {
-            try {
-                optionsDefinitionJson = objectMapper.writeValueAsString(clean.getOptionsDefinition());
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Invalid options_definition JSON");
-            }
-        }
+        String slug = StringUtils.hasText(clean.getSlug()) ? clean.getSlug() : ReviewDecisionSupport.generateSlug(clean.getTitle());
 
+        String specificationsJson = decisionSupport.writeJson(clean.getSpecifications(), "specifications");
+        String optionsDefinitionJson = decisionSupport.writeJson(clean.getOptionsDefinition(), "options_definition");
 
         Product newProduct = productRepository.save(Product.builder()
                 .title(clean.getTitle())
@@ -360,6 +390,8 @@ public class AdminService {
                 .build());
 
         List<Integer> selectedMediaIds = clean.getSelectedMediaIds() != null ? clean.getSelectedMediaIds() : List.of();
+        List<Media> newMedia = new ArrayList<>();
+        Map<String, Media> mediaByExternalId = new HashMap<>();
         String firstImageUrl = null;
         int mediaPosition = 0;
 
@@ -373,12 +405,14 @@ public class AdminService {
                 StagingMedia sm = byId.get(selectedMediaIds.get(i));
                 if (sm == null) continue;
                 if (firstImageUrl == null) firstImageUrl = sm.getSourceUrl();
-                mediaRepository.save(Media.builder()
+                Media media = Media.builder()
                         .productId(newProduct.getId())
                         .srcUrl(sm.getSourceUrl())
                         .altText(sm.getAltText())
                         .position(mediaPosition++)
-                        .build());
+                        .build();
+                newMedia.add(media);
+                if (sm.getExternalMediaId() != null) mediaByExternalId.putIfAbsent(sm.getExternalMediaId(), media);
             }
         }
 
@@ -386,13 +420,15 @@ public class AdminService {
         for (ReviewDecisionRequest.ExtraMediaItemDto item : extraMedia) {
             if (item == null || item.getUrl() == null || !StringUtils.hasText(item.getUrl().trim())) continue;
             if (firstImageUrl == null) firstImageUrl = item.getUrl().trim();
-            mediaRepository.save(Media.builder()
+            newMedia.add(Media.builder()
                     .productId(newProduct.getId())
                     .srcUrl(item.getUrl().trim())
                     .altText(StringUtils.hasText(item.getAltText()) ? item.getAltText().trim() : null)
                     .position(mediaPosition++)
                     .build());
         }
+        mediaRepository.saveAll(newMedia);
+        mediaMirrorRepository.registerSources(newMedia.stream().map(Media::getSrcUrl).toList());
         if (firstImageUrl != null) {
             newProduct.setImageUrl(firstImageUrl);
             productRepository.save(newProduct);
@@ -407,80 +443,70 @@ public class AdminService {
         }
 
         // --- Generate variants from options_definition cross-product ---
-        Map<String, List<String>> optionsDef = parseOptionsDefinition(optionsDefinitionJson);
-
-        List<Map<String, String>> variantCombinations;
-        if (optionsDef.isEmpty()) {
-            // No options: create a single default variant
-            variantCombinations = List.of(Map.of());
-        } else {
-            // Guard against combinatorial explosion
-            long expectedCount = optionsDef.values().stream()
-                    .filter(v -> v != null && !v.isEmpty())
-                    .mapToLong(List::size)
-                    .reduce(1L, (a, b) -> a * b);
-            if (expectedCount > 500) {
-                throw new IllegalArgumentException(
-                        "Options definition would generate " + expectedCount + " variants, which exceeds the maximum of 500. " +
-                        "Reduce the number of option values.");
-            }
-            variantCombinations = computeCrossProduct(optionsDef);
-        }
-
-        // Build a map of staging variants indexed by their options for matching.
-        // Only include option keys that are in the options_definition so that if the admin
-        // removed an option (e.g. "Age"), staging variants still match on the remaining keys.
-        Set<String> definedOptionKeys = optionsDef.keySet().stream()
-                .map(k -> k.toLowerCase().trim())
-                .collect(Collectors.toSet());
-        Map<String, StagingVariant> stagingVariantByOptions = new HashMap<>();
-        for (StagingVariant sv : staging.getVariants()) {
-            Map<String, String> svOptions = parseOptions(sv.getRawOptions());
-            Map<String, String> filteredOptions = svOptions.entrySet().stream()
-                    .filter(e -> definedOptionKeys.contains(e.getKey().toLowerCase().trim()))
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            String key = buildOptionsKey(filteredOptions);
-            stagingVariantByOptions.put(key, sv);
-        }
-
-        for (int idx = 0; idx < variantCombinations.size(); idx++) {
-            Map<String, String> combo = variantCombinations.get(idx);
-
-            // Auto-generate internal SKU from slug + options
-            String skuSuffix = combo.values().stream()
-                    .map(v -> v.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", ""))
-                    .collect(Collectors.joining("-"));
-            String internalSku = slug + (skuSuffix.isEmpty() ? "" : "-" + skuSuffix)
-                    + "-" + UUID.randomUUID().toString().substring(0, 6);
-
-            String optionsJson;
-            try {
-                optionsJson = objectMapper.writeValueAsString(combo);
-            } catch (Exception e) {
-                optionsJson = "{}";
-            }
-
-            Variant newVariant = variantRepository.save(Variant.builder()
+        Map<String, List<String>> optionsDef = decisionSupport.parseOptionsDefinition(optionsDefinitionJson);
+        VariantCombinationIterator combinations = decisionSupport.variantCombinations(optionsDef);
+        Map<String, StagingVariant> stagingVariantByOptions = decisionSupport.stagingVariantsByOptions(staging, optionsDef);
+
+        // Combinations are generated lazily and written in chunks, so memory stays flat for large definitions
+        List<Variant> chunk = new ArrayList<>(VARIANT_WRITE_CHUNK);
+        List<StagingVariant> matchedStagingVariants = new ArrayList<>(VARIANT_WRITE_CHUNK); // aligned with chunk
+        while (combinations.hasNext()) {
+            Map<String, String> combo = combinations.next();
+            OptionSet comboOptions = OptionSet.of(combo);
+            chunk.add(Variant.builder()
                     .product(newProduct)
-                    .internalSku(internalSku)
-                    .options(optionsJson)
+                    .internalSku(ReviewDecisionSupport.generatedVariantSku(slug, combo))
+                    .options(comboOptions.toJson())
                     .isActive(true)
                     .status("ACTIVE")
                     .build());
 
-            // Try to match a staging variant by options to auto-create a merchant offer
-            String comboKey = buildOptionsKey(combo);
-            StagingVariant matchedSv = stagingVariantByOptions.get(comboKey);
-            if (matchedSv != null) {
-                createMerchantOffer(staging, matchedSv, newVariant.getId());
-                stagingVariantByOptions.remove(comboKey); // prevent double-linking
+            // Try to match a staging variant by options to auto-create a merchant offer;
+            // remove() prevents double-linking
+            matchedStagingVariants.add(stagingVariantByOptions.remove(AttributeNormalizer.key(comboOptions)));
+
+            if (chunk.size() == VARIANT_WRITE_CHUNK) {
+                saveGeneratedVariants(staging, chunk, matchedStagingVariants, mediaByExternalId);
+                chunk.clear();
+                matchedStagingVariants.clear();
             }
         }
+        saveGeneratedVariants(staging, chunk, matchedStagingVariants, mediaByExternalId);
+        priceNewOffers(staging, newProduct.getId());
+        productDocumentRepository.enqueueProducts(List.of(newProduct.getId()));
 
         staging.setStatus("APPROVED");
         stagingProductRepository.save(staging);
     }
 
+    /**
+     * Persist a chunk of generated variants, the offers of their matched staging variants and their variant images.
+     * Variant and offer ids come from pooled sequences, so the flush goes out as JDBC batches
+     * (hibernate.jdbc.batch_size); the rows are then detached to keep the persistence context small.
+     */
+    private void saveGeneratedVariants(StagingProduct staging, List<Variant> variants, List<StagingVariant> matchedStagingVariants,
+                                       Map<String, Media> mediaByExternalId) {
+        if (variants.isEmpty()) return;
+        variantRepository.saveAll(variants);
+
+        // The variants are new, so no offer can exist for them yet: skip the per-variant exists check
+        List<MerchantOffer> offers = new ArrayList<>();
+        Map<StagingVariant, Integer> variantIds = new IdentityHashMap<>();
+        for (int i = 0; i < variants.size(); i++) {
+            StagingVariant matchedSv = matchedStagingVariants.get(i);
+            if (matchedSv != null) {
+                offers.add(newMerchantOffer(staging, matchedSv, variants.get(i).getId()));
+                variantIds.put(matchedSv, variants.get(i).getId());
+            }
+        }
+        merchantOfferRepository.saveAll(offers);
+
+        entityManager.flush();
+        linkVariantImages(variantIds, mediaByExternalId);
+        variants.forEach(entityManager::detach);
+        offers.forEach(entityManager::detach);
+    }
+
     private void linkExistingAndApprove(StagingProduct staging, ReviewDecisionRequest request) {
         Integer masterProductId = request.getMasterProductId();
         if (masterProductId == null) {
@@ -508,6 +534,7 @@ public class AdminService {
                 .toList();
 
         // Process entries that reference a staging variant (link or add_new with staging context)
+        Map<StagingVariant, Integer> variantIds = new IdentityHashMap<>();
         for (ReviewDecisionRequest.VariantMappingDto dto : mapping) {
             if (dto.getStagingVariantId() == null) continue; // handled below as manual entry
 
@@ -527,19 +554,19 @@ public class AdminService {
                     throw new IllegalArgumentException("Variant does not belong to selected master product");
                 }
                 createMerchantOffer(staging, sv, mv.getId());
+                variantIds.put(sv, mv.getId());
             } else {
-                if (newAttrs.isEmpty()) {
-                    newAttrs = parseOptions(sv.getRawOptions());
-                }
+                OptionSet newOptions = newAttrs.isEmpty() ? sv.getOptionSet() : OptionSet.of(newAttrs);
                 String internalSku = "LINK-" + staging.getId() + "-" + sv.getId();
                 Variant newVariant = variantRepository.save(Variant.builder()
                         .product(master)
                         .internalSku(internalSku)
-                        .options(newAttrs.isEmpty() ? "{}" : toJsonOptions(newAttrs))
+                        .options(newOptions.toJson())
                         .isActive(true)
                         .status("ACTIVE")
                         .build());
                 createMerchantOffer(staging, sv, newVariant.getId());
+                variantIds.put(sv, newVariant.getId());
             }
         }
 
@@ -551,7 +578,7 @@ public class AdminService {
             variantRepository.save(Variant.builder()
                     .product(master)
                     .internalSku(internalSku)
-                    .options(toJsonOptions(attrs))
+                    .options(OptionSet.of(attrs).toJson())
                     .isActive(true)
                     .status("ACTIVE")
                     .build());
@@ -560,6 +587,7 @@ public class AdminService {
 
         // --- Optionally add media to existing master product ---
         ReviewDecisionRequest.CleanDataDto clean = request.getCleanData();
+        Map<String, Media> mediaByExternalId = new HashMap<>();
         if (clean != null) {
             // Figure out the next position for new images
             List<Media> existingMedia = mediaRepository.findByProductIdOrderByPositionAsc(master.getId());
@@ -578,13 +606,15 @@ public class AdminService {
                         productRepository.save(master);
                         setMainImage = false;
                     }
-                    mediaRepository.save(Media.builder()
+                    Media media = mediaRepository.save(Media.builder()
                             .productId(master.getId())
                             .srcUrl(sm.getSourceUrl())
                             .altText(sm.getAltText())
                             .position(nextPosition++)
                             .build());
+                    if (sm.getExternalMediaId() != null) mediaByExternalId.putIfAbsent(sm.getExternalMediaId(), media);
                 }
+                mediaMirrorRepository.registerSources(stagingMediaList.stream().map(StagingMedia::getSourceUrl).toList());
             }
 
             List<ReviewDecisionRequest.ExtraMediaItemDto> extraMedia = clean.getExtraMedia() != null ? clean.getExtraMedia() : List.of();
@@ -601,13 +631,43 @@ public class AdminService {
                         .altText(StringUtils.hasText(item.getAltText()) ? item.getAltText().trim() : null)
                         .position(nextPosition++)
                         .build());
+                mediaMirrorRepository.registerSources(List.of(item.getUrl().trim()));
             }
         }
 
+        if (!mediaByExternalId.isEmpty()) {
+            entityManager.flush();
+            linkVariantImages(variantIds, mediaByExternalId);
+        }
+        priceNewOffers(staging, master.getId());
+        productDocumentRepository.enqueueProducts(List.of(master.getId()));
         staging.setStatus("APPROVED");
         stagingProductRepository.save(staging);
     }
 
+    /**
+     * Link master variants to the new media rows of their Shopify variant images (one JDBC batch).
+     * The variants and media must already be flushed.
+     */
+    private void linkVariantImages(Map<StagingVariant, Integer> variantIds, Map<String, Media> mediaByExternalId) {
+        if (mediaByExternalId.isEmpty()) return;
+        List<VariantMediaRepository.VariantMediaLink> links = new ArrayList<>();
+        variantIds.forEach((sv, variantId) -> {
+            Media media = sv.getExternalMediaId() != null ? mediaByExternalId.get(sv.getExternalMediaId()) : null;
+            if (media != null) links.add(new VariantMediaRepository.VariantMediaLink(variantId, media.getId()));
+        });
+        variantMediaRepository.insertLinks(links);
+    }
+
+    /**
+     * Offers are inserted at the raw merchant price; apply the merchant's margin rules to get the
+     * settlement price. Pending offer inserts are flushed first so the pricing SQL sees them.
+     */
+    private void priceNewOffers(StagingProduct staging, Integer productId) {
+        entityManager.flush();
+        pricingService.repriceProductOffers(staging.getMerchantId(), List.of(productId));
+    }
+
     @Transactional
     public void updateMasterProduct(Integer productId, UpdateMasterProductRequest request) {
         Product product = productRepository.findById(productId)
@@ -617,6 +677,7 @@ public class AdminService {
         if (request.getBrandId() != null) product.setBrandId(request.getBrandId());
         if (request.getImageUrl() != null) product.setImageUrl(request.getImageUrl());
         productRepository.save(product);
+        productDocumentRepository.enqueueProducts(List.of(productId));
     }
 
     // ── Brand CRUD ──────────────────────────────────────────────────────
@@ -653,6 +714,7 @@ public class AdminService {
         if (request.getLogoUrl() != null) brand.setLogoUrl(request.getLogoUrl());
         if (request.getIsActive() != null) brand.setIsActive(request.getIsActive());
         brandRepository.save(brand);
+        productDocumentRepository.enqueueForBrand(brandId);
     }
 
     @Transactional
@@ -717,12 +779,15 @@ public class AdminService {
         }
         if (request.getIsActive() != null) category.setIsActive(request.getIsActive());
         categoryRepository.save(category);
+        productDocumentRepository.enqueueForCategory(categoryId);
     }
 
     @Transactional
     public void deleteCategory(Integer categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new NoSuchElementException("Category not found: " + categoryId));
+        // Queued while the product_categories rows still exist; the delete cascades to them
+        productDocumentRepository.enqueueForCategory(categoryId);
         categoryRepository.delete(category);
     }
 
@@ -730,8 +795,12 @@ public class AdminService {
         if (merchantOfferRepository.existsByMerchantIdAndVariantId(staging.getMerchantId(), variantId)) {
             return;
         }
+        merchantOfferRepository.save(newMerchantOffer(staging, sv, variantId));
+    }
+
+    private static MerchantOffer newMerchantOffer(StagingProduct staging, StagingVariant sv, Integer variantId) {
         long priceMinor = sv.getRawPriceMinor() != null ? sv.getRawPriceMinor() : 0L;
-        merchantOfferRepository.save(MerchantOffer.builder()
+        return MerchantOffer.builder()
                 .merchantId(staging.getMerchantId())
                 .variantId(variantId)
                 .externalProductId(staging.getExternalProductId())
@@ -743,81 +812,6 @@ public class AdminService {
                 .currentStock(0)
                 .isActive(true)
                 .offerStatus("LIVE")
-                .build());
-    }
-
-    private static String generateSlug(String title) {
-        String base = title.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
-        String suffix = "-" + UUID.randomUUID().toString().substring(0, 8);
-        return base.isEmpty() ? "product" + suffix : base + suffix;
-    }
-
-    private Map<String, String> parseOptionsToMap(String raw) {
-        if (!StringUtils.hasText(raw)) return Map.of();
-        try {
-            return objectMapper.readValue(raw, new TypeReference<Map<String, String>>() {});
-        } catch (Exception e) {
-            return Map.of();
-        }
-    }
-
-    private Map<String, String> parseOptions(String raw) {
-        return parseOptionsToMap(raw);
-    }
-
-    private static String toJsonOptions(Map<String, String> attrs) {
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(attrs);
-        } catch (Exception e) {
-            return "{}";
-        }
-    }
-
-    /**
-     * Parse options_definition JSON like {"Color":["Red","Blue"],"Size":["S","M"]} into a Map.
-     */
-    private Map<String, List<String>> parseOptionsDefinition(String json) {
-        if (!StringUtils.hasText(json) || "{}".equals(json.trim())) return Map.of();
-        try {
-            return objectMapper.readValue(json, new TypeReference<Map<String, List<String>>>() {});
-        } catch (Exception e) {
-            return Map.of();
-        }
-    }
-
-    /**
-     * Compute the cross-product of all option values.
-     * e.g. {Color:[Red,Blue], Size:[S,M]} → [{Color:Red,Size:S},{Color:Red,Size:M},{Color:Blue,Size:S},{Color:Blue,Size:M}]
-     */
-    private static List<Map<String, String>> computeCrossProduct(Map<String, List<String>> optionsDef) {
-        List<Map<String, String>> result = new ArrayList<>();
-        result.add(new LinkedHashMap<>());
-        for (Map.Entry<String, List<String>> entry : optionsDef.entrySet()) {
-            String optionName = entry.getKey();
-            List<String> values = entry.getValue();
-            if (values == null || values.isEmpty()) continue;
-            List<Map<String, String>> expanded = new ArrayList<>();
-            for (Map<String, String> existing : result) {
-                for (String value : values) {
-                    Map<String, String> copy = new LinkedHashMap<>(existing);
-                    copy.put(optionName, value);
-                    expanded.add(copy);
-                }
-            }
-            result = expanded;
-        }
-        return result;
-    }
-
-    /**
-     * Build a normalized key from option values for matching staging variants to master variants.
-     * Lowercases and trims all values, sorts keys for consistent ordering.
-     */
-    private static String buildOptionsKey(Map<String, String> options) {
-        if (options == null || options.isEmpty()) return "";
-        return options.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> e.getKey().toLowerCase().trim() + "=" + e.getValue().toLowerCase().trim())
-                .collect(Collectors.joining("|"));
+                .build();
     }
 }
@@ -0,0 +1,95 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.StorefrontProperties;
+import com.merchant.demo.dto.store.BestOfferDto;
+import com.merchant.demo.repository.BestOfferRepository;
+import com.merchant.demo.repository.BestOfferRepository.BestOffer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Best offer per master variant: the lowest settlement price among LIVE, active, in-stock offers (ties: more
+ * stock, then older offer, then lower id), stored in {@code variant_best_offers}.
+ * <p>
+ * Offer writers re-resolve the variants they touch in their own transaction; a merchant-wide repricing run
+ * re-resolves all of the merchant's variants afterwards, in keyset pages with one transaction each.
+ * Lookups are primary key reads.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BestOfferService {
+
+    static final int REFRESH_BATCH_SIZE = 2000;
+
+    private final BestOfferRepository bestOfferRepository;
+    private final StorefrontProperties storefrontProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Re-resolve the variants of the given offers, in the caller's transaction. */
+    public int refreshForOffers(Collection<Integer> offerIds) {
+        return offerIds.isEmpty() ? 0 : bestOfferRepository.refreshForOffers(offerIds);
+    }
+
+    /** Re-resolve every variant the merchant has an offer on; returns the number whose best offer changed. */
+    public int refreshMerchant(Integer merchantId) {
+        long start = System.currentTimeMillis();
+        int variants = 0;
+        int changed = 0;
+        int afterVariantId = 0;
+        while (true) {
+            List<Integer> page = bestOfferRepository.findMerchantVariantIds(merchantId, afterVariantId, REFRESH_BATCH_SIZE);
+            if (page.isEmpty()) break;
+            Integer pageChanged = transactionTemplate.execute(status -> bestOfferRepository.refreshVariants(page));
+            variants += page.size();
+            changed += pageChanged != null ? pageChanged : 0;
+            afterVariantId = page.get(page.size() - 1);
+            if (page.size() < REFRESH_BATCH_SIZE) break;
+        }
+        log.info("Resolved best offers for merchant {}: {} variants, {} changed in {}ms",
+                merchantId, variants, changed, System.currentTimeMillis() - start);
+        return changed;
+    }
+
+    public BestOfferDto getBestOffer(Integer variantId) {
+        return bestOfferRepository.findByVariantId(variantId)
+                .map(BestOfferService::toDto)
+                .orElseThrow(() -> new NoSuchElementException("No live offer for variant " + variantId));
+    }
+
+    /** Best offers of up to {@code app.storefront.max-lookup-ids} variants, in request order; variants without one are left out. */
+    public List<BestOfferDto> getBestOffers(List<Integer> variantIds) {
+        if (variantIds == null || variantIds.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        Set<Integer> ids = new LinkedHashSet<>(variantIds);
+        ids.remove(null);
+        if (ids.size() > storefrontProperties.getMaxLookupIds()) {
+            throw new IllegalArgumentException("At most " + storefrontProperties.getMaxLookupIds()
+                    + " ids per request, got " + ids.size());
+        }
+        Map<Integer, BestOffer> found = bestOfferRepository.findByVariantIds(ids);
+        List<BestOfferDto> offers = new ArrayList<>(found.size());
+        for (Integer id : ids) {
+            BestOffer offer = found.get(id);
+            if (offer != null) offers.add(toDto(offer));
+        }
+        return offers;
+    }
+
+    private static BestOfferDto toDto(BestOffer offer) {
+        return BestOfferDto.builder()
+                .variantId(offer.variantId())
+                .offerId(offer.offerId())
+                .merchantId(offer.merchantId())
+                .currencyCode(offer.currencyCode())
+                .priceMinor(offer.priceMinor())
+                .settlementPriceMinor(offer.settlementPriceMinor())
+                .stock(offer.stock())
+                .build();
+    }
+}
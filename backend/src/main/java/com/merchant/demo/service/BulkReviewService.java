@@ -0,0 +1,521 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.dto.admin.BulkReviewDecisionRequest;
+import com.merchant.demo.dto.admin.BulkReviewDecisionResultDto;
+import com.merchant.demo.dto.admin.ReviewDecisionRequest;
+import com.merchant.demo.entity.*;
+import com.merchant.demo.repository.*;
+import com.merchant.demo.repository.CatalogWriteBatch.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies many review decisions at once.
+ * <p>
+ * All decisions are validated together against data loaded in a handful of queries (staging products with
+ * variants, selected media, master products/variants, brands, categories), then the resulting rows are written
+ * with JDBC batch inserts, one transaction per chunk of decisions. If a chunk fails, its decisions are retried
+ * one by one so a single bad decision does not fail its neighbours. Every decision gets its own outcome.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkReviewService {
+
+    static final int MAX_DECISIONS = 1000;
+    /** Decisions written per transaction. */
+    static final int CHUNK_SIZE = 100;
+    /** Keys per IN (...) lookup, well below the driver's bind parameter limit. */
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final StagingProductRepository stagingProductRepository;
+    private final StagingMediaRepository stagingMediaRepository;
+    private final ProductRepository productRepository;
+    private final VariantRepository variantRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final MediaRepository mediaRepository;
+    private final CatalogBatchWriter catalogBatchWriter;
+    private final ReviewDecisionSupport decisionSupport;
+    private final TransactionTemplate transactionTemplate;
+    private final PricingService pricingService;
+    private final MediaMirrorRepository mediaMirrorRepository;
+
+    public BulkReviewDecisionResultDto submitDecisions(BulkReviewDecisionRequest request) {
+        List<BulkReviewDecisionRequest.ItemDto> items = request != null && request.getDecisions() != null
+                ? request.getDecisions()
+                : List.of();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("decisions must not be empty");
+        }
+        if (items.size() > MAX_DECISIONS) {
+            throw new IllegalArgumentException("At most " + MAX_DECISIONS + " decisions per request, got " + items.size());
+        }
+        long start = System.currentTimeMillis();
+
+        List<PlannedDecision> plans = items.stream().map(PlannedDecision::new).toList();
+        transactionTemplate.executeWithoutResult(status -> plan(plans));
+
+        List<PlannedDecision> valid = plans.stream().filter(p -> p.error == null).toList();
+        for (int from = 0; from < valid.size(); from += CHUNK_SIZE) {
+            writeChunk(valid.subList(from, Math.min(from + CHUNK_SIZE, valid.size())));
+        }
+
+        List<BulkReviewDecisionResultDto.ItemResultDto> results = plans.stream().map(PlannedDecision::toResult).toList();
+        int failed = (int) results.stream()
+                .filter(r -> BulkReviewDecisionResultDto.OUTCOME_FAILED.equals(r.getOutcome()))
+                .count();
+        log.info("Bulk review: {} decisions, {} failed in {}ms", plans.size(), failed, System.currentTimeMillis() - start);
+
+        return BulkReviewDecisionResultDto.builder()
+                .total(plans.size())
+                .succeeded(plans.size() - failed)
+                .failed(failed)
+                .results(results)
+                .build();
+    }
+
+    private void writeChunk(List<PlannedDecision> chunk) {
+        CatalogWriteBatch batch = new CatalogWriteBatch();
+        chunk.forEach(p -> batch.addAll(p.batch));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                catalogBatchWriter.write(batch);
+                mediaMirrorRepository.registerSources(batch.getMedia().stream().map(NewMedia::srcUrl).toList());
+                priceNewOffers(chunk);
+            });
+        } catch (DataAccessException | TransactionException e) {
+            if (chunk.size() == 1) {
+                chunk.get(0).fail("Write failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                return;
+            }
+            log.warn("Bulk review chunk of {} decisions failed, retrying individually", chunk.size(), e);
+            for (PlannedDecision p : chunk) {
+                writeChunk(List.of(p));
+            }
+        }
+    }
+
+    /** Offers are written at the raw merchant price; apply margin rules in the same transaction. */
+    private void priceNewOffers(List<PlannedDecision> chunk) {
+        Map<Integer, Set<Integer>> productIdsByMerchant = new HashMap<>();
+        for (PlannedDecision p : chunk) {
+            if (p.batch.getOffers().isEmpty()) continue;
+            Integer productId = p.createdProduct != null ? p.createdProduct.getId() : p.linkedProductId;
+            if (productId == null) continue;
+            productIdsByMerchant.computeIfAbsent(p.batch.getOffers().get(0).merchantId(), k -> new HashSet<>()).add(productId);
+        }
+        productIdsByMerchant.forEach(pricingService::repriceProductOffers);
+    }
+
+    // ── Validation & planning ───────────────────────────────────────────
+
+    private void plan(List<PlannedDecision> plans) {
+        Map<Integer, Long> occurrences = plans.stream()
+                .map(p -> p.stagingId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        for (PlannedDecision p : plans) {
+            if (p.stagingId == null) {
+                p.fail("staging_id required");
+            } else if (p.decision == null) {
+                p.fail("decision required");
+            } else if (occurrences.get(p.stagingId) > 1) {
+                p.fail("Duplicate staging_id in request: " + p.stagingId);
+            }
+        }
+
+        List<PlannedDecision> candidates = plans.stream().filter(p -> p.error == null).toList();
+        Context ctx = loadContext(candidates);
+        for (PlannedDecision p : candidates) {
+            try {
+                planOne(p, ctx);
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                p.fail(e.getMessage());
+            }
+        }
+        checkUniqueKeys(candidates);
+    }
+
+    private void planOne(PlannedDecision p, Context ctx) {
+        StagingProduct staging = ctx.staging.get(p.stagingId);
+        if (staging == null) {
+            throw new NoSuchElementException("Staging product not found: " + p.stagingId);
+        }
+        if ("APPROVED".equals(staging.getStatus())) {
+            throw new IllegalArgumentException("Staging product already approved: " + p.stagingId);
+        }
+        ReviewDecisionRequest request = p.decision;
+        String action = request.getAction() != null ? request.getAction() : "";
+        p.batch = new CatalogWriteBatch();
+        switch (action) {
+            case ReviewDecisionRequest.ACTION_REJECT -> p.batch.getStagingDecisions().add(new StagingDecision(
+                    staging.getId(), "REJECTED", request.getRejectionReason(), request.getAdminNotes()));
+            case ReviewDecisionRequest.ACTION_CREATE_NEW -> planCreateNew(p, staging, ctx);
+            case ReviewDecisionRequest.ACTION_LINK_EXISTING -> planLinkExisting(p, staging, ctx);
+            default -> throw new IllegalArgumentException("Unknown action: " + request.getAction());
+        }
+    }
+
+    private void planCreateNew(PlannedDecision p, StagingProduct staging, Context ctx) {
+        ReviewDecisionRequest.CleanDataDto clean = p.decision.getCleanData();
+        if (clean == null || clean.getTitle() == null) {
+            throw new IllegalArgumentException("clean_data.title required for CREATE_NEW");
+        }
+        if (clean.getBrandId() != null && !ctx.brandIds.contains(clean.getBrandId())) {
+            throw new NoSuchElementException("Brand not found: " + clean.getBrandId());
+        }
+        List<Integer> categoryIds = clean.getCategoryIds() != null ? clean.getCategoryIds() : List.of();
+        for (Integer categoryId : categoryIds) {
+            if (!ctx.categoryIds.contains(categoryId)) {
+                throw new NoSuchElementException("Category not found: " + categoryId);
+            }
+        }
+
+        String slug = StringUtils.hasText(clean.getSlug()) ? clean.getSlug() : ReviewDecisionSupport.generateSlug(clean.getTitle());
+        String optionsDefinitionJson = decisionSupport.writeJson(clean.getOptionsDefinition(), "options_definition");
+        NewProduct product = NewProduct.builder()
+                .title(clean.getTitle())
+                .slug(slug)
+                .description(clean.getDescription())
+                .brandId(clean.getBrandId())
+                .specifications(decisionSupport.writeJson(clean.getSpecifications(), "specifications"))
+                .optionsDefinition(optionsDefinitionJson)
+                .build();
+        CatalogWriteBatch batch = p.batch;
+        batch.getProducts().add(product);
+
+        int mediaPosition = 0;
+        Map<String, NewMedia> mediaByExternalId = new HashMap<>();
+        List<Integer> selectedMediaIds = clean.getSelectedMediaIds() != null ? clean.getSelectedMediaIds() : List.of();
+        if (new HashSet<>(selectedMediaIds).size() != selectedMediaIds.size()) {
+            throw new IllegalArgumentException("All selected_media_ids must belong to this staging product");
+        }
+        for (Integer smId : selectedMediaIds) {
+            StagingMedia sm = ctx.ownedMedia(staging, smId);
+            if (sm == null) {
+                throw new IllegalArgumentException("All selected_media_ids must belong to this staging product");
+            }
+            NewMedia media = new NewMedia(null, product, sm.getSourceUrl(), sm.getAltText(), mediaPosition++);
+            batch.getMedia().add(media);
+            if (sm.getExternalMediaId() != null) mediaByExternalId.putIfAbsent(sm.getExternalMediaId(), media);
+        }
+        for (ReviewDecisionRequest.ExtraMediaItemDto item : extraMedia(clean)) {
+            batch.getMedia().add(new NewMedia(null, product, item.getUrl().trim(), trimToNull(item.getAltText()), mediaPosition++));
+        }
+        if (!batch.getMedia().isEmpty()) {
+            product.setImageUrl(batch.getMedia().get(0).srcUrl());
+        }
+
+        for (Integer categoryId : new LinkedHashSet<>(categoryIds)) {
+            batch.getProductCategories().add(new NewProductCategory(product, categoryId));
+        }
+
+        Map<String, List<String>> optionsDef = decisionSupport.parseOptionsDefinition(optionsDefinitionJson);
+        VariantCombinationIterator combinations = decisionSupport.variantCombinations(optionsDef);
+        Map<String, StagingVariant> stagingVariantByOptions = decisionSupport.stagingVariantsByOptions(staging, optionsDef);
+        while (combinations.hasNext()) {
+            Map<String, String> combo = combinations.next();
+            OptionSet comboOptions = OptionSet.of(combo);
+            NewVariant variant = NewVariant.builder()
+                    .newProduct(product)
+                    .internalSku(ReviewDecisionSupport.generatedVariantSku(slug, combo))
+                    .options(comboOptions.toJson())
+                    .build();
+            batch.getVariants().add(variant);
+            // remove() prevents double-linking one staging variant
+            StagingVariant matchedSv = stagingVariantByOptions.remove(AttributeNormalizer.key(comboOptions));
+            if (matchedSv != null) {
+                batch.getOffers().add(offer(staging, matchedSv, null, variant));
+            }
+        }
+        linkVariantImages(batch, staging, mediaByExternalId);
+
+        batch.getStagingDecisions().add(new StagingDecision(staging.getId(), "APPROVED", null, null));
+        p.createdProduct = product;
+    }
+
+    private void planLinkExisting(PlannedDecision p, StagingProduct staging, Context ctx) {
+        ReviewDecisionRequest request = p.decision;
+        Integer masterProductId = request.getMasterProductId();
+        if (masterProductId == null) {
+            throw new IllegalArgumentException("master_product_id required for LINK_EXISTING");
+        }
+        Product master = ctx.masters.get(masterProductId);
+        if (master == null) {
+            throw new NoSuchElementException("Master product not found: " + masterProductId);
+        }
+        CatalogWriteBatch batch = p.batch;
+
+        List<ReviewDecisionRequest.VariantMappingDto> mapping = request.getVariantMapping() != null
+                ? request.getVariantMapping()
+                : List.of();
+        Map<Integer, StagingVariant> stagingVariants = staging.getVariants().stream()
+                .collect(Collectors.toMap(StagingVariant::getId, v -> v));
+        // Allow partial mapping: mapped IDs must be a subset of actual staging variant IDs (admin may skip some)
+        boolean foreignIds = mapping.stream()
+                .map(ReviewDecisionRequest.VariantMappingDto::getStagingVariantId)
+                .anyMatch(id -> id != null && !stagingVariants.containsKey(id));
+        if (foreignIds) {
+            throw new IllegalArgumentException("variant_mapping contains staging variant IDs that don't belong to this staging product");
+        }
+
+        for (ReviewDecisionRequest.VariantMappingDto dto : mapping) {
+            Map<String, String> newAttrs = dto.getNewVariantAttributes() != null ? dto.getNewVariantAttributes() : Map.of();
+            if (dto.getStagingVariantId() == null) {
+                // Manually added variant: no staging variant, so no merchant offer
+                if (newAttrs.isEmpty()) continue;
+                batch.getVariants().add(NewVariant.builder()
+                        .productId(master.getId())
+                        .internalSku("MANUAL-" + staging.getId() + "-" + UUID.randomUUID().toString().substring(0, 8))
+                        .options(OptionSet.of(newAttrs).toJson())
+                        .build());
+                continue;
+            }
+
+            StagingVariant sv = stagingVariants.get(dto.getStagingVariantId());
+            Integer masterVariantId = dto.getMasterVariantId();
+            if (masterVariantId != null && !newAttrs.isEmpty()) {
+                throw new IllegalArgumentException("Each variant_mapping entry must have either master_variant_id (link) or new_variant_attributes (add new), not both");
+            }
+            if (masterVariantId != null) {
+                Integer ownerId = ctx.masterVariantProduct.get(masterVariantId);
+                if (ownerId == null) {
+                    throw new NoSuchElementException("Master variant not found: " + masterVariantId);
+                }
+                if (!ownerId.equals(master.getId())) {
+                    throw new IllegalArgumentException("Variant does not belong to selected master product");
+                }
+                batch.getOffers().add(offer(staging, sv, masterVariantId, null));
+            } else {
+                OptionSet newOptions = newAttrs.isEmpty() ? sv.getOptionSet() : OptionSet.of(newAttrs);
+                NewVariant variant = NewVariant.builder()
+                        .productId(master.getId())
+                        .internalSku("LINK-" + staging.getId() + "-" + sv.getId())
+                        .options(newOptions.toJson())
+                        .build();
+                batch.getVariants().add(variant);
+                batch.getOffers().add(offer(staging, sv, null, variant));
+            }
+        }
+
+        // --- Optionally add media to existing master product ---
+        ReviewDecisionRequest.CleanDataDto clean = request.getCleanData();
+        Map<String, NewMedia> mediaByExternalId = new HashMap<>();
+        if (clean != null) {
+            int nextPosition = ctx.nextMediaPosition.getOrDefault(master.getId(), 0);
+            List<String> urls = new ArrayList<>();
+            List<Integer> selectedMediaIds = clean.getSelectedMediaIds() != null ? clean.getSelectedMediaIds() : List.of();
+            for (Integer smId : selectedMediaIds) {
+                StagingMedia sm = ctx.ownedMedia(staging, smId);
+                if (sm == null) continue;
+                urls.add(sm.getSourceUrl());
+                NewMedia media = new NewMedia(master.getId(), null, sm.getSourceUrl(), sm.getAltText(), nextPosition++);
+                batch.getMedia().add(media);
+                if (sm.getExternalMediaId() != null) mediaByExternalId.putIfAbsent(sm.getExternalMediaId(), media);
+            }
+            for (ReviewDecisionRequest.ExtraMediaItemDto item : extraMedia(clean)) {
+                urls.add(item.getUrl().trim());
+                batch.getMedia().add(new NewMedia(master.getId(), null, item.getUrl().trim(), trimToNull(item.getAltText()), nextPosition++));
+            }
+            if (!urls.isEmpty() && ctx.mastersWithImage.add(master.getId())) {
+                batch.getImageUpdates().add(new ImageUpdate(master.getId(), urls.get(0)));
+            }
+            ctx.nextMediaPosition.put(master.getId(), nextPosition);
+        }
+        linkVariantImages(batch, staging, mediaByExternalId);
+
+        batch.getStagingDecisions().add(new StagingDecision(staging.getId(), "APPROVED", null, null));
+        p.linkedProductId = master.getId();
+    }
+
+    /**
+     * Link every offered variant to the new media row of its Shopify variant image, when that image was
+     * selected in the same decision. Offers carry the staging variant's external id, so no extra lookup is needed.
+     */
+    private static void linkVariantImages(CatalogWriteBatch batch, StagingProduct staging, Map<String, NewMedia> mediaByExternalId) {
+        if (mediaByExternalId.isEmpty()) return;
+        Map<String, String> imageByExternalVariantId = new HashMap<>();
+        for (StagingVariant sv : staging.getVariants()) {
+            if (sv.getExternalVariantId() != null && sv.getExternalMediaId() != null) {
+                imageByExternalVariantId.put(sv.getExternalVariantId(), sv.getExternalMediaId());
+            }
+        }
+        for (NewOffer offer : batch.getOffers()) {
+            String externalMediaId = imageByExternalVariantId.get(offer.externalVariantId());
+            NewMedia media = externalMediaId != null ? mediaByExternalId.get(externalMediaId) : null;
+            if (media != null) {
+                batch.getVariantMedia().add(new NewVariantMedia(offer.variantId(), offer.newVariant(), media));
+            }
+        }
+    }
+
+    /**
+     * Slugs and internal SKUs are unique in the catalog. A clash would roll back a whole chunk, so check them
+     * up front across the request and against existing rows, failing only the decisions that clash.
+     */
+    private void checkUniqueKeys(List<PlannedDecision> plans) {
+        Map<String, PlannedDecision> slugOwners = new HashMap<>();
+        Map<String, PlannedDecision> skuOwners = new HashMap<>();
+        for (PlannedDecision p : plans) {
+            if (p.error != null) continue;
+            List<String> slugs = p.batch.getProducts().stream().map(NewProduct::getSlug).toList();
+            List<String> skus = p.batch.getVariants().stream().map(NewVariant::getInternalSku).toList();
+            Optional<String> clash = slugs.stream().filter(slugOwners::containsKey).findFirst();
+            if (clash.isPresent()) {
+                p.fail("Duplicate slug in request: " + clash.get());
+                continue;
+            }
+            clash = skus.stream().filter(skuOwners::containsKey).findFirst();
+            if (clash.isPresent() || new HashSet<>(skus).size() != skus.size()) {
+                p.fail("Duplicate internal SKU in request: " + clash.orElse(""));
+                continue;
+            }
+            slugs.forEach(s -> slugOwners.put(s, p));
+            skus.forEach(s -> skuOwners.put(s, p));
+        }
+        for (String slug : lookupInChunks(slugOwners.keySet(), productRepository::findExistingSlugs)) {
+            slugOwners.get(slug).fail("Slug already exists: " + slug);
+        }
+        for (String sku : lookupInChunks(skuOwners.keySet(), variantRepository::findExistingInternalSkus)) {
+            skuOwners.get(sku).fail("Internal SKU already exists: " + sku);
+        }
+    }
+
+    private Context loadContext(List<PlannedDecision> plans) {
+        Set<Integer> stagingIds = new HashSet<>();
+        Set<Integer> mediaIds = new HashSet<>();
+        Set<Integer> masterIds = new HashSet<>();
+        Set<Integer> masterVariantIds = new HashSet<>();
+        Set<Integer> brandIds = new HashSet<>();
+        Set<Integer> categoryIds = new HashSet<>();
+        for (PlannedDecision p : plans) {
+            ReviewDecisionRequest d = p.decision;
+            stagingIds.add(p.stagingId);
+            if (d.getMasterProductId() != null) masterIds.add(d.getMasterProductId());
+            if (d.getVariantMapping() != null) {
+                d.getVariantMapping().stream()
+                        .filter(m -> m != null && m.getMasterVariantId() != null)
+                        .forEach(m -> masterVariantIds.add(m.getMasterVariantId()));
+            }
+            ReviewDecisionRequest.CleanDataDto clean = d.getCleanData();
+            if (clean != null) {
+                if (clean.getSelectedMediaIds() != null) mediaIds.addAll(clean.getSelectedMediaIds());
+                if (clean.getBrandId() != null) brandIds.add(clean.getBrandId());
+                if (clean.getCategoryIds() != null) categoryIds.addAll(clean.getCategoryIds());
+            }
+        }
+        mediaIds.remove(null);
+        categoryIds.remove(null);
+
+        Context ctx = new Context();
+        stagingProductRepository.findAllWithVariantsByIdIn(stagingIds).forEach(s -> ctx.staging.put(s.getId(), s));
+        for (StagingMedia sm : stagingMediaRepository.findAllById(mediaIds)) {
+            ctx.stagingMedia.put(sm.getId(), sm);
+            ctx.stagingMediaOwner.put(sm.getId(), sm.getStagingProduct().getId());
+        }
+        for (Product master : productRepository.findAllById(masterIds)) {
+            ctx.masters.put(master.getId(), master);
+            if (StringUtils.hasText(master.getImageUrl())) ctx.mastersWithImage.add(master.getId());
+        }
+        if (!ctx.masters.isEmpty()) {
+            for (Object[] row : mediaRepository.findMaxPositionByProductIdIn(ctx.masters.keySet())) {
+                ctx.nextMediaPosition.put((Integer) row[0], ((Integer) row[1]) + 1);
+            }
+        }
+        variantRepository.findAllById(masterVariantIds)
+                .forEach(v -> ctx.masterVariantProduct.put(v.getId(), v.getProduct().getId()));
+        brandRepository.findAllById(brandIds).forEach(b -> ctx.brandIds.add(b.getId()));
+        categoryRepository.findAllById(categoryIds).forEach(c -> ctx.categoryIds.add(c.getId()));
+        return ctx;
+    }
+
+    private static List<String> lookupInChunks(Collection<String> keys, Function<Collection<String>, List<String>> lookup) {
+        List<String> all = new ArrayList<>(keys);
+        List<String> found = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            found.addAll(lookup.apply(all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size()))));
+        }
+        return found;
+    }
+
+    private static NewOffer offer(StagingProduct staging, StagingVariant sv, Integer variantId, NewVariant newVariant) {
+        long priceMinor = sv.getRawPriceMinor() != null ? sv.getRawPriceMinor() : 0L;
+        return new NewOffer(staging.getMerchantId(), variantId, newVariant, staging.getExternalProductId(),
+                sv.getExternalVariantId(), sv.getRawSku(), priceMinor);
+    }
+
+    private static List<ReviewDecisionRequest.ExtraMediaItemDto> extraMedia(ReviewDecisionRequest.CleanDataDto clean) {
+        if (clean.getExtraMedia() == null) return List.of();
+        return clean.getExtraMedia().stream()
+                .filter(item -> item != null && item.getUrl() != null && StringUtils.hasText(item.getUrl().trim()))
+                .toList();
+    }
+
+    private static String trimToNull(String value) {
+        return StringUtils.hasText(value) ? value.trim() : null;
+    }
+
+    /** Everything the decisions reference, loaded up front. Media positions and main images are tracked across decisions. */
+    private static final class Context {
+        final Map<Integer, StagingProduct> staging = new HashMap<>();
+        final Map<Integer, StagingMedia> stagingMedia = new HashMap<>();
+        final Map<Integer, Integer> stagingMediaOwner = new HashMap<>();
+        final Map<Integer, Product> masters = new HashMap<>();
+        final Map<Integer, Integer> masterVariantProduct = new HashMap<>();
+        final Set<Integer> brandIds = new HashSet<>();
+        final Set<Integer> categoryIds = new HashSet<>();
+        final Map<Integer, Integer> nextMediaPosition = new HashMap<>();
+        final Set<Integer> mastersWithImage = new HashSet<>();
+
+        StagingMedia ownedMedia(StagingProduct staging, Integer mediaId) {
+            return staging.getId().equals(stagingMediaOwner.get(mediaId)) ? stagingMedia.get(mediaId) : null;
+        }
+    }
+
+    private static final class PlannedDecision {
+        final Integer stagingId;
+        final ReviewDecisionRequest decision;
+        CatalogWriteBatch batch;
+        NewProduct createdProduct;
+        Integer linkedProductId;
+        String error;
+
+        PlannedDecision(BulkReviewDecisionRequest.ItemDto item) {
+            this.stagingId = item != null ? item.getStagingId() : null;
+            this.decision = item != null ? item.getDecision() : null;
+        }
+
+        void fail(String message) {
+            if (error == null) error = message;
+        }
+
+        BulkReviewDecisionResultDto.ItemResultDto toResult() {
+            String outcome;
+            if (error != null) {
+                outcome = BulkReviewDecisionResultDto.OUTCOME_FAILED;
+            } else if (ReviewDecisionRequest.ACTION_REJECT.equals(decision.getAction())) {
+                outcome = BulkReviewDecisionResultDto.OUTCOME_REJECTED;
+            } else {
+                outcome = BulkReviewDecisionResultDto.OUTCOME_APPROVED;
+            }
+            return BulkReviewDecisionResultDto.ItemResultDto.builder()
+                    .stagingId(stagingId)
+                    .action(decision != null ? decision.getAction() : null)
+                    .outcome(outcome)
+                    .productId(error == null ? (createdProduct != null ? createdProduct.getId() : linkedProductId) : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.CatalogProperties;
+import com.merchant.demo.repository.CatalogExportRepository;
+import com.merchant.demo.repository.CatalogExportRepository.ExportRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Full master catalog dumps for partners: products with their variants and the variants' offers, streamed
+ * from a database cursor straight into the response, so memory use does not depend on the catalog size.
+ * <p>
+ * CSV has one row per offer (product and variant columns repeated; variant / offer columns empty where there
+ * are none). JSONL has one product per line with nested variants and offers; rows arrive ordered by product,
+ * variant and offer, so only the current product's JSON is open at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogExportService {
+
+    static final String[] CSV_COLUMNS = {
+            "product_id", "title", "slug", "product_status", "brand_id", "brand_name",
+            "variant_id", "internal_sku", "gtin", "options", "variant_status", "variant_is_active",
+            "offer_id", "merchant_id", "merchant_sku", "currency_code", "price_minor", "settlement_price_minor",
+            "stock", "offer_status", "offer_is_active"};
+
+    private final CatalogExportRepository catalogExportRepository;
+    private final CatalogProperties catalogProperties;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        JSONL("application/x-ndjson", "jsonl");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value != null ? value.trim() : null)) return format;
+            }
+            throw new IllegalArgumentException("format must be csv or jsonl, got " + value);
+        }
+    }
+
+    /**
+     * Write the whole catalog to {@code out} (which is flushed, not closed). The read-only transaction keeps
+     * the cursor open for the duration of the export.
+     *
+     * @return the number of rows read
+     */
+    @Transactional(readOnly = true)
+    public long export(Format format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new JsonlWriter(objectMapper.getFactory(), out);
+        long[] rows = {0};
+        try {
+            catalogExportRepository.forEachCatalogRow(catalogProperties.getExportFetchSize(), row -> {
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed with the transaction
+            throw e.getCause();
+        }
+        log.info("Exported catalog as {}: {} rows in {}ms", format, rows[0], System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private interface RowWriter {
+        void write(ExportRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer out;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.out.write(String.join(",", CSV_COLUMNS));
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            field(row.productId(), false);
+            field(row.title(), true);
+            field(row.slug(), true);
+            field(row.productStatus(), true);
+            field(row.brandId(), true);
+            field(row.brandName(), true);
+            field(row.variantId(), true);
+            field(row.internalSku(), true);
+            field(row.gtin(), true);
+            field(row.optionsJson(), true);
+            field(row.variantStatus(), true);
+            field(row.variantIsActive(), true);
+            field(row.offerId(), true);
+            field(row.merchantId(), true);
+            field(row.merchantSku(), true);
+            field(row.currencyCode(), true);
+            field(row.priceMinor(), true);
+            field(row.settlementPriceMinor(), true);
+            field(row.stock(), true);
+            field(row.offerStatus(), true);
+            field(row.offerIsActive(), true);
+            out.write("\r\n");
+        }
+
+        private void field(Object value, boolean separator) throws IOException {
+            if (separator) out.write(',');
+            if (value == null) return;
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                out.write(text);
+                return;
+            }
+            out.write('"');
+            out.write(text.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class JsonlWriter implements RowWriter {
+
+        private final JsonGenerator json;
+        private Integer productId;
+        private Integer variantId;
+
+        JsonlWriter(JsonFactory factory, OutputStream out) throws IOException {
+            json = factory.createGenerator(out);
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            if (productId == null || productId != row.productId()) {
+                endProduct();
+                startProduct(row);
+            }
+            if (row.variantId() == null) return;
+            if (!row.variantId().equals(variantId)) {
+                endVariant();
+                startVariant(row);
+            }
+            if (row.offerId() != null) writeOffer(row);
+        }
+
+        private void startProduct(ExportRow row) throws IOException {
+            productId = row.productId();
+            json.writeStartObject();
+            json.writeNumberField("id", row.productId());
+            json.writeStringField("title", row.title());
+            json.writeStringField("slug", row.slug());
+            json.writeStringField("status", row.productStatus());
+            if (row.brandId() != null) {
+                json.writeObjectFieldStart("brand");
+                json.writeNumberField("id", row.brandId());
+                json.writeStringField("name", row.brandName());
+                json.writeEndObject();
+            } else {
+                json.writeNullField("brand");
+            }
+            json.writeArrayFieldStart("variants");
+        }
+
+        private void endProduct() throws IOException {
+            if (productId == null) return;
+            endVariant();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+
+        private void startVariant(ExportRow row) throws IOException {
+            variantId = row.variantId();
+            json.writeStartObject();
+            json.writeNumberField("id", row.variantId());
+            json.writeStringField("internal_sku", row.internalSku());
+            json.writeStringField("gtin", row.gtin());
+            json.writeFieldName("options");
+            if (row.optionsJson() != null) {
+                // jsonb text from the database
+                json.writeRawValue(row.optionsJson());
+            } else {
+                json.writeNull();
+            }
+            json.writeStringField("status", row.variantStatus());
+            writeBoolean("is_active", row.variantIsActive());
+            json.writeArrayFieldStart("offers");
+        }
+
+        private void endVariant() throws IOException {
+            if (variantId == null) return;
+            variantId = null;
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+
+        private void writeOffer(ExportRow row) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", row.offerId());
+            json.writeNumberField("merchant_id", row.merchantId());
+            json.writeStringField("merchant_sku", row.merchantSku());
+            json.writeStringField("currency_code", row.currencyCode());
+            json.writeNumberField("price_minor", row.priceMinor());
+            json.writeNumberField("settlement_price_minor", row.settlementPriceMinor());
+            if (row.stock() != null) {
+                json.writeNumberField("stock", row.stock());
+            } else {
+                json.writeNullField("stock");
+            }
+            json.writeStringField("offer_status", row.offerStatus());
+            writeBoolean("is_active", row.offerIsActive());
+            json.writeEndObject();
+        }
+
+        private void writeBoolean(String field, Boolean value) throws IOException {
+            if (value != null) {
+                json.writeBooleanField(field, value);
+            } else {
+                json.writeNullField(field);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            endProduct();
+            if (productId != null) json.writeRaw('\n');
+            json.flush();
+        }
+    }
+}
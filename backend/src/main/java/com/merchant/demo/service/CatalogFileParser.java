@@ -0,0 +1,617 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.dto.shopify.*;
+import com.merchant.demo.repository.SyncLogRepository.RowError;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads a merchant's catalog file (CSV or JSONL) one product at a time, mapped onto the Shopify
+ * {@link ProductNode} shape so file imports go through the same staging upsert as a Shopify sync. Only the
+ * current product's rows are held in memory, bounded by {@link Limits}: a longer field, line (CSV record) or
+ * product is rejected as a {@link RowError} and reading resumes at the next line. Beyond that, the parser keeps
+ * a 64-bit fingerprint of each product id it has read (to reject split products), about 16 bytes per product.
+ * <p>
+ * CSV has one row per variant with a header naming the columns ({@link #CSV_COLUMNS_DOC}); product columns are
+ * repeated on each row, blank repeats are fine (the first non-blank value wins). JSONL has one product per line
+ * with a {@code variants} array. A product's rows (or lines) must be contiguous. A product with any invalid row
+ * is rejected as a whole, with one {@link RowError} per invalid row; the rest of the file is still read.
+ */
+public final class CatalogFileParser implements Closeable {
+
+    static final String CSV_COLUMNS_DOC = "product_id, title, description, vendor, product_type, tags "
+            + "(comma-separated), image_url, variant_id, sku, barcode, price (decimal), stock, option1_name, "
+            + "option1_value .. option3_name, option3_value, variant_image_url";
+    static final int MAX_OPTIONS = 3;
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("product_id", "variant_id", "price");
+
+    public enum Format {
+        CSV, JSONL;
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value != null ? value.trim() : null)) return format;
+            }
+            throw new IllegalArgumentException("format must be csv or jsonl, got " + value);
+        }
+    }
+
+    /**
+     * Size bounds of one file's contents.
+     *
+     * @param maxFieldChars     longest CSV field
+     * @param maxLineChars      longest CSV record (which may span lines) or JSONL line
+     * @param maxRowsPerProduct most CSV rows or JSONL variants of one product
+     */
+    public record Limits(int maxFieldChars, int maxLineChars, int maxRowsPerProduct) {}
+
+    /** One product of the file: {@code node} is null when it was rejected ({@code errors} not empty). */
+    public record ParsedProduct(String externalProductId, long firstRow, ProductNode node, List<RowError> errors) {
+        public boolean valid() {
+            return errors.isEmpty();
+        }
+    }
+
+    private final RowSource source;
+    private final int maxRowsPerProduct;
+    /** Product ids read so far, to reject products whose rows are split across the file. */
+    private final IdFingerprints seenProductIds = new IdFingerprints();
+    private ImportRow lookahead;
+
+    private CatalogFileParser(RowSource source, int maxRowsPerProduct) {
+        this.source = source;
+        this.maxRowsPerProduct = maxRowsPerProduct;
+    }
+
+    /**
+     * Open a parser over {@code in} (UTF-8). For CSV the header is read here.
+     *
+     * @throws IllegalArgumentException when the CSV header lacks a required column
+     */
+    public static CatalogFileParser open(Format format, InputStream in, ObjectMapper objectMapper, Limits limits)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        RowSource source = format == Format.CSV
+                ? new CsvRowSource(new CsvReader(reader, limits.maxFieldChars(), limits.maxLineChars()))
+                : new JsonlRowSource(reader, objectMapper, limits.maxLineChars());
+        return new CatalogFileParser(source, limits.maxRowsPerProduct());
+    }
+
+    /** The next product, or null at the end of the file. */
+    public ParsedProduct next() throws IOException {
+        ImportRow first = lookahead != null ? lookahead : source.next();
+        lookahead = null;
+        if (first == null) return null;
+        if (first.productId() == null) {
+            // Cannot be grouped with anything
+            return new ParsedProduct(null, first.rowNumber(), null,
+                    List.of(new RowError(first.rowNumber(), null, first.error() != null ? first.error() : "product_id is required")));
+        }
+
+        List<ImportRow> rows = new ArrayList<>();
+        rows.add(first);
+        long skipped = 0;
+        ImportRow row;
+        while ((row = source.next()) != null && first.productId().equals(row.productId())) {
+            // Rows beyond the limit are only counted: the product is rejected anyway
+            if (rows.size() < maxRowsPerProduct) {
+                rows.add(row);
+            } else {
+                skipped++;
+            }
+        }
+        lookahead = row;
+        if (skipped > 0) {
+            String productId = first.productId();
+            String message = seenProductIds.add(productId)
+                    ? "product has " + (rows.size() + skipped) + " rows; at most " + maxRowsPerProduct + " are read"
+                    : "rows of product " + productId + " must be contiguous; it already appeared earlier in the file";
+            return new ParsedProduct(productId, first.rowNumber(), null,
+                    List.of(new RowError(first.rowNumber(), productId, message)));
+        }
+        return assemble(rows);
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private ParsedProduct assemble(List<ImportRow> rows) {
+        ImportRow first = rows.get(0);
+        String productId = first.productId();
+        List<RowError> errors = new ArrayList<>();
+        if (!seenProductIds.add(productId)) {
+            errors.add(new RowError(first.rowNumber(), productId,
+                    "rows of product " + productId + " must be contiguous; it already appeared earlier in the file"));
+            return new ParsedProduct(productId, first.rowNumber(), null, errors);
+        }
+
+        String title = null, description = null, vendor = null, productType = null;
+        Set<String> tags = new LinkedHashSet<>();
+        Map<String, Set<String>> options = new LinkedHashMap<>();
+        Map<String, MediaConnection.MediaEdge> media = new LinkedHashMap<>();
+        Set<String> variantIds = new HashSet<>();
+        List<VariantConnection.VariantEdge> variants = new ArrayList<>();
+        boolean unreadableRows = false;
+
+        for (ImportRow row : rows) {
+            if (row.error() != null) {
+                errors.add(new RowError(row.rowNumber(), productId, row.error()));
+                unreadableRows = true;
+                continue;
+            }
+            List<String> rowErrors = new ArrayList<>();
+            title = firstNonBlank(title, row.title());
+            description = firstNonBlank(description, row.description());
+            vendor = firstNonBlank(vendor, row.vendor());
+            productType = firstNonBlank(productType, row.productType());
+            tags.addAll(row.tags());
+            for (String url : row.imageUrls()) addImage(media, url, rowErrors);
+
+            String variantId = blankToNull(row.variantId());
+            if (variantId == null) {
+                rowErrors.add("variant_id is required");
+            } else if (!variantIds.add(variantId)) {
+                rowErrors.add("duplicate variant_id " + variantId);
+            }
+            String price = parsePrice(row.price(), rowErrors);
+            Integer stock = parseStock(row.stock(), rowErrors);
+
+            List<VariantNode.SelectedOption> selected = new ArrayList<>();
+            for (String[] option : row.options()) {
+                String name = blankToNull(option[0]);
+                String value = blankToNull(option[1]);
+                if (name == null && value == null) continue;
+                if (name == null || value == null) {
+                    rowErrors.add(name == null ? "option value '" + value + "' has no name" : "option " + name + " has no value");
+                    continue;
+                }
+                selected.add(new VariantNode.SelectedOption(name, value));
+                options.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(value);
+            }
+            MediaConnection variantMedia = null;
+            String variantImage = blankToNull(row.variantImageUrl());
+            if (variantImage != null && addImage(media, variantImage, rowErrors)) {
+                variantMedia = new MediaConnection(List.of(new MediaConnection.MediaEdge(
+                        new MediaConnection.MediaNode(variantImage, "IMAGE", null, null, null))));
+            }
+
+            if (!rowErrors.isEmpty()) {
+                errors.add(new RowError(row.rowNumber(), productId, String.join("; ", rowErrors)));
+            } else {
+                variants.add(new VariantConnection.VariantEdge(new VariantNode(variantId, blankToNull(row.sku()),
+                        blankToNull(row.barcode()), price, stock, selected, variantMedia)));
+            }
+        }
+        // Unreadable rows may have carried the title
+        if (title == null && !unreadableRows) errors.add(new RowError(first.rowNumber(), productId, "title is required"));
+        if (options.size() > MAX_OPTIONS) {
+            errors.add(new RowError(first.rowNumber(), productId, "at most " + MAX_OPTIONS + " option names per product"));
+        }
+        if (!errors.isEmpty()) return new ParsedProduct(productId, first.rowNumber(), null, errors);
+
+        ProductNode node = new ProductNode(productId, title, description, vendor, productType, new ArrayList<>(tags),
+                options.entrySet().stream().map(e -> new OptionNode(e.getKey(), new ArrayList<>(e.getValue()))).toList(),
+                new VariantConnection(variants),
+                new MediaConnection(new ArrayList<>(media.values())));
+        return new ParsedProduct(productId, first.rowNumber(), node, List.of());
+    }
+
+    /** Images are identified by their URL, which is also their external media id. */
+    private static boolean addImage(Map<String, MediaConnection.MediaEdge> media, String url, List<String> rowErrors) {
+        if (!url.startsWith("https://") && !url.startsWith("http://")) {
+            rowErrors.add("image URL must be http(s): " + url);
+            return false;
+        }
+        media.computeIfAbsent(url, k -> new MediaConnection.MediaEdge(new MediaConnection.MediaNode(url, "IMAGE",
+                null, new MediaConnection.MediaImage(url, null), null)));
+        return true;
+    }
+
+    /** Decimal price with at most 2 decimals, as a plain string (what Shopify sends); null when invalid. */
+    private static String parsePrice(String value, List<String> rowErrors) {
+        value = blankToNull(value);
+        if (value == null) {
+            rowErrors.add("price is required");
+            return null;
+        }
+        try {
+            BigDecimal price = new BigDecimal(value);
+            if (price.signum() < 0) {
+                rowErrors.add("price must not be negative: " + value);
+            } else if (price.stripTrailingZeros().scale() > 2) {
+                rowErrors.add("price has more than 2 decimals: " + value);
+            } else {
+                return price.toPlainString();
+            }
+        } catch (NumberFormatException e) {
+            rowErrors.add("price is not a number: " + value);
+        }
+        return null;
+    }
+
+    /** Blank stock is unknown (null), like a Shopify variant without tracked inventory. */
+    private static Integer parseStock(String value, List<String> rowErrors) {
+        value = blankToNull(value);
+        if (value == null) return null;
+        try {
+            int stock = Integer.parseInt(value);
+            if (stock >= 0) return stock;
+            rowErrors.add("stock must not be negative: " + value);
+        } catch (NumberFormatException e) {
+            rowErrors.add("stock is not a whole number: " + value);
+        }
+        return null;
+    }
+
+    private static String firstNonBlank(String current, String value) {
+        return current != null ? current : blankToNull(value);
+    }
+
+    private static String blankToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static List<String> splitTags(String tags) {
+        if (tags == null || tags.isBlank()) return List.of();
+        return Arrays.stream(tags.split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+    }
+
+    /**
+     * One variant row. {@code error} is set for rows that could not be read completely (wrong field count,
+     * unparseable JSON); those are rejected but still grouped with their product when the id is known.
+     */
+    private record ImportRow(long rowNumber, String productId, String title, String description, String vendor,
+                             String productType, List<String> tags, List<String> imageUrls, String variantId,
+                             String sku, String barcode, String price, String stock, List<String[]> options,
+                             String variantImageUrl, String error) {
+
+        static ImportRow broken(long rowNumber, String productId, String error) {
+            return new ImportRow(rowNumber, productId, null, null, null, null, List.of(), List.of(), null, null,
+                    null, null, null, List.of(), null, error);
+        }
+    }
+
+    private interface RowSource extends Closeable {
+        /** The next row, or null at the end of the file. */
+        ImportRow next() throws IOException;
+    }
+
+    private static final class CsvRowSource implements RowSource {
+
+        private final CsvReader csv;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final int columnCount;
+
+        CsvRowSource(CsvReader csv) throws IOException {
+            this.csv = csv;
+            List<String> header = csv.readRecord();
+            if (header == null) throw new IllegalArgumentException("CSV file is empty");
+            if (csv.recordError() != null) throw new IllegalArgumentException("CSV header: " + csv.recordError());
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+                // Spreadsheet exports often start with a byte order mark
+                if (i == 0 && name.startsWith("\uFEFF")) name = name.substring(1);
+                columns.putIfAbsent(name, i);
+            }
+            for (String required : REQUIRED_CSV_COLUMNS) {
+                if (!columns.containsKey(required)) {
+                    throw new IllegalArgumentException("CSV header lacks column " + required + "; expected " + CSV_COLUMNS_DOC);
+                }
+            }
+            columnCount = header.size();
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            List<String> fields;
+            do {
+                fields = csv.readRecord();
+                if (fields == null) return null;
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+            long rowNumber = csv.recordNumber();
+
+            String productId = blankToNull(field(fields, "product_id"));
+            String error = csv.recordError();
+            if (error == null && fields.size() > columnCount) {
+                error = "row has " + fields.size() + " fields, header has " + columnCount;
+            }
+            List<String[]> options = new ArrayList<>(MAX_OPTIONS);
+            for (int i = 1; i <= MAX_OPTIONS; i++) {
+                options.add(new String[]{field(fields, "option" + i + "_name"), field(fields, "option" + i + "_value")});
+            }
+            String image = blankToNull(field(fields, "image_url"));
+            return new ImportRow(rowNumber, productId, field(fields, "title"), field(fields, "description"),
+                    field(fields, "vendor"), field(fields, "product_type"), splitTags(field(fields, "tags")),
+                    image != null ? List.of(image) : List.of(), field(fields, "variant_id"), field(fields, "sku"),
+                    field(fields, "barcode"), field(fields, "price"), field(fields, "stock"), options,
+                    field(fields, "variant_image_url"), error);
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            csv.close();
+        }
+    }
+
+    /**
+     * RFC 4180 records: comma-separated, fields optionally double-quoted (may contain commas, quotes, newlines).
+     * A record with a field or total length over the limits is cut short: its {@link #recordError()} is set and
+     * the rest of the physical line is skipped, so a stray opening quote costs one line, not the rest of the file.
+     */
+    static final class CsvReader implements Closeable {
+
+        private final Reader in;
+        private final int maxFieldChars;
+        private final int maxRecordChars;
+        private long recordNumber;
+        private String recordError;
+        private int peeked = -2;
+
+        CsvReader(Reader in, int maxFieldChars, int maxRecordChars) {
+            this.in = in;
+            this.maxFieldChars = maxFieldChars;
+            this.maxRecordChars = maxRecordChars;
+        }
+
+        /** The next record's fields, or null at the end of input. */
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            recordNumber++;
+            recordError = null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int recordChars = 0;
+            while (true) {
+                if (c != -1 && ++recordChars > maxRecordChars) {
+                    recordError = "record exceeds " + maxRecordChars + " characters";
+                    skipLine(c);
+                    return fields;
+                }
+                if (quoted) {
+                    if (c == -1) {
+                        recordError = "unterminated quoted field";
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') peeked = next;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                if (field.length() > maxFieldChars) {
+                    recordError = "field " + (fields.size() + 1) + " exceeds " + maxFieldChars + " characters";
+                    skipLine(read());
+                    return fields;
+                }
+                c = read();
+            }
+        }
+
+        /** Drop input up to and including the next line break (c is the next unread character). */
+        private void skipLine(int c) throws IOException {
+            while (c != -1 && c != '\n' && c != '\r') c = read();
+            if (c == '\r') {
+                int next = read();
+                if (next != '\n') peeked = next;
+            }
+        }
+
+        /** 1-based number of the record last read (the header is record 1). */
+        long recordNumber() {
+            return recordNumber;
+        }
+
+        /** Why the record last read is incomplete (unterminated quote, over a limit), or null. */
+        String recordError() {
+            return recordError;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class JsonlRowSource implements RowSource {
+
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private final int maxLineChars;
+        private final Deque<ImportRow> pending = new ArrayDeque<>();
+        private final StringBuilder line = new StringBuilder();
+        private long lineNumber;
+
+        JsonlRowSource(BufferedReader reader, ObjectMapper objectMapper, int maxLineChars) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+            this.maxLineChars = maxLineChars;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            while (pending.isEmpty()) {
+                if (!readBoundedLine()) return null;
+                lineNumber++;
+                if (line.length() > maxLineChars) {
+                    pending.add(ImportRow.broken(lineNumber, null, "line exceeds " + maxLineChars + " characters"));
+                } else if (!line.toString().isBlank()) {
+                    readLine(line.toString());
+                }
+            }
+            return pending.poll();
+        }
+
+        /**
+         * Read the next line into {@code line}, keeping at most one character over the limit (the rest of a longer
+         * line is dropped); false at the end of input.
+         */
+        private boolean readBoundedLine() throws IOException {
+            line.setLength(0);
+            int c = reader.read();
+            if (c == -1) return false;
+            while (c != -1 && c != '\n') {
+                if (line.length() <= maxLineChars) line.append((char) c);
+                c = reader.read();
+            }
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') line.setLength(line.length() - 1);
+            return true;
+        }
+
+        /** A product line becomes one row per variant, all numbered with the line. */
+        private void readLine(String line) {
+            FileProduct product;
+            try {
+                product = objectMapper.readValue(line, FileProduct.class);
+            } catch (JsonProcessingException e) {
+                pending.add(ImportRow.broken(lineNumber, null, "invalid JSON: " + e.getOriginalMessage()));
+                return;
+            }
+            String productId = blankToNull(product.productId());
+            if (productId == null) {
+                pending.add(ImportRow.broken(lineNumber, null, "product_id is required"));
+                return;
+            }
+            if (product.variants() == null || product.variants().isEmpty()) {
+                pending.add(ImportRow.broken(lineNumber, productId, "product has no variants"));
+                return;
+            }
+            List<String> images = product.images() != null
+                    ? product.images().stream().map(CatalogFileParser::blankToNull).filter(Objects::nonNull).toList()
+                    : List.of();
+            for (FileVariant variant : product.variants()) {
+                if (variant == null) {
+                    pending.add(ImportRow.broken(lineNumber, productId, "variant must be an object"));
+                    continue;
+                }
+                List<String[]> options = new ArrayList<>();
+                if (variant.options() != null) {
+                    variant.options().forEach((name, value) -> options.add(new String[]{name, value}));
+                }
+                pending.add(new ImportRow(lineNumber, productId, product.title(), product.description(),
+                        product.vendor(), product.productType(),
+                        product.tags() != null ? product.tags().stream().map(CatalogFileParser::blankToNull).filter(Objects::nonNull).toList() : List.of(),
+                        images, variant.variantId(), variant.sku(), variant.barcode(), variant.price(),
+                        variant.stock(), options, variant.imageUrl(), null));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /** JSONL product line; ids, price and stock may be JSON strings or numbers. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record FileProduct(
+            @JsonProperty("product_id") String productId,
+            String title,
+            String description,
+            String vendor,
+            @JsonProperty("product_type") String productType,
+            List<String> tags,
+            List<String> images,
+            List<FileVariant> variants
+    ) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record FileVariant(
+            @JsonProperty("variant_id") String variantId,
+            String sku,
+            String barcode,
+            String price,
+            String stock,
+            /** Option name -> value, in the product's option order. */
+            Map<String, String> options,
+            @JsonProperty("image_url") String imageUrl
+    ) {}
+
+    /**
+     * Open-addressing set of 64-bit id fingerprints (FNV-1a). A collision would reject a product as split; at
+     * 64 bits that takes billions of products.
+     */
+    private static final class IdFingerprints {
+
+        /** 0 marks an empty slot; ids hashing to 0 are stored as 1. */
+        private long[] slots = new long[1024];
+        private int size;
+
+        /** @return false when the id was added before */
+        boolean add(String id) {
+            long fingerprint = 0xcbf29ce484222325L;
+            for (int i = 0; i < id.length(); i++) {
+                fingerprint = (fingerprint ^ id.charAt(i)) * 0x100000001b3L;
+            }
+            if (fingerprint == 0) fingerprint = 1;
+            if (!insert(slots, fingerprint)) return false;
+            if (++size * 2 > slots.length) {
+                long[] grown = new long[slots.length * 2];
+                for (long f : slots) {
+                    if (f != 0) insert(grown, f);
+                }
+                slots = grown;
+            }
+            return true;
+        }
+
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int i = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+            while (table[i] != 0) {
+                if (table[i] == fingerprint) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = fingerprint;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.StorefrontProperties;
+import com.merchant.demo.dto.store.CatalogSearchDto;
+import com.merchant.demo.dto.store.FacetCountDto;
+import com.merchant.demo.entity.AttributeNormalizer;
+import com.merchant.demo.repository.ProductFacetRepository;
+import com.merchant.demo.repository.ProductFacetRepository.DocumentChanges;
+import com.merchant.demo.repository.ProductFacetRepository.DocumentStats;
+import com.merchant.demo.repository.ProductFacetRepository.ProductFacets;
+import com.merchant.demo.service.FacetIndex.FacetQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Faceted catalog search (brand, category subtree, option values, price range) over the storefront products,
+ * answered from an in-memory {@link FacetIndex}.
+ * <p>
+ * The index is built once from the catalog and then kept current from the product documents: every product,
+ * variant, best offer, brand or category change that the storefront shows rebuilds the product's document,
+ * so each check re-reads the facets of the products whose document was built since the previous check. A
+ * document count / id sum mismatch (documents dropped for archived products) is reconciled by id, and the
+ * index is rebuilt from scratch when the category tree changes or too many product or variant slots are dead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSearchService {
+
+    /**
+     * Documents are stamped when written and may commit up to the rebuild transaction's timeout later, plus the
+     * commit itself; each check re-reads that far back.
+     */
+    static final Duration COMMIT_MARGIN = Duration.ofSeconds(5);
+    static final int LOAD_BATCH_SIZE = 5000;
+
+    private final ProductFacetRepository productFacetRepository;
+    private final StorefrontProperties storefrontProperties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FacetIndex index;
+    private Map<Integer, Integer> categoryParents;
+    private Instant checkedUpTo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (storefrontProperties.isFacetIndexEnabled()) refreshIndex();
+    }
+
+    @Scheduled(fixedDelayString = "${app.storefront.facet-refresh-interval-ms:5000}",
+            initialDelayString = "${app.storefront.facet-refresh-interval-ms:5000}")
+    public void scheduledRefresh() {
+        if (!storefrontProperties.isFacetIndexEnabled()) return;
+        try {
+            refreshIndex();
+        } catch (Exception e) {
+            // Keep serving the current index; the next check picks the changes up again
+            log.error("Refreshing the catalog facet index failed", e);
+        }
+    }
+
+    /** Apply document changes since the last check, rebuilding the index when needed. */
+    public synchronized void refreshIndex() {
+        Map<Integer, Integer> parents = productFacetRepository.findCategoryParents();
+        FacetIndex current = currentIndexOrNull();
+        if (current == null || !parents.equals(categoryParents)
+                || current.slotCount() - current.size() > Math.max(1024, current.slotCount() / 4)
+                || current.variantSlotCount() - current.variantCount()
+                        > Math.max(4096, current.variantSlotCount() / 4)) {
+            rebuild(parents);
+            return;
+        }
+
+        DocumentChanges changes = productFacetRepository.findChangedSince(checkedUpTo.minus(changeOverlap()));
+        Map<Integer, ProductFacets> facets = productFacetRepository.findFacets(changes.productIds());
+        apply(changes.productIds(), facets);
+        if (changes.latestBuiltAt().isAfter(checkedUpTo)) checkedUpTo = changes.latestBuiltAt();
+
+        DocumentStats stats = productFacetRepository.findDocumentStats();
+        if (stats.documents() != current.size() || stats.productIdSum() != current.productIdSum()) {
+            reconcile(current);
+        }
+    }
+
+    private Duration changeOverlap() {
+        return Duration.ofSeconds(storefrontProperties.getDocumentRefreshTimeoutSeconds()).plus(COMMIT_MARGIN);
+    }
+
+    private void rebuild(Map<Integer, Integer> parents) {
+        long start = System.currentTimeMillis();
+        // Read before loading: documents built during the load are applied again by the next check
+        Instant latestBuiltAt = productFacetRepository.findDocumentStats().latestBuiltAt();
+        FacetIndex next = new FacetIndex(parents);
+        int afterProductId = 0;
+        while (true) {
+            List<Integer> productIds = productFacetRepository.findDocumentProductIds(afterProductId, LOAD_BATCH_SIZE);
+            if (productIds.isEmpty()) break;
+            productFacetRepository.findFacets(productIds).values().forEach(next::upsert);
+            afterProductId = productIds.get(productIds.size() - 1);
+            if (productIds.size() < LOAD_BATCH_SIZE) break;
+        }
+        lock.writeLock().lock();
+        try {
+            index = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        categoryParents = parents;
+        checkedUpTo = latestBuiltAt;
+        log.info("Built catalog facet index: {} products in {}ms", next.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Add documents the index is missing and drop products that no longer have one. */
+    private void reconcile(FacetIndex current) {
+        Set<Integer> documentIds = new HashSet<>();
+        int afterProductId = 0;
+        while (true) {
+            List<Integer> productIds = productFacetRepository.findDocumentProductIds(afterProductId, LOAD_BATCH_SIZE);
+            documentIds.addAll(productIds);
+            if (productIds.size() < LOAD_BATCH_SIZE) break;
+            afterProductId = productIds.get(productIds.size() - 1);
+        }
+        List<Integer> changed = new ArrayList<>();
+        for (Integer productId : current.productIds()) {
+            if (!documentIds.remove(productId)) changed.add(productId);
+        }
+        changed.addAll(documentIds);
+        apply(changed, productFacetRepository.findFacets(documentIds));
+        if (!changed.isEmpty()) log.info("Reconciled catalog facet index: {} products added or removed", changed.size());
+    }
+
+    private void apply(List<Integer> productIds, Map<Integer, ProductFacets> facets) {
+        if (productIds.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            for (Integer productId : productIds) {
+                ProductFacets product = facets.get(productId);
+                if (product != null) {
+                    index.upsert(product);
+                } else {
+                    index.remove(productId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private FacetIndex currentIndexOrNull() {
+        lock.readLock().lock();
+        try {
+            return index;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of storefront products matching all given facets (any of the values within a facet), in product
+     * id order, with facet counts. Option facets are matched by a single variant: the product must have one
+     * active variant with a selected value of every selected option.
+     *
+     * @param options option name -> accepted values, as entered (normalized like variant options)
+     */
+    public CatalogSearchDto search(Set<Integer> brandIds, Set<Integer> categoryIds, Map<String, List<String>> options,
+                                   Long minPriceMinor, Long maxPriceMinor, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        if (size < 1 || size > storefrontProperties.getMaxPageSize()) {
+            throw new IllegalArgumentException("size must be between 1 and " + storefrontProperties.getMaxPageSize());
+        }
+        if (minPriceMinor != null && maxPriceMinor != null && minPriceMinor > maxPriceMinor) {
+            throw new IllegalArgumentException("min_price must not exceed max_price");
+        }
+        Map<String, Set<String>> normalized = new HashMap<>();
+        options.forEach((name, values) -> values.forEach(value ->
+                AttributeNormalizer.normalize(Map.of(name, value)).asMap().forEach((k, v) ->
+                        normalized.computeIfAbsent(k, x -> new HashSet<>()).add(v))));
+        FacetQuery query = new FacetQuery(brandIds, categoryIds, normalized, minPriceMinor, maxPriceMinor);
+
+        if (currentIndexOrNull() == null) refreshIndex();
+        long offset = (long) page * size;
+        FacetIndex.Result result;
+        lock.readLock().lock();
+        try {
+            result = index.query(query, (int) Math.min(offset, Integer.MAX_VALUE), size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return CatalogSearchDto.builder()
+                .totalElements(result.total())
+                .page(page)
+                .size(size)
+                .productIds(result.productIds())
+                .brands(toCounts(result.brandCounts()))
+                .categories(toCounts(result.categoryCounts()))
+                .options(result.optionCounts())
+                .minPriceMinor(result.minPriceMinor())
+                .maxPriceMinor(result.maxPriceMinor())
+                .build();
+    }
+
+    private static List<FacetCountDto> toCounts(Map<Integer, Integer> counts) {
+        List<FacetCountDto> dtos = new ArrayList<>(counts.size());
+        counts.forEach((id, count) -> dtos.add(FacetCountDto.builder().id(id).count(count).build()));
+        return dtos;
+    }
+}
@@ -0,0 +1,10 @@
+package com.merchant.demo.service;
+
+/**
+ * Published by {@link ProductSyncService} when a merchant's catalog sync or file import has been written to
+ * staging, and by {@link WebhookProcessor} when a webhook created staging products. {@link ProductMatchingService}
+ * enqueues a matching job before the publishing transaction commits, so the job exists exactly when the staging
+ * rows do; a job queue worker runs it after commit.
+ */
+public record CatalogSyncedEvent(Integer merchantId) {
+}
@@ -0,0 +1,393 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.repository.ProductFacetRepository.ProductFacets;
+
+import java.util.*;
+
+/**
+ * In-memory faceted filter over storefront products: one bitmap (over product slots) per brand, per category
+ * (holding the products of the category and of all its descendants) and per option value, plus each product's
+ * lowest offer price.
+ * <p>
+ * A query ORs the selected values within a facet, ANDs the facets and counts every facet value against the
+ * filters of the other facets (so selecting a brand still shows the other brands' counts). Counting is a
+ * word-wise AND + popcount per value, with no per-product work apart from the price range scan.
+ * <p>
+ * Options are matched per variant: {@code Color=Red&Size=M} finds products with a Red/M variant, not products
+ * with a Red/S and a Blue/M one. Each product's variant option combinations also get slots (contiguous per
+ * product) and per-value bitmaps over them; queries selecting two or more option facets AND those and map the
+ * matching variants back to their products. With at most one option facet involved, the product bitmaps give
+ * the same answer and are used directly.
+ * <p>
+ * Products are updated in place ({@link #upsert}, {@link #remove}); slots are never reused, so removed and
+ * re-indexed products leave dead slots until the index is rebuilt. Slots of a full build are in product id
+ * order, which is the order of result pages. Not thread-safe.
+ */
+public final class FacetIndex {
+
+    private static final long NO_PRICE = -1L;
+
+    private final Map<Integer, Integer> categoryParents;
+    private final Map<Integer, Integer> slotByProductId = new HashMap<>();
+    private int[] productIdBySlot = new int[1024];
+    private ProductFacets[] facetsBySlot = new ProductFacets[1024];
+    private long[] priceBySlot = new long[1024];
+    private int slotCount;
+    private long productIdSum;
+    private long[] alive = new long[0];
+    private final Map<Integer, long[]> brandBits = new HashMap<>();
+    private final Map<Integer, long[]> categoryBits = new HashMap<>();
+    private final Map<String, Map<String, long[]>> optionBits = new HashMap<>();
+    private int[] firstVariantSlotBySlot = new int[1024];
+    private int[] variantCapacityBySlot = new int[1024];
+    private int[] slotByVariantSlot = new int[1024];
+    private int variantSlotCount;
+    private int variantCount;
+    private final Map<String, Map<String, long[]>> variantOptionBits = new HashMap<>();
+
+    /** @param categoryParents category id -> parent id, for every category that has a parent */
+    public FacetIndex(Map<Integer, Integer> categoryParents) {
+        this.categoryParents = Map.copyOf(categoryParents);
+    }
+
+    /** Number of indexed products. */
+    public int size() {
+        return slotByProductId.size();
+    }
+
+    /** Slots in use, including dead ones. */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /** Number of indexed variant option combinations. */
+    public int variantCount() {
+        return variantCount;
+    }
+
+    /** Variant slots in use, including dead and spare ones. */
+    public int variantSlotCount() {
+        return variantSlotCount;
+    }
+
+    /** Sum of the indexed product ids, compared with the documents to detect missed additions and removals. */
+    public long productIdSum() {
+        return productIdSum;
+    }
+
+    public Set<Integer> productIds() {
+        return new HashSet<>(slotByProductId.keySet());
+    }
+
+    /** Index a product, replacing its previous facets. */
+    public void upsert(ProductFacets product) {
+        Integer slot = slotByProductId.get(product.productId());
+        if (slot != null) {
+            unindex(slot);
+        } else {
+            slot = slotCount++;
+            if (slot == productIdBySlot.length) {
+                int capacity = productIdBySlot.length * 2;
+                productIdBySlot = Arrays.copyOf(productIdBySlot, capacity);
+                facetsBySlot = Arrays.copyOf(facetsBySlot, capacity);
+                priceBySlot = Arrays.copyOf(priceBySlot, capacity);
+                firstVariantSlotBySlot = Arrays.copyOf(firstVariantSlotBySlot, capacity);
+                variantCapacityBySlot = Arrays.copyOf(variantCapacityBySlot, capacity);
+            }
+            productIdBySlot[slot] = product.productId();
+            slotByProductId.put(product.productId(), slot);
+            productIdSum += product.productId();
+        }
+        index(slot, product);
+    }
+
+    public void remove(int productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) return;
+        productIdSum -= productId;
+        unindex(slot);
+    }
+
+    private void index(int slot, ProductFacets product) {
+        facetsBySlot[slot] = product;
+        priceBySlot[slot] = product.fromPriceMinor() != null ? product.fromPriceMinor() : NO_PRICE;
+        alive = set(alive, slot);
+        if (product.brandId() != null) {
+            brandBits.compute(product.brandId(), (k, bits) -> set(bits, slot));
+        }
+        for (Integer categoryId : withAncestors(product.categoryIds())) {
+            categoryBits.compute(categoryId, (k, bits) -> set(bits, slot));
+        }
+        List<Map<String, String>> variants = product.variantOptions();
+        // A product keeps its variant slots while its combinations fit, so updates leave no dead variant slots
+        if (variants.size() > variantCapacityBySlot[slot]) {
+            firstVariantSlotBySlot[slot] = variantSlotCount;
+            variantCapacityBySlot[slot] = variants.size();
+            variantSlotCount += variants.size();
+            if (variantSlotCount > slotByVariantSlot.length) {
+                slotByVariantSlot = Arrays.copyOf(slotByVariantSlot, Math.max(variantSlotCount, slotByVariantSlot.length * 2));
+            }
+        }
+        int first = firstVariantSlotBySlot[slot];
+        for (int i = 0; i < variants.size(); i++) {
+            int variantSlot = first + i;
+            slotByVariantSlot[variantSlot] = slot;
+            variants.get(i).forEach((name, value) -> {
+                optionBits.computeIfAbsent(name, k -> new HashMap<>()).compute(value, (k, bits) -> set(bits, slot));
+                variantOptionBits.computeIfAbsent(name, k -> new HashMap<>())
+                        .compute(value, (k, bits) -> set(bits, variantSlot));
+            });
+        }
+        variantCount += variants.size();
+    }
+
+    private void unindex(int slot) {
+        ProductFacets product = facetsBySlot[slot];
+        facetsBySlot[slot] = null;
+        priceBySlot[slot] = NO_PRICE;
+        clear(alive, slot);
+        if (product == null) return;
+        if (product.brandId() != null) clear(brandBits.get(product.brandId()), slot);
+        for (Integer categoryId : withAncestors(product.categoryIds())) {
+            clear(categoryBits.get(categoryId), slot);
+        }
+        List<Map<String, String>> variants = product.variantOptions();
+        int first = firstVariantSlotBySlot[slot];
+        for (int i = 0; i < variants.size(); i++) {
+            int variantSlot = first + i;
+            variants.get(i).forEach((name, value) -> {
+                clear(optionBits.get(name).get(value), slot);
+                clear(variantOptionBits.get(name).get(value), variantSlot);
+            });
+        }
+        variantCount -= variants.size();
+    }
+
+    private Set<Integer> withAncestors(List<Integer> categoryIds) {
+        Set<Integer> all = new HashSet<>();
+        for (Integer categoryId : categoryIds) {
+            Integer c = categoryId;
+            // add() returning false also stops on a cycle in the category tree
+            while (c != null && all.add(c)) {
+                c = categoryParents.get(c);
+            }
+        }
+        return all;
+    }
+
+    /** Matching products (page {@code offset}, {@code limit}) and facet counts. */
+    public Result query(FacetQuery query, int offset, int limit) {
+        int words = alive.length;
+        long[] brandMask = query.brandIds().isEmpty() ? null : union(brandBits, query.brandIds(), words);
+        long[] categoryMask = query.categoryIds().isEmpty() ? null : union(categoryBits, query.categoryIds(), words);
+        Map<String, Set<String>> selected = new HashMap<>();
+        query.options().forEach((name, values) -> {
+            if (!values.isEmpty()) selected.put(name, values);
+        });
+        long[] priceMask = query.minPriceMinor() == null && query.maxPriceMinor() == null
+                ? null
+                : priceMask(query.minPriceMinor(), query.maxPriceMinor(), words);
+
+        long[] optionMask = optionMask(selected, words);
+        long[] matches = and(words, brandMask, categoryMask, priceMask, optionMask);
+
+        Map<Integer, Integer> brandCounts = counts(brandBits,
+                brandMask == null ? matches : and(words, null, categoryMask, priceMask, optionMask));
+        Map<Integer, Integer> categoryCounts = counts(categoryBits,
+                categoryMask == null ? matches : and(words, brandMask, null, priceMask, optionMask));
+        long[] filtered = and(words, brandMask, categoryMask, priceMask, null);
+        Map<String, Map<String, Integer>> optionCounts = new TreeMap<>();
+        optionBits.forEach((name, byValue) -> {
+            // Variants matching the other option facets; without any, product bits count the same
+            long[] others = variantMatches(selected, name);
+            Map<String, Integer> valueCounts = others == null
+                    ? counts(byValue, filtered)
+                    : variantCounts(variantOptionBits.get(name), others, filtered);
+            if (!valueCounts.isEmpty()) optionCounts.put(name, valueCounts);
+        });
+        long[] priceBase = priceMask == null ? matches : and(words, brandMask, categoryMask, null, optionMask);
+
+        return new Result(cardinality(matches), page(matches, offset, limit), brandCounts, categoryCounts,
+                optionCounts, priceBound(priceBase, true), priceBound(priceBase, false));
+    }
+
+    /** alive AND every given mask, skipping null masks. */
+    private long[] and(int words, long[] brandMask, long[] categoryMask, long[] priceMask, long[] optionMask) {
+        long[] result = Arrays.copyOf(alive, words);
+        andInto(result, brandMask);
+        andInto(result, categoryMask);
+        andInto(result, priceMask);
+        andInto(result, optionMask);
+        return result;
+    }
+
+    /** Products with a variant having one of the selected values of every selected option; null without any. */
+    private long[] optionMask(Map<String, Set<String>> selected, int words) {
+        if (selected.isEmpty()) return null;
+        if (selected.size() == 1) {
+            Map.Entry<String, Set<String>> only = selected.entrySet().iterator().next();
+            return union(optionBits.getOrDefault(only.getKey(), Map.of()), only.getValue(), words);
+        }
+        long[] variants = variantMatches(selected, null);
+        long[] products = new long[words];
+        for (int variantSlot = nextSetBit(variants, 0); variantSlot >= 0; variantSlot = nextSetBit(variants, variantSlot + 1)) {
+            int slot = slotByVariantSlot[variantSlot];
+            products[slot >>> 6] |= 1L << slot;
+        }
+        return products;
+    }
+
+    /** Variant slots matching every selected option except {@code except}; null when none is left. */
+    private long[] variantMatches(Map<String, Set<String>> selected, String except) {
+        int words = (variantSlotCount + 63) >>> 6;
+        long[] result = null;
+        for (Map.Entry<String, Set<String>> option : selected.entrySet()) {
+            if (option.getKey().equals(except)) continue;
+            long[] mask = union(variantOptionBits.getOrDefault(option.getKey(), Map.of()), option.getValue(), words);
+            if (result == null) {
+                result = mask;
+            } else {
+                andInto(result, mask);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Per value, the products in {@code products} with a variant that has the value and is in {@code variants}.
+     * A product's variant slots are contiguous, so comparing with the previous match counts each product once.
+     */
+    private Map<String, Integer> variantCounts(Map<String, long[]> bitsByValue, long[] variants, long[] products) {
+        List<Map.Entry<String, Integer>> counted = new ArrayList<>();
+        bitsByValue.forEach((value, bits) -> {
+            int count = 0;
+            int previous = -1;
+            for (int i = 0, n = Math.min(bits.length, variants.length); i < n; i++) {
+                long word = bits[i] & variants[i];
+                while (word != 0) {
+                    int slot = slotByVariantSlot[(i << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                    if (slot != previous && (products[slot >>> 6] & (1L << slot)) != 0) count++;
+                    previous = slot;
+                }
+            }
+            if (count > 0) counted.add(Map.entry(value, count));
+        });
+        return sorted(counted);
+    }
+
+    private long[] priceMask(Long min, Long max, int words) {
+        long lo = min != null ? min : 0L;
+        long hi = max != null ? max : Long.MAX_VALUE;
+        long[] mask = new long[words];
+        for (int slot = nextSetBit(alive, 0); slot >= 0; slot = nextSetBit(alive, slot + 1)) {
+            long price = priceBySlot[slot];
+            if (price != NO_PRICE && price >= lo && price <= hi) mask[slot >>> 6] |= 1L << slot;
+        }
+        return mask;
+    }
+
+    private Long priceBound(long[] base, boolean lowest) {
+        long bound = NO_PRICE;
+        for (int slot = nextSetBit(base, 0); slot >= 0; slot = nextSetBit(base, slot + 1)) {
+            long price = priceBySlot[slot];
+            if (price == NO_PRICE) continue;
+            if (bound == NO_PRICE || (lowest ? price < bound : price > bound)) bound = price;
+        }
+        return bound == NO_PRICE ? null : bound;
+    }
+
+    private List<Integer> page(long[] matches, int offset, int limit) {
+        List<Integer> productIds = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        for (int slot = nextSetBit(matches, 0); slot >= 0 && productIds.size() < limit; slot = nextSetBit(matches, slot + 1)) {
+            if (skipped++ < offset) continue;
+            productIds.add(productIdBySlot[slot]);
+        }
+        return productIds;
+    }
+
+    /** Non-zero counts of each value within {@code base}, highest first (ties by value). */
+    private static <K extends Comparable<K>> Map<K, Integer> counts(Map<K, long[]> bitsByValue, long[] base) {
+        List<Map.Entry<K, Integer>> counted = new ArrayList<>();
+        bitsByValue.forEach((value, bits) -> {
+            int count = andCardinality(base, bits);
+            if (count > 0) counted.add(Map.entry(value, count));
+        });
+        return sorted(counted);
+    }
+
+    private static <K extends Comparable<K>> Map<K, Integer> sorted(List<Map.Entry<K, Integer>> counted) {
+        counted.sort(Map.Entry.<K, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<K, Integer> result = new LinkedHashMap<>(counted.size() * 2);
+        counted.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    private static <K> long[] union(Map<K, long[]> bitsByValue, Collection<K> values, int words) {
+        long[] result = new long[words];
+        for (K value : values) {
+            long[] bits = bitsByValue.get(value);
+            if (bits == null) continue;
+            for (int i = 0, n = Math.min(bits.length, words); i < n; i++) {
+                result[i] |= bits[i];
+            }
+        }
+        return result;
+    }
+
+    private static void andInto(long[] target, long[] mask) {
+        if (mask == null) return;
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= i < mask.length ? mask[i] : 0L;
+        }
+    }
+
+    private static int andCardinality(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    private static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int i = from >>> 6;
+        if (i >= bits.length) return -1;
+        long word = bits[i] & (-1L << from);
+        while (true) {
+            if (word != 0) return (i << 6) + Long.numberOfTrailingZeros(word);
+            if (++i == bits.length) return -1;
+            word = bits[i];
+        }
+    }
+
+    private static long[] set(long[] bits, int slot) {
+        int word = slot >>> 6;
+        if (bits == null || word >= bits.length) {
+            bits = Arrays.copyOf(bits != null ? bits : new long[0], Math.max(word + 1, bits != null ? bits.length * 2 : 1));
+        }
+        bits[word] |= 1L << slot;
+        return bits;
+    }
+
+    private static void clear(long[] bits, int slot) {
+        if (bits != null && slot >>> 6 < bits.length) bits[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /** Empty collections and null prices do not filter. Option names and values must be normalized. */
+    public record FacetQuery(Set<Integer> brandIds, Set<Integer> categoryIds, Map<String, Set<String>> options,
+                             Long minPriceMinor, Long maxPriceMinor) {}
+
+    public record Result(int total, List<Integer> productIds, Map<Integer, Integer> brandCounts,
+                         Map<Integer, Integer> categoryCounts, Map<String, Map<String, Integer>> optionCounts,
+                         Long minPriceMinor, Long maxPriceMinor) {}
+}
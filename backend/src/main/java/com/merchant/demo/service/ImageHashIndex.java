@@ -0,0 +1,152 @@
+package com.merchant.demo.service;
+
+import java.util.*;
+
+/**
+ * Immutable nearest-neighbour index over the 64-bit perceptual hashes (dHash) of master product images.
+ * <p>
+ * Multi-index hashing: every hash is filed under each of its four 16-bit chunks. Two hashes within Hamming
+ * distance {@value #MAX_DISTANCE} differ in at most one bit in at least one chunk (pigeonhole), so a lookup only
+ * visits the buckets of each query chunk and its 16 one-bit neighbours (68 of 262,144 buckets) instead of
+ * scanning every hash. Bucket contents are stored contiguously (hash and product id side by side in flat
+ * primitive arrays) so each visited bucket is a sequential scan; the index costs 48 bytes per image.
+ */
+public final class ImageHashIndex {
+
+    /** Largest Hamming distance the chunk buckets answer exactly. */
+    public static final int MAX_DISTANCE = 7;
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = Long.SIZE / CHUNKS;
+    private static final int CHUNK_VALUES = 1 << CHUNK_BITS;
+    private static final int BUCKETS = CHUNKS * CHUNK_VALUES;
+
+    private final String fingerprint;
+    private final int size;
+    /** Entries of bucket k are at [bucketStart[k], bucketStart[k + 1]) of bucketHashes / bucketProductIds. */
+    private final int[] bucketStart;
+    private final long[] bucketHashes;
+    private final int[] bucketProductIds;
+
+    private ImageHashIndex(String fingerprint, int size, int[] bucketStart, long[] bucketHashes, int[] bucketProductIds) {
+        this.fingerprint = fingerprint;
+        this.size = size;
+        this.bucketStart = bucketStart;
+        this.bucketHashes = bucketHashes;
+        this.bucketProductIds = bucketProductIds;
+    }
+
+    public static Builder builder(String fingerprint) {
+        return new Builder(fingerprint);
+    }
+
+    /**
+     * Hashes of flat images (solid colour, blank placeholders) have all bits equal and would match each other
+     * regardless of what they show; they are not indexed or looked up.
+     */
+    public static boolean isInformative(long hash) {
+        return hash != 0L && hash != -1L;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /** Number of indexed images. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Master products with an image within {@code maxDistance} bits of any of the given hashes, closest first
+     * (ties by product id), one entry per product, at most {@code limit}.
+     */
+    public List<ImageMatch> nearest(long[] queries, int maxDistance, int limit) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + MAX_DISTANCE);
+        }
+        // Some chunk differs by at most maxDistance / CHUNKS bits: 0 or 1
+        boolean flipOneBit = maxDistance >= CHUNKS;
+        Map<Integer, Integer> best = new HashMap<>();
+        for (long query : queries) {
+            if (!isInformative(query)) continue;
+            for (int c = 0; c < CHUNKS; c++) {
+                int value = chunk(query, c);
+                scan(c * CHUNK_VALUES + value, query, maxDistance, best);
+                if (!flipOneBit) continue;
+                for (int bit = 0; bit < CHUNK_BITS; bit++) {
+                    scan(c * CHUNK_VALUES + (value ^ (1 << bit)), query, maxDistance, best);
+                }
+            }
+        }
+        if (best.isEmpty()) return List.of();
+        List<ImageMatch> matches = new ArrayList<>(best.size());
+        best.forEach((productId, distance) -> matches.add(new ImageMatch(productId, distance)));
+        matches.sort(Comparator.comparingInt(ImageMatch::distance).thenComparingInt(ImageMatch::productId));
+        return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+    }
+
+    private void scan(int bucket, long query, int maxDistance, Map<Integer, Integer> best) {
+        for (int e = bucketStart[bucket], end = bucketStart[bucket + 1]; e < end; e++) {
+            int distance = Long.bitCount(bucketHashes[e] ^ query);
+            if (distance <= maxDistance) {
+                best.merge(bucketProductIds[e], distance, Math::min);
+            }
+        }
+    }
+
+    private static int chunk(long hash, int c) {
+        return (int) ((hash >>> (c * CHUNK_BITS)) & (CHUNK_VALUES - 1));
+    }
+
+    public record ImageMatch(int productId, int distance) {}
+
+    /** Collects (product, hash) pairs in primitive arrays; not thread-safe. */
+    public static final class Builder {
+
+        private final String fingerprint;
+        private long[] hashes = new long[1024];
+        private int[] productIds = new int[1024];
+        private int size;
+
+        private Builder(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public Builder add(int productId, long hash) {
+            if (!isInformative(hash)) return this;
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                productIds = Arrays.copyOf(productIds, size * 2);
+            }
+            hashes[size] = hash;
+            productIds[size] = productId;
+            size++;
+            return this;
+        }
+
+        public ImageHashIndex build() {
+            // Counting sort of (chunk, image) pairs by bucket
+            int[] start = new int[BUCKETS + 1];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < CHUNKS; c++) {
+                    start[c * CHUNK_VALUES + chunk(hashes[i], c) + 1]++;
+                }
+            }
+            for (int k = 0; k < BUCKETS; k++) {
+                start[k + 1] += start[k];
+            }
+            int[] next = Arrays.copyOf(start, BUCKETS);
+            long[] bucketHashes = new long[size * CHUNKS];
+            int[] bucketProductIds = new int[size * CHUNKS];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < CHUNKS; c++) {
+                    int slot = next[c * CHUNK_VALUES + chunk(hashes[i], c)]++;
+                    bucketHashes[slot] = hashes[i];
+                    bucketProductIds[slot] = productIds[i];
+                }
+            }
+            return new ImageHashIndex(fingerprint, size, start, bucketHashes, bucketProductIds);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.MatchingProperties;
+import com.merchant.demo.repository.ImageHashRepository;
+import com.merchant.demo.service.ImageHashIndex.ImageMatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds master products whose images are near-duplicates of a staging product's images.
+ * <p>
+ * The perceptual hashes of all active master products' mirrored images are held in an {@link ImageHashIndex}
+ * that is rebuilt and swapped atomically when the underlying tables change (checked by fingerprint on a fixed
+ * delay), so a matching batch costs one staging hash query plus in-memory lookups. Staging images only have a
+ * hash once the media mirror has downloaded them; until then they simply produce no image suggestion.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageSimilarityService {
+
+    /** Change log rows kept; well above the refresh interval, a purge only costs one rebuild. */
+    static final int CHANGE_LOG_RETENTION_HOURS = 24;
+
+    private final ImageHashRepository imageHashRepository;
+    private final MatchingProperties matchingProperties;
+    private final AtomicReference<ImageHashIndex> index = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (matchingProperties.isImageMatchingEnabled()) refreshIndex();
+    }
+
+    @Scheduled(fixedDelayString = "${app.matching.image-index-refresh-ms:300000}",
+            initialDelayString = "${app.matching.image-index-refresh-ms:300000}")
+    public void scheduledRefresh() {
+        if (!matchingProperties.isImageMatchingEnabled()) return;
+        try {
+            refreshIndex();
+        } catch (Exception e) {
+            // Keep serving the previous index
+            log.error("Refreshing the image hash index failed", e);
+        }
+    }
+
+    @Scheduled(cron = "0 50 4 * * *", zone = "UTC")
+    public void purgeChangeLog() {
+        int deleted = imageHashRepository.purgeChangeLog(CHANGE_LOG_RETENTION_HOURS);
+        if (deleted > 0) log.info("Purged {} image index change log rows", deleted);
+    }
+
+    /** Rebuild the index if master images or their hashes changed; returns the current index. */
+    public synchronized ImageHashIndex refreshIndex() {
+        ImageHashIndex current = index.get();
+        String fingerprint = imageHashRepository.findMasterHashesFingerprint();
+        if (current != null && current.fingerprint().equals(fingerprint)) {
+            return current;
+        }
+        long start = System.currentTimeMillis();
+        ImageHashIndex.Builder builder = ImageHashIndex.builder(fingerprint);
+        imageHashRepository.forEachMasterHash(builder::add);
+        ImageHashIndex next = builder.build();
+        index.set(next);
+        log.info("Loaded image hash index: {} master images in {}ms", next.size(), System.currentTimeMillis() - start);
+        return next;
+    }
+
+    public ImageHashIndex currentIndex() {
+        ImageHashIndex current = index.get();
+        return current != null ? current : refreshIndex();
+    }
+
+    /** Closest master product per staging product, for the staging products with a near-duplicate image. */
+    public Map<Integer, ImageMatch> findClosestProducts(Collection<Integer> stagingIds) {
+        if (!matchingProperties.isImageMatchingEnabled() || stagingIds.isEmpty()) return Map.of();
+        Map<Integer, long[]> stagingHashes = imageHashRepository.findStagingHashes(stagingIds);
+        if (stagingHashes.isEmpty()) return Map.of();
+
+        ImageHashIndex current = currentIndex();
+        Map<Integer, ImageMatch> closest = new HashMap<>(stagingHashes.size() * 2);
+        stagingHashes.forEach((stagingId, hashes) -> {
+            List<ImageMatch> matches = current.nearest(hashes, matchingProperties.getImageMaxDistance(), 1);
+            if (!matches.isEmpty()) closest.put(stagingId, matches.get(0));
+        });
+        return closest;
+    }
+}
@@ -0,0 +1,91 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.InventorySyncProperties;
+import com.merchant.demo.dto.InventorySyncResultDto;
+import com.merchant.demo.dto.ShopifyConfig;
+import com.merchant.demo.dto.shopify.VariantInventoryResponse.VariantInventoryNode;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.OfferSyncWriter.SyncedVariant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Stock-only sync: fetches just variant ids and inventory quantities from Shopify and applies them to the
+ * merchant's live offers (keyed by external_variant_id) through {@link OfferSyncWriter}. Much cheaper than
+ * a catalog sync, so it runs on a short fixed delay for every configured merchant: each tick only enqueues a
+ * {@link JobQueue#MERCHANT_INVENTORY_SYNC} job per merchant, which is merged into one still waiting, so
+ * replicas share the sweep and it never overlaps the merchant's other jobs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventorySyncService {
+
+    private final MerchantRepository merchantRepository;
+    private final ShopifyAdapter shopifyAdapter;
+    private final OfferSyncWriter offerSyncWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final InventorySyncProperties inventorySyncProperties;
+    private final JobQueue jobQueue;
+
+    @Scheduled(fixedDelayString = "${app.inventory-sync.interval-ms:300000}",
+            initialDelayString = "${app.inventory-sync.interval-ms:300000}")
+    public void syncAllMerchants() {
+        if (!inventorySyncProperties.isEnabled()) return;
+        for (Merchant merchant : merchantRepository.findByIsActiveTrueOrderByName()) {
+            if (!"SHOPIFY".equals(merchant.getSourceType()) || !Boolean.TRUE.equals(merchant.getShopifyConfigured())) {
+                continue;
+            }
+            try {
+                jobQueue.enqueueForMerchant(JobQueue.MERCHANT_INVENTORY_SYNC, merchant.getId(),
+                        JobQueue.PRIORITY_BACKGROUND);
+            } catch (Exception e) {
+                log.error("Enqueueing the inventory sync of merchant {} failed", merchant.getId(), e);
+            }
+        }
+    }
+
+    public InventorySyncResultDto syncInventory(Integer merchantId) {
+        long start = System.currentTimeMillis();
+        Merchant merchant = merchantRepository.findById(merchantId)
+                .orElseThrow(() -> new NoSuchElementException("Merchant not found: " + merchantId));
+        if (!"SHOPIFY".equals(merchant.getSourceType())) {
+            throw new IllegalArgumentException("Merchant " + merchantId
+                    + " imports catalog files; its stock comes with the file");
+        }
+
+        // Fetch outside the transaction: no connection is held while paging through Shopify
+        List<VariantInventoryNode> levels = shopifyAdapter.fetchInventoryLevels(parseConfig(merchant.getSourceConfig()));
+        List<SyncedVariant> variants = levels.stream()
+                .map(l -> new SyncedVariant(l.id(), null, l.inventoryQuantity()))
+                .toList();
+        Integer updated = transactionTemplate.execute(status ->
+                offerSyncWriter.applyChanges(merchantId, variants, Instant.now()).size());
+
+        long duration = System.currentTimeMillis() - start;
+        log.info("Inventory sync for merchant {}: {} variants, {} offers updated in {}ms",
+                merchantId, levels.size(), updated, duration);
+        return new InventorySyncResultDto(levels.size(), updated != null ? updated : 0, duration);
+    }
+
+    private ShopifyConfig parseConfig(String jsonConfig) {
+        try {
+            return objectMapper.readValue(jsonConfig, ShopifyConfig.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid Merchant Config");
+        }
+    }
+}
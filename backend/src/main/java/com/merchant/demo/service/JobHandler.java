@@ -0,0 +1,36 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Executes one type of {@link JobQueue} job. Handlers must be idempotent: a job whose worker dies is run again.
+ */
+public interface JobHandler {
+
+    String jobType();
+
+    /**
+     * @param payload the job's JSON payload
+     * @return a result to store on the job (serialized to JSON), or null
+     */
+    Object handle(JsonNode payload) throws Exception;
+
+    static JobHandler of(String jobType, ThrowingFunction handler) {
+        return new JobHandler() {
+            @Override
+            public String jobType() {
+                return jobType;
+            }
+
+            @Override
+            public Object handle(JsonNode payload) throws Exception {
+                return handler.apply(payload);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface ThrowingFunction {
+        Object apply(JsonNode payload) throws Exception;
+    }
+}
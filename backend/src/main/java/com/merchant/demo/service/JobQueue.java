@@ -0,0 +1,102 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.JobProperties;
+import com.merchant.demo.dto.admin.JobDto;
+import com.merchant.demo.repository.JobRepository;
+import com.merchant.demo.repository.JobRepository.JobRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Enqueues background work into the Postgres job queue ({@code jobs}); {@link JobWorkerPool} runs it on any
+ * instance. Enqueueing inside a transaction makes the job part of it: it only becomes visible on commit.
+ * <p>
+ * Merchant jobs share the concurrency key {@code merchant:<id>}, so a merchant's sync, matching and
+ * repricing never overlap, and are deduplicated while queued.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobQueue {
+
+    public static final String MERCHANT_SYNC = "merchant.sync";
+    public static final String MERCHANT_INVENTORY_SYNC = "merchant.inventory-sync";
+    public static final String MERCHANT_MATCHING = "merchant.matching";
+    public static final String MERCHANT_REPRICE = "merchant.reprice";
+
+    public static final Set<String> JOB_TYPES = Set.of(MERCHANT_SYNC, MERCHANT_INVENTORY_SYNC, MERCHANT_MATCHING, MERCHANT_REPRICE);
+
+    /** User-triggered work. */
+    public static final int PRIORITY_INTERACTIVE = 10;
+    /** Follow-up work triggered by events. */
+    public static final int PRIORITY_DEFAULT = 100;
+    /** Periodic housekeeping. */
+    public static final int PRIORITY_BACKGROUND = 200;
+
+    private final JobRepository jobRepository;
+    private final JobProperties jobProperties;
+    private final ObjectMapper objectMapper;
+
+    /** Enqueue a merchant-scoped job, merged into an identical one that is still waiting. */
+    public long enqueueForMerchant(String jobType, Integer merchantId, int priority) {
+        String key = "merchant:" + merchantId;
+        return enqueue(jobType, Map.of("merchant_id", merchantId), priority, key, key);
+    }
+
+    public long enqueue(String jobType, Object payload, int priority, String concurrencyKey, String dedupeKey) {
+        if (!JOB_TYPES.contains(jobType)) {
+            throw new IllegalArgumentException("Unknown job type: " + jobType);
+        }
+        return jobRepository.enqueue(jobType, toJson(payload != null ? payload : Map.of()), priority, concurrencyKey,
+                dedupeKey, jobProperties.getMaxAttempts(), Instant.now());
+    }
+
+    public JobDto getJob(long jobId) {
+        return jobRepository.findById(jobId)
+                .map(this::toDto)
+                .orElseThrow(() -> new NoSuchElementException("Job not found: " + jobId));
+    }
+
+    JobDto toDto(JobRow row) {
+        return JobDto.builder()
+                .id(row.id())
+                .jobType(row.jobType())
+                .status(row.status())
+                .priority(row.priority())
+                .concurrencyKey(row.concurrencyKey())
+                .attempts(row.attempts())
+                .maxAttempts(row.maxAttempts())
+                .payload(readTree(row.payloadJson()))
+                .result(readTree(row.resultJson()))
+                .lastError(row.lastError())
+                .runAfter(row.runAfter())
+                .createdAt(row.createdAt())
+                .startedAt(row.startedAt())
+                .finishedAt(row.finishedAt())
+                .build();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Job payload is not serializable", e);
+        }
+    }
+
+    private JsonNode readTree(String json) {
+        if (json == null) return null;
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.JobProperties;
+import com.merchant.demo.repository.JobRepository;
+import com.merchant.demo.repository.JobRepository.JobRow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Worker threads that claim and run {@link JobQueue} jobs on this instance.
+ * <p>
+ * Each worker claims one job at a time (SKIP LOCKED, so instances share the queue without a broker) and
+ * dispatches it to the {@link JobHandler} registered for its type. Leases of running jobs are renewed on a
+ * fixed delay by a thread of the pool's own, so a long task on the shared Spring scheduler cannot let them lapse;
+ * jobs of a crashed instance are requeued once their lease runs out.
+ */
+@Component
+@Slf4j
+public class JobWorkerPool {
+
+    private final JobRepository jobRepository;
+    private final JobProperties jobProperties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, JobHandler> handlers;
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private ExecutorService executor;
+    private ScheduledExecutorService leaseRenewer;
+
+    public JobWorkerPool(JobRepository jobRepository, JobProperties jobProperties, ObjectMapper objectMapper,
+                         List<JobHandler> handlers) {
+        this.jobRepository = jobRepository;
+        this.jobProperties = jobProperties;
+        this.objectMapper = objectMapper;
+        this.handlers = handlers.stream().collect(Collectors.toUnmodifiableMap(JobHandler::jobType, Function.identity()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (leaseRenewer == null) {
+            // Runs without workers too: expired leases of other instances still need requeueing
+            leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "job-lease-renewer");
+                t.setDaemon(true);
+                return t;
+            });
+            long delay = jobProperties.getHeartbeatMs();
+            leaseRenewer.scheduleWithFixedDelay(this::heartbeat, delay, delay, TimeUnit.MILLISECONDS);
+        }
+        if (!jobProperties.isWorkersEnabled() || running) return;
+        running = true;
+        int workers = jobProperties.getWorkers();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r);
+            t.setName("job-worker-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::workLoop);
+        }
+        log.info("Started {} job workers on {} (handlers: {})", workers, instanceId, handlers.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                // Unfinished jobs are requeued by their lease expiring
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Only after the workers: jobs finishing during shutdown keep their leases
+        if (leaseRenewer != null) leaseRenewer.shutdownNow();
+    }
+
+    /** Renew this instance's leases and requeue jobs whose lease expired anywhere. */
+    void heartbeat() {
+        try {
+            jobRepository.extendLeases(List.copyOf(runningJobs), instanceId, jobProperties.getLeaseMs());
+            int requeued = jobRepository.requeueExpired();
+            if (requeued > 0) log.warn("Requeued {} jobs with expired leases", requeued);
+        } catch (Exception e) {
+            log.error("Job heartbeat failed", e);
+        }
+    }
+
+    @Scheduled(cron = "0 45 4 * * *", zone = "UTC")
+    public void purgeFinished() {
+        int deleted = jobRepository.purgeFinished(jobProperties.getRetentionDays());
+        if (deleted > 0) log.info("Purged {} finished jobs", deleted);
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Optional<JobRow> job = jobRepository.claimNext(instanceId, jobProperties.getLeaseMs());
+                if (job.isPresent()) {
+                    run(job.get());
+                } else {
+                    Thread.sleep(jobProperties.getPollIntervalMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Database unavailable etc.: back off and keep the worker alive
+                log.error("Job worker error", e);
+                try {
+                    Thread.sleep(jobProperties.getPollIntervalMs() * 5);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void run(JobRow job) {
+        JobHandler handler = handlers.get(job.jobType());
+        if (handler == null) {
+            jobRepository.fail(job.id(), instanceId, "No handler for job type " + job.jobType(), 0, true);
+            return;
+        }
+        runningJobs.add(job.id());
+        long start = System.currentTimeMillis();
+        try {
+            Object result = handler.handle(objectMapper.readTree(job.payloadJson()));
+            String resultJson = result != null ? objectMapper.writeValueAsString(result) : null;
+            if (!jobRepository.complete(job.id(), instanceId, resultJson)) {
+                log.warn("Job {} finished after its lease was lost", job.id());
+            }
+            log.info("Job {} ({}) succeeded in {}ms", job.id(), job.jobType(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Missing entities or invalid input will not fix themselves
+            boolean permanent = e instanceof NoSuchElementException || e instanceof IllegalArgumentException;
+            log.warn("Job {} ({}) attempt {} failed: {}", job.id(), job.jobType(), job.attempts(), e.getMessage());
+            jobRepository.fail(job.id(), instanceId, e.getMessage(), jobProperties.getRetryBackoffMs(), permanent);
+        } finally {
+            runningJobs.remove(job.id());
+        }
+    }
+}
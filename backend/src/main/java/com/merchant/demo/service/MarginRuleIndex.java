@@ -0,0 +1,145 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.entity.MarginRule;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * In-memory index over one merchant's active margin rules, so pricing a batch of offers costs
+ * a few hash lookups per offer instead of a query.
+ * <p>
+ * Resolution order, most specific first:
+ * <ol>
+ *     <li>brand + category rule, walking from the product's own categories up to their ancestors</li>
+ *     <li>category-only rule, same walk</li>
+ *     <li>brand-only rule</li>
+ *     <li>merchant-wide rule (no brand, no category)</li>
+ * </ol>
+ * Within one slot the rule valid at the pricing instant with the latest {@code valid_from} wins (then the highest id).
+ */
+public final class MarginRuleIndex {
+
+    private static final int MAX_CATEGORY_DEPTH = 32;
+
+    private final Map<Long, List<MarginRule>> byBrandCategory = new HashMap<>();
+    private final Map<Integer, List<MarginRule>> byCategory = new HashMap<>();
+    private final Map<Integer, List<MarginRule>> byBrand = new HashMap<>();
+    private final List<MarginRule> merchantWide = new ArrayList<>();
+    private final Map<Integer, Integer> categoryParents;
+
+    private MarginRuleIndex(Map<Integer, Integer> categoryParents) {
+        this.categoryParents = categoryParents;
+    }
+
+    /**
+     * @param rules            margin rules of a single merchant; inactive ones are ignored
+     * @param categoryParents  category id to parent id, for rules on ancestor categories
+     */
+    public static MarginRuleIndex build(Collection<MarginRule> rules, Map<Integer, Integer> categoryParents) {
+        MarginRuleIndex index = new MarginRuleIndex(categoryParents != null ? categoryParents : Map.of());
+        for (MarginRule rule : rules) {
+            if (Boolean.FALSE.equals(rule.getIsActive()) || rule.getMarginPercentage() == null || rule.getValidFrom() == null) {
+                continue;
+            }
+            List<MarginRule> slot;
+            if (rule.getBrandId() != null && rule.getCategoryId() != null) {
+                slot = index.byBrandCategory.computeIfAbsent(key(rule.getBrandId(), rule.getCategoryId()), k -> new ArrayList<>(2));
+            } else if (rule.getCategoryId() != null) {
+                slot = index.byCategory.computeIfAbsent(rule.getCategoryId(), k -> new ArrayList<>(2));
+            } else if (rule.getBrandId() != null) {
+                slot = index.byBrand.computeIfAbsent(rule.getBrandId(), k -> new ArrayList<>(2));
+            } else {
+                slot = index.merchantWide;
+            }
+            slot.add(rule);
+        }
+        Comparator<MarginRule> newestFirst = Comparator.comparing(MarginRule::getValidFrom)
+                .thenComparing(MarginRule::getId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .reversed();
+        index.byBrandCategory.values().forEach(l -> l.sort(newestFirst));
+        index.byCategory.values().forEach(l -> l.sort(newestFirst));
+        index.byBrand.values().forEach(l -> l.sort(newestFirst));
+        index.merchantWide.sort(newestFirst);
+        return index;
+    }
+
+    public boolean isEmpty() {
+        return byBrandCategory.isEmpty() && byCategory.isEmpty() && byBrand.isEmpty() && merchantWide.isEmpty();
+    }
+
+    /** The most specific rule valid at {@code at}, or null when none applies (settlement = price). */
+    public MarginRule resolve(Integer brandId, Collection<Integer> categoryIds, Instant at) {
+        boolean categoryRules = !byBrandCategory.isEmpty() || !byCategory.isEmpty();
+        List<Integer> chain = categoryRules && categoryIds != null && !categoryIds.isEmpty()
+                ? categoryChain(categoryIds)
+                : List.of();
+
+        if (brandId != null && !byBrandCategory.isEmpty()) {
+            for (Integer categoryId : chain) {
+                MarginRule rule = firstValid(byBrandCategory.get(key(brandId, categoryId)), at);
+                if (rule != null) return rule;
+            }
+        }
+        for (Integer categoryId : chain) {
+            MarginRule rule = firstValid(byCategory.get(categoryId), at);
+            if (rule != null) return rule;
+        }
+        if (brandId != null) {
+            MarginRule rule = firstValid(byBrand.get(brandId), at);
+            if (rule != null) return rule;
+        }
+        return firstValid(merchantWide, at);
+    }
+
+    /**
+     * Settlement price paid to the merchant: price minus the platform margin, rounded half-up to the minor unit.
+     * No rule means no margin.
+     */
+    public static long settlementPrice(long priceMinor, MarginRule rule) {
+        if (rule == null) return priceMinor;
+        return settlementPrice(priceMinor, rule.getMarginPercentage());
+    }
+
+    public static long settlementPrice(long priceMinor, BigDecimal marginPercentage) {
+        if (marginPercentage == null || marginPercentage.signum() == 0) return priceMinor;
+        long margin = BigDecimal.valueOf(priceMinor)
+                .multiply(marginPercentage)
+                .movePointLeft(2)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+        return Math.max(0, priceMinor - margin);
+    }
+
+    /** Product categories first, then their parents, grandparents, ... (breadth-first, no repeats). */
+    private List<Integer> categoryChain(Collection<Integer> categoryIds) {
+        List<Integer> chain = new ArrayList<>(categoryIds.size() * 3);
+        Set<Integer> seen = new HashSet<>();
+        List<Integer> level = new ArrayList<>(new TreeSet<>(categoryIds));
+        for (int depth = 0; depth < MAX_CATEGORY_DEPTH && !level.isEmpty(); depth++) {
+            List<Integer> parents = new ArrayList<>(level.size());
+            for (Integer categoryId : level) {
+                if (categoryId == null || !seen.add(categoryId)) continue;
+                chain.add(categoryId);
+                Integer parent = categoryParents.get(categoryId);
+                if (parent != null) parents.add(parent);
+            }
+            level = parents;
+        }
+        return chain;
+    }
+
+    private static MarginRule firstValid(List<MarginRule> rules, Instant at) {
+        if (rules == null) return null;
+        for (MarginRule rule : rules) {
+            if (rule.isValidAt(at)) return rule;
+        }
+        return null;
+    }
+
+    private static long key(int brandId, int categoryId) {
+        return ((long) brandId << 32) | (categoryId & 0xffffffffL);
+    }
+}
@@ -0,0 +1,106 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.dto.admin.CreateMarginRuleRequest;
+import com.merchant.demo.dto.admin.MarginRuleDto;
+import com.merchant.demo.entity.MarginRule;
+import com.merchant.demo.repository.BrandRepository;
+import com.merchant.demo.repository.CategoryRepository;
+import com.merchant.demo.repository.MarginRuleRepository;
+import com.merchant.demo.repository.MerchantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Admin CRUD for margin rules. Every change publishes a {@link MarginRulesChangedEvent} so the
+ * merchant's settlement prices are recomputed once the change has committed; rules taking effect or expiring
+ * later are picked up by {@link PricingService#enqueueRepricingForRuleBoundaries()}.
+ */
+@Service
+@RequiredArgsConstructor
+public class MarginRuleService {
+
+    private static final BigDecimal MAX_MARGIN = BigDecimal.valueOf(100);
+
+    private final MarginRuleRepository marginRuleRepository;
+    private final MerchantRepository merchantRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public List<MarginRuleDto> listRules(Integer merchantId) {
+        if (!merchantRepository.existsById(merchantId)) {
+            throw new NoSuchElementException("Merchant not found: " + merchantId);
+        }
+        return marginRuleRepository.findByMerchantIdOrderByValidFromDescIdDesc(merchantId).stream()
+                .map(MarginRuleService::toDto)
+                .toList();
+    }
+
+    @Transactional
+    public MarginRuleDto createRule(Integer merchantId, CreateMarginRuleRequest request) {
+        if (!merchantRepository.existsById(merchantId)) {
+            throw new NoSuchElementException("Merchant not found: " + merchantId);
+        }
+        BigDecimal margin = request.getMarginPercentage();
+        if (margin == null || margin.signum() < 0 || margin.compareTo(MAX_MARGIN) > 0) {
+            throw new IllegalArgumentException("margin_percentage must be between 0 and 100");
+        }
+        if (margin.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("margin_percentage supports at most 2 decimal places");
+        }
+        if (request.getBrandId() != null && !brandRepository.existsById(request.getBrandId())) {
+            throw new IllegalArgumentException("Brand not found: " + request.getBrandId());
+        }
+        if (request.getCategoryId() != null && !categoryRepository.existsById(request.getCategoryId())) {
+            throw new IllegalArgumentException("Category not found: " + request.getCategoryId());
+        }
+        Instant validFrom = request.getValidFrom() != null ? request.getValidFrom() : Instant.now();
+        if (request.getValidTo() != null && !request.getValidTo().isAfter(validFrom)) {
+            throw new IllegalArgumentException("valid_to must be after valid_from");
+        }
+
+        MarginRule rule = marginRuleRepository.save(MarginRule.builder()
+                .merchantId(merchantId)
+                .brandId(request.getBrandId())
+                .categoryId(request.getCategoryId())
+                .marginPercentage(margin)
+                .validFrom(validFrom)
+                .validTo(request.getValidTo())
+                .isActive(true)
+                .build());
+        eventPublisher.publishEvent(new MarginRulesChangedEvent(merchantId));
+        return toDto(rule);
+    }
+
+    /** Soft delete: the rule stays for history but no longer applies. */
+    @Transactional
+    public void deactivateRule(Integer ruleId) {
+        MarginRule rule = marginRuleRepository.findById(ruleId)
+                .orElseThrow(() -> new NoSuchElementException("Margin rule not found: " + ruleId));
+        if (Boolean.FALSE.equals(rule.getIsActive())) return;
+        rule.setIsActive(false);
+        marginRuleRepository.save(rule);
+        eventPublisher.publishEvent(new MarginRulesChangedEvent(rule.getMerchantId()));
+    }
+
+    private static MarginRuleDto toDto(MarginRule rule) {
+        return MarginRuleDto.builder()
+                .id(rule.getId())
+                .merchantId(rule.getMerchantId())
+                .brandId(rule.getBrandId())
+                .categoryId(rule.getCategoryId())
+                .marginPercentage(rule.getMarginPercentage())
+                .validFrom(rule.getValidFrom())
+                .validTo(rule.getValidTo())
+                .isActive(rule.getIsActive())
+                .build();
+    }
+}
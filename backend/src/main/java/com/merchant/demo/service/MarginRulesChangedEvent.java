@@ -0,0 +1,9 @@
+package com.merchant.demo.service;
+
+/**
+ * Published when a merchant's margin rules are created or deactivated. {@link PricingService} enqueues a
+ * repricing job in the rule change's transaction (before commit); a job queue worker then recomputes settlement
+ * prices for all of the merchant's offers.
+ */
+public record MarginRulesChangedEvent(Integer merchantId) {
+}
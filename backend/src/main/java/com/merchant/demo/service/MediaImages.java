@@ -0,0 +1,148 @@
+package com.merchant.demo.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Hashing, format detection and thumbnailing of downloaded images (JDK ImageIO only: JPEG, PNG, GIF, BMP;
+ * other formats are stored without a thumbnail or perceptual hash).
+ */
+final class MediaImages {
+
+    private static final float THUMBNAIL_QUALITY = 0.85f;
+    private static final int DHASH_WIDTH = 9;
+    private static final int DHASH_HEIGHT = 8;
+
+    private MediaImages() {
+    }
+
+    static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** "image/png" etc. from the file's content, or null when ImageIO cannot read it. */
+    static String detectContentType(byte[] content) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) return null;
+            return "image/" + readers.next().getFormatName().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decoded image, or null when the format is not supported or the header declares more than {@code maxPixels}
+     * pixels (checked before any pixel is decoded: a small compressed file can declare a canvas of gigabytes).
+     * Large images are decoded subsampled, keeping their longest edge at least {@code minEdge}, which is all a
+     * thumbnail or dHash needs.
+     */
+    static Decoded decode(byte[] content, long maxPixels, int minEdge) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) return null;
+                int step = Math.max(1, Math.max(width, height) / minEdge);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new Decoded(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** A decoded (possibly subsampled) image and the full size its file declares. */
+    record Decoded(BufferedImage image, int width, int height) {}
+
+    /**
+     * 64-bit difference hash (dHash): the image is shrunk to 9x8 grayscale and each bit says whether a pixel is
+     * brighter than its right neighbour. Re-encoded, resized or lightly recompressed copies of a picture land
+     * within a few bits of each other; compare with {@code Long.bitCount(a ^ b)}.
+     */
+    static long dHash(BufferedImage image) {
+        BufferedImage small = new BufferedImage(DHASH_WIDTH, DHASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = small.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, DHASH_WIDTH, DHASH_HEIGHT);
+            g.drawImage(image, 0, 0, DHASH_WIDTH, DHASH_HEIGHT, null);
+        } finally {
+            g.dispose();
+        }
+        var raster = small.getRaster();
+        long hash = 0;
+        for (int y = 0; y < DHASH_HEIGHT; y++) {
+            for (int x = 0; x < DHASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (raster.getSample(x, y, 0) > raster.getSample(x + 1, y, 0)) hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * JPEG scaled to fit in {@code maxEdge} x {@code maxEdge} with the aspect ratio kept (never upscaled).
+     * Transparent areas are flattened onto white.
+     */
+    static byte[] thumbnailJpeg(BufferedImage image, int maxEdge) {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(THUMBNAIL_QUALITY);
+            writer.write(null, new IIOImage(thumbnail, null, null), param);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode thumbnail", e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
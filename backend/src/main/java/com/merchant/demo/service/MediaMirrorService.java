@@ -0,0 +1,326 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.adapter.MediaStorage;
+import com.merchant.demo.config.MediaProperties;
+import com.merchant.demo.repository.MediaMirrorRepository;
+import com.merchant.demo.repository.MediaMirrorRepository.MediaAsset;
+import com.merchant.demo.repository.MediaMirrorRepository.PendingSource;
+import com.merchant.demo.repository.ProductDocumentRepository;
+import com.merchant.demo.service.PublicAddresses.BlockedAddressException;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.http.client.HttpClientResponse;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors product images (staging_media / media source URLs) into {@link MediaStorage} so pages do not hotlink
+ * merchant CDNs.
+ * <p>
+ * A poller thread of its own claims due source URLs, draining the backlog batch by batch without holding the
+ * shared Spring scheduler, and downloads them on a fixed pool of {@code app.media.download-concurrency} threads. Files are keyed by SHA-256: a download whose content is already stored only links its URL to the
+ * existing asset. Originals get a fixed-size JPEG thumbnail and a perceptual hash (used by image matching) when
+ * ImageIO can decode them.
+ * Mirrored files are served by {@code MediaController}.
+ */
+@Service
+@Slf4j
+public class MediaMirrorService {
+
+    private static final String MEDIA_PATH = "/api/media/";
+
+    private final MediaMirrorRepository mediaMirrorRepository;
+    private final ProductDocumentRepository productDocumentRepository;
+    private final MediaStorage mediaStorage;
+    private final MediaProperties mediaProperties;
+    private final WebClient webClient;
+    private final ExecutorService downloads;
+    private ScheduledExecutorService poller;
+    /** Last asset visited by {@link #backfillHashes()}; null once every older asset has been visited. */
+    private volatile String hashBackfillCursor = "";
+
+    public MediaMirrorService(MediaMirrorRepository mediaMirrorRepository, ProductDocumentRepository productDocumentRepository,
+                              MediaStorage mediaStorage, MediaProperties mediaProperties, WebClient.Builder webClientBuilder) {
+        this.mediaMirrorRepository = mediaMirrorRepository;
+        this.productDocumentRepository = productDocumentRepository;
+        this.mediaStorage = mediaStorage;
+        this.mediaProperties = mediaProperties;
+        // Source URLs come from merchants: only public addresses are connected to, also across redirects
+        HttpClient httpClient = HttpClient.create()
+                .resolver(PublicAddresses.RESOLVER)
+                .followRedirect(MediaMirrorService::isPublicRedirect);
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(mediaProperties.getMaxBytes()))
+                .build();
+        this.downloads = Executors.newFixedThreadPool(mediaProperties.getDownloadConcurrency(), r -> {
+            Thread t = new Thread(r);
+            t.setName("media-mirror-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!mediaProperties.isMirrorEnabled() || poller != null) return;
+        // The first mirror of a catalog drains for hours; keep it off the scheduler the other pollers share
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "media-mirror-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        long delay = mediaProperties.getPollIntervalMs();
+        poller.scheduleWithFixedDelay(this::poll, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (poller != null) poller.shutdownNow();
+        // Unfinished claims become due again after the claim timeout
+        downloads.shutdownNow();
+    }
+
+    void poll() {
+        if (!mediaProperties.isMirrorEnabled()) return;
+        try {
+            int claimed;
+            do {
+                claimed = mirrorDue();
+            } while (claimed >= mediaProperties.getBatchSize());
+            backfillHashes();
+        } catch (Exception e) {
+            log.error("Media mirroring failed", e);
+        }
+    }
+
+    /** Claim one batch of due source URLs and mirror them; returns the number claimed. */
+    public int mirrorDue() throws InterruptedException {
+        List<PendingSource> due = mediaMirrorRepository.claimDue(mediaProperties.getBatchSize(),
+                mediaProperties.getClaimTimeoutMs());
+        if (due.isEmpty()) return 0;
+
+        List<Future<?>> inFlight = new ArrayList<>(due.size());
+        for (PendingSource source : due) {
+            inFlight.add(downloads.submit(() -> mirror(source)));
+        }
+        for (Future<?> f : inFlight) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                log.warn("Media mirror task failed", e.getCause());
+            }
+        }
+        return due.size();
+    }
+
+    /** Perceptually hash one batch of assets mirrored before hashing existed; returns the number hashed. */
+    int backfillHashes() {
+        String after = hashBackfillCursor;
+        if (after == null) return 0;
+        List<String> batch = mediaMirrorRepository.findUnhashedAssets(after, mediaProperties.getBatchSize());
+        if (batch.isEmpty()) {
+            hashBackfillCursor = null;
+            return 0;
+        }
+        int hashed = 0;
+        for (String sha256 : batch) {
+            BufferedImage image = mediaStorage.getOriginal(sha256)
+                    .map(MediaMirrorService::readQuietly)
+                    .map(this::decode)
+                    .map(MediaImages.Decoded::image)
+                    .orElse(null);
+            if (image == null) continue;
+            mediaMirrorRepository.saveHash(sha256, MediaImages.dHash(image));
+            hashed++;
+        }
+        // Files that cannot be read are skipped rather than retried on every poll
+        hashBackfillCursor = batch.get(batch.size() - 1);
+        return hashed;
+    }
+
+    private static byte[] readQuietly(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Public URL of a mirrored original. */
+    public String originalUrl(String sha256) {
+        return mediaUrlPrefix() + sha256;
+    }
+
+    /** Public URL of a mirrored thumbnail (the original when no thumbnail could be made). */
+    public String thumbnailUrl(String sha256) {
+        return mediaUrlPrefix() + sha256 + "/thumbnail";
+    }
+
+    /** Public URLs of mirrored files are this prefix followed by the SHA-256. */
+    public String mediaUrlPrefix() {
+        return mediaProperties.getPublicBaseUrl() + MEDIA_PATH;
+    }
+
+    /** source URL -> SHA-256 of its mirrored file, for the URLs mirrored so far. */
+    public Map<String, String> findMirrored(Collection<String> sourceUrls) {
+        return sourceUrls.isEmpty() ? Map.of() : mediaMirrorRepository.findMirrored(sourceUrls);
+    }
+
+    /** A mirrored original by its SHA-256. */
+    public MirroredFile getOriginal(String sha256) {
+        MediaAsset asset = findAsset(sha256);
+        return mediaStorage.getOriginal(sha256)
+                .map(resource -> new MirroredFile(resource, asset.contentType()))
+                .orElseThrow(() -> new NoSuchElementException("Media file missing: " + sha256));
+    }
+
+    /** The thumbnail of a mirrored original; the original itself when it could not be thumbnailed. */
+    public MirroredFile getThumbnail(String sha256) {
+        MediaAsset asset = findAsset(sha256);
+        if (!asset.hasThumbnail()) return getOriginal(sha256);
+        return mediaStorage.getThumbnail(sha256)
+                .map(resource -> new MirroredFile(resource, MediaType.IMAGE_JPEG_VALUE))
+                .orElseThrow(() -> new NoSuchElementException("Thumbnail missing: " + sha256));
+    }
+
+    private MediaAsset findAsset(String sha256) {
+        if (sha256 == null || !sha256.matches("[0-9a-f]{64}")) {
+            throw new NoSuchElementException("Media not found: " + sha256);
+        }
+        return mediaMirrorRepository.findAsset(sha256)
+                .orElseThrow(() -> new NoSuchElementException("Media not found: " + sha256));
+    }
+
+    void mirror(PendingSource source) {
+        String url = source.sourceUrl();
+        try {
+            URI uri = URI.create(url);
+            PublicAddresses.check(uri);
+            ResponseEntity<byte[]> response = webClient.get()
+                    .uri(uri)
+                    .accept(MediaType.ALL)
+                    .retrieve()
+                    .toEntity(byte[].class)
+                    .block(Duration.ofMillis(mediaProperties.getDownloadTimeoutMs()));
+            if (response != null && response.getStatusCode().is3xxRedirection()) {
+                mediaMirrorRepository.markFailed(url, "Redirect to a non-public or invalid location", true,
+                        mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+                return;
+            }
+            byte[] content = response != null ? response.getBody() : null;
+            if (content == null || content.length == 0) {
+                mediaMirrorRepository.markFailed(url, "Empty response", false, mediaProperties.getMaxAttempts(),
+                        mediaProperties.getRetryBackoffMs());
+                return;
+            }
+
+            String sha256 = MediaImages.sha256Hex(content);
+            if (mediaMirrorRepository.findAsset(sha256).isEmpty()) {
+                MediaType declared = response.getHeaders().getContentType();
+                String contentType = MediaImages.detectContentType(content);
+                if (contentType == null && declared != null && "image".equals(declared.getType())) {
+                    contentType = declared.getType() + "/" + declared.getSubtype();
+                }
+                if (contentType == null || contentType.contains("svg")) {
+                    // SVG is not mirrored: served from our origin it could carry scripts
+                    mediaMirrorRepository.markFailed(url, "Not an image", true, mediaProperties.getMaxAttempts(),
+                            mediaProperties.getRetryBackoffMs());
+                    return;
+                }
+                store(sha256, contentType, content);
+            }
+            mediaMirrorRepository.markMirrored(url, sha256);
+            // Master products showing this URL now have a mirror URL for it
+            productDocumentRepository.enqueueForSourceUrls(List.of(url));
+        } catch (BlockedAddressException e) {
+            mediaMirrorRepository.markFailed(url, "Blocked: " + e.getMessage(), true,
+                    mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (UnknownHostException e) {
+            mediaMirrorRepository.markFailed(url, "Unknown host: " + e.getMessage(), false,
+                    mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (WebClientRequestException e) {
+            // The host changed its DNS answer to a non-public address after the check
+            boolean blocked = NestedExceptionUtils.getRootCause(e) instanceof BlockedAddressException;
+            mediaMirrorRepository.markFailed(url, blocked ? "Blocked: " + NestedExceptionUtils.getRootCause(e).getMessage()
+                            : e.getMessage(), blocked, mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (WebClientResponseException e) {
+            // Gone for good vs. worth retrying (rate limits, CDN hiccups)
+            boolean permanent = e.getStatusCode().is4xxClientError() && e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS
+                    && e.getStatusCode() != HttpStatus.REQUEST_TIMEOUT;
+            mediaMirrorRepository.markFailed(url, "HTTP " + e.getStatusCode().value(), permanent,
+                    mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (DataBufferLimitException e) {
+            mediaMirrorRepository.markFailed(url, "Larger than " + mediaProperties.getMaxBytes() + " bytes", true,
+                    mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (IllegalArgumentException e) {
+            mediaMirrorRepository.markFailed(url, "Invalid URL: " + e.getMessage(), true,
+                    mediaProperties.getMaxAttempts(), mediaProperties.getRetryBackoffMs());
+        } catch (RuntimeException e) {
+            log.debug("Mirroring {} failed", url, e);
+            mediaMirrorRepository.markFailed(url, e.getMessage(), false, mediaProperties.getMaxAttempts(),
+                    mediaProperties.getRetryBackoffMs());
+        }
+    }
+
+    /** Follow a redirect only when its target is an http(s) URL on a public address. */
+    private static boolean isPublicRedirect(HttpClientRequest request, HttpClientResponse response) {
+        int status = response.status().code();
+        if (status != 301 && status != 302 && status != 303 && status != 307 && status != 308) return false;
+        String location = response.responseHeaders().get(HttpHeaderNames.LOCATION);
+        if (location == null) return false;
+        try {
+            PublicAddresses.check(URI.create(request.resourceUrl()).resolve(location));
+            return true;
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void store(String sha256, String contentType, byte[] content) {
+        mediaStorage.putOriginal(sha256, content);
+        MediaImages.Decoded decoded = decode(content);
+        BufferedImage image = decoded != null ? decoded.image() : null;
+        if (image != null) {
+            mediaStorage.putThumbnail(sha256, MediaImages.thumbnailJpeg(image, mediaProperties.getThumbnailSize()));
+        }
+        // The asset row is written last: once it exists, its files do too
+        mediaMirrorRepository.saveAsset(new MediaAsset(sha256, contentType, content.length,
+                decoded != null ? decoded.width() : null, decoded != null ? decoded.height() : null, image != null,
+                image != null ? MediaImages.dHash(image) : null));
+    }
+
+    private MediaImages.Decoded decode(byte[] content) {
+        return MediaImages.decode(content, mediaProperties.getMaxPixels(), mediaProperties.getThumbnailSize());
+    }
+
+    public record MirroredFile(Resource resource, String contentType) {}
+}
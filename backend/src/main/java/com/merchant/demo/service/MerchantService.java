@@ -11,12 +11,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class MerchantService {
 
+    private static final Set<String> SOURCE_TYPES = Set.of("SHOPIFY", "FILE");
+
     private final MerchantRepository merchantRepository;
     private final ObjectMapper objectMapper;
 
@@ -48,10 +52,26 @@ public class MerchantService {
             merchant.setName(request.getName());
         }
 
+        if (request.getSourceType() != null) {
+            String sourceType = request.getSourceType().trim().toUpperCase(Locale.ROOT);
+            if (!SOURCE_TYPES.contains(sourceType)) {
+                throw new IllegalArgumentException("source_type must be SHOPIFY or FILE, got " + request.getSourceType());
+            }
+            merchant.setSourceType(sourceType);
+        }
+
         if (request.getShopifyConfigured() != null) {
             merchant.setShopifyConfigured(request.getShopifyConfigured());
         }
 
+        // FILE merchants own their catalog: no inventory sync, full sync or webhook may overwrite it from Shopify
+        if ("FILE".equals(merchant.getSourceType())) {
+            if (Boolean.TRUE.equals(request.getShopifyConfigured())) {
+                throw new IllegalArgumentException("shopify_configured requires source_type SHOPIFY");
+            }
+            merchant.setShopifyConfigured(false);
+        }
+
         if (request.getSourceConfig() != null) {
             try {
                 String jsonString = objectMapper.writeValueAsString(request.getSourceConfig());
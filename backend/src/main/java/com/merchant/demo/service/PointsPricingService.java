@@ -0,0 +1,114 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.PointsProperties;
+import com.merchant.demo.dto.partner.OfferPointsPriceDto;
+import com.merchant.demo.dto.partner.PointsPriceBatchDto;
+import com.merchant.demo.repository.PointsPricingRepository;
+import com.merchant.demo.repository.PointsPricingRepository.OfferPriceRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prices live offers in loyalty points for a partner.
+ * <p>
+ * Conversion rules, active partners and currency minor units are held in a {@link PointsRateSnapshot} that
+ * is swapped atomically when the underlying tables change (checked by fingerprint on a fixed delay), so a
+ * pricing request costs one offer query regardless of batch size and never looks rules up per item.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PointsPricingService {
+
+    private final PointsPricingRepository pointsPricingRepository;
+    private final PointsProperties pointsProperties;
+    private final AtomicReference<PointsRateSnapshot> snapshot = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refreshRates();
+    }
+
+    @Scheduled(fixedDelayString = "${app.points.refresh-interval-ms:60000}",
+            initialDelayString = "${app.points.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refreshRates();
+        } catch (Exception e) {
+            // Keep serving the previous snapshot
+            log.error("Refreshing points conversion rates failed", e);
+        }
+    }
+
+    /** Reload the snapshot if the rules, partners or currencies changed; returns the current snapshot. */
+    public synchronized PointsRateSnapshot refreshRates() {
+        PointsRateSnapshot current = snapshot.get();
+        String fingerprint = pointsPricingRepository.findRatesFingerprint();
+        if (current != null && current.fingerprint().equals(fingerprint)) {
+            return current;
+        }
+        PointsRateSnapshot next = PointsRateSnapshot.build(
+                current != null ? current.version() + 1 : 1,
+                fingerprint,
+                Instant.now(),
+                pointsPricingRepository.findActivePartnerIds(),
+                pointsPricingRepository.findCurrencyMinorUnits(),
+                pointsPricingRepository.findActiveConversionRules());
+        snapshot.set(next);
+        log.info("Loaded points conversion rates version {}", next.version());
+        return next;
+    }
+
+    public PointsRateSnapshot currentRates() {
+        PointsRateSnapshot current = snapshot.get();
+        return current != null ? current : refreshRates();
+    }
+
+    /** Points prices of all live offers of the given variants, using the current rate snapshot. */
+    public PointsPriceBatchDto priceVariants(Integer partnerId, List<Integer> variantIds) {
+        if (variantIds == null || variantIds.isEmpty()) {
+            throw new IllegalArgumentException("variant_ids is required");
+        }
+        Set<Integer> requested = new LinkedHashSet<>(variantIds);
+        requested.remove(null);
+        if (requested.size() > pointsProperties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("At most " + pointsProperties.getMaxBatchSize() + " variant_ids per request");
+        }
+        PointsRateSnapshot rates = currentRates();
+        if (!rates.isActivePartner(partnerId)) {
+            throw new NoSuchElementException("Loyalty partner not found: " + partnerId);
+        }
+
+        Instant at = Instant.now();
+        List<OfferPriceRow> rows = pointsPricingRepository.findLiveOffersByVariantIds(requested);
+        List<OfferPointsPriceDto> offers = new ArrayList<>(rows.size());
+        Set<Integer> unavailable = new LinkedHashSet<>(requested);
+        for (OfferPriceRow row : rows) {
+            unavailable.remove(row.variantId());
+            offers.add(OfferPointsPriceDto.builder()
+                    .variantId(row.variantId())
+                    .offerId(row.offerId())
+                    .merchantId(row.merchantId())
+                    .currencyCode(row.currencyCode())
+                    .priceMinor(row.priceMinor())
+                    .pointsPrice(rates.pointsFor(partnerId, row.currencyCode(), row.priceMinor(), at))
+                    .currentStock(row.currentStock())
+                    .build());
+        }
+        return PointsPriceBatchDto.builder()
+                .partnerId(partnerId)
+                .ratesVersion(rates.version())
+                .pricedAt(at)
+                .offers(offers)
+                .unavailableVariantIds(List.copyOf(unavailable))
+                .build();
+    }
+}
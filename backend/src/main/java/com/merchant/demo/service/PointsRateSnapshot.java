@@ -0,0 +1,107 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.repository.PointsPricingRepository.ConversionRuleRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable, versioned view of the active point conversion rules, per partner and currency.
+ * <p>
+ * A rule's {@code points_to_currency_rate} is the currency value of one point, so an offer costs
+ * {@code price / rate} points, rounded up to whole points. Within a partner/currency the rule with the
+ * newest valid_from that is valid at the pricing instant wins. Built once per refresh and then shared
+ * by all pricing requests without locking.
+ */
+public final class PointsRateSnapshot {
+
+    private static final Comparator<ConversionRuleRow> NEWEST_FIRST = Comparator
+            .comparing(ConversionRuleRow::validFrom).reversed()
+            .thenComparing(Comparator.comparingInt(ConversionRuleRow::id).reversed());
+
+    private final long version;
+    private final String fingerprint;
+    private final Instant loadedAt;
+    private final Set<Integer> activePartnerIds;
+    private final Map<String, Integer> minorUnits;
+    /** partner id -> currency code -> rules, newest valid_from first */
+    private final Map<Integer, Map<String, List<ConversionRuleRow>>> rules;
+
+    private PointsRateSnapshot(long version, String fingerprint, Instant loadedAt, Set<Integer> activePartnerIds,
+                               Map<String, Integer> minorUnits, Map<Integer, Map<String, List<ConversionRuleRow>>> rules) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.loadedAt = loadedAt;
+        this.activePartnerIds = activePartnerIds;
+        this.minorUnits = minorUnits;
+        this.rules = rules;
+    }
+
+    public static PointsRateSnapshot build(long version, String fingerprint, Instant loadedAt,
+                                           Collection<Integer> activePartnerIds, Map<String, Integer> minorUnits,
+                                           Collection<ConversionRuleRow> activeRules) {
+        Map<Integer, Map<String, List<ConversionRuleRow>>> byPartner = new HashMap<>();
+        for (ConversionRuleRow rule : activeRules) {
+            // A non-positive rate cannot price anything; ignore it rather than fail the whole snapshot
+            if (rule.pointsToCurrencyRate() == null || rule.pointsToCurrencyRate().signum() <= 0) continue;
+            byPartner.computeIfAbsent(rule.partnerId(), k -> new HashMap<>())
+                    .computeIfAbsent(rule.currencyCode(), k -> new ArrayList<>())
+                    .add(rule);
+        }
+        byPartner.values().forEach(byCurrency -> byCurrency.replaceAll((currency, list) -> {
+            list.sort(NEWEST_FIRST);
+            return List.copyOf(list);
+        }));
+        return new PointsRateSnapshot(version, fingerprint, loadedAt, Set.copyOf(activePartnerIds),
+                Map.copyOf(minorUnits), byPartner);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    public boolean isActivePartner(Integer partnerId) {
+        return activePartnerIds.contains(partnerId);
+    }
+
+    /** The conversion rule of a partner for a currency at {@code at}, or null when none applies. */
+    public ConversionRuleRow resolve(Integer partnerId, String currencyCode, Instant at) {
+        List<ConversionRuleRow> candidates = rules.getOrDefault(partnerId, Map.of()).get(currencyCode);
+        if (candidates == null) return null;
+        for (ConversionRuleRow rule : candidates) {
+            if (!rule.validFrom().isAfter(at) && (rule.validTo() == null || rule.validTo().isAfter(at))) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Points price of {@code priceMinor} for a partner, or null when the partner has no rule for the
+     * currency or the currency is unknown.
+     */
+    public Long pointsFor(Integer partnerId, String currencyCode, long priceMinor, Instant at) {
+        Integer units = minorUnits.get(currencyCode);
+        ConversionRuleRow rule = resolve(partnerId, currencyCode, at);
+        if (units == null || rule == null) return null;
+        return points(priceMinor, units, rule.pointsToCurrencyRate());
+    }
+
+    /** {@code ceil((priceMinor / 10^minorUnits) / rate)}; never charges fewer points than the price is worth. */
+    static long points(long priceMinor, int minorUnits, BigDecimal pointsToCurrencyRate) {
+        if (priceMinor <= 0) return 0;
+        return BigDecimal.valueOf(priceMinor, minorUnits)
+                .divide(pointsToCurrencyRate, 0, RoundingMode.CEILING)
+                .longValueExact();
+    }
+}
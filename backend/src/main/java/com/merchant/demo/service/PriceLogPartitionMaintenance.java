@@ -0,0 +1,43 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.PriceLogProperties;
+import com.merchant.demo.repository.OfferPriceLogRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps monthly {@code offer_price_log} partitions created ahead of time (UTC months), at startup and daily.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceLogPartitionMaintenance {
+
+    private final OfferPriceLogRepository offerPriceLogRepository;
+    private final PriceLogProperties priceLogProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${app.price-log.partition-cron:0 15 3 * * *}", zone = "UTC")
+    public void ensurePartitions() {
+        LocalDate month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        for (int i = 0; i <= priceLogProperties.getPartitionMonthsAhead(); i++) {
+            try {
+                offerPriceLogRepository.createMonthlyPartition(month.plusMonths(i));
+            } catch (Exception e) {
+                // Typically rows for that month already sit in the default partition; needs a manual move
+                log.error("Could not create offer_price_log partition for {}", month.plusMonths(i), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.dto.admin.OfferPriceDto;
+import com.merchant.demo.dto.admin.RepriceRunDto;
+import com.merchant.demo.entity.MarginRule;
+import com.merchant.demo.repository.MarginRuleRepository;
+import com.merchant.demo.repository.OfferPriceLogRepository;
+import com.merchant.demo.repository.OfferPriceLogRepository.PriceChange;
+import com.merchant.demo.repository.OfferPriceLogRepository.PriceLogEntry;
+import com.merchant.demo.repository.PricingRepository;
+import com.merchant.demo.repository.PricingRepository.OfferPricingRow;
+import com.merchant.demo.repository.PricingRepository.RuleBoundaryWindow;
+import com.merchant.demo.repository.PricingRepository.SettlementUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Computes {@code merchant_offers.cached_settlement_price_minor} from the merchant's margin rules.
+ * <p>
+ * Rules are loaded once per run into a {@link MarginRuleIndex}; offers are then read in keyset pages
+ * (with brand and categories joined in), priced in memory, and only changed settlement prices are
+ * written back with one batched UPDATE per page, each page in its own short transaction.
+ * Every applied change is appended to the offer's price history ({@code offer_price_log}) in the same transaction.
+ * Best offers are re-resolved with the prices: per offer for targeted repricing, in bulk after a merchant-wide run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PricingService {
+
+    static final int REPRICE_BATCH_SIZE = 2000;
+    private static final int MAX_HISTORY_ROWS = 1000;
+
+    private final PricingRepository pricingRepository;
+    private final MarginRuleRepository marginRuleRepository;
+    private final OfferPriceLogRepository offerPriceLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JobQueue jobQueue;
+    private final BestOfferService bestOfferService;
+
+    /** Queue a repricing run with the rule change; several changes before it starts collapse into one run. */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onMarginRulesChanged(MarginRulesChangedEvent event) {
+        jobQueue.enqueueForMerchant(JobQueue.MERCHANT_REPRICE, event.merchantId(), JobQueue.PRIORITY_DEFAULT);
+    }
+
+    /**
+     * Rules also take effect and expire on their own, without an edit (and so without a
+     * {@link MarginRulesChangedEvent}): queue a repricing run for every merchant with an active rule whose
+     * {@code valid_from} or {@code valid_to} passed since the last check. The checkpoint lives in the database and
+     * is locked for the check, so each boundary is handled once across instances and restarts.
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.rule-boundary-check-interval-ms:60000}",
+            initialDelayString = "${app.pricing.rule-boundary-check-interval-ms:60000}")
+    public void enqueueRepricingForRuleBoundaries() {
+        List<Integer> merchantIds = transactionTemplate.execute(status -> {
+            RuleBoundaryWindow window = pricingRepository.lockRuleBoundaryWindow();
+            List<Integer> ids = pricingRepository.findMerchantsWithRuleBoundariesIn(window);
+            ids.forEach(id -> jobQueue.enqueueForMerchant(JobQueue.MERCHANT_REPRICE, id, JobQueue.PRIORITY_DEFAULT));
+            pricingRepository.advanceRuleBoundaryCheckpoint(window.through());
+            return ids;
+        });
+        if (merchantIds != null && !merchantIds.isEmpty()) {
+            log.info("Margin rule validity changed for {} merchants, repricing queued", merchantIds.size());
+        }
+    }
+
+    public MarginRuleIndex loadRules(Integer merchantId) {
+        return MarginRuleIndex.build(marginRuleRepository.findByMerchantIdAndIsActiveTrue(merchantId),
+                pricingRepository.findCategoryParents());
+    }
+
+    /** Recompute settlement prices for all of a merchant's offers. */
+    public RepriceRunDto repriceMerchant(Integer merchantId) {
+        long start = System.currentTimeMillis();
+        MarginRuleIndex rules = loadRules(merchantId);
+        Instant at = Instant.now();
+        int processed = 0;
+        int updated = 0;
+        int afterId = 0;
+
+        while (true) {
+            int from = afterId;
+            PageResult page = transactionTemplate.execute(status -> {
+                List<OfferPricingRow> rows = pricingRepository.findOffersForPricing(merchantId, from, REPRICE_BATCH_SIZE);
+                if (rows.isEmpty()) return new PageResult(0, 0, from);
+                int applied = applyAndLog(price(rows, rules, at), false, at);
+                return new PageResult(rows.size(), applied, rows.get(rows.size() - 1).offerId());
+            });
+            if (page == null || page.rows() == 0) break;
+            processed += page.rows();
+            updated += page.changed();
+            afterId = page.lastId();
+            if (page.rows() < REPRICE_BATCH_SIZE) break;
+        }
+        if (updated > 0) bestOfferService.refreshMerchant(merchantId);
+
+        long duration = System.currentTimeMillis() - start;
+        log.info("Repriced merchant {}: {} offers, {} settlement prices changed in {}ms", merchantId, processed, updated, duration);
+        return RepriceRunDto.builder()
+                .merchantId(merchantId)
+                .processed(processed)
+                .updated(updated)
+                .durationMs(duration)
+                .build();
+    }
+
+    /**
+     * Price a merchant's offers on the given master products, in the caller's transaction.
+     * Used right after review decisions create offers (pending JPA writes must be flushed first).
+     *
+     * @return number of offers whose settlement price changed
+     */
+    public int repriceProductOffers(Integer merchantId, Collection<Integer> productIds) {
+        if (merchantId == null || productIds.isEmpty()) return 0;
+        // New offers have no history yet, so log every row; the log skips rows equal to their open entry
+        return repriceAndLogAll(merchantId, pricingRepository.findOffersForPricing(merchantId, productIds));
+    }
+
+    /**
+     * Price offers whose list price changed (catalog sync), in the caller's transaction, and record the new
+     * price in the history even where the settlement price stays the same.
+     *
+     * @return number of offers whose settlement price changed
+     */
+    public int repriceOffers(Integer merchantId, Collection<Integer> offerIds) {
+        if (merchantId == null || offerIds.isEmpty()) return 0;
+        return repriceAndLogAll(merchantId, pricingRepository.findOffersForPricingByIds(merchantId, offerIds));
+    }
+
+    private int repriceAndLogAll(Integer merchantId, List<OfferPricingRow> rows) {
+        if (rows.isEmpty()) return 0;
+        Instant at = Instant.now();
+        int applied = applyAndLog(price(rows, loadRules(merchantId), at), true, at);
+        // Covers offers that were just created as well as repriced ones
+        bestOfferService.refreshForOffers(rows.stream().map(OfferPricingRow::offerId).toList());
+        return applied;
+    }
+
+    /** Offer price in effect at {@code at}, from the price history. */
+    public OfferPriceDto getPriceAt(Integer offerId, Instant at) {
+        return offerPriceLogRepository.findPriceAt(offerId, at)
+                .map(PricingService::toDto)
+                .orElseThrow(() -> new NoSuchElementException("No price recorded for offer " + offerId + " at " + at));
+    }
+
+    /** Price history entries of an offer overlapping [from, to), oldest first (at most 1000). */
+    public List<OfferPriceDto> getPriceHistory(Integer offerId, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return offerPriceLogRepository.findHistory(offerId, from, to, MAX_HISTORY_ROWS).stream()
+                .map(PricingService::toDto)
+                .toList();
+    }
+
+    private static OfferPriceDto toDto(PriceLogEntry entry) {
+        return OfferPriceDto.builder()
+                .offerId(entry.offerId())
+                .currencyCode(entry.currencyCode())
+                .priceMinor(entry.priceMinor())
+                .settlementPriceMinor(entry.settlementPriceMinor())
+                .appliedMarginPercentage(entry.appliedMarginPercentage())
+                .validFrom(entry.validFrom())
+                .validTo(entry.validTo())
+                .build();
+    }
+
+    /**
+     * Write changed settlement prices and append the applied changes to the price history
+     * (plus the unchanged rows when {@code logUnchanged}).
+     *
+     * @return number of offers whose settlement price changed
+     */
+    private int applyAndLog(List<PricedOffer> priced, boolean logUnchanged, Instant at) {
+        List<SettlementUpdate> applied = pricingRepository.updateSettlementPrices(priced.stream()
+                .filter(PricedOffer::changed)
+                .map(p -> new SettlementUpdate(p.row().offerId(), p.settlementPriceMinor()))
+                .toList());
+        Set<Integer> appliedIds = new HashSet<>(applied.size() * 2);
+        applied.forEach(u -> appliedIds.add(u.offerId()));
+
+        List<PriceChange> history = new ArrayList<>();
+        for (PricedOffer p : priced) {
+            if (appliedIds.contains(p.row().offerId()) || (logUnchanged && !p.changed())) {
+                history.add(p.toPriceChange());
+            }
+        }
+        offerPriceLogRepository.append(history, at);
+        return applied.size();
+    }
+
+    /** Price every row at {@code at}. */
+    static List<PricedOffer> price(List<OfferPricingRow> rows, MarginRuleIndex rules, Instant at) {
+        List<PricedOffer> priced = new ArrayList<>(rows.size());
+        for (OfferPricingRow row : rows) {
+            MarginRule rule = rules.resolve(row.brandId(), row.categoryIds(), at);
+            priced.add(new PricedOffer(row, MarginRuleIndex.settlementPrice(row.priceMinor(), rule),
+                    rule != null ? rule.getMarginPercentage() : BigDecimal.ZERO));
+        }
+        return priced;
+    }
+
+    record PricedOffer(OfferPricingRow row, long settlementPriceMinor, BigDecimal marginPercentage) {
+        boolean changed() {
+            return settlementPriceMinor != row.settlementPriceMinor();
+        }
+
+        PriceChange toPriceChange() {
+            return new PriceChange(row.offerId(), row.currencyCode(), row.priceMinor(), settlementPriceMinor, marginPercentage);
+        }
+    }
+
+    private record PageResult(int rows, int changed, int lastId) {}
+}
@@ -0,0 +1,100 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.StorefrontProperties;
+import com.merchant.demo.repository.ProductDocumentRepository;
+import com.merchant.demo.repository.ProductDocumentRepository.StoredDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Storefront reads of master products, served from denormalized product documents.
+ * <p>
+ * Catalog writes (review decisions, product/brand/category edits, offer syncs, repricing, image mirroring) queue
+ * the products they touch in the same transaction; a poller claims queued products and rebuilds their documents
+ * in batches, each batch in one transaction, so documents trail the catalog by about one poll interval.
+ * A read is one primary key lookup (or one IN lookup for a batch) returning the stored JSON unparsed.
+ * Products that are not ACTIVE have no document.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductDocumentService {
+
+    private final ProductDocumentRepository productDocumentRepository;
+    private final MediaMirrorService mediaMirrorService;
+    private final StorefrontProperties storefrontProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${app.storefront.document-refresh-interval-ms:1000}")
+    public void poll() {
+        if (!storefrontProperties.isDocumentRefreshEnabled()) return;
+        try {
+            refreshQueued();
+        } catch (Exception e) {
+            // Claimed products are back in the queue with the rolled back batch
+            log.error("Refreshing product documents failed", e);
+        }
+    }
+
+    /** Rebuild the documents of all queued products; returns the number of products processed. */
+    public int refreshQueued() {
+        int batchSize = storefrontProperties.getDocumentBatchSize();
+        // The facet index re-reads documents as far back as a batch may take to commit (CatalogSearchService)
+        TransactionTemplate batchTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        batchTransaction.setTimeout(storefrontProperties.getDocumentRefreshTimeoutSeconds());
+        long start = System.currentTimeMillis();
+        int processed = 0;
+        int written = 0;
+        while (true) {
+            RefreshBatch batch = batchTransaction.execute(status -> {
+                List<Integer> productIds = productDocumentRepository.claimQueued(batchSize);
+                return new RefreshBatch(productIds.size(),
+                        productDocumentRepository.rebuild(productIds, mediaMirrorService.mediaUrlPrefix()));
+            });
+            if (batch == null || batch.claimed() == 0) break;
+            processed += batch.claimed();
+            written += batch.written();
+            if (batch.claimed() < batchSize) break;
+        }
+        if (processed > 0) {
+            log.info("Refreshed product documents: {} products, {} documents changed in {}ms",
+                    processed, written, System.currentTimeMillis() - start);
+        }
+        return processed;
+    }
+
+    public StoredDocument getProduct(Integer productId) {
+        return productDocumentRepository.findDocument(productId)
+                .orElseThrow(() -> new NoSuchElementException("Product not found: " + productId));
+    }
+
+    /**
+     * Documents of up to {@code app.storefront.max-lookup-ids} products, in request order (duplicates once).
+     * Ids without a document are left out.
+     */
+    public List<StoredDocument> getProducts(List<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        Set<Integer> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        if (ids.size() > storefrontProperties.getMaxLookupIds()) {
+            throw new IllegalArgumentException("At most " + storefrontProperties.getMaxLookupIds()
+                    + " ids per request, got " + ids.size());
+        }
+        Map<Integer, StoredDocument> found = productDocumentRepository.findDocuments(ids);
+        List<StoredDocument> documents = new ArrayList<>(found.size());
+        for (Integer id : ids) {
+            StoredDocument document = found.get(id);
+            if (document != null) documents.add(document);
+        }
+        return documents;
+    }
+
+    private record RefreshBatch(int claimed, int written) {}
+}
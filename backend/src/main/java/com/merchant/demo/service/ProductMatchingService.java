@@ -0,0 +1,147 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.MatchingProperties;
+import com.merchant.demo.dto.admin.MatchingRunDto;
+import com.merchant.demo.repository.StagingMatchRepository;
+import com.merchant.demo.repository.StagingMatchRepository.GtinHit;
+import com.merchant.demo.repository.StagingMatchRepository.Suggestion;
+import com.merchant.demo.repository.StagingMatchRepository.TitleHit;
+import com.merchant.demo.service.ImageHashIndex.ImageMatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Suggests a master product for every undecided staging product of a merchant.
+ * <p>
+ * Works in keyset batches: staging variant barcodes are joined against the global GTIN index first,
+ * and products without a barcode hit fall back to trigram title similarity (plus a vendor/brand bonus) and to
+ * near-duplicate images ({@link ImageSimilarityService}), whichever is more confident. Only barcode hits can
+ * auto-match: title and image confidences stay below the auto-match threshold.
+ * Suggestions and confidence scores are written with one batched UPDATE per batch; rows at or above
+ * {@code app.matching.auto-match-threshold} move to AUTO_MATCHED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductMatchingService {
+
+    private final StagingMatchRepository stagingMatchRepository;
+    private final MatchingProperties matchingProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final JobQueue jobQueue;
+    private final ImageSimilarityService imageSimilarityService;
+
+    /** Queue a matching run in the sync's transaction; a job queue worker runs it once the sync committed. */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCatalogSynced(CatalogSyncedEvent event) {
+        if (!matchingProperties.isEnabled()) return;
+        jobQueue.enqueueForMerchant(JobQueue.MERCHANT_MATCHING, event.merchantId(), JobQueue.PRIORITY_DEFAULT);
+    }
+
+    public MatchingRunDto matchMerchant(Integer merchantId) {
+        long start = System.currentTimeMillis();
+        int batchSize = matchingProperties.getBatchSize();
+        int processed = 0;
+        int suggested = 0;
+        int autoMatched = 0;
+        int updated = 0;
+        int afterId = 0;
+
+        while (true) {
+            List<Integer> ids = stagingMatchRepository.findMatchableIds(merchantId, afterId, batchSize);
+            if (ids.isEmpty()) break;
+            afterId = ids.get(ids.size() - 1);
+
+            List<Suggestion> suggestions = matchBatch(ids);
+            Integer changed = transactionTemplate.execute(status ->
+                    stagingMatchRepository.applySuggestions(suggestions, matchingProperties.getAutoMatchThreshold()));
+
+            processed += ids.size();
+            updated += changed != null ? changed : 0;
+            for (Suggestion s : suggestions) {
+                if (s.productId() == null) continue;
+                suggested++;
+                if (s.confidence() >= matchingProperties.getAutoMatchThreshold()) autoMatched++;
+            }
+            if (ids.size() < batchSize) break;
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        log.info("Auto-matching merchant {}: {} staging products, {} suggested, {} auto-matched, {} updated in {}ms",
+                merchantId, processed, suggested, autoMatched, updated, duration);
+        return MatchingRunDto.builder()
+                .merchantId(merchantId)
+                .processed(processed)
+                .suggested(suggested)
+                .autoMatched(autoMatched)
+                .updated(updated)
+                .durationMs(duration)
+                .build();
+    }
+
+    private List<Suggestion> matchBatch(List<Integer> ids) {
+        Map<Integer, Suggestion> best = new HashMap<>(ids.size() * 2);
+
+        // 1. Barcode hits: the master product hit by the most staging variants wins
+        for (GtinHit hit : stagingMatchRepository.findGtinHits(ids)) {
+            int confidence = gtinConfidence(hit);
+            Suggestion current = best.get(hit.stagingId());
+            if (current == null || confidence > current.confidence()
+                    || (confidence == current.confidence() && hit.productId() < current.productId())) {
+                best.put(hit.stagingId(), new Suggestion(hit.stagingId(), hit.productId(), confidence));
+            }
+        }
+
+        // 2. Title + vendor similarity for products without any barcode hit
+        List<Integer> remaining = ids.stream().filter(id -> !best.containsKey(id)).toList();
+        if (!remaining.isEmpty()) {
+            for (TitleHit hit : stagingMatchRepository.findTitleHits(remaining, matchingProperties.getVendorBonus())) {
+                if (hit.score() < matchingProperties.getMinTitleScore()) continue;
+                best.put(hit.stagingId(), new Suggestion(hit.stagingId(), hit.productId(), titleConfidence(hit.score())));
+            }
+
+            // 3. Near-duplicate images, where more confident than the title
+            for (Map.Entry<Integer, ImageMatch> e : imageSimilarityService.findClosestProducts(remaining).entrySet()) {
+                int confidence = imageConfidence(e.getValue().distance());
+                Suggestion current = best.get(e.getKey());
+                if (current == null || confidence > current.confidence()) {
+                    best.put(e.getKey(), new Suggestion(e.getKey(), e.getValue().productId(), confidence));
+                }
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            result.add(best.getOrDefault(id, new Suggestion(id, null, 0)));
+        }
+        return result;
+    }
+
+    /** 80 for a single barcode hit among many variants, 100 when every barcoded variant hits the same product. */
+    static int gtinConfidence(GtinHit hit) {
+        if (hit.barcoded() <= 0) return 80;
+        double ratio = Math.min(1.0, (double) hit.matched() / hit.barcoded());
+        return (int) Math.round(80 + 20 * ratio);
+    }
+
+    /** Configured confidence for an identical image, 2 points less per differing hash bit. */
+    int imageConfidence(int distance) {
+        return belowAutoMatch(matchingProperties.getImageMatchConfidence() - 2 * distance);
+    }
+
+    /** Title similarity (plus vendor bonus) in percent. */
+    int titleConfidence(double score) {
+        return belowAutoMatch((int) Math.round(score * 100));
+    }
+
+    /** Similar titles or pictures are suggestions for a reviewer, never an auto-match on their own. */
+    private int belowAutoMatch(int confidence) {
+        return Math.max(0, Math.min(confidence, matchingProperties.getAutoMatchThreshold() - 1));
+    }
+}
@@ -3,63 +3,381 @@ package com.merchant.demo.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.CatalogProperties;
 import com.merchant.demo.dto.ShopifyConfig;
 import com.merchant.demo.dto.SyncResultDto;
 import com.merchant.demo.dto.shopify.*;
 import com.merchant.demo.entity.Merchant;
-import com.merchant.demo.entity.StagingMedia;
+import com.merchant.demo.entity.OptionSet;
 import com.merchant.demo.entity.StagingProduct;
 import com.merchant.demo.entity.StagingVariant;
+import com.merchant.demo.repository.MediaMirrorRepository;
 import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.OfferSyncWriter.OfferDelta;
+import com.merchant.demo.repository.OfferSyncWriter.SyncedVariant;
+import com.merchant.demo.repository.StagingMediaSyncWriter;
+import com.merchant.demo.repository.StagingMediaSyncWriter.SyncedMedia;
 import com.merchant.demo.repository.StagingProductRepository;
+import com.merchant.demo.repository.SyncLogRepository;
+import com.merchant.demo.repository.SyncLogRepository.RowError;
+import com.merchant.demo.repository.SyncLogRepository.SyncLogRow;
+import com.merchant.demo.service.CatalogFileParser.ParsedProduct;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.*;
 
+/**
+ * Stages a merchant's Shopify catalog, or the catalog file of a merchant with source type FILE. Full syncs and
+ * imports of one merchant are serialized across instances by a transaction-scoped advisory lock and, for file
+ * imports that commit per batch, by their IN_PROGRESS run in sync_logs ({@link SyncLogRepository}); a sync
+ * requested while another one runs fails fast with {@link SyncInProgressException} carrying the running sync's
+ * progress.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductSyncService {
 
+    static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    static final String STATUS_SUCCESS = "SUCCESS";
+    static final String STATUS_FAILED = "FAILED";
+    static final String STATUS_PARTIAL_SUCCESS = "PARTIAL_SUCCESS";
+    static final String SOURCE_SHOPIFY = "SHOPIFY";
+    static final String SOURCE_FILE = "FILE";
+    private static final int PROGRESS_EVERY = 100;
+    /** Staged products whose media are reconciled per batch; file imports also commit per batch. */
+    private static final int MEDIA_BATCH_PRODUCTS = 500;
+    /** Rejected import rows recorded per run; a broken file should not fill sync_log_errors. */
+    static final int MAX_LOGGED_ERRORS = 10_000;
+
     private final MerchantRepository merchantRepository;
     private final StagingProductRepository stagingProductRepository;
     private final ShopifyAdapter shopifyAdapter;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OfferSyncWriter offerSyncWriter;
+    private final PricingService pricingService;
+    private final SyncLogRepository syncLogRepository;
+    private final StagingMediaSyncWriter stagingMediaSyncWriter;
+    private final MediaMirrorRepository mediaMirrorRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogProperties catalogProperties;
 
     @Transactional
     public SyncResultDto syncProductsForMerchant(Integer merchantId) {
         Merchant merchant = merchantRepository.findById(merchantId)
                 .orElseThrow(() -> new NoSuchElementException("Merchant not found: " + merchantId));
+        if (!SOURCE_SHOPIFY.equals(merchant.getSourceType())) {
+            throw new IllegalArgumentException("Merchant " + merchantId + " imports catalog files; "
+                    + "set source_type to SHOPIFY to sync from Shopify");
+        }
+
+        // 0. One sync per merchant at a time; the lock is released when this transaction ends
+        if (!syncLogRepository.tryLockMerchantSync(merchantId)) throw syncInProgress(merchantId);
+        SyncRun run = new SyncRun(syncLogRepository.start(merchantId, "Fetching products from Shopify", false)
+                .orElseThrow(() -> syncInProgress(merchantId)));
+        closeRunOnCompletion(run);
+
+        try {
+            // 1. Parse Config
+            ShopifyConfig config = parseConfig(merchant.getSourceConfig());
+
+            // 2. Fetch Raw Data from Shopify
+            List<ProductNode> shopifyProducts = shopifyAdapter.fetchAllProducts(config);
+
+            // 3. Process Products (Upsert)
+            int variantsProcessed = 0;
+            List<SyncedVariant> syncedVariants = new ArrayList<>();
+            Map<Integer, List<SyncedMedia>> pendingMedia = new LinkedHashMap<>();
+
+            for (ProductNode rawNode : shopifyProducts) {
+                processSingleProduct(merchant, rawNode, pendingMedia);
+                if (pendingMedia.size() >= MEDIA_BATCH_PRODUCTS) {
+                    applyMedia(pendingMedia);
+                    pendingMedia.clear();
+                }
+                run.processed++;
+                variantsProcessed += rawNode.variants().edges().size();
+                syncedVariants.addAll(toSyncedVariants(rawNode));
+                if (run.processed % PROGRESS_EVERY == 0) {
+                    syncLogRepository.updateProgress(run.id, run.processed,
+                            "Staged " + run.processed + " of " + shopifyProducts.size() + " products");
+                }
+            }
+            if (!pendingMedia.isEmpty()) applyMedia(pendingMedia);
+
+            // 4. Push price/stock changes to already-approved live offers
+            int offersUpdated = syncLiveOffers(merchantId, syncedVariants);
 
-        // 1. Parse Config
-        ShopifyConfig config = parseConfig(merchant.getSourceConfig());
+            // 5. Matching is queued with this commit and runs on a job worker (ProductMatchingService)
+            eventPublisher.publishEvent(new CatalogSyncedEvent(merchantId));
 
-        // 2. Fetch Raw Data from Shopify
-        List<ProductNode> shopifyProducts = shopifyAdapter.fetchAllProducts(config);
+            return new SyncResultDto("Sync Successful", run.processed, variantsProcessed, offersUpdated,
+                    run.id, STATUS_SUCCESS);
+        } catch (RuntimeException e) {
+            run.error = e.getMessage();
+            throw e;
+        }
+    }
+
+    /**
+     * Import a catalog file (see {@link CatalogFileParser}) of a FILE merchant through the same staging upsert,
+     * media and live offer updates as a Shopify sync, reading it product by product. Every
+     * {@value #MEDIA_BATCH_PRODUCTS} valid products are written and committed in their own transaction, so
+     * neither the file, the persistence context nor a single transaction grows with the catalog; a failure
+     * keeps the batches committed before it. Between batches the run's heartbeat keeps other syncs of the
+     * merchant out. Rejected rows are recorded in sync_log_errors and make the run PARTIAL_SUCCESS; the valid
+     * products are still imported.
+     */
+    public SyncResultDto importCatalogFile(Integer merchantId, CatalogFileParser.Format format, InputStream in)
+            throws IOException {
+        Merchant merchant = merchantRepository.findById(merchantId)
+                .orElseThrow(() -> new NoSuchElementException("Merchant not found: " + merchantId));
+        if (!SOURCE_FILE.equals(merchant.getSourceType())) {
+            throw new IllegalArgumentException("Merchant " + merchantId + " syncs from " + merchant.getSourceType()
+                    + "; set source_type to FILE to import catalog files");
+        }
+        // Reads the CSV header: a file without the required columns is refused before a run is logged
+        try (CatalogFileParser parser = CatalogFileParser.open(format, in, objectMapper, importLimits())) {
+            Integer runId = transactionTemplate.execute(status -> syncLogRepository.tryLockMerchantSync(merchantId)
+                    ? syncLogRepository.start(merchantId, "Importing " + format + " file", true).orElse(null)
+                    : null);
+            if (runId == null) throw syncInProgress(merchantId);
+            SyncRun run = new SyncRun(runId);
+            try {
+                return importProducts(merchant, parser, run);
+            } catch (RuntimeException | IOException e) {
+                syncLogRepository.finish(run.id, STATUS_FAILED, run.processed, run.failed,
+                        run.processed + " products imported before the failure: " + e.getMessage());
+                if (run.processed > 0) publishCatalogSynced(merchantId);
+                throw e;
+            }
+        }
+    }
 
-        // 3. Process Products (Upsert)
-        int productsProcessed = 0;
-        int variantsProcessed = 0;
+    private CatalogFileParser.Limits importLimits() {
+        return new CatalogFileParser.Limits(catalogProperties.getImportMaxFieldChars(),
+                catalogProperties.getImportMaxLineChars(), catalogProperties.getImportMaxRowsPerProduct());
+    }
 
-        for (ProductNode rawNode : shopifyProducts) {
-            processSingleProduct(merchant, rawNode);
-            productsProcessed++;
-            variantsProcessed += rawNode.variants().edges().size();
+    private SyncResultDto importProducts(Merchant merchant, CatalogFileParser parser, SyncRun run) throws IOException {
+        List<ProductNode> batch = new ArrayList<>();
+        List<RowError> pendingErrors = new ArrayList<>();
+        int rejectedRows = 0;
+
+        ParsedProduct parsed;
+        while ((parsed = parser.next()) != null) {
+            if (!parsed.valid()) {
+                run.failed++;
+                if (run.firstError == null) run.firstError = parsed.errors().get(0);
+                for (RowError error : parsed.errors()) {
+                    if (rejectedRows++ < MAX_LOGGED_ERRORS) pendingErrors.add(error);
+                }
+                if (pendingErrors.size() >= MEDIA_BATCH_PRODUCTS) {
+                    syncLogRepository.addErrors(run.id, pendingErrors);
+                    pendingErrors.clear();
+                }
+                continue;
+            }
+            batch.add(parsed.node());
+            if (batch.size() >= MEDIA_BATCH_PRODUCTS) {
+                importBatch(merchant, run, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) importBatch(merchant, run, batch);
+        syncLogRepository.addErrors(run.id, pendingErrors);
+        if (run.failed > 0) {
+            run.notes = run.failed + " products rejected (" + rejectedRows + " rows); first at row "
+                    + run.firstError.rowNumber() + ": " + run.firstError.message();
         }
 
-        return new SyncResultDto("Sync Successful", productsProcessed, variantsProcessed);
+        publishCatalogSynced(merchant.getId());
+
+        String status = run.failed > 0 ? STATUS_PARTIAL_SUCCESS : STATUS_SUCCESS;
+        syncLogRepository.finish(run.id, status, run.processed, run.failed, run.notes);
+        return new SyncResultDto(run.failed > 0 ? "Import finished: " + run.notes : "Import Successful",
+                run.processed, run.variants, run.offersUpdated, run.id, status);
+    }
+
+    /**
+     * Write and commit one import batch under the merchant's sync lock: staged products are flushed first
+     * (their media reference them), then media and live offers are applied and the run's heartbeat is recorded
+     * in the same transaction.
+     */
+    private void importBatch(Merchant merchant, SyncRun run, List<ProductNode> batch) {
+        Integer merchantId = merchant.getId();
+        int processed = run.processed + batch.size();
+        int offersUpdated = transactionTemplate.execute(status -> {
+            syncLogRepository.lockMerchantSync(merchantId);
+            Map<Integer, List<SyncedMedia>> pendingMedia = new LinkedHashMap<>();
+            List<SyncedVariant> variants = new ArrayList<>();
+            for (ProductNode node : batch) {
+                processSingleProduct(merchant, node, pendingMedia);
+                variants.addAll(toSyncedVariants(node));
+            }
+            entityManager.flush();
+            applyMedia(pendingMedia);
+            int updated = syncLiveOffers(merchantId, variants);
+            if (!syncLogRepository.heartbeat(run.id, processed,
+                    "Imported " + processed + " products, " + run.failed + " rejected")) {
+                throw new IllegalStateException("Import run " + run.id + " was closed after its heartbeat lapsed");
+            }
+            return updated;
+        });
+        run.processed = processed;
+        run.offersUpdated += offersUpdated;
+        for (ProductNode node : batch) run.variants += node.variants().edges().size();
+    }
+
+    /** Matching is queued in its own transaction and runs on a job worker (ProductMatchingService). */
+    private void publishCatalogSynced(Integer merchantId) {
+        transactionTemplate.executeWithoutResult(status ->
+                eventPublisher.publishEvent(new CatalogSyncedEvent(merchantId)));
+    }
+
+    private SyncInProgressException syncInProgress(Integer merchantId) {
+        return new SyncInProgressException(merchantId, syncLogRepository.findLatest(merchantId)
+                .filter(row -> STATUS_IN_PROGRESS.equals(row.status()))
+                .map(ProductSyncService::toDto)
+                .orElseGet(() -> new SyncResultDto("Sync in progress", 0, 0, 0, null, STATUS_IN_PROGRESS)));
+    }
+
+    /** Rejected rows of one of the merchant's sync runs (file imports), in file order. */
+    public List<RowError> getSyncErrors(Integer merchantId, int syncLogId, int limit) {
+        return syncLogRepository.findErrors(merchantId, syncLogId, limit);
+    }
+
+    /** Latest sync run of the merchant; while a sync is running this is its progress. */
+    public SyncResultDto getSyncStatus(Integer merchantId) {
+        return syncLogRepository.findLatest(merchantId)
+                .map(ProductSyncService::toDto)
+                .orElseThrow(() -> new NoSuchElementException("No sync recorded for merchant " + merchantId));
+    }
+
+    /**
+     * Close the sync log once the sync transaction has ended: SUCCESS only when it committed (the staging writes
+     * are flushed at commit, so a constraint violation there still fails the run).
+     */
+    private void closeRunOnCompletion(SyncRun run) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    syncLogRepository.finish(run.id, STATUS_SUCCESS, run.processed, run.failed, run.notes);
+                } else {
+                    syncLogRepository.finish(run.id, STATUS_FAILED, run.processed, run.failed,
+                            run.error != null ? run.error : "Rolled back");
+                }
+            }
+        });
+    }
+
+    private static SyncResultDto toDto(SyncLogRow row) {
+        String message = switch (row.status()) {
+            case STATUS_IN_PROGRESS -> "Sync in progress";
+            case STATUS_SUCCESS -> "Sync Successful";
+            case STATUS_PARTIAL_SUCCESS -> "Import finished: " + row.notes();
+            default -> row.notes() != null ? "Sync failed: " + row.notes() : "Sync failed";
+        };
+        return new SyncResultDto(message, row.recordsProcessed(), 0, 0, row.id(), row.status());
+    }
+
+    /**
+     * Upsert a single product pushed by a Shopify webhook: same staging upsert and live offer update as a
+     * full sync, for one product.
+     *
+     * @return true when the product was not staged before (it still needs matching)
+     */
+    @Transactional
+    public boolean applyProductUpdate(Merchant merchant, ProductNode node) {
+        lockForSingleProduct(merchant.getId());
+        Map<Integer, List<SyncedMedia>> media = new HashMap<>();
+        boolean created = processSingleProduct(merchant, node, media);
+        applyMedia(media);
+        syncLiveOffers(merchant.getId(), toSyncedVariants(node));
+        return created;
+    }
+
+    /** A product was deleted on Shopify: archive its staging copy and take its live offers offline. */
+    @Transactional
+    public void archiveProduct(Integer merchantId, String externalProductId) {
+        lockForSingleProduct(merchantId);
+        stagingProductRepository.findByMerchantIdAndExternalProductId(merchantId, externalProductId)
+                .ifPresent(product -> {
+                    product.setStatus("ARCHIVED");
+                    product.setAdminNotes("Auto-Sync: Product deleted on Shopify.");
+                    stagingProductRepository.save(product);
+                });
+        int deactivated = offerSyncWriter.deactivateByExternalProductId(merchantId, externalProductId);
+        log.info("Archived Shopify product {} of merchant {} ({} offers deactivated)", externalProductId, merchantId, deactivated);
+    }
+
+    /** Single-product updates wait for a running full sync (the caller retries) instead of racing its upserts. */
+    private void lockForSingleProduct(Integer merchantId) {
+        if (!syncLogRepository.tryLockMerchantSyncShared(merchantId)) {
+            throw new SyncInProgressException(merchantId, null);
+        }
+    }
+
+    private static List<SyncedVariant> toSyncedVariants(ProductNode node) {
+        List<SyncedVariant> variants = new ArrayList<>(node.variants().edges().size());
+        for (var vEdge : node.variants().edges()) {
+            VariantNode vNode = vEdge.node();
+            variants.add(new SyncedVariant(vNode.id(), toMinor(vNode.price()), vNode.inventoryQuantity()));
+        }
+        return variants;
+    }
+
+    /**
+     * Apply changed prices and stock to the merchant's offers (matched by external_variant_id) and reprice
+     * the offers whose list price moved, which also records them in the offer price history.
+     *
+     * @return number of offers whose price or stock changed
+     */
+    private int syncLiveOffers(Integer merchantId, List<SyncedVariant> syncedVariants) {
+        List<OfferDelta> deltas = offerSyncWriter.apply(merchantId, syncedVariants, Instant.now());
+        List<Integer> repriced = deltas.stream()
+                .filter(OfferDelta::priceChanged)
+                .map(OfferDelta::offerId)
+                .toList();
+        pricingService.repriceOffers(merchantId, repriced);
+        if (!deltas.isEmpty()) {
+            log.info("Sync updated {} live offers of merchant {} ({} price changes)", deltas.size(), merchantId, repriced.size());
+        }
+        return deltas.size();
+    }
+
+    /** Shopify decimal price string -> minor units (cents); null when missing. */
+    private static Long toMinor(String price) {
+        if (price == null || price.isBlank()) return null;
+        return new BigDecimal(price).multiply(BigDecimal.valueOf(100)).longValue();
     }
 
     /**
      * Smart Upsert: Checks if product exists.
      * If yes -> Updates it. If Price/Title changed -> Set status NEEDS_REVIEW.
      * If no -> Creates new PENDING product.
+     * The product's media are not written here but added to {@code pendingMedia} (staging product id -> media)
+     * for {@link StagingMediaSyncWriter}.
+     *
+     * @return true when the product was created
      */
-    private void processSingleProduct(Merchant merchant, ProductNode node) {
+    private boolean processSingleProduct(Merchant merchant, ProductNode node, Map<Integer, List<SyncedMedia>> pendingMedia) {
         Optional<StagingProduct> existingOpt = stagingProductRepository
                 .findByMerchantIdAndExternalProductId(merchant.getId(), node.id());
 
@@ -98,83 +416,129 @@ public class ProductSyncService {
             log.error("JSON Error", e);
         }
 
-        product.getMedia().clear();
+        reconcileVariants(product, node);
 
-        if (node.media() != null && node.media().edges() != null) {
-            int positionCounter = 1;
-            for (var mediaEdge : node.media().edges()) {
-                var mediaNode = mediaEdge.node();
-                if (mediaNode == null) continue;
-
-                String url = null;
-                String type = mediaNode.mediaContentType();
-
-                // Handle different media types
-                if ("IMAGE".equals(type) && mediaNode.image() != null) {
-                    url = mediaNode.image().url();
-                } else if (("VIDEO".equals(type) || "EXTERNAL_VIDEO".equals(type)) && mediaNode.preview() != null
-                        && mediaNode.preview().image() != null) {
-                    // For video, we save the preview image URL
-                    url = mediaNode.preview().image().url();
-                }
-
-                if (url != null) {
-                    StagingMedia media = StagingMedia.builder()
-                            .externalMediaId(mediaNode.id())
-                            .mediaType(type != null ? type : "IMAGE")
-                            .sourceUrl(url)
-                            .altText(mediaNode.alt())
-                            .position(positionCounter++)
-                            .build();
-
-                    product.addMedia(media);
-                }
-            }
+        // If it was an update and critical data changed, flag it
+        if (existingOpt.isPresent() && needsReview && !product.getStatus().equals("PENDING")) {
+            product.setStatus("NEEDS_REVIEW");
+            product.setAdminNotes("Auto-Sync: Product details changed on Shopify.");
         }
 
-        // Logic for Variants:
-        // Strategy: Delete old variants for this staging product and re-insert new
-        // ones.
-        // Why? Matching variants by ID is complex if Shopify adds/removes options.
-        // Since these are "Staging" variants, it's safer to refresh them on every sync.
+        stagingProductRepository.save(product);
+        pendingMedia.put(product.getId(), toSyncedMedia(node));
+        return existingOpt.isEmpty();
+    }
 
-        // Note: If you need to preserve Variant Status (e.g. APPROVED), you need a loop
-        // to match externalVariantId here similar to the product loop.
-        // For now, I will wipe and replace variants to ensure data accuracy.
-        product.getVariants().clear();
+    /**
+     * Logic for Variants: reconcile by external_variant_id instead of wipe-and-replace, so staging variant ids,
+     * status and match state (suggested/matched variant) survive a resync. Only fields that actually changed are
+     * set, so dirty checking writes just those rows ({@link StagingVariant} is {@code @DynamicUpdate}); variants
+     * gone from Shopify are removed (orphanRemoval) and new ones inserted PENDING, both batched by Hibernate.
+     * A reviewed variant whose SKU, barcode or options changed goes back to NEEDS_REVIEW.
+     */
+    private static void reconcileVariants(StagingProduct product, ProductNode node) {
+        Map<String, StagingVariant> existing = new HashMap<>();
+        for (StagingVariant variant : product.getVariants()) {
+            if (variant.getExternalVariantId() != null) existing.putIfAbsent(variant.getExternalVariantId(), variant);
+        }
 
+        Set<StagingVariant> kept = Collections.newSetFromMap(new IdentityHashMap<>());
         for (var vEdge : node.variants().edges()) {
             VariantNode vNode = vEdge.node();
-            StagingVariant variant = new StagingVariant();
-
-            variant.setExternalVariantId(vNode.id());
-            variant.setRawSku(vNode.sku());
-            variant.setRawBarcode(vNode.barcode());
-            // Store price in minor units (cents)
-            variant.setRawPriceMinor(new BigDecimal(vNode.price()).multiply(BigDecimal.valueOf(100)).longValue());
-
             // Map Options { "Color": "Red" }
             Map<String, String> optionsMap = new HashMap<>();
             vNode.selectedOptions().forEach(opt -> optionsMap.put(opt.name(), opt.value()));
-            try {
-                variant.setRawOptions(objectMapper.writeValueAsString(optionsMap));
-            } catch (JsonProcessingException e) {
-                variant.setRawOptions("{}");
+            OptionSet options = OptionSet.of(optionsMap);
+            // Store price in minor units (cents)
+            Long priceMinor = toMinor(vNode.price());
+            String imageMediaId = vNode.imageMediaId();
+
+            StagingVariant variant = existing.remove(vNode.id());
+            if (variant == null) {
+                variant = new StagingVariant();
+                variant.setExternalVariantId(vNode.id());
+                variant.setRawSku(vNode.sku());
+                variant.setRawBarcode(vNode.barcode());
+                variant.setRawPriceMinor(priceMinor);
+                variant.setOptionSet(options);
+                variant.setExternalMediaId(imageMediaId);
+                variant.setStatus("PENDING"); // Default to Pending
+                // Link to Parent
+                product.addVariant(variant);
+            } else {
+                boolean identityChanged = !Objects.equals(variant.getRawSku(), vNode.sku())
+                        || !Objects.equals(variant.getRawBarcode(), vNode.barcode())
+                        || !variant.getOptionSet().equals(options);
+                if (!Objects.equals(variant.getRawSku(), vNode.sku())) variant.setRawSku(vNode.sku());
+                if (!Objects.equals(variant.getRawBarcode(), vNode.barcode())) variant.setRawBarcode(vNode.barcode());
+                if (!Objects.equals(variant.getRawPriceMinor(), priceMinor)) variant.setRawPriceMinor(priceMinor);
+                if (!variant.getOptionSet().equals(options)) variant.setOptionSet(options);
+                if (!Objects.equals(variant.getExternalMediaId(), imageMediaId)) variant.setExternalMediaId(imageMediaId);
+                if (identityChanged && !"PENDING".equals(variant.getStatus())) {
+                    variant.setStatus("NEEDS_REVIEW");
+                }
             }
+            kept.add(variant);
+        }
 
-            variant.setStatus("PENDING"); // Default to Pending
+        product.getVariants().removeIf(variant -> !kept.contains(variant));
+    }
 
-            // Link to Parent
-            product.addVariant(variant);
-        }
+    /** Write staged media and queue their URLs for the local image mirror (MediaMirrorService). */
+    private void applyMedia(Map<Integer, List<SyncedMedia>> mediaByProduct) {
+        stagingMediaSyncWriter.apply(mediaByProduct);
+        mediaMirrorRepository.registerSources(mediaByProduct.values().stream()
+                .flatMap(List::stream)
+                .map(SyncedMedia::sourceUrl)
+                .toList());
+    }
 
-        // If it was an update and critical data changed, flag it
-        if (existingOpt.isPresent() && needsReview && !product.getStatus().equals("PENDING")) {
-            product.setStatus("NEEDS_REVIEW");
-            product.setAdminNotes("Auto-Sync: Product details changed on Shopify.");
+    /** Media to stage for a product, positioned from 1; videos are staged as their preview image. */
+    private static List<SyncedMedia> toSyncedMedia(ProductNode node) {
+        List<SyncedMedia> media = new ArrayList<>();
+        if (node.media() == null || node.media().edges() == null) return media;
+
+        int positionCounter = 1;
+        for (var mediaEdge : node.media().edges()) {
+            var mediaNode = mediaEdge.node();
+            if (mediaNode == null) continue;
+
+            String url = null;
+            String type = mediaNode.mediaContentType();
+
+            // Handle different media types
+            if ("IMAGE".equals(type) && mediaNode.image() != null) {
+                url = mediaNode.image().url();
+            } else if (("VIDEO".equals(type) || "EXTERNAL_VIDEO".equals(type)) && mediaNode.preview() != null
+                    && mediaNode.preview().image() != null) {
+                // For video, we save the preview image URL
+                url = mediaNode.preview().image().url();
+            }
+
+            if (url != null) {
+                media.add(new SyncedMedia(mediaNode.id(), type != null ? type : "IMAGE", url, mediaNode.alt(),
+                        positionCounter++));
+            }
         }
+        return media;
+    }
 
-        stagingProductRepository.save(product);
+    /** Mutable state of the running sync, read when its transaction completes. */
+    private static final class SyncRun {
+        final int id;
+        int processed;
+        /** Products a file import rejected. */
+        int failed;
+        /** Variants and live offers of the committed import batches. */
+        int variants;
+        int offersUpdated;
+        RowError firstError;
+        String notes;
+        String error;
+
+        SyncRun(int id) {
+            this.id = id;
+        }
     }
 
     private ShopifyConfig parseConfig(String jsonConfig) {
@@ -0,0 +1,144 @@
+package com.merchant.demo.service;
+
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.InetSocketAddressResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps server-side fetches of merchant-supplied URLs (media mirroring) on the public internet: loopback,
+ * private, link-local (cloud metadata at 169.254.169.254), carrier-grade NAT, unique-local and other
+ * non-routable addresses are refused.
+ * <p>
+ * {@link #check(URI)} validates a URL before the request and {@link #RESOLVER} validates every address the HTTP
+ * client actually connects to, so neither a redirect nor a DNS answer that changes after the check can reach an
+ * internal host.
+ */
+final class PublicAddresses {
+
+    /** Name resolution for the HTTP client that fails for hosts resolving to any non-public address. */
+    static final AddressResolverGroup<InetSocketAddress> RESOLVER = new AddressResolverGroup<>() {
+        @Override
+        protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+            return new InetSocketAddressResolver(executor, new PublicNameResolver(executor));
+        }
+    };
+
+    private PublicAddresses() {
+    }
+
+    /** Thrown for URLs whose host is, or resolves to, a non-public address. */
+    static class BlockedAddressException extends UnknownHostException {
+        BlockedAddressException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException not an absolute http(s) URL with a host
+     * @throws BlockedAddressException  the host resolves to a non-public address
+     * @throws UnknownHostException     the host does not resolve (may be temporary)
+     */
+    static void check(URI uri) throws UnknownHostException {
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new IllegalArgumentException("Only http and https URLs are fetched");
+        }
+        if (uri.getHost() == null || uri.getHost().isEmpty()) {
+            throw new IllegalArgumentException("URL has no host");
+        }
+        resolvePublic(uri.getHost());
+    }
+
+    /** All addresses of {@code host}, if every one of them is public. */
+    static List<InetAddress> resolvePublic(String host) throws UnknownHostException {
+        List<InetAddress> addresses = Arrays.asList(InetAddress.getAllByName(host));
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new BlockedAddressException(host + " resolves to non-public address " + address.getHostAddress());
+            }
+        }
+        return addresses;
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] b = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return isPublicIpv4(b);
+        }
+        if (address instanceof Inet6Address) {
+            // fc00::/7 unique local (includes fd00:ec2::254, the IPv6 metadata endpoint)
+            if ((b[0] & 0xfe) == 0xfc) return false;
+            // ::/96 IPv4-compatible, ::ffff:0:0/96 IPv4-mapped and 64:ff9b::/96 NAT64 embed an IPv4 address
+            boolean compatibleOrMapped = isZero(b, 0, 10)
+                    && ((b[10] == 0 && b[11] == 0) || (b[10] == (byte) 0xff && b[11] == (byte) 0xff));
+            boolean nat64 = b[0] == 0x00 && b[1] == 0x64 && b[2] == (byte) 0xff && b[3] == (byte) 0x9b && isZero(b, 4, 12);
+            boolean embedsIpv4 = compatibleOrMapped || nat64;
+            return !embedsIpv4 || isPublicIpv4(Arrays.copyOfRange(b, 12, 16));
+        }
+        return false;
+    }
+
+    private static boolean isPublicIpv4(byte[] b) {
+        int a = b[0] & 0xff;
+        int c = b[1] & 0xff;
+        return !(a == 0                                           // 0.0.0.0/8 "this network"
+                || a == 10 || a == 127                             // private, loopback
+                || (a == 100 && (c & 0xc0) == 64)                  // 100.64.0.0/10 carrier-grade NAT
+                || (a == 169 && c == 254)                          // link-local, cloud metadata
+                || (a == 172 && (c & 0xf0) == 16)                  // 172.16.0.0/12
+                || (a == 192 && c == 168)                          // 192.168.0.0/16
+                || (a == 192 && c == 0 && (b[2] & 0xff) == 0)      // 192.0.0.0/24 IETF protocol assignments
+                || (a == 198 && (c & 0xfe) == 18)                  // 198.18.0.0/15 benchmarking
+                || a >= 224);                                      // multicast, reserved, broadcast
+    }
+
+    private static boolean isZero(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] != 0) return false;
+        }
+        return true;
+    }
+
+    /** Blocking lookup like Netty's default resolver, failing unless every address is public. */
+    private static final class PublicNameResolver extends InetNameResolver {
+
+        PublicNameResolver(EventExecutor executor) {
+            super(executor);
+        }
+
+        @Override
+        protected void doResolve(String host, Promise<InetAddress> promise) {
+            try {
+                promise.setSuccess(resolvePublic(host).get(0));
+            } catch (UnknownHostException e) {
+                promise.setFailure(e);
+            }
+        }
+
+        @Override
+        protected void doResolveAll(String host, Promise<List<InetAddress>> promise) {
+            try {
+                promise.setSuccess(resolvePublic(host));
+            } catch (UnknownHostException e) {
+                promise.setFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.CatalogProperties;
+import com.merchant.demo.entity.AttributeNormalizer;
+import com.merchant.demo.entity.StagingProduct;
+import com.merchant.demo.entity.StagingVariant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers shared by the single ({@link AdminService}) and bulk ({@link BulkReviewService}) review decision flows:
+ * JSON handling, slug/SKU generation and variant generation from an options definition.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReviewDecisionSupport {
+
+    private final ObjectMapper objectMapper;
+    private final CatalogProperties catalogProperties;
+
+    /**
+     * Serialize a free-form JSON value from a request (specifications, options_definition).
+     * Returns "{}" for null and rejects values that cannot be written.
+     */
+    public String writeJson(Object value, String fieldName) {
+        if (value == null) return "{}";
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + fieldName + " JSON");
+        }
+    }
+
+    /**
+     * Parse options_definition JSON like {"Color":["Red","Blue"],"Size":["S","M"]} into a Map.
+     */
+    public Map<String, List<String>> parseOptionsDefinition(String json) {
+        if (!StringUtils.hasText(json) || "{}".equals(json.trim())) return Map.of();
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, List<String>>>() {});
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+
+    /**
+     * Variant combinations for a new master product, generated lazily: a single default variant when there are
+     * no options, otherwise the cross-product of all option values (bounded by {@code app.catalog.max-generated-variants}).
+     */
+    public VariantCombinationIterator variantCombinations(Map<String, List<String>> optionsDef) {
+        VariantCombinationIterator combinations = new VariantCombinationIterator(optionsDef);
+        // Guard against combinatorial explosion
+        int max = catalogProperties.getMaxGeneratedVariants();
+        if (combinations.size() > max) {
+            throw new IllegalArgumentException(
+                    "Options definition would generate " + combinations.size() + " variants, which exceeds the maximum of "
+                            + max + ". Reduce the number of option values.");
+        }
+        return combinations;
+    }
+
+    /**
+     * Index staging variants by their normalized options key for matching against generated variants.
+     * Only option keys that are in the options_definition are used, so that if the admin removed an
+     * option (e.g. "Age"), staging variants still match on the remaining keys.
+     */
+    public Map<String, StagingVariant> stagingVariantsByOptions(StagingProduct staging, Map<String, List<String>> optionsDef) {
+        Set<String> definedOptionKeys = optionsDef.keySet().stream()
+                .map(k -> k.toLowerCase().trim())
+                .collect(Collectors.toSet());
+        Map<String, StagingVariant> byOptions = new HashMap<>();
+        for (StagingVariant sv : staging.getVariants()) {
+            byOptions.put(AttributeNormalizer.key(sv.getOptionSet().retainNormalizedNames(definedOptionKeys)), sv);
+        }
+        return byOptions;
+    }
+
+    public static String generateSlug(String title) {
+        String base = title.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+        String suffix = "-" + UUID.randomUUID().toString().substring(0, 8);
+        return base.isEmpty() ? "product" + suffix : base + suffix;
+    }
+
+    /** Auto-generate an internal SKU from slug + option values. */
+    public static String generatedVariantSku(String slug, Map<String, String> combo) {
+        String skuSuffix = combo.values().stream()
+                .map(v -> v.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", ""))
+                .collect(Collectors.joining("-"));
+        return slug + (skuSuffix.isEmpty() ? "" : "-" + skuSuffix)
+                + "-" + UUID.randomUUID().toString().substring(0, 6);
+    }
+}
@@ -0,0 +1,17 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.dto.SyncResultDto;
+import lombok.Getter;
+
+/** A catalog sync of the merchant is already running (possibly on another instance). */
+@Getter
+public class SyncInProgressException extends IllegalStateException {
+
+    /** Progress of the running sync. */
+    private final SyncResultDto running;
+
+    public SyncInProgressException(Integer merchantId, SyncResultDto running) {
+        super("A sync is already running for merchant " + merchantId);
+        this.running = running;
+    }
+}
@@ -0,0 +1,64 @@
+package com.merchant.demo.service;
+
+import java.util.*;
+
+/**
+ * Lazily enumerates the cross-product of an options definition, e.g.
+ * {Color:[Red,Blue], Size:[S,M]} → {Color:Red,Size:S}, {Color:Red,Size:M}, {Color:Blue,Size:S}, {Color:Blue,Size:M}.
+ * <p>
+ * Works like an odometer over one index per option (the last option turns fastest), so only the current
+ * combination is ever built and memory stays flat however many combinations there are. Options with no
+ * values are skipped; with no options at all there is exactly one, empty, combination.
+ */
+public final class VariantCombinationIterator implements Iterator<Map<String, String>> {
+
+    private final String[] names;
+    private final String[][] values;
+    private final int[] indexes;
+    private final long size;
+    private long produced;
+
+    public VariantCombinationIterator(Map<String, List<String>> optionsDef) {
+        List<String> names = new ArrayList<>();
+        List<String[]> values = new ArrayList<>();
+        long size = 1;
+        for (Map.Entry<String, List<String>> entry : optionsDef.entrySet()) {
+            List<String> optionValues = entry.getValue();
+            if (optionValues == null || optionValues.isEmpty()) continue;
+            names.add(entry.getKey());
+            values.add(optionValues.toArray(String[]::new));
+            size = size > Long.MAX_VALUE / optionValues.size() ? Long.MAX_VALUE : size * optionValues.size();
+        }
+        this.names = names.toArray(String[]::new);
+        this.values = values.toArray(String[][]::new);
+        this.indexes = new int[this.names.length];
+        this.size = size;
+    }
+
+    /** Total number of combinations (saturates at {@link Long#MAX_VALUE}). */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return produced < size;
+    }
+
+    @Override
+    public Map<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, String> combination = new LinkedHashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            combination.put(names[i], values[i][indexes[i]]);
+        }
+        produced++;
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            if (++indexes[i] < values[i].length) break;
+            indexes[i] = 0;
+        }
+        return combination;
+    }
+}
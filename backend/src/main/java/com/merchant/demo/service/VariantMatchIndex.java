@@ -0,0 +1,97 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.entity.AttributeNormalizer;
+import com.merchant.demo.entity.OptionSet;
+import com.merchant.demo.entity.Variant;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Hash indexes over the variants of one master product (GTIN, SKU and normalized options key).
+ * Built once per master product so each staging variant resolves with constant-time lookups;
+ * options are keyed by their {@link AttributeNormalizer} canonical form, computed once per variant.
+ */
+public final class VariantMatchIndex {
+
+    public static final String REASON_BARCODE = "BARCODE_MATCH";
+    public static final String REASON_SKU = "SKU_MATCH";
+    public static final String REASON_OPTIONS = "OPTIONS_MATCH";
+    public static final String REASON_NONE = "NONE";
+
+    public static final int CONFIDENCE_BARCODE = 100;
+    public static final int CONFIDENCE_SKU = 90;
+    public static final int CONFIDENCE_OPTIONS = 75;
+
+    private final Map<String, Integer> byGtin;
+    private final Map<String, Integer> bySku;
+    private final Map<String, Integer> byOptionsKey;
+
+    private VariantMatchIndex(int expectedSize) {
+        int capacity = Math.max(16, (int) (expectedSize / 0.75f) + 1);
+        this.byGtin = new HashMap<>(capacity);
+        this.bySku = new HashMap<>(capacity);
+        this.byOptionsKey = new HashMap<>(capacity);
+    }
+
+    /** Index the given master variants using their (cached) typed options. */
+    public static VariantMatchIndex build(List<Variant> variants) {
+        return build(variants, Variant::getOptionSet);
+    }
+
+    /**
+     * Index the given master variants. When several variants share a key the first one wins,
+     * matching the previous "first match in list order" behaviour.
+     *
+     * @param variants master variants of a single product
+     * @param options  typed options of a variant (called once per variant)
+     */
+    public static VariantMatchIndex build(List<Variant> variants, Function<Variant, OptionSet> options) {
+        VariantMatchIndex index = new VariantMatchIndex(variants.size());
+        for (Variant mv : variants) {
+            if (mv.getGtin() != null) {
+                index.byGtin.putIfAbsent(mv.getGtin(), mv.getId());
+            }
+            if (mv.getInternalSku() != null) {
+                index.bySku.putIfAbsent(mv.getInternalSku(), mv.getId());
+            }
+            OptionSet optionSet = options.apply(mv);
+            if (optionSet != null && !optionSet.isEmpty()) {
+                index.byOptionsKey.putIfAbsent(AttributeNormalizer.key(optionSet), mv.getId());
+            }
+        }
+        return index;
+    }
+
+    /** Resolve a staging variant: barcode first, then SKU, then normalized options. */
+    public Match match(String barcode, String sku, OptionSet options) {
+        if (StringUtils.hasText(barcode)) {
+            Integer id = byGtin.get(barcode);
+            if (id != null) return new Match(id, REASON_BARCODE, CONFIDENCE_BARCODE);
+        }
+        if (StringUtils.hasText(sku)) {
+            Integer id = bySku.get(sku);
+            if (id != null) return new Match(id, REASON_SKU, CONFIDENCE_SKU);
+        }
+        if (options != null && !options.isEmpty()) {
+            Integer id = byOptionsKey.get(AttributeNormalizer.key(options));
+            if (id != null) return new Match(id, REASON_OPTIONS, CONFIDENCE_OPTIONS);
+        }
+        return Match.NONE;
+    }
+
+    /**
+     * Build a normalized key from option values for matching staging variants to master variants.
+     * Same canonical form as {@code variants.normalized_attributes} (see {@link AttributeNormalizer}).
+     */
+    public static String optionsKey(Map<String, String> options) {
+        return AttributeNormalizer.key(OptionSet.of(options));
+    }
+
+    public record Match(Integer variantId, String reason, int confidence) {
+        public static final Match NONE = new Match(null, REASON_NONE, 0);
+    }
+}
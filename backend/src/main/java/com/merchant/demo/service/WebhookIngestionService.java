@@ -0,0 +1,145 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.WebhookProperties;
+import com.merchant.demo.dto.ShopifyConfig;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.WebhookEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Verifies and enqueues Shopify webhooks. Only the HMAC check and one upsert into {@code webhook_events}
+ * happen on the request thread; {@link WebhookProcessor} applies the (coalesced) events.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookIngestionService {
+
+    public static final String TOPIC_PRODUCTS_CREATE = "products/create";
+    public static final String TOPIC_PRODUCTS_UPDATE = "products/update";
+    public static final String TOPIC_PRODUCTS_DELETE = "products/delete";
+    public static final String TOPIC_INVENTORY_LEVELS_UPDATE = "inventory_levels/update";
+
+    private static final Set<String> SUPPORTED_TOPICS = Set.of(
+            TOPIC_PRODUCTS_CREATE, TOPIC_PRODUCTS_UPDATE, TOPIC_PRODUCTS_DELETE, TOPIC_INVENTORY_LEVELS_UPDATE);
+
+    private final MerchantRepository merchantRepository;
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookProperties webhookProperties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return false when the topic is not handled (acknowledged but ignored)
+     * @throws NoSuchElementException no active merchant for the shop domain
+     * @throws SecurityException      missing or invalid HMAC
+     */
+    public boolean ingest(String topic, String shopDomain, String hmacHeader, String webhookId, byte[] body) {
+        if (shopDomain == null || shopDomain.isBlank()) {
+            throw new IllegalArgumentException("X-Shopify-Shop-Domain is required");
+        }
+        String host = ShopifyAdapter.normalizeStoreHost(shopDomain).toLowerCase(Locale.ROOT);
+        Merchant merchant = merchantRepository.findActiveByShopDomain(host)
+                .orElseThrow(() -> new NoSuchElementException("No merchant for shop: " + host));
+
+        String secret = webhookSecret(merchant);
+        if (secret == null || secret.isBlank() || !isValidHmac(secret, body, hmacHeader)) {
+            throw new SecurityException("Invalid webhook signature");
+        }
+        if (!SUPPORTED_TOPICS.contains(topic)) {
+            log.debug("Ignoring webhook topic {} for merchant {}", topic, merchant.getId());
+            return false;
+        }
+
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid webhook payload");
+        }
+        String resourceKey = resourceKey(topic, payload);
+        if (!webhookEventRepository.enqueue(merchant.getId(), topic, resourceKey, resourceUpdatedAt(payload),
+                webhookId, payload.toString(), webhookProperties.getCoalesceWindowMs())) {
+            log.debug("Dropped out-of-date webhook {} for {} of merchant {}", topic, resourceKey, merchant.getId());
+        }
+        return true;
+    }
+
+    /** Shopify's {@code updated_at} of the resource, or null when missing or unparseable. */
+    static Instant resourceUpdatedAt(JsonNode payload) {
+        String updatedAt = payload.path("updated_at").asText(null);
+        if (updatedAt == null || updatedAt.isBlank()) return null;
+        try {
+            return OffsetDateTime.parse(updatedAt).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** Product GID for product topics, InventoryItem GID for inventory levels. */
+    static String resourceKey(String topic, JsonNode payload) {
+        if (TOPIC_INVENTORY_LEVELS_UPDATE.equals(topic)) {
+            JsonNode itemId = payload.path("inventory_item_id");
+            if (itemId.isMissingNode() || itemId.isNull()) {
+                throw new IllegalArgumentException("inventory_item_id is required");
+            }
+            return "gid://shopify/InventoryItem/" + itemId.asText();
+        }
+        String gid = payload.path("admin_graphql_api_id").asText(null);
+        if (gid != null) return gid;
+        JsonNode id = payload.path("id");
+        if (id.isMissingNode() || id.isNull()) {
+            throw new IllegalArgumentException("Product id is required");
+        }
+        return "gid://shopify/Product/" + id.asText();
+    }
+
+    /** Base64 HMAC-SHA256 of the raw body, compared in constant time. */
+    static boolean isValidHmac(String secret, byte[] body, String hmacHeader) {
+        if (hmacHeader == null || hmacHeader.isBlank()) return false;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = Base64.getEncoder().encode(mac.doFinal(body));
+            return MessageDigest.isEqual(expected, hmacHeader.trim().getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private String webhookSecret(Merchant merchant) {
+        ShopifyConfig config = parseConfig(merchant.getSourceConfig());
+        if (config != null && config.webhookSecret() != null && !config.webhookSecret().isBlank()) {
+            return config.webhookSecret();
+        }
+        return webhookProperties.getShopifySecret();
+    }
+
+    private ShopifyConfig parseConfig(String jsonConfig) {
+        try {
+            return objectMapper.readValue(jsonConfig, ShopifyConfig.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.WebhookProperties;
+import com.merchant.demo.dto.ShopifyConfig;
+import com.merchant.demo.dto.shopify.ProductWebhookPayload;
+import com.merchant.demo.dto.shopify.VariantInventoryResponse.VariantInventoryNode;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.OfferSyncWriter.SyncedVariant;
+import com.merchant.demo.repository.WebhookEventRepository;
+import com.merchant.demo.repository.WebhookEventRepository.WebhookEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Applies claimed webhook events. Product events go through {@link ProductSyncService}'s single-product
+ * upsert (one small transaction each); inventory events of a merchant are resolved to variants with one
+ * Shopify lookup per poll and written through {@link OfferSyncWriter} in one batch. Product events that meet a
+ * running catalog sync of their merchant are deferred without counting as a failed attempt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookProcessor {
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final MerchantRepository merchantRepository;
+    private final ProductSyncService productSyncService;
+    private final ShopifyAdapter shopifyAdapter;
+    private final OfferSyncWriter offerSyncWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WebhookProperties webhookProperties;
+
+    @Scheduled(fixedDelayString = "${app.webhooks.poll-interval-ms:2000}")
+    public void poll() {
+        try {
+            // Drain while full batches come back, then wait for the next tick
+            int claimed;
+            do {
+                claimed = processDue();
+            } while (claimed >= webhookProperties.getBatchSize());
+        } catch (Exception e) {
+            log.error("Webhook processing failed", e);
+        }
+    }
+
+    @Scheduled(cron = "0 30 4 * * *", zone = "UTC")
+    public void purgeProcessed() {
+        int deleted = webhookEventRepository.purgeProcessed(webhookProperties.getRetentionDays());
+        if (deleted > 0) log.info("Purged {} processed webhook events", deleted);
+    }
+
+    /** Claim and apply one batch of due events; returns the number claimed. */
+    public int processDue() {
+        List<WebhookEvent> events = transactionTemplate.execute(status ->
+                webhookEventRepository.claimDue(webhookProperties.getBatchSize(), webhookProperties.getClaimTimeoutMs()));
+        if (events == null || events.isEmpty()) return 0;
+
+        Map<Integer, List<WebhookEvent>> byMerchant = new LinkedHashMap<>();
+        events.forEach(e -> byMerchant.computeIfAbsent(e.merchantId(), k -> new ArrayList<>()).add(e));
+        byMerchant.forEach(this::processMerchant);
+        return events.size();
+    }
+
+    private void processMerchant(Integer merchantId, List<WebhookEvent> events) {
+        Merchant merchant = merchantRepository.findById(merchantId).orElse(null);
+        if (merchant == null || !Boolean.TRUE.equals(merchant.getIsActive())
+                || !"SHOPIFY".equals(merchant.getSourceType())) {
+            // Nothing to apply for inactive merchants, nor for ones that switched to file imports since ingestion
+            webhookEventRepository.markDone(events.stream().map(WebhookEvent::id).toList());
+            return;
+        }
+
+        List<WebhookEvent> inventoryEvents = new ArrayList<>();
+        List<Long> done = new ArrayList<>();
+        List<Long> deferred = new ArrayList<>();
+        boolean created = false;
+        for (WebhookEvent event : events) {
+            if (WebhookIngestionService.TOPIC_INVENTORY_LEVELS_UPDATE.equals(event.topic())) {
+                inventoryEvents.add(event);
+                continue;
+            }
+            if (!deferred.isEmpty()) {
+                // The merchant's catalog sync is still running: the rest of its product events wait as well
+                deferred.add(event.id());
+                continue;
+            }
+            try {
+                if (WebhookIngestionService.TOPIC_PRODUCTS_DELETE.equals(event.topic())) {
+                    productSyncService.archiveProduct(merchantId, event.resourceKey());
+                } else {
+                    ProductWebhookPayload payload = objectMapper.readValue(event.payloadJson(), ProductWebhookPayload.class);
+                    created |= productSyncService.applyProductUpdate(merchant, payload.toProductNode());
+                }
+                done.add(event.id());
+            } catch (SyncInProgressException e) {
+                deferred.add(event.id());
+            } catch (Exception e) {
+                log.warn("Webhook event {} ({}) failed: {}", event.id(), event.topic(), e.getMessage());
+                webhookEventRepository.markFailed(event.id(), e.getMessage(), webhookProperties.getMaxAttempts());
+            }
+        }
+
+        if (!inventoryEvents.isEmpty()) {
+            try {
+                applyInventory(merchant, inventoryEvents);
+                inventoryEvents.forEach(e -> done.add(e.id()));
+            } catch (Exception e) {
+                log.warn("Inventory webhooks for merchant {} failed: {}", merchantId, e.getMessage());
+                inventoryEvents.forEach(ev ->
+                        webhookEventRepository.markFailed(ev.id(), e.getMessage(), webhookProperties.getMaxAttempts()));
+            }
+        }
+
+        webhookEventRepository.markDone(done);
+        if (!deferred.isEmpty()) {
+            log.debug("Catalog sync running for merchant {}, deferring {} product webhooks", merchantId, deferred.size());
+            webhookEventRepository.defer(deferred, webhookProperties.getSyncBusyDelayMs());
+        }
+        if (created) {
+            // New staging products need matching; the listener enqueues a job with this commit
+            transactionTemplate.executeWithoutResult(status ->
+                    eventPublisher.publishEvent(new CatalogSyncedEvent(merchantId)));
+        }
+    }
+
+    /** The webhook only carries one location's quantity, so read each variant's total from Shopify. */
+    private void applyInventory(Merchant merchant, List<WebhookEvent> events) throws JsonProcessingException {
+        ShopifyConfig config = objectMapper.readValue(merchant.getSourceConfig(), ShopifyConfig.class);
+        List<String> itemIds = events.stream().map(WebhookEvent::resourceKey).distinct().toList();
+        List<VariantInventoryNode> levels = shopifyAdapter.fetchInventoryByItemIds(config, itemIds);
+        List<SyncedVariant> variants = levels.stream()
+                .map(l -> new SyncedVariant(l.id(), null, l.inventoryQuantity()))
+                .toList();
+        transactionTemplate.executeWithoutResult(status ->
+                offerSyncWriter.apply(merchant.getId(), variants, Instant.now()));
+    }
+}
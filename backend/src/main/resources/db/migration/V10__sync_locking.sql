@@ -0,0 +1,16 @@
+-- One staging row per Shopify product. Concurrent syncs could insert the same product twice; keep the
+-- copy that got furthest in review (then the oldest) and drop the others (variants and media cascade).
+DELETE FROM public.staging_products p
+USING (SELECT id,
+              row_number() OVER (PARTITION BY merchant_id, external_product_id
+                                 ORDER BY (status IN ('PENDING', 'PENDING_SYNC')), id) AS rn
+       FROM public.staging_products
+       WHERE external_product_id IS NOT NULL) ranked
+WHERE p.id = ranked.id AND ranked.rn > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_staging_products_merchant_external
+    ON public.staging_products USING btree (merchant_id, external_product_id);
+
+-- Latest sync run of a merchant (progress of a running sync)
+CREATE INDEX IF NOT EXISTS idx_sync_logs_merchant_id
+    ON public.sync_logs USING btree (merchant_id, id);
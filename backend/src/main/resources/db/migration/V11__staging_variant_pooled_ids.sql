@@ -0,0 +1,3 @@
+-- Staging variants are reconciled in place on resync; new ones get ids from the pooled optimizer
+-- (allocationSize = 50, see V3) so Hibernate can batch their inserts.
+ALTER SEQUENCE public.staging_variants_id_seq INCREMENT BY 50;
@@ -0,0 +1,36 @@
+-- Local mirror of product images. Files are content-addressed: one media_assets row (and one stored file
+-- plus thumbnail) per distinct SHA-256, however many merchants or URLs point at the same bytes.
+CREATE TABLE public.media_assets (
+    sha256 text PRIMARY KEY,
+    content_type text NOT NULL,
+    byte_size bigint NOT NULL,
+    width integer,
+    height integer,
+    has_thumbnail boolean DEFAULT false NOT NULL,
+    created_at timestamp with time zone DEFAULT now() NOT NULL,
+    CONSTRAINT media_assets_sha256_check CHECK (sha256 ~ '^[0-9a-f]{64}$')
+);
+
+-- Every source URL seen in staging_media / media, and the asset it was mirrored to.
+-- PENDING rows are claimed by moving next_attempt_at past the claim timeout (FOR UPDATE SKIP LOCKED).
+CREATE TABLE public.media_sources (
+    source_url text PRIMARY KEY,
+    sha256 text REFERENCES public.media_assets(sha256),
+    status text DEFAULT 'PENDING'::text NOT NULL,
+    attempts integer DEFAULT 0 NOT NULL,
+    next_attempt_at timestamp with time zone DEFAULT now() NOT NULL,
+    last_error text,
+    created_at timestamp with time zone DEFAULT now() NOT NULL,
+    mirrored_at timestamp with time zone,
+    CONSTRAINT media_sources_status_check CHECK ((status = ANY (ARRAY['PENDING'::text, 'MIRRORED'::text, 'FAILED'::text])))
+);
+
+CREATE INDEX idx_media_sources_due ON public.media_sources USING btree (next_attempt_at)
+    WHERE (status = 'PENDING'::text);
+
+-- Mirror what is already there
+INSERT INTO public.media_sources (source_url)
+SELECT source_url FROM public.staging_media WHERE length(source_url) <= 2000
+UNION
+SELECT src_url FROM public.media WHERE length(src_url) <= 2000
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,3 @@
+-- 64-bit difference hash (dHash) of each decodable mirrored image, for near-duplicate image matching.
+-- Assets mirrored earlier are hashed in the background by the media mirror.
+ALTER TABLE public.media_assets ADD COLUMN dhash bigint;
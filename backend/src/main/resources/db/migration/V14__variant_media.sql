@@ -0,0 +1,9 @@
+-- Shopify variant image: the product media (external_media_id in staging_media) shown for the variant.
+ALTER TABLE public.staging_variants ADD COLUMN external_media_id text;
+
+-- variant_media is keyed (variant_id, media_id); deleting media cascades through media_id.
+CREATE INDEX IF NOT EXISTS idx_variant_media_media_id ON public.variant_media USING btree (media_id);
+
+-- A product's variants and media are read by product id (variant images read API, review approval).
+CREATE INDEX IF NOT EXISTS idx_variants_product_id ON public.variants USING btree (product_id);
+CREATE INDEX IF NOT EXISTS idx_media_product_position ON public.media USING btree (product_id, "position");
@@ -0,0 +1,25 @@
+-- Storefront read model: one denormalized document per ACTIVE master product (product, brand, categories,
+-- media, active variants with their images and best offer), rebuilt from the catalog tables.
+CREATE TABLE public.product_documents (
+    product_id integer PRIMARY KEY REFERENCES public.products(id) ON DELETE CASCADE,
+    document jsonb NOT NULL,
+    -- Bumped on every rebuild that changed the document (storefront ETag)
+    version bigint DEFAULT 1 NOT NULL,
+    built_at timestamp with time zone DEFAULT now() NOT NULL
+);
+
+-- Products whose document is stale. Writers add rows in their own transaction; the refresher claims them
+-- (FOR UPDATE SKIP LOCKED) and rebuilds. No FK: a deleted product only needs its queue row dropped.
+CREATE TABLE public.product_document_queue (
+    product_id integer PRIMARY KEY,
+    queued_at timestamp with time zone DEFAULT now() NOT NULL
+);
+
+CREATE INDEX idx_product_document_queue_queued_at ON public.product_document_queue USING btree (queued_at);
+
+-- Products showing a freshly mirrored image are found by URL; hash, as URLs can exceed the btree row limit.
+CREATE INDEX idx_media_src_url ON public.media USING hash (src_url);
+
+-- Build documents for the existing catalog
+INSERT INTO public.product_document_queue (product_id)
+SELECT id FROM public.products WHERE status = 'ACTIVE';
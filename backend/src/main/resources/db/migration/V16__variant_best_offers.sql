@@ -0,0 +1,34 @@
+-- Offer the storefront shows per master variant: the lowest settlement price among LIVE, active, in-stock offers;
+-- ties go to the offer with more stock, then the older offer, then the lower id. Variants without such an
+-- offer have no row. Kept in sync by the offer writers for the variants they touch.
+CREATE TABLE public.variant_best_offers (
+    variant_id integer PRIMARY KEY REFERENCES public.variants(id) ON DELETE CASCADE,
+    offer_id integer NOT NULL REFERENCES public.merchant_offers(id) ON DELETE CASCADE,
+    merchant_id integer NOT NULL,
+    currency_code text NOT NULL,
+    price_minor bigint NOT NULL,
+    settlement_price_minor bigint NOT NULL,
+    stock integer NOT NULL,
+    updated_at timestamp with time zone DEFAULT now() NOT NULL
+);
+
+CREATE INDEX idx_variant_best_offers_offer_id ON public.variant_best_offers USING btree (offer_id);
+
+-- Eligible offers of a variant in tie-break order: resolving a variant reads the first index entry
+CREATE INDEX idx_offers_variant_best ON public.merchant_offers
+    USING btree (variant_id, cached_settlement_price_minor, current_stock DESC, created_at, id)
+    WHERE (is_active AND offer_status = 'LIVE'::text AND current_stock > 0);
+
+INSERT INTO public.variant_best_offers (variant_id, offer_id, merchant_id, currency_code, price_minor,
+                                        settlement_price_minor, stock)
+SELECT DISTINCT ON (o.variant_id)
+       o.variant_id, o.id, o.merchant_id, o.currency_code, o.cached_price_minor, o.cached_settlement_price_minor,
+       o.current_stock
+FROM public.merchant_offers o
+WHERE o.is_active AND o.offer_status = 'LIVE' AND o.current_stock > 0
+ORDER BY o.variant_id, o.cached_settlement_price_minor, o.current_stock DESC, o.created_at, o.id;
+
+-- Product documents now read their best offers from here
+INSERT INTO public.product_document_queue (product_id)
+SELECT id FROM public.products WHERE status = 'ACTIVE'
+ON CONFLICT DO NOTHING;
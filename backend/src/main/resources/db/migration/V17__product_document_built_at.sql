@@ -0,0 +1,2 @@
+-- The catalog facet index applies documents rebuilt since its last check
+CREATE INDEX idx_product_documents_built_at ON public.product_documents USING btree (built_at);
@@ -0,0 +1,12 @@
+-- Rows rejected by a catalog file import, per sync run. Row numbers are the CSV record's (header = 1) or
+-- the JSONL line's, so merchants can fix their file; capped per run by the importer.
+
+CREATE TABLE public.sync_log_errors (
+    id bigserial PRIMARY KEY,
+    sync_log_id integer NOT NULL REFERENCES public.sync_logs(id) ON DELETE CASCADE,
+    row_number bigint NOT NULL,
+    external_product_id text,
+    message text NOT NULL
+);
+
+CREATE INDEX idx_sync_log_errors_sync_log ON public.sync_log_errors USING btree (sync_log_id, row_number);
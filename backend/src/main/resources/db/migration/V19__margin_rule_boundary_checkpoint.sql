@@ -0,0 +1,15 @@
+-- Margin rules take effect and expire on their own (valid_from / valid_to), without an edit that would queue
+-- repricing. A scheduled check queues a reprice for merchants whose rule boundaries passed since the last check;
+-- the single row below records how far it got, so boundaries passed while no instance was running are not lost.
+
+CREATE TABLE public.margin_rule_boundary_checkpoint (
+    id boolean PRIMARY KEY DEFAULT true CHECK (id),
+    checked_through timestamp with time zone NOT NULL
+);
+
+INSERT INTO public.margin_rule_boundary_checkpoint (checked_through) VALUES (now());
+
+CREATE INDEX IF NOT EXISTS idx_margin_rules_valid_from
+    ON public.margin_rules USING btree (valid_from) WHERE is_active;
+CREATE INDEX IF NOT EXISTS idx_margin_rules_valid_to
+    ON public.margin_rules USING btree (valid_to) WHERE is_active AND valid_to IS NOT NULL;
@@ -0,0 +1,24 @@
+-- Webhooks identify the merchant by shop domain. Derive it from source_config.store_url in the database (same
+-- normalization as ShopifyAdapter.normalizeStoreHost, lowercased) so ingestion is one indexed lookup instead of
+-- parsing every merchant's config per request.
+CREATE OR REPLACE FUNCTION public.shopify_store_host(store_url text) RETURNS text
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+    SELECT CASE
+               WHEN h = '' THEN NULL
+               WHEN h LIKE '%.myshopify.com' THEN h
+               ELSE h || '.myshopify.com' END
+    FROM (SELECT lower(btrim(split_part(regexp_replace(btrim(store_url), '^https?://', '', 'i'), '/', 1))) AS h) s
+$$;
+
+ALTER TABLE public.merchants
+    ADD COLUMN shop_domain text GENERATED ALWAYS AS (public.shopify_store_host(source_config ->> 'store_url')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_merchants_shop_domain
+    ON public.merchants USING btree (shop_domain) WHERE is_active;
+
+-- Shopify's updated_at of the resource in the payload. Webhooks can arrive out of order: an older version never
+-- replaces a newer pending payload, nor is queued again once a newer one was processed.
+ALTER TABLE public.webhook_events ADD COLUMN resource_updated_at timestamp with time zone;
+
+CREATE INDEX IF NOT EXISTS idx_webhook_events_resource
+    ON public.webhook_events USING btree (merchant_id, resource_key, resource_updated_at);
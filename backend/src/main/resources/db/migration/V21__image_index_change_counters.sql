@@ -0,0 +1,55 @@
+-- Change counters behind the image hash index fingerprint. Counting rows and taking max(id) misses a delete
+-- followed by an insert, a re-pointed media URL, a replaced hash or a product archived while another was
+-- activated; every write that can change the indexed (product, dhash) pairs bumps its table's counter instead.
+-- The counters are updated in the writing transaction, so a new value is only seen together with its data.
+
+CREATE TABLE public.image_index_changes (
+    table_name text PRIMARY KEY,
+    changes bigint DEFAULT 0 NOT NULL
+);
+
+INSERT INTO public.image_index_changes (table_name)
+VALUES ('media'), ('media_sources'), ('media_assets'), ('products');
+
+CREATE FUNCTION public.bump_image_index_changes() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    UPDATE public.image_index_changes SET changes = changes + 1 WHERE table_name = TG_TABLE_NAME;
+    RETURN NULL;
+END
+$$;
+
+-- Statement-level where any write matters; row-level with WHEN where only a changed column does, so claims and
+-- retries on media_sources or unrelated product edits leave the counters alone.
+CREATE TRIGGER trg_media_image_index_changes
+    AFTER INSERT OR DELETE OR UPDATE OF product_id, src_url ON public.media
+    FOR EACH STATEMENT EXECUTE FUNCTION public.bump_image_index_changes();
+CREATE TRIGGER trg_media_truncate_image_index_changes
+    AFTER TRUNCATE ON public.media
+    FOR EACH STATEMENT EXECUTE FUNCTION public.bump_image_index_changes();
+
+CREATE TRIGGER trg_media_sources_image_index_changes
+    AFTER UPDATE OF sha256 ON public.media_sources
+    FOR EACH ROW WHEN (OLD.sha256 IS DISTINCT FROM NEW.sha256)
+    EXECUTE FUNCTION public.bump_image_index_changes();
+CREATE TRIGGER trg_media_sources_delete_image_index_changes
+    AFTER DELETE OR TRUNCATE ON public.media_sources
+    FOR EACH STATEMENT EXECUTE FUNCTION public.bump_image_index_changes();
+
+CREATE TRIGGER trg_media_assets_image_index_changes
+    AFTER UPDATE OF dhash ON public.media_assets
+    FOR EACH ROW WHEN (OLD.dhash IS DISTINCT FROM NEW.dhash)
+    EXECUTE FUNCTION public.bump_image_index_changes();
+CREATE TRIGGER trg_media_assets_write_image_index_changes
+    AFTER INSERT OR DELETE OR TRUNCATE ON public.media_assets
+    FOR EACH STATEMENT EXECUTE FUNCTION public.bump_image_index_changes();
+
+-- New products have no media yet; the media insert that follows bumps its own counter
+CREATE TRIGGER trg_products_image_index_changes
+    AFTER UPDATE OF status ON public.products
+    FOR EACH ROW WHEN (OLD.status IS DISTINCT FROM NEW.status)
+    EXECUTE FUNCTION public.bump_image_index_changes();
+CREATE TRIGGER trg_products_delete_image_index_changes
+    AFTER DELETE OR TRUNCATE ON public.products
+    FOR EACH STATEMENT EXECUTE FUNCTION public.bump_image_index_changes();
@@ -0,0 +1,10 @@
+-- Document versions come from one sequence instead of counting per row: a product that is archived (its document
+-- deleted) and reactivated used to restart at version 1 and could hand a client an ETag it had cached for
+-- different content. Sequence values are never reused, whatever happens to the row.
+CREATE SEQUENCE public.product_document_version_seq;
+
+SELECT setval('public.product_document_version_seq', GREATEST((SELECT max(version) FROM public.product_documents), 1));
+
+ALTER TABLE public.product_documents
+    ALTER COLUMN version SET DEFAULT nextval('public.product_document_version_seq');
+ALTER SEQUENCE public.product_document_version_seq OWNED BY public.product_documents.version;
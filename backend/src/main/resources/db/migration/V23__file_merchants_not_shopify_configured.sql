@@ -0,0 +1,6 @@
+-- Merchants that import catalog files must not also be picked up by the Shopify inventory sync, which would
+-- overwrite the imported stock. Switching to FILE clears shopify_configured; existing rows are fixed here.
+UPDATE public.merchants SET shopify_configured = false WHERE source_type = 'FILE' AND shopify_configured;
+
+ALTER TABLE public.merchants ADD CONSTRAINT merchants_shopify_configured_source_check
+    CHECK (source_type = 'SHOPIFY' OR NOT shopify_configured);
@@ -0,0 +1,5 @@
+-- File imports commit per batch, so their advisory lock is only held while a batch is written. Between
+-- batches the run keeps the merchant through its sync_logs row: heartbeat_at is refreshed with every committed
+-- batch, and an IN_PROGRESS run with a recent heartbeat refuses other syncs of the merchant. Runs that hold the
+-- lock for their whole transaction (Shopify syncs) leave it null.
+ALTER TABLE public.sync_logs ADD COLUMN heartbeat_at timestamp with time zone;
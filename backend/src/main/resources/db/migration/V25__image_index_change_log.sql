@@ -0,0 +1,24 @@
+-- The image index counters of V21 were single rows updated by every writing transaction, so media writes,
+-- approvals and archives queued behind each other's row locks until commit (and could deadlock on two
+-- counters). Writers now record their transaction in an append-only log instead: one row per transaction,
+-- inserted under its own key, so concurrent writers never wait on each other. A row only becomes visible
+-- when its transaction commits, so the fingerprint over the log changes together with the data.
+
+CREATE TABLE public.image_index_change_log (
+    xact_id xid8 PRIMARY KEY,
+    changed_at timestamp with time zone DEFAULT now() NOT NULL
+);
+
+CREATE INDEX idx_image_index_change_log_changed_at ON public.image_index_change_log (changed_at);
+
+-- Same triggers as V21, new body
+CREATE OR REPLACE FUNCTION public.bump_image_index_changes() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    INSERT INTO public.image_index_change_log (xact_id) VALUES (pg_current_xact_id()) ON CONFLICT DO NOTHING;
+    RETURN NULL;
+END
+$$;
+
+DROP TABLE public.image_index_changes;
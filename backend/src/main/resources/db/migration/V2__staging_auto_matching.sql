@@ -0,0 +1,14 @@
+-- Supports the post-sync matching stage (staging products -> master products).
+
+-- Trigram index for title similarity lookups (products.title % staging title).
+CREATE INDEX IF NOT EXISTS idx_products_title_trgm ON public.products USING gist (title gist_trgm_ops);
+
+-- staging_variants had no index on its parent FK; every per-product variant lookup was a seq scan.
+CREATE INDEX IF NOT EXISTS idx_staging_variants_product ON public.staging_variants USING btree (staging_product_id);
+
+-- Barcode probe side of the GTIN join against idx_variants_gtin_global.
+CREATE INDEX IF NOT EXISTS idx_staging_variants_barcode ON public.staging_variants USING btree (raw_barcode)
+    WHERE (raw_barcode IS NOT NULL AND raw_barcode <> '');
+
+-- Keyset scan of reviewable staging rows per merchant.
+CREATE INDEX IF NOT EXISTS idx_staging_prod_merchant_status ON public.staging_products USING btree (merchant_id, status, id);
@@ -0,0 +1,6 @@
+-- Variant, MerchantOffer and Media ids come from their sequences with Hibernate's pooled optimizer
+-- (allocationSize = 50): one nextval reserves a block of 50 ids, so bulk inserts can be batched.
+-- The increment must match the entity mapping; schema validation fails otherwise.
+ALTER SEQUENCE public.variants_id_seq INCREMENT BY 50;
+ALTER SEQUENCE public.merchant_offers_id_seq INCREMENT BY 50;
+ALTER SEQUENCE public.media_id_seq INCREMENT BY 50;
@@ -0,0 +1,33 @@
+-- Canonical variant options for indexed option-based matching (see AttributeNormalizer).
+-- New rows are written by the application; this backfills existing ones with the same rules.
+
+WITH name_synonyms(raw, canonical) AS (
+    VALUES ('colour', 'color'), ('colours', 'color'), ('colors', 'color'), ('sizes', 'size')
+), value_synonyms(raw, canonical) AS (
+    VALUES ('extra small', 'xs'), ('x-small', 'xs'), ('x small', 'xs'), ('xsmall', 'xs'),
+           ('small', 's'), ('sm', 's'),
+           ('medium', 'm'), ('med', 'm'),
+           ('large', 'l'), ('lg', 'l'),
+           ('extra large', 'xl'), ('x-large', 'xl'), ('x large', 'xl'), ('xlarge', 'xl'),
+           ('extra extra large', 'xxl'), ('xx-large', 'xxl'), ('xxlarge', 'xxl'), ('2xl', 'xxl'),
+           ('xxx-large', 'xxxl'), ('xxxlarge', 'xxxl'), ('3xl', 'xxxl'),
+           ('grey', 'gray')
+)
+UPDATE public.variants v
+SET normalized_attributes = COALESCE((
+        SELECT jsonb_object_agg(COALESCE(ns.canonical, e.name), COALESCE(vs.canonical, e.value))
+        FROM (
+            SELECT regexp_replace(lower(trim(kv.key)), '\s+', ' ', 'g')   AS name,
+                   regexp_replace(lower(trim(kv.value)), '\s+', ' ', 'g') AS value
+            FROM jsonb_each_text(v.options) kv
+            WHERE kv.value IS NOT NULL
+        ) e
+        LEFT JOIN name_synonyms ns ON ns.raw = e.name
+        LEFT JOIN value_synonyms vs ON vs.raw = e.value
+    ), '{}'::jsonb)
+WHERE v.options IS NOT NULL AND jsonb_typeof(v.options) = 'object';
+
+UPDATE public.variants SET normalized_attributes = '{}'::jsonb WHERE normalized_attributes IS NULL;
+
+-- Containment lookups: normalized_attributes @> '{"color":"red","size":"m"}'
+CREATE INDEX IF NOT EXISTS idx_variants_normalized_attrs ON public.variants USING gin (normalized_attributes jsonb_path_ops);
@@ -0,0 +1,11 @@
+-- Pricing engine: margin rule lookup per merchant and keyset repricing of a merchant's offers.
+
+CREATE INDEX IF NOT EXISTS idx_margin_rules_merchant_active ON public.margin_rules USING btree (merchant_id)
+    WHERE (is_active = true);
+
+-- Replaces idx_offers_merchant for keyset pages: WHERE merchant_id = ? AND id > ? ORDER BY id.
+CREATE INDEX IF NOT EXISTS idx_offers_merchant_id_id ON public.merchant_offers USING btree (merchant_id, id);
+DROP INDEX IF EXISTS public.idx_offers_merchant;
+
+ALTER TABLE public.margin_rules
+    ADD CONSTRAINT margin_rules_valid_window_check CHECK (valid_to IS NULL OR valid_to > valid_from);
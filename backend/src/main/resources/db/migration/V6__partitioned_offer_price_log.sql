@@ -0,0 +1,65 @@
+-- offer_price_log becomes an append-only, monthly range-partitioned history of offer prices.
+-- Each offer has at most one open row (valid_to IS NULL); a price change closes it and appends a new one.
+-- Partitions for upcoming months are created by PriceLogPartitionMaintenance; the default partition only
+-- catches rows outside the pre-created range.
+
+ALTER SEQUENCE public.offer_price_log_id_seq OWNED BY NONE;
+ALTER TABLE public.offer_price_log RENAME TO offer_price_log_legacy;
+ALTER TABLE public.offer_price_log_legacy DROP CONSTRAINT offer_price_log_pkey;
+ALTER SEQUENCE public.offer_price_log_id_seq AS bigint;
+
+CREATE TABLE public.offer_price_log (
+    id bigint DEFAULT nextval('public.offer_price_log_id_seq'::regclass) NOT NULL,
+    offer_id integer NOT NULL REFERENCES public.merchant_offers(id) ON DELETE CASCADE,
+    currency_code text NOT NULL,
+    price_minor bigint NOT NULL,
+    settlement_price_minor bigint NOT NULL,
+    applied_margin_percentage numeric(5,2) NOT NULL,
+    valid_from timestamp with time zone DEFAULT now() NOT NULL,
+    valid_to timestamp with time zone,
+    CONSTRAINT offer_price_log_pkey PRIMARY KEY (id, valid_from)
+) PARTITION BY RANGE (valid_from);
+
+ALTER SEQUENCE public.offer_price_log_id_seq OWNED BY public.offer_price_log.id;
+
+CREATE TABLE public.offer_price_log_default PARTITION OF public.offer_price_log DEFAULT;
+
+-- Monthly partitions from 12 months back to 3 months ahead (UTC month boundaries)
+DO $$
+DECLARE
+    month_start timestamp;
+BEGIN
+    FOR i IN -12..3 LOOP
+        month_start := date_trunc('month', now() AT TIME ZONE 'UTC') + make_interval(months => i);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS public.%I PARTITION OF public.offer_price_log FOR VALUES FROM (%L) TO (%L)',
+                       'offer_price_log_' || to_char(month_start, '"y"YYYY"m"MM'),
+                       month_start AT TIME ZONE 'UTC', (month_start + interval '1 month') AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+-- Price at time T / history of one offer: newest partition first, one index probe per partition
+CREATE INDEX idx_offer_price_log_offer_from ON public.offer_price_log USING btree (offer_id, valid_from DESC);
+-- The open row of an offer (closed on the next change)
+CREATE INDEX idx_offer_price_log_open ON public.offer_price_log USING btree (offer_id) WHERE (valid_to IS NULL);
+
+INSERT INTO public.offer_price_log (id, offer_id, currency_code, price_minor, settlement_price_minor,
+                                    applied_margin_percentage, valid_from, valid_to)
+SELECT id, offer_id, currency_code, price_minor, settlement_price_minor,
+       applied_margin_percentage, COALESCE(valid_from, now()), valid_to
+FROM public.offer_price_log_legacy
+WHERE offer_id IS NOT NULL;
+
+DROP TABLE public.offer_price_log_legacy;
+
+-- Open row for every offer that has no history yet, so "price at T" works from the offer's creation.
+-- The margin is derived from the cached prices (no rule lookup in SQL).
+INSERT INTO public.offer_price_log (offer_id, currency_code, price_minor, settlement_price_minor,
+                                    applied_margin_percentage, valid_from)
+SELECT o.id, o.currency_code, o.cached_price_minor, o.cached_settlement_price_minor,
+       CASE WHEN o.cached_price_minor > 0
+            THEN LEAST(100, GREATEST(0, round((o.cached_price_minor - o.cached_settlement_price_minor) * 100.0
+                                              / o.cached_price_minor, 2)))
+            ELSE 0 END,
+       COALESCE(o.created_at, now())
+FROM public.merchant_offers o
+WHERE NOT EXISTS (SELECT 1 FROM public.offer_price_log l WHERE l.offer_id = o.id AND l.valid_to IS NULL);
@@ -0,0 +1,4 @@
+-- Catalog sync matches incoming Shopify variants to live offers by (merchant_id, external_variant_id)
+CREATE INDEX IF NOT EXISTS idx_offers_merchant_external_variant
+    ON public.merchant_offers USING btree (merchant_id, external_variant_id)
+    WHERE (external_variant_id IS NOT NULL);
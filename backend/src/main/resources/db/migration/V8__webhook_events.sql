@@ -0,0 +1,30 @@
+-- Durable inbox for Shopify webhooks (products/update, products/delete, inventory_levels/update).
+-- At most one PENDING row per (merchant, resource): a newer event for the same product or inventory item
+-- replaces the payload of the waiting row instead of adding one, so bursts are applied once.
+
+CREATE TABLE public.webhook_events (
+    id bigserial PRIMARY KEY,
+    merchant_id integer NOT NULL REFERENCES public.merchants(id) ON DELETE CASCADE,
+    topic text NOT NULL,
+    -- Product GID or InventoryItem GID
+    resource_key text NOT NULL,
+    webhook_id text,
+    payload jsonb NOT NULL,
+    status text DEFAULT 'PENDING'::text NOT NULL,
+    coalesced_count integer DEFAULT 1 NOT NULL,
+    attempts integer DEFAULT 0 NOT NULL,
+    received_at timestamp with time zone DEFAULT now() NOT NULL,
+    process_after timestamp with time zone DEFAULT now() NOT NULL,
+    claimed_at timestamp with time zone,
+    processed_at timestamp with time zone,
+    last_error text,
+    CONSTRAINT webhook_events_status_check CHECK ((status = ANY (ARRAY['PENDING'::text, 'PROCESSING'::text, 'DONE'::text, 'FAILED'::text])))
+);
+
+-- Coalescing target of INSERT ... ON CONFLICT
+CREATE UNIQUE INDEX uq_webhook_events_pending_resource ON public.webhook_events USING btree (merchant_id, resource_key)
+    WHERE (status = 'PENDING'::text);
+
+-- Claim order for the processor (FOR UPDATE SKIP LOCKED)
+CREATE INDEX idx_webhook_events_due ON public.webhook_events USING btree (process_after, id)
+    WHERE (status = ANY (ARRAY['PENDING'::text, 'PROCESSING'::text]));
@@ -0,0 +1,36 @@
+-- Durable background job queue shared by all backend instances (claimed with FOR UPDATE SKIP LOCKED).
+-- Lower priority value runs first. A RUNNING job holds a lease (locked_until) that its worker renews;
+-- when the lease expires the job is requeued (or FAILED once attempts are used up).
+
+CREATE TABLE public.jobs (
+    id bigserial PRIMARY KEY,
+    job_type text NOT NULL,
+    payload jsonb DEFAULT '{}'::jsonb NOT NULL,
+    priority integer DEFAULT 100 NOT NULL,
+    status text DEFAULT 'QUEUED'::text NOT NULL,
+    -- Jobs with the same key never run concurrently (e.g. merchant:42)
+    concurrency_key text,
+    -- At most one QUEUED job per (job_type, dedupe_key); later enqueues are absorbed
+    dedupe_key text,
+    attempts integer DEFAULT 0 NOT NULL,
+    max_attempts integer DEFAULT 5 NOT NULL,
+    run_after timestamp with time zone DEFAULT now() NOT NULL,
+    locked_by text,
+    locked_until timestamp with time zone,
+    last_error text,
+    result jsonb,
+    created_at timestamp with time zone DEFAULT now() NOT NULL,
+    started_at timestamp with time zone,
+    finished_at timestamp with time zone,
+    CONSTRAINT jobs_status_check CHECK ((status = ANY (ARRAY['QUEUED'::text, 'RUNNING'::text, 'SUCCEEDED'::text, 'FAILED'::text])))
+);
+
+-- Claim order
+CREATE INDEX idx_jobs_queued ON public.jobs USING btree (priority, run_after, id) WHERE (status = 'QUEUED'::text);
+-- Expired leases
+CREATE INDEX idx_jobs_running_lease ON public.jobs USING btree (locked_until) WHERE (status = 'RUNNING'::text);
+-- One running job per concurrency key; a racing second claim fails and is retried on the next poll
+CREATE UNIQUE INDEX uq_jobs_running_concurrency_key ON public.jobs USING btree (concurrency_key)
+    WHERE (status = 'RUNNING'::text AND concurrency_key IS NOT NULL);
+CREATE UNIQUE INDEX uq_jobs_queued_dedupe ON public.jobs USING btree (job_type, dedupe_key)
+    WHERE (status = 'QUEUED'::text AND dedupe_key IS NOT NULL);
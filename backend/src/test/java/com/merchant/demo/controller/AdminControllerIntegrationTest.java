@@ -1,14 +1,17 @@
 package com.merchant.demo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.dto.admin.BulkReviewDecisionRequest;
 import com.merchant.demo.dto.admin.CreateBrandRequest;
 import com.merchant.demo.dto.admin.CreateCategoryRequest;
+import com.merchant.demo.dto.admin.CreateMarginRuleRequest;
 import com.merchant.demo.dto.admin.ReviewDecisionRequest;
 import com.merchant.demo.dto.admin.UpdateBrandRequest;
 import com.merchant.demo.dto.admin.UpdateCategoryRequest;
 import com.merchant.demo.dto.admin.UpdateMasterProductRequest;
 import com.merchant.demo.entity.*;
 import com.merchant.demo.repository.*;
+import com.merchant.demo.service.PricingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -30,7 +34,8 @@ import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+// Jobs stay queued: no workers claim them while the tests inspect the queue
+@SpringBootTest(properties = "app.jobs.workers-enabled=false")
 @AutoConfigureMockMvc
 @Testcontainers
 class AdminControllerIntegrationTest {
@@ -72,6 +77,15 @@ class AdminControllerIntegrationTest {
     @Autowired
     private StagingMediaRepository stagingMediaRepository;
 
+    @Autowired
+    private MarginRuleRepository marginRuleRepository;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Merchant merchant;
     private Brand brand;
     private Product masterProduct;
@@ -212,6 +226,132 @@ class AdminControllerIntegrationTest {
                 .andExpect(jsonPath("$[?(@.name == 'Inactive Brand')]").doesNotExist());
     }
 
+    @Test
+    void marginRules_createAndRepriceMerchantOffers() throws Exception {
+        MerchantOffer offer = merchantOfferRepository.save(MerchantOffer.builder()
+                .merchantId(merchant.getId())
+                .variantId(masterVariant.getId())
+                .currencyCode("INR")
+                .cachedPriceMinor(10_000L)
+                .cachedSettlementPriceMinor(10_000L)
+                .currentStock(5)
+                .isActive(true)
+                .offerStatus("LIVE")
+                .build());
+
+        CreateMarginRuleRequest merchantWide = new CreateMarginRuleRequest(null, null, new java.math.BigDecimal("5"), null, null);
+        mockMvc.perform(post("/api/admin/merchants/{merchantId}/margin-rules", merchant.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(merchantWide)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.merchant_id", is(merchant.getId())))
+                .andExpect(jsonPath("$.is_active", is(true)));
+        CreateMarginRuleRequest brandRule = new CreateMarginRuleRequest(brand.getId(), null, new java.math.BigDecimal("12.50"), null, null);
+        mockMvc.perform(post("/api/admin/merchants/{merchantId}/margin-rules", merchant.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(brandRule)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/admin/merchants/{merchantId}/reprice", merchant.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed", is(1)));
+        org.junit.jupiter.api.Assertions.assertEquals(8_750L,
+                merchantOfferRepository.findById(offer.getId()).orElseThrow().getCachedSettlementPriceMinor());
+        mockMvc.perform(get("/api/admin/offers/{offerId}/price", offer.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.settlement_price_minor", is(8750)))
+                .andExpect(jsonPath("$.applied_margin_percentage", is(12.5)));
+        mockMvc.perform(get("/api/admin/offers/{offerId}/price-history", offer.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mockMvc.perform(get("/api/admin/merchants/{merchantId}/margin-rules", merchant.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        CreateMarginRuleRequest invalid = new CreateMarginRuleRequest(null, null, new java.math.BigDecimal("150"), null, null);
+        mockMvc.perform(post("/api/admin/merchants/{merchantId}/margin-rules", merchant.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalid)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void marginRules_validityBoundaryPassedSinceLastCheckQueuesReprice() {
+        Merchant other = merchantRepository.save(Merchant.builder()
+                .name("Other")
+                .email("other@test.com")
+                .isActive(true)
+                .build());
+        java.time.Instant now = java.time.Instant.now();
+        // Saved directly: no MarginRulesChangedEvent, so only the boundary check can queue the reprice
+        marginRuleRepository.save(MarginRule.builder()
+                .merchantId(merchant.getId())
+                .marginPercentage(new java.math.BigDecimal("5"))
+                .validFrom(now.minusSeconds(600))
+                .isActive(true)
+                .build());
+        marginRuleRepository.save(MarginRule.builder()
+                .merchantId(other.getId())
+                .marginPercentage(new java.math.BigDecimal("5"))
+                .validFrom(now.minusSeconds(86_400))
+                .validTo(now.plusSeconds(86_400))
+                .isActive(true)
+                .build());
+        jdbcTemplate.update("UPDATE margin_rule_boundary_checkpoint SET checked_through = now() - interval '1 hour'");
+
+        pricingService.enqueueRepricingForRuleBoundaries();
+        pricingService.enqueueRepricingForRuleBoundaries();
+
+        String repriceJobs = "SELECT count(*) FROM jobs WHERE job_type = 'merchant.reprice' AND concurrency_key = ?";
+        // Queued once: the second check starts where the first one stopped
+        org.junit.jupiter.api.Assertions.assertEquals(1,
+                jdbcTemplate.queryForObject(repriceJobs, Integer.class, "merchant:" + merchant.getId()));
+        org.junit.jupiter.api.Assertions.assertEquals(0,
+                jdbcTemplate.queryForObject(repriceJobs, Integer.class, "merchant:" + other.getId()));
+    }
+
+    @Test
+    void jobs_enqueueMerchantJobAndDeduplicateWhileQueued() throws Exception {
+        String body = "{\"job_type\":\"merchant.matching\",\"payload\":{\"merchant_id\":" + merchant.getId() + "}}";
+        String first = mockMvc.perform(post("/api/admin/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.job_type", is("merchant.matching")))
+                .andExpect(jsonPath("$.status", is("QUEUED")))
+                .andExpect(jsonPath("$.priority", is(10)))
+                .andExpect(jsonPath("$.concurrency_key", is("merchant:" + merchant.getId())))
+                .andExpect(jsonPath("$.payload.merchant_id", is(merchant.getId())))
+                .andReturn().getResponse().getContentAsString();
+        long jobId = objectMapper.readTree(first).get("id").asLong();
+
+        // Same job while the first is still queued: merged, keeping the more urgent priority
+        String urgent = "{\"job_type\":\"merchant.matching\",\"priority\":5,\"payload\":{\"merchant_id\":"
+                + merchant.getId() + "}}";
+        mockMvc.perform(post("/api/admin/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(urgent))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", is((int) jobId)))
+                .andExpect(jsonPath("$.priority", is(5)));
+        // Another job type for the same merchant is queued separately
+        mockMvc.perform(post("/api/admin/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.replace("merchant.matching", "merchant.reprice")))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", not((int) jobId)));
+        org.junit.jupiter.api.Assertions.assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM jobs WHERE concurrency_key = ?", Integer.class, "merchant:" + merchant.getId()));
+
+        mockMvc.perform(post("/api/admin/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"job_type\":\"unknown\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/jobs/{jobId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void createBrand_success() throws Exception {
         CreateBrandRequest req = new CreateBrandRequest("New Brand", "new-brand", "http://logo.url");
@@ -427,6 +567,51 @@ class AdminControllerIntegrationTest {
                 .andExpect(jsonPath("$[?(@.id == " + variant1.getId() + ")].options.Color", contains("Blue")));
     }
 
+    @Test
+    void findVariantsByAttributes_matchesNormalizedOptions() throws Exception {
+        Variant redXl = variantRepository.save(Variant.builder()
+                .product(masterProduct)
+                .internalSku("NIKE-AM90-RED-XL")
+                .options("{\"Colour\":\"Red\",\"Size\":\"Extra Large\"}")
+                .isActive(true)
+                .status("ACTIVE")
+                .build());
+        variantRepository.save(Variant.builder()
+                .product(masterProduct)
+                .internalSku("NIKE-AM90-RED-M")
+                .options("{\"Colour\":\"Red\",\"Size\":\"M\"}")
+                .isActive(true)
+                .status("ACTIVE")
+                .build());
+        // Deactivated variants are never returned, with or without a product filter
+        variantRepository.save(Variant.builder()
+                .product(masterProduct)
+                .internalSku("NIKE-AM90-RED-XL-OLD")
+                .options("{\"Colour\":\"Red\",\"Size\":\"XL\"}")
+                .isActive(false)
+                .status("DISCONTINUED")
+                .build());
+
+        org.junit.jupiter.api.Assertions.assertEquals("{\"color\":\"red\",\"size\":\"xl\"}",
+                variantRepository.findById(redXl.getId()).orElseThrow().getNormalizedAttributes().replace(" ", ""));
+
+        mockMvc.perform(get("/api/admin/variants/by-attributes")
+                        .param("color", " RED ")
+                        .param("Size", "XL")
+                        .param("product_id", masterProduct.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(redXl.getId()))
+                .andExpect(jsonPath("$[0].product_id").value(masterProduct.getId()));
+
+        mockMvc.perform(get("/api/admin/variants/by-attributes").param("Color", "red"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        mockMvc.perform(get("/api/admin/variants/by-attributes").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getProductVariants_notFound() throws Exception {
         mockMvc.perform(get("/api/admin/products/{productId}/variants", 99999))
@@ -558,6 +743,58 @@ class AdminControllerIntegrationTest {
         org.junit.jupiter.api.Assertions.assertEquals("http://staging.media/image.jpg", updatedMasterProduct.getImageUrl());
     }
 
+    @Test
+    void postDecision_linkExisting_linksShopifyVariantImageAndServesIt() throws Exception {
+        StagingProduct sp = StagingProduct.builder()
+                .merchantId(merchant.getId())
+                .rawTitle("Staging With Variant Image")
+                .rawVendor("Nike")
+                .status("PENDING")
+                .build();
+        sp.addVariant(StagingVariant.builder()
+                .rawSku("SV-IMG-1")
+                .externalVariantId("gid://shopify/ProductVariant/1")
+                .externalMediaId("gid://shopify/MediaImage/10")
+                .rawPriceMinor(1500L)
+                .build());
+        sp = stagingProductRepository.save(sp);
+        StagingMedia sm = stagingMediaRepository.save(StagingMedia.builder()
+                .stagingProduct(sp)
+                .externalMediaId("gid://shopify/MediaImage/10")
+                .sourceUrl("http://staging.media/red.jpg")
+                .position(1)
+                .build());
+
+        ReviewDecisionRequest req = new ReviewDecisionRequest();
+        req.setAction(ReviewDecisionRequest.ACTION_LINK_EXISTING);
+        req.setMasterProductId(masterProduct.getId());
+        ReviewDecisionRequest.VariantMappingDto mapping = new ReviewDecisionRequest.VariantMappingDto();
+        mapping.setStagingVariantId(sp.getVariants().get(0).getId());
+        mapping.setMasterVariantId(masterVariant.getId());
+        req.setVariantMapping(List.of(mapping));
+        ReviewDecisionRequest.CleanDataDto cleanData = new ReviewDecisionRequest.CleanDataDto();
+        cleanData.setSelectedMediaIds(List.of(sm.getId()));
+        req.setCleanData(cleanData);
+
+        mockMvc.perform(post("/api/admin/review/{stagingId}/decision", sp.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/admin/products/{productId}/variants/images", masterProduct.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(masterVariant.getId()))
+                .andExpect(jsonPath("$[0].images", hasSize(1)))
+                .andExpect(jsonPath("$[0].images[0].src_url").value("http://staging.media/red.jpg"));
+    }
+
+    @Test
+    void getProductVariantImages_notFound() throws Exception {
+        mockMvc.perform(get("/api/admin/products/{productId}/variants/images", 99999))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void postDecision_linkExisting_missingMasterProductId() throws Exception {
         StagingProduct sp = stagingProductRepository.save(StagingProduct.builder()
@@ -743,4 +980,100 @@ class AdminControllerIntegrationTest {
         long offerCount = merchantOfferRepository.count();
         org.junit.jupiter.api.Assertions.assertEquals(1, offerCount);
     }
+
+    @Test
+    void postBulkDecisions_appliesValidDecisionsAndReportsFailures() throws Exception {
+        StagingProduct toReject = stagingProductRepository.save(StagingProduct.builder()
+                .merchantId(merchant.getId())
+                .rawTitle("Fake Item")
+                .rawVendor("V")
+                .status("NEEDS_REVIEW")
+                .build());
+        StagingProduct toCreate = StagingProduct.builder()
+                .merchantId(merchant.getId())
+                .rawTitle("New Sneakers")
+                .rawVendor("Nike")
+                .status("PENDING")
+                .build();
+        toCreate.addVariant(StagingVariant.builder()
+                .rawSku("NEW-SKU")
+                .rawPriceMinor(9999L)
+                .build());
+        toCreate = stagingProductRepository.save(toCreate);
+
+        ReviewDecisionRequest reject = new ReviewDecisionRequest();
+        reject.setAction(ReviewDecisionRequest.ACTION_REJECT);
+        reject.setRejectionReason("Fake Product");
+
+        ReviewDecisionRequest createNew = new ReviewDecisionRequest();
+        createNew.setAction(ReviewDecisionRequest.ACTION_CREATE_NEW);
+        ReviewDecisionRequest.CleanDataDto cleanData = new ReviewDecisionRequest.CleanDataDto();
+        cleanData.setTitle("Nike New Sneakers - Men's");
+        cleanData.setBrandId(brand.getId());
+        ReviewDecisionRequest.ExtraMediaItemDto extraMedia = new ReviewDecisionRequest.ExtraMediaItemDto();
+        extraMedia.setUrl("http://extra.media/img.png");
+        cleanData.setExtraMedia(List.of(extraMedia));
+        createNew.setCleanData(cleanData);
+
+        ReviewDecisionRequest linkMissingMaster = new ReviewDecisionRequest();
+        linkMissingMaster.setAction(ReviewDecisionRequest.ACTION_LINK_EXISTING);
+
+        BulkReviewDecisionRequest req = new BulkReviewDecisionRequest(List.of(
+                new BulkReviewDecisionRequest.ItemDto(toReject.getId(), reject),
+                new BulkReviewDecisionRequest.ItemDto(toCreate.getId(), createNew),
+                new BulkReviewDecisionRequest.ItemDto(999999, linkMissingMaster)));
+
+        mockMvc.perform(post("/api/admin/review/decisions/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.succeeded", is(2)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.results[0].outcome", is("REJECTED")))
+                .andExpect(jsonPath("$.results[1].outcome", is("APPROVED")))
+                .andExpect(jsonPath("$.results[1].product_id").isNumber())
+                .andExpect(jsonPath("$.results[2].outcome", is("FAILED")))
+                .andExpect(jsonPath("$.results[2].error", containsString("Staging product not found")));
+
+        StagingProduct rejected = stagingProductRepository.findById(toReject.getId()).orElseThrow();
+        org.junit.jupiter.api.Assertions.assertEquals("REJECTED", rejected.getStatus());
+        org.junit.jupiter.api.Assertions.assertEquals("Fake Product", rejected.getRejectionReason());
+
+        StagingProduct approved = stagingProductRepository.findById(toCreate.getId()).orElseThrow();
+        org.junit.jupiter.api.Assertions.assertEquals("APPROVED", approved.getStatus());
+        org.junit.jupiter.api.Assertions.assertEquals(2, productRepository.count());
+        org.junit.jupiter.api.Assertions.assertEquals(1, merchantOfferRepository.count());
+        Product created = productRepository.findAll().stream()
+                .filter(p -> !p.getId().equals(masterProduct.getId()))
+                .findFirst().orElseThrow();
+        org.junit.jupiter.api.Assertions.assertEquals("http://extra.media/img.png", created.getImageUrl());
+        org.junit.jupiter.api.Assertions.assertEquals(1, variantRepository.findByProductId(created.getId()).size());
+    }
+
+    @Test
+    void postBulkDecisions_duplicateStagingIds_failBoth() throws Exception {
+        StagingProduct sp = stagingProductRepository.save(StagingProduct.builder()
+                .merchantId(merchant.getId())
+                .rawTitle("Twice")
+                .rawVendor("V")
+                .status("PENDING")
+                .build());
+        ReviewDecisionRequest reject = new ReviewDecisionRequest();
+        reject.setAction(ReviewDecisionRequest.ACTION_REJECT);
+
+        BulkReviewDecisionRequest req = new BulkReviewDecisionRequest(List.of(
+                new BulkReviewDecisionRequest.ItemDto(sp.getId(), reject),
+                new BulkReviewDecisionRequest.ItemDto(sp.getId(), reject)));
+
+        mockMvc.perform(post("/api/admin/review/decisions/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed", is(2)))
+                .andExpect(jsonPath("$.results[0].error", containsString("Duplicate staging_id")));
+
+        org.junit.jupiter.api.Assertions.assertEquals("PENDING",
+                stagingProductRepository.findById(sp.getId()).orElseThrow().getStatus());
+    }
 }
@@ -5,6 +5,7 @@ import com.merchant.demo.entity.Merchant;
 import com.merchant.demo.entity.StagingProduct;
 import com.merchant.demo.repository.MerchantRepository;
 import com.merchant.demo.repository.StagingProductRepository;
+import com.merchant.demo.service.CatalogFileParser;
 import com.merchant.demo.service.ProductSyncService;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -23,6 +24,8 @@ import org.testcontainers.postgresql.PostgreSQLContainer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -159,7 +162,7 @@ class MerchantControllerIntegrationTest {
     void syncMerchantProducts_whenCalled_returnsSyncResult() throws Exception {
         // Arrange
         Integer merchantId = 1;
-        SyncResultDto mockResult = new SyncResultDto("Sync completed successfully", 10, 50);
+        SyncResultDto mockResult = new SyncResultDto("Sync completed successfully", 10, 50, 0, 1, "SUCCESS");
 
         when(productSyncService.syncProductsForMerchant(merchantId)).thenReturn(mockResult);
 
@@ -170,6 +173,35 @@ class MerchantControllerIntegrationTest {
                 .andExpect(jsonPath("$.productsSynced").value(10));
     }
 
+    @Test
+    void importCatalogFile_streamsBodyToImport() throws Exception {
+        Integer merchantId = 1;
+        when(productSyncService.importCatalogFile(eq(merchantId), eq(CatalogFileParser.Format.JSONL), any()))
+                .thenReturn(new SyncResultDto("Import Successful", 1, 2, 0, 3, "SUCCESS"));
+
+        mockMvc.perform(post("/api/merchants/{merchantId}/import", merchantId)
+                        .param("format", "jsonl")
+                        .contentType("application/x-ndjson")
+                        .content("{\"product_id\": \"P1\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.syncLogId").value(3));
+
+        mockMvc.perform(post("/api/merchants/{merchantId}/import", merchantId)
+                        .param("format", "xlsx")
+                        .content("x"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void patchMerchant_ShouldReturn400_WhenSourceTypeUnknown() throws Exception {
+        Merchant saved = merchantRepository.save(Merchant.builder().name("Exists").email("e@e.com").build());
+
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch("/api/merchants/" + saved.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"source_type\": \"FTP\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
     // --- Merchant Operations: staging, issues, resync (TDD) ---
 
     @Test
@@ -0,0 +1,375 @@
+package com.merchant.demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.dto.admin.UpdateMasterProductRequest;
+import com.merchant.demo.entity.*;
+import com.merchant.demo.repository.*;
+import com.merchant.demo.service.BestOfferService;
+import com.merchant.demo.service.CatalogSearchService;
+import com.merchant.demo.service.ProductDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Documents are refreshed explicitly, not by the poller
+@SpringBootTest(properties = "app.storefront.document-refresh-enabled=false")
+@AutoConfigureMockMvc
+@Testcontainers
+class StorefrontControllerIntegrationTest {
+
+    private static final DockerImageName POSTGRES_IMAGE = DockerImageName.parse("postgres:16");
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer(POSTGRES_IMAGE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductDocumentService productDocumentService;
+
+    @Autowired
+    private ProductDocumentRepository productDocumentRepository;
+
+    @Autowired
+    private BestOfferService bestOfferService;
+
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private StagingProductRepository stagingProductRepository;
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private VariantRepository variantRepository;
+
+    @Autowired
+    private MerchantOfferRepository merchantOfferRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Merchant merchant;
+    private Merchant otherMerchant;
+    private Product product;
+    private Variant variant;
+
+    @BeforeEach
+    void setUp() {
+        merchantOfferRepository.deleteAll();
+        variantRepository.deleteAll();
+        stagingProductRepository.deleteAll();
+        productRepository.deleteAll();
+        merchantRepository.deleteAll();
+        brandRepository.deleteAll();
+
+        merchant = merchantRepository.save(Merchant.builder().name("Nike Official").isActive(true).build());
+        otherMerchant = merchantRepository.save(Merchant.builder().name("Sneaker Outlet").isActive(true).build());
+        Brand brand = brandRepository.save(Brand.builder().name("Nike").slug("nike").isActive(true).build());
+        product = productRepository.save(Product.builder()
+                .title("Nike Air Max 90")
+                .slug("nike-air-max-90")
+                .brandId(brand.getId())
+                .status("ACTIVE")
+                .build());
+        variant = variantRepository.save(Variant.builder()
+                .product(product)
+                .internalSku("NIKE-AM90-001")
+                .isActive(true)
+                .status("ACTIVE")
+                .build());
+    }
+
+    private MerchantOffer offer(Merchant owner, long settlementPriceMinor, int stock) {
+        return merchantOfferRepository.save(MerchantOffer.builder()
+                .merchantId(owner.getId())
+                .variantId(variant.getId())
+                .currencyCode("INR")
+                .cachedPriceMinor(settlementPriceMinor)
+                .cachedSettlementPriceMinor(settlementPriceMinor)
+                .currentStock(stock)
+                .isActive(true)
+                .offerStatus("LIVE")
+                .build());
+    }
+
+    /** Edit the product through the admin API, which queues its document, and rebuild. */
+    private void touchProduct(String title) throws Exception {
+        UpdateMasterProductRequest req = new UpdateMasterProductRequest();
+        req.setTitle(title);
+        mockMvc.perform(patch("/api/admin/products/{productId}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+        productDocumentService.refreshQueued();
+    }
+
+    @Test
+    void getProduct_servesDocumentRebuiltAfterWrite() throws Exception {
+        MerchantOffer outOfStock = offer(merchant, 9_000L, 0); // cheapest, but out of stock
+        MerchantOffer inStock = offer(otherMerchant, 9_500L, 3);
+        bestOfferService.refreshForOffers(List.of(outOfStock.getId(), inStock.getId()));
+
+        touchProduct("Nike Air Max 90 OG");
+
+        String etag = mockMvc.perform(get("/api/store/products/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(product.getId())))
+                .andExpect(jsonPath("$.title", is("Nike Air Max 90 OG")))
+                .andExpect(jsonPath("$.brand.slug", is("nike")))
+                .andExpect(jsonPath("$.categories", hasSize(0)))
+                .andExpect(jsonPath("$.variants", hasSize(1)))
+                .andExpect(jsonPath("$.variants[0].internal_sku", is("NIKE-AM90-001")))
+                .andExpect(jsonPath("$.variants[0].best_offer.offer_id", is(inStock.getId())))
+                .andExpect(jsonPath("$.variants[0].best_offer.settlement_price_minor", is(9_500)))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/store/products/{productId}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        touchProduct("Nike Air Max 90 Essential");
+        mockMvc.perform(get("/api/store/products/{productId}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Nike Air Max 90 Essential")));
+    }
+
+    @Test
+    void getProduct_etagNotReusedAfterArchiveAndReactivation() throws Exception {
+        touchProduct("Nike Air Max 90 OG");
+        String etag = mockMvc.perform(get("/api/store/products/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        product.setStatus("ARCHIVED");
+        productRepository.save(product);
+        productDocumentRepository.enqueueProducts(List.of(product.getId()));
+        productDocumentService.refreshQueued();
+        mockMvc.perform(get("/api/store/products/{productId}", product.getId()))
+                .andExpect(status().isNotFound());
+
+        // Rebuilt from scratch with different content: a client holding the old ETag must not get a 304
+        product.setStatus("ACTIVE");
+        productRepository.save(product);
+        touchProduct("Nike Air Max 90 Essential");
+        mockMvc.perform(get("/api/store/products/{productId}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.title", is("Nike Air Max 90 Essential")));
+    }
+
+    @Test
+    void getProduct_notFoundWithoutDocument() throws Exception {
+        mockMvc.perform(get("/api/store/products/{productId}", product.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getProducts_returnsDocumentsInRequestOrderSkippingUnknownIds() throws Exception {
+        Product other = productRepository.save(Product.builder()
+                .title("Nike Pegasus 41")
+                .slug("nike-pegasus-41")
+                .status("ACTIVE")
+                .build());
+        UpdateMasterProductRequest req = new UpdateMasterProductRequest();
+        req.setDescription("Road running shoe");
+        mockMvc.perform(patch("/api/admin/products/{productId}", other.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+        touchProduct("Nike Air Max 90");
+
+        mockMvc.perform(get("/api/store/products")
+                        .param("ids", other.getId() + "," + (other.getId() + 1000) + "," + product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products", hasSize(2)))
+                .andExpect(jsonPath("$.products[0].id", is(other.getId())))
+                .andExpect(jsonPath("$.products[0].brand").value(nullValue()))
+                .andExpect(jsonPath("$.products[1].id", is(product.getId())));
+    }
+
+    @Test
+    void getBestOffer_followsOfferChangesWithTieBreaks() throws Exception {
+        MerchantOffer lessStock = offer(merchant, 9_000L, 2);
+        MerchantOffer moreStock = offer(otherMerchant, 9_000L, 7);
+        bestOfferService.refreshForOffers(List.of(lessStock.getId(), moreStock.getId()));
+
+        // Same settlement price: more stock wins
+        mockMvc.perform(get("/api/store/variants/{variantId}/best-offer", variant.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offer_id", is(moreStock.getId())))
+                .andExpect(jsonPath("$.merchant_id", is(otherMerchant.getId())))
+                .andExpect(jsonPath("$.stock", is(7)));
+
+        moreStock.setCurrentStock(0);
+        merchantOfferRepository.save(moreStock);
+        bestOfferService.refreshForOffers(List.of(moreStock.getId()));
+        mockMvc.perform(get("/api/store/variants/best-offers").param("ids", variant.getId() + ",999999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].offer_id", is(lessStock.getId())));
+
+        lessStock.setIsActive(false);
+        merchantOfferRepository.save(lessStock);
+        bestOfferService.refreshForOffers(List.of(lessStock.getId()));
+        mockMvc.perform(get("/api/store/variants/{variantId}/best-offer", variant.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getBestOffer_concurrentOfferWritersResolveFromCommittedOffers() throws Exception {
+        MerchantOffer first = offer(merchant, 100L, 5);
+        MerchantOffer second = offer(otherMerchant, 200L, 5);
+        bestOfferService.refreshForOffers(List.of(first.getId(), second.getId()));
+
+        CountDownLatch firstResolved = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // First writer: its offer becomes the dearer one; it resolves (second is best) and holds its transaction
+            Future<?> firstWriter = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                setSettlementPrice(first, 300L);
+                bestOfferService.refreshForOffers(List.of(first.getId()));
+                firstResolved.countDown();
+                await(releaseFirst);
+            }));
+            assertThat(firstResolved.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Second writer: its own snapshot still has the old first price (100), which is no longer true
+            Future<?> secondWriter = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                setSettlementPrice(second, 400L);
+                bestOfferService.refreshForOffers(List.of(second.getId()));
+            }));
+            awaitLockWait();
+            releaseFirst.countDown();
+            firstWriter.get(10, TimeUnit.SECONDS);
+            secondWriter.get(10, TimeUnit.SECONDS);
+        } finally {
+            releaseFirst.countDown();
+            executor.shutdownNow();
+        }
+
+        mockMvc.perform(get("/api/store/variants/{variantId}/best-offer", variant.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offer_id", is(first.getId())))
+                .andExpect(jsonPath("$.settlement_price_minor", is(300)));
+    }
+
+    private void setSettlementPrice(MerchantOffer offer, long settlementPriceMinor) {
+        jdbcTemplate.update("""
+                UPDATE merchant_offers SET cached_price_minor = ?, cached_settlement_price_minor = ? WHERE id = ?
+                """, settlementPriceMinor, settlementPriceMinor, offer.getId());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Until some backend waits for a lock, i.e. the second writer is blocked behind the first. */
+    private void awaitLockWait() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_locks WHERE NOT granted", Integer.class) == 0) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void searchCatalog_filtersByFacetsWithCounts() throws Exception {
+        variant.setOptions("{\"Color\":\"Red\",\"Size\":\"M\"}");
+        variantRepository.save(variant);
+        MerchantOffer redOffer = offer(merchant, 9_500L, 3);
+        Product other = productRepository.save(Product.builder()
+                .title("Nike Pegasus 41")
+                .slug("nike-pegasus-41")
+                .brandId(product.getBrandId())
+                .status("ACTIVE")
+                .build());
+        variantRepository.save(Variant.builder()
+                .product(other)
+                .internalSku("NIKE-PEG41-001")
+                .options("{\"Colour\":\"Blue\",\"Size\":\"L\"}")
+                .isActive(true)
+                .status("ACTIVE")
+                .build());
+        bestOfferService.refreshForOffers(List.of(redOffer.getId()));
+        UpdateMasterProductRequest req = new UpdateMasterProductRequest();
+        req.setDescription("Road running shoe");
+        mockMvc.perform(patch("/api/admin/products/{productId}", other.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+        touchProduct("Nike Air Max 90");
+        catalogSearchService.refreshIndex();
+
+        // Option names and values are normalized like variant options ("colour" -> "color")
+        mockMvc.perform(get("/api/store/catalog")
+                        .param("brand_id", String.valueOf(product.getBrandId()))
+                        .param("color", "RED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total_elements", is(1)))
+                .andExpect(jsonPath("$.product_ids", contains(product.getId())))
+                .andExpect(jsonPath("$.brands[0].count", is(1)))
+                .andExpect(jsonPath("$.options.color.red", is(1)))
+                .andExpect(jsonPath("$.options.color.blue", is(1)))
+                .andExpect(jsonPath("$.options.size.m", is(1)))
+                .andExpect(jsonPath("$.options.size.l").doesNotExist())
+                .andExpect(jsonPath("$.min_price_minor", is(9_500)));
+
+        mockMvc.perform(get("/api/store/catalog").param("max_price", "9000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total_elements", is(0)));
+
+        mockMvc.perform(get("/api/store/catalog").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getProducts_rejectsTooManyIds() throws Exception {
+        StringBuilder ids = new StringBuilder("1");
+        for (int i = 2; i <= 201; i++) {
+            ids.append(',').append(i);
+        }
+        mockMvc.perform(get("/api/store/products").param("ids", ids.toString()))
+                .andExpect(status().isBadRequest());
+    }
+}
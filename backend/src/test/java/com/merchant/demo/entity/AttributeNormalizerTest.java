@@ -0,0 +1,28 @@
+package com.merchant.demo.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttributeNormalizerTest {
+
+    @Test
+    void normalize_lowercasesTrimsAndMapsSynonyms() {
+        OptionSet normalized = AttributeNormalizer.normalize(Map.of(" Colour ", "Dark  Grey", "Size", "Extra Large"));
+        // Synonyms apply to whole values only
+        assertThat(normalized.asMap()).containsExactly(Map.entry("color", "dark grey"), Map.entry("size", "xl"));
+        assertThat(AttributeNormalizer.toJson("{\"Size\":\"XL\",\"Color\":\"GREY\"}"))
+                .isEqualTo("{\"color\":\"gray\",\"size\":\"xl\"}");
+    }
+
+    @Test
+    void key_isEqualForEquivalentOptions() {
+        assertThat(AttributeNormalizer.key(OptionSet.of(Map.of("Size", "X-Large", "Color", "Red"))))
+                .isEqualTo(AttributeNormalizer.key(OptionSet.of(Map.of("size", "xl", "colour", "RED"))))
+                .isEqualTo("color=red|size=xl");
+        assertThat(AttributeNormalizer.normalize((OptionSet) null)).isSameAs(OptionSet.EMPTY);
+        assertThat(AttributeNormalizer.toJson("not json")).isEqualTo("{}");
+    }
+}
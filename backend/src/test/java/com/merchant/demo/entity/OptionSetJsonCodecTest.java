@@ -0,0 +1,49 @@
+package com.merchant.demo.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptionSetJsonCodecTest {
+
+    @Test
+    void write_escapesQuotesBackslashesAndControlCharacters() {
+        String json = OptionSetJsonCodec.write(
+                new String[]{"Finish", "Note"},
+                new String[]{"Matte \"Black\"\\Grey", "tab\there\r\n\u0001\u001f"});
+        assertThat(json).isEqualTo(
+                "{\"Finish\":\"Matte \\\"Black\\\"\\\\Grey\",\"Note\":\"tab\\there\\r\\n\\u0001\\u001F\"}");
+        assertThat(OptionSetJsonCodec.read(json)).containsExactly(
+                Map.entry("Finish", "Matte \"Black\"\\Grey"), Map.entry("Note", "tab\there\r\n\u0001\u001f"));
+    }
+
+    @Test
+    void write_keepsNonAsciiAndSupplementaryCharactersVerbatim() {
+        String json = OptionSetJsonCodec.write(new String[]{"Farbe", "Größe"}, new String[]{"Rosé 🌹", "日本"});
+        assertThat(json).isEqualTo("{\"Farbe\":\"Rosé 🌹\",\"Größe\":\"日本\"}");
+        assertThat(OptionSetJsonCodec.read(json)).containsEntry("Farbe", "Rosé 🌹").containsEntry("Größe", "日本");
+    }
+
+    @Test
+    void read_decodesUnicodeEscapesIncludingSurrogatePairs() {
+        assertThat(OptionSetJsonCodec.read("{\"A\":\"\\u00e9\\/x\",\"B\":\"\\ud83c\\udf39\",\"\\u0043\":\"\\u65e5\"}"))
+                .containsExactly(Map.entry("A", "é/x"), Map.entry("B", "🌹"), Map.entry("C", "日"));
+    }
+
+    @Test
+    void read_keepsScalarTextAndDropsNulls() {
+        assertThat(OptionSetJsonCodec.read("{\"Pack\": 2, \"Weight\": 1.50, \"Gift\": true, \"Note\": null}"))
+                .containsExactly(Map.entry("Gift", "true"), Map.entry("Pack", "2"), Map.entry("Weight", "1.50"));
+    }
+
+    @Test
+    void read_rejectsNestedTrailingAndMalformedInput() {
+        for (String json : new String[]{"{\"Size\":[\"M\"]}", "{\"Size\":{\"a\":\"b\"}}", "{\"Size\":\"M\"",
+                "{\"Size\":\"M\"} x", "[\"M\"]", "not json", "{\"A\":\"\\x\"}"}) {
+            assertThatThrownBy(() -> OptionSetJsonCodec.read(json)).as(json).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
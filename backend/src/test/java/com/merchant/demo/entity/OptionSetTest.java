@@ -0,0 +1,48 @@
+package com.merchant.demo.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OptionSetTest {
+
+    @Test
+    void parseJson_readsFlatObjectsAndRejectsEverythingElse() {
+        OptionSet options = OptionSet.parseJson(" {\"Size\": \"M\", \"Color\":\"Red\", \"Pack\": 2, \"Gift\": null} ");
+        assertThat(options.asMap()).containsExactly(
+                Map.entry("Color", "Red"), Map.entry("Pack", "2"), Map.entry("Size", "M"));
+        assertThat(options.get("Size")).isEqualTo("M");
+        assertThat(options.get("size")).isNull();
+
+        assertThat(OptionSet.parseJson(null)).isSameAs(OptionSet.EMPTY);
+        assertThat(OptionSet.parseJson("{}")).isSameAs(OptionSet.EMPTY);
+        assertThat(OptionSet.parseJson("{\"Size\":[\"M\"]}")).isSameAs(OptionSet.EMPTY);
+        assertThat(OptionSet.parseJson("{\"Size\":\"M\"")).isSameAs(OptionSet.EMPTY);
+        assertThat(OptionSet.parseJson("not json")).isSameAs(OptionSet.EMPTY);
+    }
+
+    @Test
+    void toJson_roundTripsEscapedValues() {
+        OptionSet options = OptionSet.of(Map.of("Finish", "Matte \"Black\"\\Grey", "Note", "line\nbreak\u0001"));
+        String json = options.toJson();
+        assertThat(json).isEqualTo("{\"Finish\":\"Matte \\\"Black\\\"\\\\Grey\",\"Note\":\"line\\nbreak\\u0001\"}");
+        assertThat(OptionSet.parseJson(json)).isEqualTo(options);
+        assertThat(OptionSet.parseJson("{\"A\":\"\\u00e9\\/x\"}").get("A")).isEqualTo("é/x");
+    }
+
+    @Test
+    void normalizedKey_ignoresCaseWhitespaceAndOrder() {
+        OptionSet a = OptionSet.parseJson("{\"Color\":\"Red\",\"Size\":\"M\"}");
+        OptionSet b = OptionSet.of(Map.of(" size ", "m", "COLOR", " red"));
+        assertThat(a.normalizedKey()).isEqualTo("color=red|size=m");
+        assertThat(a.matches(b)).isTrue();
+        assertThat(a).isNotEqualTo(b);
+
+        assertThat(a.retainNormalizedNames(Set.of("size")).normalizedKey()).isEqualTo("size=m");
+        assertThat(a.retainNormalizedNames(Set.of("color", "size"))).isSameAs(a);
+        assertThat(a.retainNormalizedNames(Set.of("age"))).isSameAs(OptionSet.EMPTY);
+    }
+}
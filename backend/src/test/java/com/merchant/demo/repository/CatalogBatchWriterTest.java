@@ -0,0 +1,185 @@
+package com.merchant.demo.repository;
+
+import com.merchant.demo.repository.CatalogWriteBatch.NewOffer;
+import com.merchant.demo.repository.CatalogWriteBatch.NewProduct;
+import com.merchant.demo.repository.CatalogWriteBatch.NewVariant;
+import com.merchant.demo.repository.CatalogWriteBatch.StagingDecision;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogBatchWriterTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Mock
+    private ProductDocumentRepository productDocumentRepository;
+
+    @Mock
+    private BestOfferRepository bestOfferRepository;
+
+    @InjectMocks
+    private CatalogBatchWriter catalogBatchWriter;
+
+    /** Fake sequences: each call to nextval returns the next queued value; records how many blocks were asked for. */
+    private final Map<String, Deque<Integer>> sequenceValues = new HashMap<>();
+    private final List<String> nextvalCalls = new ArrayList<>();
+
+    private void stubSequence(String sequence, Integer... values) {
+        sequenceValues.put(sequence, new ArrayDeque<>(List.of(values)));
+    }
+
+    private void stubSequences() {
+        when(jdbc.queryForList(startsWith("SELECT nextval"), any(SqlParameterSource.class), eq(Integer.class)))
+                .thenAnswer(inv -> {
+                    String sql = inv.getArgument(0);
+                    String sequence = sql.substring(sql.indexOf('\'') + 1, sql.lastIndexOf('\''));
+                    int blocks = (Integer) inv.<SqlParameterSource>getArgument(1).getValue("blocks");
+                    nextvalCalls.add(sequence + "x" + blocks);
+                    Deque<Integer> values = sequenceValues.get(sequence);
+                    List<Integer> out = new ArrayList<>();
+                    for (int i = 0; i < blocks; i++) out.add(values.removeFirst());
+                    return out;
+                });
+    }
+
+    private SqlParameterSource[] capturedBatch(String sqlPrefix) {
+        ArgumentCaptor<SqlParameterSource[]> captor = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbc).batchUpdate(startsWith(sqlPrefix), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void write_allocatesPooledBlocksWithOneNextvalPerFiftyIds() {
+        stubSequence("products_id_seq", 7);
+        stubSequence("variants_id_seq", 150, 200, 250);
+        stubSequence("merchant_offers_id_seq", 50);
+        stubSequences();
+
+        CatalogWriteBatch batch = new CatalogWriteBatch();
+        NewProduct product = NewProduct.builder().title("Tee").slug("tee").specifications("{}").optionsDefinition("[]").build();
+        batch.getProducts().add(product);
+        for (int i = 0; i < 120; i++) {
+            batch.getVariants().add(NewVariant.builder().newProduct(product).internalSku("SKU-" + i)
+                    .options("{\"Size\": \"" + i + "\"}").build());
+        }
+        batch.getOffers().add(new NewOffer(3, null, batch.getVariants().get(0), "p1", "v1", "M-1", 1_000L));
+
+        catalogBatchWriter.write(batch);
+
+        // 120 variant ids need three 50-id blocks, fetched in a single round trip
+        assertThat(nextvalCalls).containsExactly("products_id_seqx1", "variants_id_seqx3", "merchant_offers_id_seqx1");
+        assertThat(product.getId()).isEqualTo(7);
+        // nextval value v reserves (v - 50, v], as Hibernate's pooled optimizer reads it
+        assertThat(batch.getVariants()).extracting(NewVariant::getId)
+                .containsExactlyElementsOf(IntStream.rangeClosed(101, 220).boxed().toList());
+        verify(bestOfferRepository).refreshForOffers(List.of(1));
+    }
+
+    @Test
+    void write_freshPooledSequenceStartingAtOneOnlyCoversItself() {
+        stubSequence("variants_id_seq", 1, 51);
+        stubSequences();
+
+        CatalogWriteBatch batch = new CatalogWriteBatch();
+        for (int i = 0; i < 3; i++) {
+            batch.getVariants().add(NewVariant.builder().productId(9).internalSku("SKU-" + i).options("{}").build());
+        }
+
+        catalogBatchWriter.write(batch);
+
+        assertThat(nextvalCalls).containsExactly("variants_id_seqx1", "variants_id_seqx1");
+        assertThat(batch.getVariants()).extracting(NewVariant::getId).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_issuesOneBatchedStatementPerTableAndSkipsEmptyTables() {
+        stubSequence("products_id_seq", 7, 8);
+        stubSequence("variants_id_seq", 100);
+        stubSequence("merchant_offers_id_seq", 300);
+        stubSequences();
+
+        CatalogWriteBatch batch = new CatalogWriteBatch();
+        NewProduct first = NewProduct.builder().title("A").slug("a").specifications("{}").optionsDefinition("[]").build();
+        NewProduct second = NewProduct.builder().title("B").slug("b").specifications("{}").optionsDefinition("[]").build();
+        batch.getProducts().addAll(List.of(first, second));
+        NewVariant newVariant = NewVariant.builder().newProduct(second).internalSku("B-1").options("{\"Size\": \"M\"}").build();
+        NewVariant existingProductVariant = NewVariant.builder().productId(42).internalSku("C-1").options("{}").build();
+        batch.getVariants().addAll(List.of(newVariant, existingProductVariant));
+        batch.getOffers().add(new NewOffer(3, null, newVariant, "p1", "v1", "M-1", 1_000L));
+        batch.getOffers().add(new NewOffer(3, 55, null, "p2", "v2", "M-2", 2_000L));
+
+        catalogBatchWriter.write(batch);
+
+        SqlParameterSource[] products = capturedBatch("INSERT INTO products");
+        assertThat(products).extracting(p -> p.getValue("id")).containsExactly(7, 8);
+
+        SqlParameterSource[] variants = capturedBatch("INSERT INTO variants");
+        assertThat(variants).extracting(v -> v.getValue("id")).containsExactly(51, 52);
+        assertThat(variants).extracting(v -> v.getValue("productId")).containsExactly(8, 42);
+        assertThat(variants[0].getValue("normalizedAttributes")).isEqualTo("{\"size\":\"m\"}");
+
+        SqlParameterSource[] offers = capturedBatch("INSERT INTO merchant_offers");
+        assertThat(offers).extracting(o -> o.getValue("id")).containsExactly(251, 252);
+        assertThat(offers).extracting(o -> o.getValue("variantId")).containsExactly(51, 55);
+
+        // Tables without rows never reach the database
+        verify(jdbc, never()).batchUpdate(startsWith("INSERT INTO media"), any(SqlParameterSource[].class));
+        verify(jdbc, never()).batchUpdate(startsWith("UPDATE staging_products"), any(SqlParameterSource[].class));
+        verify(jdbc, times(3)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+
+        ArgumentCaptor<Collection<Integer>> touched = ArgumentCaptor.forClass(Collection.class);
+        verify(productDocumentRepository).enqueueProducts(touched.capture());
+        assertThat(touched.getValue()).containsExactlyInAnyOrder(7, 8, 42);
+        verify(bestOfferRepository).refreshForOffers(List.of(251, 252));
+    }
+
+    @Test
+    void write_failsBeforeWritingProductsWhenAStagingProductWasApprovedSincePlanning() {
+        when(jdbc.batchUpdate(startsWith("UPDATE staging_products"), any(SqlParameterSource[].class)))
+                .thenReturn(new int[]{1, 0});
+
+        CatalogWriteBatch batch = new CatalogWriteBatch();
+        batch.getProducts().add(NewProduct.builder().title("A").slug("a").specifications("{}").optionsDefinition("[]").build());
+        batch.getStagingDecisions().add(new StagingDecision(11, "APPROVED", null, null));
+        batch.getStagingDecisions().add(new StagingDecision(12, "APPROVED", null, null));
+
+        assertThatThrownBy(() -> catalogBatchWriter.write(batch))
+                .isInstanceOf(OptimisticLockingFailureException.class)
+                .hasMessage("Staging product already approved: 12");
+
+        verify(jdbc, times(1)).batchUpdate(anyString(), any(SqlParameterSource[].class));
+        verify(jdbc, never()).queryForList(anyString(), any(SqlParameterSource.class), eq(Integer.class));
+        verifyNoInteractions(productDocumentRepository, bestOfferRepository);
+    }
+}
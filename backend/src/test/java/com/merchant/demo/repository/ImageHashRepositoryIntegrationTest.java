@@ -0,0 +1,128 @@
+package com.merchant.demo.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.jobs.workers-enabled=false")
+@Testcontainers
+class ImageHashRepositoryIntegrationTest {
+
+    private static final DockerImageName POSTGRES_IMAGE = DockerImageName.parse("postgres:16");
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer(POSTGRES_IMAGE);
+
+    private static final String SHA_A = "a".repeat(64);
+    private static final String SHA_B = "b".repeat(64);
+
+    @Autowired
+    private ImageHashRepository imageHashRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private int activeProductId;
+    private int archivedProductId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM media");
+        jdbcTemplate.update("DELETE FROM media_sources");
+        jdbcTemplate.update("DELETE FROM media_assets");
+        activeProductId = product("fingerprint-active", "ACTIVE");
+        archivedProductId = product("fingerprint-archived", "ARCHIVED");
+        asset(SHA_A, 1L);
+        asset(SHA_B, 2L);
+        jdbcTemplate.update("INSERT INTO media_sources (source_url, sha256, status) VALUES ('https://img/a.jpg', ?, 'MIRRORED')",
+                SHA_A);
+        jdbcTemplate.update("INSERT INTO media_sources (source_url, sha256, status) VALUES ('https://img/b.jpg', ?, 'MIRRORED')",
+                SHA_B);
+        jdbcTemplate.update("INSERT INTO media (product_id, src_url) VALUES (?, 'https://img/a.jpg')", activeProductId);
+        jdbcTemplate.update("INSERT INTO media (product_id, src_url) VALUES (?, 'https://img/b.jpg')", archivedProductId);
+    }
+
+    private int product(String slug, String status) {
+        jdbcTemplate.update("DELETE FROM products WHERE slug = ?", slug);
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO products (title, slug, status) VALUES (?, ?, ?) RETURNING id", Integer.class, slug, slug, status);
+    }
+
+    private void asset(String sha256, long dhash) {
+        jdbcTemplate.update("""
+                INSERT INTO media_assets (sha256, content_type, byte_size, has_thumbnail, dhash)
+                VALUES (?, 'image/jpeg', 1, true, ?)
+                """, sha256, dhash);
+    }
+
+    @Test
+    void fingerprint_changesWhenIndexedPairsChangeWithoutChangingCounts() {
+        String initial = imageHashRepository.findMasterHashesFingerprint();
+
+        // Same row count and max(id): re-pointed image
+        jdbcTemplate.update("UPDATE media SET src_url = 'https://img/b.jpg' WHERE product_id = ?", activeProductId);
+        String repointed = imageHashRepository.findMasterHashesFingerprint();
+        assertThat(repointed).isNotEqualTo(initial);
+
+        // Same number of hashes: one replaced
+        jdbcTemplate.update("UPDATE media_assets SET dhash = 3 WHERE sha256 = ?", SHA_B);
+        String rehashed = imageHashRepository.findMasterHashesFingerprint();
+        assertThat(rehashed).isNotEqualTo(repointed);
+
+        // Same number of active products: one archived, another activated
+        jdbcTemplate.update("UPDATE products SET status = CASE id WHEN ? THEN 'ARCHIVED' ELSE 'ACTIVE' END WHERE id IN (?, ?)",
+                activeProductId, activeProductId, archivedProductId);
+        assertThat(imageHashRepository.findMasterHashesFingerprint()).isNotEqualTo(rehashed);
+    }
+
+    @Test
+    void fingerprint_ignoresWritesThatCannotChangeTheIndex() {
+        String initial = imageHashRepository.findMasterHashesFingerprint();
+
+        jdbcTemplate.update("UPDATE products SET title = 'Renamed', updated_at = now() WHERE id = ?", activeProductId);
+        jdbcTemplate.update("UPDATE products SET status = 'ACTIVE' WHERE id = ?", activeProductId);
+        jdbcTemplate.update("UPDATE media_sources SET attempts = attempts + 1, next_attempt_at = now()");
+        jdbcTemplate.update("UPDATE media_assets SET dhash = 1 WHERE sha256 = ?", SHA_A);
+
+        assertThat(imageHashRepository.findMasterHashesFingerprint()).isEqualTo(initial);
+    }
+
+    @Test
+    void fingerprint_concurrentWritersDoNotWaitOnEachOtherAndShowOnlyOnceCommitted() throws Exception {
+        String initial = imageHashRepository.findMasterHashesFingerprint();
+
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+            try (Statement a = first.createStatement(); Statement b = second.createStatement()) {
+                a.executeUpdate("UPDATE media_assets SET dhash = 5 WHERE sha256 = '" + SHA_A + "'");
+                // Would wait for the first transaction if both bumped a shared row
+                b.execute("SET LOCAL lock_timeout = '2s'");
+                b.executeUpdate("UPDATE media_assets SET dhash = 6 WHERE sha256 = '" + SHA_B + "'");
+            }
+            assertThat(imageHashRepository.findMasterHashesFingerprint()).isEqualTo(initial);
+            first.commit();
+            String afterFirst = imageHashRepository.findMasterHashesFingerprint();
+            assertThat(afterFirst).isNotEqualTo(initial);
+            second.commit();
+            assertThat(imageHashRepository.findMasterHashesFingerprint()).isNotEqualTo(afterFirst);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.merchant.demo.repository;
+
+import com.merchant.demo.repository.JobRepository.JobRow;
+import com.merchant.demo.service.JobQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// No workers on this instance: the test claims jobs itself
+@SpringBootTest(properties = "app.jobs.workers-enabled=false")
+@Testcontainers
+class JobRepositoryIntegrationTest {
+
+    private static final DockerImageName POSTGRES_IMAGE = DockerImageName.parse("postgres:16");
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer(POSTGRES_IMAGE);
+
+    private static final String SYNC = JobQueue.MERCHANT_SYNC;
+    private static final String MATCHING = JobQueue.MERCHANT_MATCHING;
+    private static final long LEASE_MS = 60_000;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM jobs");
+    }
+
+    private long enqueue(String jobType, int priority, String concurrencyKey, String dedupeKey, int maxAttempts,
+                         Instant runAfter) {
+        return jobRepository.enqueue(jobType, "{}", priority, concurrencyKey, dedupeKey, maxAttempts, runAfter);
+    }
+
+    private JobRow job(long id) {
+        return jobRepository.findById(id).orElseThrow();
+    }
+
+    private Optional<Long> claim(String workerId) {
+        return jobRepository.claimNext(workerId, LEASE_MS).map(JobRow::id);
+    }
+
+    private void makeDue(long id) {
+        jdbcTemplate.update("UPDATE jobs SET run_after = now() - interval '1 second' WHERE id = ?", id);
+    }
+
+    @Test
+    void enqueue_mergesIntoQueuedJobWithSameTypeAndDedupeKey() {
+        Instant now = Instant.now();
+        long first = enqueue(SYNC, 100, "merchant:1", "merchant:1", 3, now.plusSeconds(60));
+        long merged = enqueue(SYNC, 10, "merchant:1", "merchant:1", 3, now.minusSeconds(1));
+        long otherType = enqueue(MATCHING, 100, "merchant:1", "merchant:1", 3, now.minusSeconds(1));
+
+        assertThat(merged).isEqualTo(first);
+        assertThat(otherType).isNotEqualTo(first);
+        // The merged job keeps the more urgent priority and the earlier start
+        JobRow job = job(first);
+        assertThat(job.priority()).isEqualTo(10);
+        assertThat(job.runAfter()).isBefore(now);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM jobs", Integer.class)).isEqualTo(2);
+
+        // Once the job is running it no longer absorbs new work
+        assertThat(claim("w1")).contains(first);
+        long next = enqueue(SYNC, 100, "merchant:1", "merchant:1", 3, now);
+        assertThat(next).isNotEqualTo(first);
+        assertThat(job(next).status()).isEqualTo("QUEUED");
+    }
+
+    @Test
+    void claimNext_takesDueJobsByPriorityThenRunAfterThenId() {
+        Instant now = Instant.now();
+        long background = enqueue(SYNC, 200, null, null, 3, now.minusSeconds(30));
+        long urgentLater = enqueue(SYNC, 10, null, null, 3, now.minusSeconds(10));
+        long urgentEarlier = enqueue(SYNC, 10, null, null, 3, now.minusSeconds(20));
+        long urgentTie = enqueue(SYNC, 10, null, null, 3, now.minusSeconds(10));
+        enqueue(SYNC, 1, null, null, 3, now.plusSeconds(3600));
+
+        assertThat(List.of(claim("w1"), claim("w1"), claim("w1"), claim("w1"), claim("w1"))).containsExactly(
+                Optional.of(urgentEarlier), Optional.of(urgentLater), Optional.of(urgentTie), Optional.of(background),
+                Optional.empty());
+
+        JobRow claimed = job(urgentEarlier);
+        assertThat(claimed.status()).isEqualTo("RUNNING");
+        assertThat(claimed.lockedBy()).isEqualTo("w1");
+        assertThat(claimed.attempts()).isEqualTo(1);
+        assertThat(claimed.lockedUntil()).isCloseTo(Instant.now().plusMillis(LEASE_MS), within(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void claimNext_neverRunsTwoJobsWithTheSameConcurrencyKey() {
+        Instant due = Instant.now().minusSeconds(1);
+        long sync = enqueue(SYNC, 10, "merchant:1", null, 3, due);
+        long matching = enqueue(MATCHING, 10, "merchant:1", null, 3, due);
+        long otherMerchant = enqueue(SYNC, 20, "merchant:2", null, 3, due);
+
+        assertThat(claim("w1")).contains(sync);
+        // merchant:1 is busy, so the next claim skips its matching job
+        assertThat(claim("w2")).contains(otherMerchant);
+        assertThat(claim("w3")).isEmpty();
+
+        assertThat(jobRepository.complete(sync, "w1", "{\"ok\":true}")).isTrue();
+        assertThat(job(sync).status()).isEqualTo("SUCCEEDED");
+        assertThat(claim("w3")).contains(matching);
+    }
+
+    @Test
+    void fail_requeuesWithExponentialBackoffAndFailsOnceAttemptsAreUsedUp() {
+        long id = enqueue(SYNC, 10, null, null, 3, Instant.now().minusSeconds(1));
+
+        assertThat(claim("w1")).contains(id);
+        jobRepository.fail(id, "w1", "boom", 10_000, false);
+        JobRow retry = job(id);
+        assertThat(retry.status()).isEqualTo("QUEUED");
+        assertThat(retry.lastError()).isEqualTo("boom");
+        assertThat(retry.lockedBy()).isNull();
+        assertThat(retry.runAfter()).isCloseTo(Instant.now().plusSeconds(10), within(Duration.ofSeconds(5)));
+        // Not due yet
+        assertThat(claim("w1")).isEmpty();
+
+        makeDue(id);
+        assertThat(claim("w1")).contains(id);
+        jobRepository.fail(id, "w1", "boom again", 10_000, false);
+        assertThat(job(id).runAfter()).isCloseTo(Instant.now().plusSeconds(20), within(Duration.ofSeconds(5)));
+
+        makeDue(id);
+        assertThat(claim("w1")).contains(id);
+        jobRepository.fail(id, "w1", "still broken", 10_000, false);
+        JobRow failed = job(id);
+        assertThat(failed.status()).isEqualTo("FAILED");
+        assertThat(failed.attempts()).isEqualTo(3);
+        assertThat(failed.finishedAt()).isNotNull();
+        assertThat(failed.lastError()).isEqualTo("still broken");
+    }
+
+    @Test
+    void fail_permanentErrorFailsOnTheFirstAttempt() {
+        long id = enqueue(SYNC, 10, null, null, 5, Instant.now().minusSeconds(1));
+
+        assertThat(claim("w1")).contains(id);
+        jobRepository.fail(id, "w1", "Merchant not found", 10_000, true);
+
+        assertThat(job(id).status()).isEqualTo("FAILED");
+        assertThat(job(id).attempts()).isEqualTo(1);
+    }
+
+    @Test
+    void requeueExpired_returnsLapsedLeasesToTheQueueAndFailsExhaustedJobs() {
+        Instant due = Instant.now().minusSeconds(1);
+        long retried = enqueue(SYNC, 10, "merchant:1", null, 3, due);
+        long exhausted = enqueue(SYNC, 20, null, null, 1, due);
+        assertThat(claim("w1")).contains(retried);
+        assertThat(claim("w1")).contains(exhausted);
+
+        // A live lease is left alone
+        assertThat(jobRepository.requeueExpired()).isZero();
+        jdbcTemplate.update("UPDATE jobs SET locked_until = now() - interval '1 second'");
+        assertThat(jobRepository.requeueExpired()).isEqualTo(2);
+
+        JobRow requeued = job(retried);
+        assertThat(requeued.status()).isEqualTo("QUEUED");
+        assertThat(requeued.lockedBy()).isNull();
+        assertThat(requeued.lastError()).isEqualTo("Lease expired on w1");
+        assertThat(job(exhausted).status()).isEqualTo("FAILED");
+
+        // The old worker lost its lease: its late completion and renewals are ignored
+        assertThat(jobRepository.complete(retried, "w1", null)).isFalse();
+        assertThat(claim("w2")).contains(retried);
+        assertThat(jobRepository.extendLeases(List.of(retried), "w1", LEASE_MS)).isZero();
+        assertThat(jobRepository.extendLeases(List.of(retried), "w2", LEASE_MS)).isEqualTo(1);
+        jobRepository.fail(retried, "w1", "late failure", 10_000, false);
+        assertThat(job(retried).status()).isEqualTo("RUNNING");
+        assertThat(job(retried).lockedBy()).isEqualTo("w2");
+    }
+}
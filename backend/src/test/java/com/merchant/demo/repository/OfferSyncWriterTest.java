@@ -0,0 +1,88 @@
+package com.merchant.demo.repository;
+
+import com.merchant.demo.repository.OfferSyncWriter.OfferDelta;
+import com.merchant.demo.repository.OfferSyncWriter.SyncedVariant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OfferSyncWriterTest {
+
+    private static final String STAMP_UNCHANGED = "UPDATE merchant_offers SET last_synced_at";
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Mock
+    private BestOfferRepository bestOfferRepository;
+
+    @InjectMocks
+    private OfferSyncWriter offerSyncWriter;
+
+    private final List<SyncedVariant> variants = List.of(
+            new SyncedVariant("v-1", null, 4),
+            new SyncedVariant("v-2", null, 7));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void storedOffers() throws Exception {
+        // v-1 is stored with stock 2 (changes to 4), v-2 already has stock 7
+        when(jdbc.query(startsWith("SELECT id, external_variant_id"), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(inv -> {
+                    RowMapper<Object> mapper = inv.getArgument(2);
+                    List<Object> rows = new ArrayList<>();
+                    rows.add(mapper.mapRow(offerRow(11, "v-1", 2), 0));
+                    rows.add(mapper.mapRow(offerRow(12, "v-2", 7), 1));
+                    return rows;
+                });
+    }
+
+    private static ResultSet offerRow(int id, String externalVariantId, int stock) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("id")).thenReturn(id);
+        when(rs.getString("external_variant_id")).thenReturn(externalVariantId);
+        when(rs.getLong("cached_price_minor")).thenReturn(1_000L);
+        when(rs.getObject("current_stock")).thenReturn(stock);
+        return rs;
+    }
+
+    @Test
+    void apply_updatesChangedOffersAndStampsTheRest() {
+        List<OfferDelta> deltas = offerSyncWriter.apply(3, variants, Instant.now());
+
+        assertThat(deltas).containsExactly(new OfferDelta(11, 1_000, 1_000, 2, 4));
+        verify(jdbc).batchUpdate(startsWith("UPDATE merchant_offers"), any(SqlParameterSource[].class));
+        verify(jdbc).update(startsWith(STAMP_UNCHANGED), any(SqlParameterSource.class));
+        verify(bestOfferRepository).refreshForOffers(List.of(11));
+    }
+
+    @Test
+    void applyChanges_leavesUnchangedOffersUntouched() {
+        List<OfferDelta> deltas = offerSyncWriter.applyChanges(3, variants, Instant.now());
+
+        assertThat(deltas).containsExactly(new OfferDelta(11, 1_000, 1_000, 2, 4));
+        verify(jdbc).batchUpdate(startsWith("UPDATE merchant_offers"), any(SqlParameterSource[].class));
+        verify(jdbc, never()).update(startsWith(STAMP_UNCHANGED), any(SqlParameterSource.class));
+        verify(bestOfferRepository).refreshForOffers(List.of(11));
+    }
+}
@@ -0,0 +1,124 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.CatalogProperties;
+import com.merchant.demo.repository.CatalogExportRepository;
+import com.merchant.demo.repository.CatalogExportRepository.ExportRow;
+import com.merchant.demo.repository.CatalogExportRepository.ExportRowHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogExportServiceTest {
+
+    @Mock
+    private CatalogExportRepository catalogExportRepository;
+
+    @Spy
+    private CatalogProperties catalogProperties = new CatalogProperties();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private CatalogExportService catalogExportService;
+
+    private static ExportRow row(int productId, Integer variantId, Integer offerId, Integer stock) {
+        return new ExportRow(productId, "Air Max \"90\", OG", "air-max-90", "ACTIVE", 3, "Nike",
+                variantId, variantId != null ? "SKU-" + variantId : null, null,
+                variantId != null ? "{\"Size\": \"M\"}" : null, variantId != null ? "ACTIVE" : null,
+                variantId != null ? true : null,
+                offerId, offerId != null ? 7 : null, offerId != null ? "M-" + offerId : null,
+                offerId != null ? "INR" : null, offerId != null ? 10_000L : null, offerId != null ? 9_500L : null,
+                stock, offerId != null ? "LIVE" : null, offerId != null ? true : null);
+    }
+
+    private String export(CatalogExportService.Format format, List<ExportRow> rows) throws Exception {
+        // Read before stubbing: calling the spy inside when(...) would leave the stubbing unfinished
+        int fetchSize = catalogProperties.getExportFetchSize();
+        doAnswer(inv -> {
+            ExportRowHandler handler = inv.getArgument(1);
+            rows.forEach(handler::accept);
+            return null;
+        }).when(catalogExportRepository).forEachCatalogRow(eq(fetchSize), any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(catalogExportService.export(format, out)).isEqualTo(rows.size());
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void export_csvWritesOneRowPerOfferWithQuoting() throws Exception {
+        String csv = export(CatalogExportService.Format.CSV, List.of(
+                row(1, 10, 100, 4),
+                row(1, 10, 101, null),
+                row(2, null, null, null)));
+
+        String[] lines = csv.split("\r\n");
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).isEqualTo(String.join(",", CatalogExportService.CSV_COLUMNS));
+        assertThat(lines[1]).isEqualTo("1,\"Air Max \"\"90\"\", OG\",air-max-90,ACTIVE,3,Nike,"
+                + "10,SKU-10,,\"{\"\"Size\"\": \"\"M\"\"}\",ACTIVE,true,"
+                + "100,7,M-100,INR,10000,9500,4,LIVE,true");
+        assertThat(lines[2]).endsWith(",101,7,M-101,INR,10000,9500,,LIVE,true");
+        // Product without variants: variant and offer columns empty
+        assertThat(lines[3]).isEqualTo("2,\"Air Max \"\"90\"\", OG\",air-max-90,ACTIVE,3,Nike,,,,,,,,,,,,,,,");
+    }
+
+    @Test
+    void export_jsonlNestsVariantsAndOffersOneProductPerLine() throws Exception {
+        String jsonl = export(CatalogExportService.Format.JSONL, List.of(
+                row(1, 10, 100, 4),
+                row(1, 10, 101, null),
+                row(1, 11, null, null),
+                row(2, null, null, null)));
+
+        assertThat(jsonl).endsWith("\n");
+        String[] lines = jsonl.split("\n");
+        assertThat(lines).hasSize(2);
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asInt()).isEqualTo(1);
+        assertThat(first.get("title").asText()).isEqualTo("Air Max \"90\", OG");
+        assertThat(first.get("brand").get("name").asText()).isEqualTo("Nike");
+        assertThat(first.get("variants")).hasSize(2);
+        JsonNode variant = first.get("variants").get(0);
+        assertThat(variant.get("options").get("Size").asText()).isEqualTo("M");
+        assertThat(variant.get("offers")).hasSize(2);
+        assertThat(variant.get("offers").get(0).get("settlement_price_minor").asLong()).isEqualTo(9_500L);
+        assertThat(variant.get("offers").get(1).get("stock").isNull()).isTrue();
+        assertThat(first.get("variants").get(1).get("offers")).isEmpty();
+
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(second.get("id").asInt()).isEqualTo(2);
+        assertThat(second.get("variants")).isEmpty();
+    }
+
+    @Test
+    void export_emptyCatalogWritesOnlyCsvHeader() throws Exception {
+        assertThat(export(CatalogExportService.Format.CSV, List.of()))
+                .isEqualTo(String.join(",", CatalogExportService.CSV_COLUMNS) + "\r\n");
+        assertThat(export(CatalogExportService.Format.JSONL, List.of())).isEmpty();
+    }
+
+    @Test
+    void parse_acceptsKnownFormatsOnly() {
+        assertThat(CatalogExportService.Format.parse(" JSONL")).isEqualTo(CatalogExportService.Format.JSONL);
+        assertThatThrownBy(() -> CatalogExportService.Format.parse("xlsx"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,204 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.dto.shopify.ProductNode;
+import com.merchant.demo.dto.shopify.VariantNode;
+import com.merchant.demo.repository.SyncLogRepository.RowError;
+import com.merchant.demo.service.CatalogFileParser.Format;
+import com.merchant.demo.service.CatalogFileParser.Limits;
+import com.merchant.demo.service.CatalogFileParser.ParsedProduct;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogFileParserTest {
+
+    private static final String HEADER = "product_id,title,vendor,tags,image_url,variant_id,sku,price,stock,"
+            + "option1_name,option1_value,option2_name,option2_value,variant_image_url\n";
+
+    private static final Limits LIMITS = new Limits(1024, 4096, 100);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<ParsedProduct> parse(Format format, String content) throws IOException {
+        return parse(format, content, LIMITS);
+    }
+
+    private List<ParsedProduct> parse(Format format, String content, Limits limits) throws IOException {
+        List<ParsedProduct> products = new ArrayList<>();
+        try (CatalogFileParser parser = CatalogFileParser.open(format,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), objectMapper, limits)) {
+            ParsedProduct product;
+            while ((product = parser.next()) != null) products.add(product);
+        }
+        return products;
+    }
+
+    @Test
+    void csv_groupsVariantRowsIntoProducts() throws IOException {
+        List<ParsedProduct> products = parse(Format.CSV, HEADER
+                + "P1,\"Tee, \"\"Classic\"\"\",Acme,\"summer, cotton\",https://cdn.example.com/p1.jpg,V1,TEE-S,19.90,5,Size,S,Color,Red,\n"
+                + "P1,,,,,V2,TEE-M,19.9,,Size,M,Color,Red,https://cdn.example.com/p1-m.jpg\r\n"
+                + "P2,\"Mug\nwith newline\",Acme,,,V3,MUG,7,0,,,,,\n");
+
+        assertThat(products).hasSize(2);
+        ParsedProduct first = products.get(0);
+        assertThat(first.valid()).isTrue();
+        assertThat(first.firstRow()).isEqualTo(2);
+        ProductNode node = first.node();
+        assertThat(node.id()).isEqualTo("P1");
+        assertThat(node.title()).isEqualTo("Tee, \"Classic\"");
+        assertThat(node.tags()).containsExactly("summer", "cotton");
+        assertThat(node.options()).extracting(o -> o.name() + "=" + o.values())
+                .containsExactly("Size=[S, M]", "Color=[Red]");
+        assertThat(node.media().edges()).extracting(e -> e.node().image().url())
+                .containsExactly("https://cdn.example.com/p1.jpg", "https://cdn.example.com/p1-m.jpg");
+
+        VariantNode small = node.variants().edges().get(0).node();
+        assertThat(small.price()).isEqualTo("19.90");
+        assertThat(small.inventoryQuantity()).isEqualTo(5);
+        assertThat(small.imageMediaId()).isNull();
+        VariantNode medium = node.variants().edges().get(1).node();
+        assertThat(medium.inventoryQuantity()).isNull();
+        assertThat(medium.imageMediaId()).isEqualTo("https://cdn.example.com/p1-m.jpg");
+
+        // The quoted newline stays inside the field; records are counted, not lines
+        assertThat(products.get(1).firstRow()).isEqualTo(4);
+        assertThat(products.get(1).node().title()).isEqualTo("Mug\nwith newline");
+        assertThat(products.get(1).node().options()).isEmpty();
+    }
+
+    @Test
+    void csv_rejectsWholeProductWithRowErrors() throws IOException {
+        List<ParsedProduct> products = parse(Format.CSV, HEADER
+                + "P1,Tee,,,,V1,,abc,-1,,,,,\n"
+                + "P1,,,,,V1,,10.005,,Size,,,,\n"
+                + "P2,Mug,,,,V2,,7,,,,,,ftp://example.com/x.jpg\n"
+                + "P3,,,,,V3,,7,,,,,,\n"
+                + ",Orphan,,,,V4,,7,,,,,,\n"
+                + "P4,Cap,,,,V5,,12,3,,,,,\n");
+
+        assertThat(products).extracting(ParsedProduct::externalProductId)
+                .containsExactly("P1", "P2", "P3", null, "P4");
+        assertThat(products.get(0).node()).isNull();
+        assertThat(products.get(0).errors()).extracting(e -> e.rowNumber() + ": " + e.message()).containsExactly(
+                "2: price is not a number: abc; stock must not be negative: -1",
+                "3: duplicate variant_id V1; price has more than 2 decimals: 10.005; option Size has no value");
+        assertThat(products.get(1).errors().get(0).message()).startsWith("image URL must be http(s)");
+        assertThat(products.get(2).errors()).extracting(e -> e.message()).containsExactly("title is required");
+        assertThat(products.get(3).errors().get(0).rowNumber()).isEqualTo(6);
+        assertThat(products.get(4).valid()).isTrue();
+    }
+
+    @Test
+    void csv_rejectsProductsSplitAcrossTheFile() throws IOException {
+        List<ParsedProduct> products = parse(Format.CSV, HEADER
+                + "P1,Tee,,,,V1,,10,,,,,,\n"
+                + "P2,Mug,,,,V2,,7,,,,,,\n"
+                + "P1,Tee,,,,V3,,10,,,,,,\n");
+
+        assertThat(products).hasSize(3);
+        assertThat(products.get(2).valid()).isFalse();
+        assertThat(products.get(2).errors().get(0).message()).contains("must be contiguous");
+    }
+
+    @Test
+    void csv_requiresHeaderColumns() {
+        assertThatThrownBy(() -> parse(Format.CSV, "product_id,title\nP1,Tee\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("variant_id");
+        assertThatThrownBy(() -> parse(Format.CSV, ""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void jsonl_readsOneProductPerLine() throws IOException {
+        List<ParsedProduct> products = parse(Format.JSONL, """
+                {"product_id": 101, "title": "Tee", "tags": ["summer"], "images": ["https://cdn.example.com/t.jpg"], "variants": [{"variant_id": 1, "price": 19.9, "stock": 4, "options": {"Size": "S"}}, {"variant_id": "2", "price": "21", "options": {"Size": "M"}}]}
+
+                not json
+                {"product_id": "102", "title": "Mug", "variants": []}
+                {"product_id": "103", "title": "Cap", "variants": [{"variant_id": "9", "price": "5.00", "stock": "lots"}]}
+                """);
+
+        assertThat(products).hasSize(4);
+        ProductNode tee = products.get(0).node();
+        assertThat(tee.id()).isEqualTo("101");
+        assertThat(tee.variants().edges()).extracting(e -> e.node().id() + "@" + e.node().price())
+                .containsExactly("1@19.9", "2@21");
+        assertThat(tee.options().get(0).values()).containsExactly("S", "M");
+        assertThat(tee.media().edges()).hasSize(1);
+
+        // Blank lines count towards line numbers
+        assertThat(products.get(1).errors().get(0).rowNumber()).isEqualTo(3);
+        assertThat(products.get(1).errors().get(0).message()).startsWith("invalid JSON");
+        assertThat(products.get(2).errors().get(0).message()).isEqualTo("product has no variants");
+        assertThat(products.get(3).errors().get(0).message()).isEqualTo("stock is not a whole number: lots");
+    }
+
+    @Test
+    void csv_rejectsOversizedFieldsAndResumesAtTheNextLine() throws IOException {
+        List<ParsedProduct> products = parse(Format.CSV, HEADER
+                + "P1,Tee,,,,V1,,10,,,,,,\n"
+                // A stray opening quote must not swallow the rest of the file
+                + "P2,\"Mug,,,,V2,,5,,,,,,\n"
+                + "x".repeat(40) + "\n"
+                + "P3,Cap,,,,V3,,7,,,,,,\n", new Limits(32, 4096, 100));
+
+        assertThat(products).extracting(ParsedProduct::externalProductId).containsExactly("P1", "P2", "P3");
+        assertThat(products.get(1).node()).isNull();
+        assertThat(products.get(1).errors().get(0).message()).isEqualTo("field 2 exceeds 32 characters");
+        assertThat(products.get(2).node()).isNotNull();
+    }
+
+    @Test
+    void csv_rejectsOversizedRecords() throws IOException {
+        List<ParsedProduct> products = parse(Format.CSV, HEADER
+                + "P1,Tee," + "v,".repeat(80) + "\n"
+                + "P2,Mug,,,,V2,,5,,,,,,\n", new Limits(32, 150, 100));
+
+        assertThat(products.get(0).errors().get(0).message()).isEqualTo("record exceeds 150 characters");
+        assertThat(products.get(1).node()).isNotNull();
+    }
+
+    @Test
+    void csv_rejectsProductsWithTooManyRowsWithoutKeepingThem() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 5; i++) content.append("P1,Tee,,,,V").append(i).append(",,10,,,,,,\n");
+        content.append("P2,Mug,,,,V9,,5,,,,,,\n");
+
+        List<ParsedProduct> products = parse(Format.CSV, content.toString(), new Limits(1024, 4096, 3));
+
+        assertThat(products.get(0).node()).isNull();
+        assertThat(products.get(0).errors()).singleElement()
+                .extracting(RowError::message).isEqualTo("product has 5 rows; at most 3 are read");
+        assertThat(products.get(1).node()).isNotNull();
+    }
+
+    @Test
+    void jsonl_rejectsOverlongLinesAndReadsOn() throws IOException {
+        String longTitle = "t".repeat(200);
+        List<ParsedProduct> products = parse(Format.JSONL,
+                "{\"product_id\": \"101\", \"title\": \"" + longTitle + "\", \"variants\": [{\"variant_id\": \"1\", \"price\": \"5\"}]}\n"
+                        + "{\"product_id\": \"102\", \"title\": \"Mug\", \"variants\": [{\"variant_id\": \"2\", \"price\": \"5\"}]}\r\n",
+                new Limits(1024, 100, 100));
+
+        assertThat(products).hasSize(2);
+        assertThat(products.get(0).errors().get(0).message()).isEqualTo("line exceeds 100 characters");
+        assertThat(products.get(0).errors().get(0).rowNumber()).isEqualTo(1);
+        assertThat(products.get(1).node().id()).isEqualTo("102");
+    }
+
+    @Test
+    void parse_acceptsKnownFormatsOnly() {
+        assertThat(Format.parse("JSONL ")).isEqualTo(Format.JSONL);
+        assertThatThrownBy(() -> Format.parse("xlsx")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
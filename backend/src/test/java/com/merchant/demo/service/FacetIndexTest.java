@@ -0,0 +1,210 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.repository.ProductFacetRepository.ProductFacets;
+import com.merchant.demo.service.FacetIndex.FacetQuery;
+import com.merchant.demo.service.FacetIndex.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTest {
+
+    private static final int NIKE = 1;
+    private static final int ADIDAS = 2;
+    private static final int SHOES = 20;
+    private static final int RUNNING_SHOES = 21;
+    private static final int TRAIL_SHOES = 22;
+    private static final int SHIRTS = 30;
+
+    private FacetIndex index;
+
+    /** A product with a variant for every color and size combination. */
+    private static ProductFacets product(int id, Integer brandId, List<Integer> categoryIds, String colors,
+                                         String sizes, Long fromPrice) {
+        List<Map<String, String>> variants = new ArrayList<>();
+        if (colors != null && sizes != null) {
+            for (String color : colors.split(",")) {
+                for (String size : sizes.split(",")) {
+                    variants.add(Map.of("color", color, "size", size));
+                }
+            }
+        }
+        return new ProductFacets(id, brandId, categoryIds, variants, fromPrice);
+    }
+
+    private static ProductFacets product(int id, Integer brandId, Long fromPrice, List<Map<String, String>> variants) {
+        return new ProductFacets(id, brandId, List.of(), variants, fromPrice);
+    }
+
+    private static FacetQuery query(Set<Integer> brands, Set<Integer> categories, Map<String, Set<String>> options,
+                                    Long min, Long max) {
+        return new FacetQuery(brands, categories, options, min, max);
+    }
+
+    private Result all() {
+        return index.query(query(Set.of(), Set.of(), Map.of(), null, null), 0, 100);
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetIndex(Map.of(RUNNING_SHOES, SHOES, TRAIL_SHOES, SHOES));
+        index.upsert(product(10, NIKE, List.of(RUNNING_SHOES), "red,blue", "m,l", 9_000L));
+        index.upsert(product(11, NIKE, List.of(TRAIL_SHOES), "black", "m", 12_000L));
+        index.upsert(product(12, ADIDAS, List.of(RUNNING_SHOES), "red", "s", 7_500L));
+        index.upsert(product(13, ADIDAS, List.of(SHIRTS), "red", "l", null));
+        index.upsert(product(14, null, List.of(), null, null, 3_000L));
+    }
+
+    @Test
+    void query_withoutFiltersCountsEverything() {
+        Result result = all();
+
+        assertThat(result.total()).isEqualTo(5);
+        assertThat(result.productIds()).containsExactly(10, 11, 12, 13, 14);
+        assertThat(result.brandCounts()).containsExactly(Map.entry(NIKE, 2), Map.entry(ADIDAS, 2));
+        // Parent category counts its subcategories' products
+        assertThat(result.categoryCounts()).containsEntry(SHOES, 3).containsEntry(RUNNING_SHOES, 2)
+                .containsEntry(TRAIL_SHOES, 1).containsEntry(SHIRTS, 1);
+        assertThat(result.optionCounts().get("color")).containsExactly(
+                Map.entry("red", 3), Map.entry("black", 1), Map.entry("blue", 1));
+        assertThat(result.minPriceMinor()).isEqualTo(3_000L);
+        assertThat(result.maxPriceMinor()).isEqualTo(12_000L);
+    }
+
+    @Test
+    void query_categorySelectsSubtree() {
+        Result result = index.query(query(Set.of(), Set.of(SHOES), Map.of(), null, null), 0, 100);
+
+        assertThat(result.productIds()).containsExactly(10, 11, 12);
+        assertThat(result.brandCounts()).containsExactly(Map.entry(NIKE, 2), Map.entry(ADIDAS, 1));
+    }
+
+    @Test
+    void query_orWithinFacetAndAcrossFacetsWithDisjunctiveCounts() {
+        Result result = index.query(query(Set.of(NIKE), Set.of(),
+                Map.of("color", Set.of("red", "black")), null, null), 0, 100);
+
+        assertThat(result.productIds()).containsExactly(10, 11);
+        // Brand counts ignore the brand filter but apply the color filter
+        assertThat(result.brandCounts()).containsExactly(Map.entry(NIKE, 2), Map.entry(ADIDAS, 2));
+        // Color counts ignore the color filter but apply the brand filter
+        assertThat(result.optionCounts().get("color")).containsExactly(
+                Map.entry("black", 1), Map.entry("blue", 1), Map.entry("red", 1));
+        assertThat(result.optionCounts().get("size")).containsExactly(Map.entry("m", 2), Map.entry("l", 1));
+    }
+
+    @Test
+    void query_optionsMatchOnTheSameVariant() {
+        // Red/S and Blue/M, but no Red/M
+        index.upsert(product(15, NIKE, 5_000L, List.of(Map.of("color", "red", "size", "s"),
+                Map.of("color", "blue", "size", "m"))));
+
+        Result redM = index.query(query(Set.of(), Set.of(), Map.of("color", Set.of("red"), "size", Set.of("m")),
+                null, null), 0, 100);
+        assertThat(redM.productIds()).containsExactly(10);
+        assertThat(redM.brandCounts()).containsExactly(Map.entry(NIKE, 1));
+        // Sizes available in red, colors available in size m: per variant, not per product
+        assertThat(redM.optionCounts().get("size")).containsExactly(
+                Map.entry("l", 2), Map.entry("s", 2), Map.entry("m", 1));
+        assertThat(redM.optionCounts().get("color")).containsExactly(
+                Map.entry("blue", 2), Map.entry("black", 1), Map.entry("red", 1));
+        assertThat(redM.minPriceMinor()).isEqualTo(9_000L);
+
+        Result blueOrRedM = index.query(query(Set.of(), Set.of(),
+                Map.of("color", Set.of("red", "blue"), "size", Set.of("m")), null, null), 0, 100);
+        assertThat(blueOrRedM.productIds()).containsExactly(10, 15);
+
+        // One option facet: any variant with a selected value
+        Result sizeS = index.query(query(Set.of(), Set.of(), Map.of("size", Set.of("s")), null, null), 0, 100);
+        assertThat(sizeS.productIds()).containsExactly(12, 15);
+        assertThat(sizeS.optionCounts().get("color")).containsExactly(Map.entry("red", 2));
+    }
+
+    @Test
+    void upsert_reusesVariantSlotsWhileCombinationsFit() {
+        assertThat(index.variantCount()).isEqualTo(7);
+        assertThat(index.variantSlotCount()).isEqualTo(7);
+
+        index.upsert(product(10, NIKE, List.of(RUNNING_SHOES), "red", "m,l", 9_000L));
+        assertThat(index.variantCount()).isEqualTo(5);
+        assertThat(index.variantSlotCount()).isEqualTo(7);
+
+        index.upsert(product(11, NIKE, List.of(TRAIL_SHOES), "black,white", "m", 12_000L));
+        assertThat(index.variantCount()).isEqualTo(6);
+        assertThat(index.variantSlotCount()).isEqualTo(9);
+
+        Result whiteM = index.query(query(Set.of(), Set.of(), Map.of("color", Set.of("white"), "size", Set.of("m")),
+                null, null), 0, 100);
+        assertThat(whiteM.productIds()).containsExactly(11);
+        Result blueL = index.query(query(Set.of(), Set.of(), Map.of("color", Set.of("blue"), "size", Set.of("l")),
+                null, null), 0, 100);
+        assertThat(blueL.total()).isZero();
+    }
+
+    @Test
+    void query_priceRangeSkipsProductsWithoutPrice() {
+        Result result = index.query(query(Set.of(), Set.of(), Map.of(), 5_000L, 10_000L), 0, 100);
+
+        assertThat(result.productIds()).containsExactly(10, 12);
+        // The bounds describe the range available under the other filters
+        assertThat(result.minPriceMinor()).isEqualTo(3_000L);
+        assertThat(result.maxPriceMinor()).isEqualTo(12_000L);
+        assertThat(result.brandCounts()).containsExactly(Map.entry(NIKE, 1), Map.entry(ADIDAS, 1));
+    }
+
+    @Test
+    void query_pagesInSlotOrder() {
+        FacetQuery none = query(Set.of(), Set.of(), Map.of(), null, null);
+
+        assertThat(index.query(none, 0, 2).productIds()).containsExactly(10, 11);
+        assertThat(index.query(none, 4, 2).productIds()).containsExactly(14);
+        assertThat(index.query(none, 6, 2).productIds()).isEmpty();
+        assertThat(index.query(none, 6, 2).total()).isEqualTo(5);
+    }
+
+    @Test
+    void upsertAndRemove_updateBitmapsInPlace() {
+        index.upsert(product(10, ADIDAS, List.of(SHIRTS), "green", "m", 20_000L));
+        index.remove(11);
+        index.remove(99);
+
+        Result result = all();
+        assertThat(result.productIds()).containsExactly(10, 12, 13, 14);
+        assertThat(result.brandCounts()).containsExactly(Map.entry(ADIDAS, 3));
+        assertThat(result.categoryCounts()).containsEntry(SHOES, 1).containsEntry(SHIRTS, 2)
+                .doesNotContainKey(TRAIL_SHOES);
+        assertThat(result.optionCounts().get("color")).containsExactly(Map.entry("red", 2), Map.entry("green", 1));
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.slotCount()).isEqualTo(5);
+        assertThat(index.productIdSum()).isEqualTo(10 + 12 + 13 + 14);
+
+        // A removed product comes back in a new slot, after the others
+        index.upsert(product(11, NIKE, List.of(TRAIL_SHOES), "black", "m", 12_000L));
+        assertThat(all().productIds()).containsExactly(10, 12, 13, 14, 11);
+        assertThat(index.slotCount()).isEqualTo(6);
+    }
+
+    @Test
+    void query_unknownValuesMatchNothing() {
+        Result result = index.query(query(Set.of(999), Set.of(), Map.of("material", Set.of("wool")), null, null), 0, 10);
+
+        assertThat(result.total()).isZero();
+        assertThat(result.productIds()).isEmpty();
+        assertThat(result.minPriceMinor()).isNull();
+    }
+
+    @Test
+    void upsert_growsPastInitialCapacity() {
+        FacetIndex large = new FacetIndex(Map.of());
+        for (int id = 1; id <= 5000; id++) {
+            large.upsert(product(id, id % 2 == 0 ? NIKE : ADIDAS, List.of(SHOES), "red", "m", (long) id));
+        }
+
+        Result result = large.query(query(Set.of(NIKE), Set.of(), Map.of(), 4_000L, null), 10, 5);
+        assertThat(result.total()).isEqualTo(501);
+        assertThat(result.productIds()).containsExactly(4020, 4022, 4024, 4026, 4028);
+    }
+}
@@ -0,0 +1,98 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.service.ImageHashIndex.ImageMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageHashIndexTest {
+
+    private static final long HASH = 0x0123_4567_89ab_cdefL;
+
+    /** {@code hash} with the given bit positions flipped. */
+    private static long flip(long hash, int... bits) {
+        for (int bit : bits) {
+            hash ^= 1L << bit;
+        }
+        return hash;
+    }
+
+    @Test
+    void nearest_findsHashesWithinDistanceClosestFirst() {
+        ImageHashIndex index = ImageHashIndex.builder("v1")
+                .add(10, flip(HASH, 3))
+                .add(11, flip(HASH, 0, 17, 34, 51))            // one bit in every chunk
+                .add(12, flip(HASH, 1, 2, 18, 19, 35, 36, 52)) // distance 7
+                .add(13, flip(HASH, 1, 2, 18, 19, 35, 36, 52, 53))
+                .build();
+
+        assertThat(index.nearest(new long[] {HASH}, 7, 10)).containsExactly(
+                new ImageMatch(10, 1),
+                new ImageMatch(11, 4),
+                new ImageMatch(12, 7));
+        assertThat(index.nearest(new long[] {HASH}, 3, 10)).containsExactly(new ImageMatch(10, 1));
+        assertThat(index.nearest(new long[] {HASH}, 7, 2)).extracting(ImageMatch::productId).containsExactly(10, 11);
+    }
+
+    @Test
+    void nearest_keepsBestDistancePerProductAcrossImagesAndQueries() {
+        long other = ~HASH;
+        ImageHashIndex index = ImageHashIndex.builder("v1")
+                .add(10, flip(HASH, 5, 6))
+                .add(10, flip(other, 7))
+                .add(11, flip(other, 8, 9, 40))
+                .build();
+
+        assertThat(index.nearest(new long[] {HASH, other}, 4, 10)).containsExactly(
+                new ImageMatch(10, 1),
+                new ImageMatch(11, 3));
+    }
+
+    @Test
+    void nearest_matchesLinearScanOnRandomHashes() {
+        Random random = new Random(42);
+        ImageHashIndex.Builder builder = ImageHashIndex.builder("v1");
+        long[] hashes = new long[5000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            builder.add(i, hashes[i]);
+        }
+        ImageHashIndex index = builder.build();
+
+        for (int q = 0; q < 200; q++) {
+            long query = hashes[random.nextInt(hashes.length)];
+            for (int flips = random.nextInt(8); flips > 0; flips--) {
+                query = flip(query, random.nextInt(64));
+            }
+            int expected = 0;
+            for (long hash : hashes) {
+                if (Long.bitCount(hash ^ query) <= ImageHashIndex.MAX_DISTANCE) expected++;
+            }
+            assertThat(index.nearest(new long[] {query}, ImageHashIndex.MAX_DISTANCE, Integer.MAX_VALUE)).hasSize(expected);
+        }
+    }
+
+    @Test
+    void flatImagesAreNeitherIndexedNorLookedUp() {
+        ImageHashIndex index = ImageHashIndex.builder("v1")
+                .add(10, 0L)
+                .add(11, -1L)
+                .add(12, flip(0L, 1))
+                .build();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.nearest(new long[] {0L, -1L}, 7, 10)).isEmpty();
+        assertThat(index.nearest(new long[] {flip(0L, 2)}, 7, 10)).containsExactly(new ImageMatch(12, 2));
+    }
+
+    @Test
+    void nearest_rejectsDistancesTheIndexCannotAnswer() {
+        ImageHashIndex index = ImageHashIndex.builder("v1").build();
+
+        assertThatThrownBy(() -> index.nearest(new long[] {HASH}, 8, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
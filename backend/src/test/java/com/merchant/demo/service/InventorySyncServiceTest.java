@@ -0,0 +1,124 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.InventorySyncProperties;
+import com.merchant.demo.dto.InventorySyncResultDto;
+import com.merchant.demo.dto.ShopifyConfig;
+import com.merchant.demo.dto.shopify.VariantInventoryResponse.VariantInventoryNode;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.OfferSyncWriter.OfferDelta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventorySyncServiceTest {
+
+    @Mock
+    private MerchantRepository merchantRepository;
+
+    @Mock
+    private ShopifyAdapter shopifyAdapter;
+
+    @Mock
+    private OfferSyncWriter offerSyncWriter;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private InventorySyncProperties inventorySyncProperties = new InventorySyncProperties();
+
+    @Mock
+    private JobQueue jobQueue;
+
+    @InjectMocks
+    private InventorySyncService inventorySyncService;
+
+    @Test
+    void syncInventory_appliesStockOnlyUpdates() {
+        Integer merchantId = 1;
+        String sourceConfigJson = "{\"store_url\":\"my-store.myshopify.com\",\"access_token\":\"shpat_test_token\"}";
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceConfig(sourceConfigJson).build()));
+        when(shopifyAdapter.fetchInventoryLevels(any(ShopifyConfig.class))).thenReturn(List.of(
+                new VariantInventoryNode("gid://shopify/ProductVariant/1", 4),
+                new VariantInventoryNode("gid://shopify/ProductVariant/2", 0)));
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(offerSyncWriter.applyChanges(eq(merchantId), any(), any()))
+                .thenReturn(List.of(new OfferDelta(11, 1000, 1000, 2, 4)));
+
+        InventorySyncResultDto result = inventorySyncService.syncInventory(merchantId);
+
+        assertThat(result.getVariantsFetched()).isEqualTo(2);
+        assertThat(result.getOffersUpdated()).isEqualTo(1);
+        // Prices are never touched by a stock-only sync, and unchanged offers are not rewritten
+        verify(offerSyncWriter).applyChanges(eq(merchantId),
+                argThat(variants -> variants.stream().allMatch(v -> v.priceMinor() == null)), any());
+    }
+
+    @Test
+    void syncAllMerchants_skipsMerchantsWithoutShopify() {
+        when(merchantRepository.findByIsActiveTrueOrderByName())
+                .thenReturn(List.of(Merchant.builder().id(2).shopifyConfigured(false).build()));
+
+        inventorySyncService.syncAllMerchants();
+
+        verifyNoInteractions(shopifyAdapter, offerSyncWriter, jobQueue);
+    }
+
+    @Test
+    void syncAllMerchants_enqueuesOneJobPerShopifyMerchantInsteadOfSyncingInline() {
+        when(merchantRepository.findByIsActiveTrueOrderByName()).thenReturn(List.of(
+                Merchant.builder().id(5).sourceType("SHOPIFY").shopifyConfigured(true).build(),
+                Merchant.builder().id(6).sourceType("SHOPIFY").shopifyConfigured(true).build()));
+
+        inventorySyncService.syncAllMerchants();
+
+        verify(jobQueue).enqueueForMerchant(JobQueue.MERCHANT_INVENTORY_SYNC, 5, JobQueue.PRIORITY_BACKGROUND);
+        verify(jobQueue).enqueueForMerchant(JobQueue.MERCHANT_INVENTORY_SYNC, 6, JobQueue.PRIORITY_BACKGROUND);
+        verifyNoInteractions(shopifyAdapter, offerSyncWriter);
+    }
+
+    @Test
+    void syncAllMerchants_skipsFileMerchantsEvenWhenShopifyWasConfigured() {
+        when(merchantRepository.findByIsActiveTrueOrderByName())
+                .thenReturn(List.of(Merchant.builder().id(3).sourceType("FILE").shopifyConfigured(true).build()));
+
+        inventorySyncService.syncAllMerchants();
+
+        verify(merchantRepository, never()).findById(any());
+        verifyNoInteractions(shopifyAdapter, offerSyncWriter, jobQueue);
+    }
+
+    @Test
+    void syncInventory_refusesFileMerchants() {
+        when(merchantRepository.findById(4))
+                .thenReturn(Optional.of(Merchant.builder().id(4).sourceType("FILE").build()));
+
+        assertThatThrownBy(() -> inventorySyncService.syncInventory(4)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(shopifyAdapter, offerSyncWriter);
+    }
+}
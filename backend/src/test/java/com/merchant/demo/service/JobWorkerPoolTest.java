@@ -0,0 +1,97 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.JobProperties;
+import com.merchant.demo.repository.JobRepository;
+import com.merchant.demo.repository.JobRepository.JobRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobWorkerPoolTest {
+
+    @Mock
+    private JobRepository jobRepository;
+
+    private final JobProperties jobProperties = new JobProperties();
+
+    private JobWorkerPool jobWorkerPool;
+
+    private static JobRow job(String jobType) {
+        Instant now = Instant.now();
+        return new JobRow(42L, jobType, "{\"merchant_id\":3}", 100, "RUNNING", "merchant:3", 1, 5, now, "w1",
+                now.plusSeconds(120), null, null, now, now, null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        JobHandler sync = JobHandler.of(JobQueue.MERCHANT_SYNC,
+                payload -> Map.of("merchant_id", payload.get("merchant_id").asInt()));
+        JobHandler matching = JobHandler.of(JobQueue.MERCHANT_MATCHING, payload -> {
+            throw new IllegalStateException("Shopify unavailable");
+        });
+        JobHandler reprice = JobHandler.of(JobQueue.MERCHANT_REPRICE, payload -> {
+            throw new NoSuchElementException("Merchant not found: 3");
+        });
+        jobWorkerPool = new JobWorkerPool(jobRepository, jobProperties, new ObjectMapper(),
+                List.of(sync, matching, reprice));
+    }
+
+    @Test
+    void run_storesTheHandlerResultOnSuccess() {
+        when(jobRepository.complete(eq(42L), anyString(), eq("{\"merchant_id\":3}"))).thenReturn(true);
+
+        jobWorkerPool.run(job(JobQueue.MERCHANT_SYNC));
+
+        verify(jobRepository).complete(eq(42L), anyString(), eq("{\"merchant_id\":3}"));
+        verify(jobRepository, never()).fail(anyLong(), anyString(), anyString(), anyLong(), eq(false));
+    }
+
+    @Test
+    void run_retriesTransientErrorsWithConfiguredBackoff() {
+        jobWorkerPool.run(job(JobQueue.MERCHANT_MATCHING));
+
+        verify(jobRepository).fail(eq(42L), anyString(), eq("Shopify unavailable"),
+                eq(jobProperties.getRetryBackoffMs()), eq(false));
+    }
+
+    @Test
+    void run_failsPermanentlyWhenRetryingCannotHelp() {
+        jobWorkerPool.run(job(JobQueue.MERCHANT_REPRICE));
+        jobWorkerPool.run(job(JobQueue.MERCHANT_INVENTORY_SYNC));
+
+        verify(jobRepository).fail(eq(42L), anyString(), eq("Merchant not found: 3"), anyLong(), eq(true));
+        verify(jobRepository).fail(eq(42L), anyString(), eq("No handler for job type merchant.inventory-sync"),
+                eq(0L), eq(true));
+    }
+
+    @Test
+    void start_renewsLeasesOnItsOwnThreadEvenWithoutWorkers() {
+        jobProperties.setWorkersEnabled(false);
+        jobProperties.setHeartbeatMs(1000);
+
+        jobWorkerPool.start();
+        try {
+            verify(jobRepository, timeout(5000)).extendLeases(eq(List.of()), anyString(), eq(jobProperties.getLeaseMs()));
+            verify(jobRepository, timeout(5000)).requeueExpired();
+        } finally {
+            jobWorkerPool.stop();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.entity.MarginRule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarginRuleIndexTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T00:00:00Z");
+    private static final int BRAND = 7;
+    private static final int SHOES = 20;
+    private static final int RUNNING_SHOES = 21;
+
+    private static int nextId = 1;
+
+    private static MarginRule rule(Integer brandId, Integer categoryId, String margin) {
+        return rule(brandId, categoryId, margin, NOW.minus(Duration.ofDays(30)), null);
+    }
+
+    private static MarginRule rule(Integer brandId, Integer categoryId, String margin, Instant from, Instant to) {
+        return MarginRule.builder()
+                .id(nextId++)
+                .merchantId(1)
+                .brandId(brandId)
+                .categoryId(categoryId)
+                .marginPercentage(new BigDecimal(margin))
+                .validFrom(from)
+                .validTo(to)
+                .isActive(true)
+                .build();
+    }
+
+    @Test
+    void resolve_prefersMostSpecificRule() {
+        MarginRule merchantWide = rule(null, null, "5");
+        MarginRule brand = rule(BRAND, null, "8");
+        MarginRule shoes = rule(null, SHOES, "10");
+        MarginRule brandShoes = rule(BRAND, SHOES, "12");
+        MarginRuleIndex index = MarginRuleIndex.build(List.of(merchantWide, brand, shoes, brandShoes),
+                Map.of(RUNNING_SHOES, SHOES));
+
+        // Rule on the parent category applies to a product in the subcategory
+        assertThat(index.resolve(BRAND, List.of(RUNNING_SHOES), NOW)).isSameAs(brandShoes);
+        assertThat(index.resolve(99, List.of(RUNNING_SHOES), NOW)).isSameAs(shoes);
+        assertThat(index.resolve(BRAND, List.of(), NOW)).isSameAs(brand);
+        assertThat(index.resolve(null, null, NOW)).isSameAs(merchantWide);
+    }
+
+    @Test
+    void resolve_respectsValidityWindowsAndActiveFlag() {
+        MarginRule expired = rule(BRAND, null, "20", NOW.minus(Duration.ofDays(60)), NOW.minus(Duration.ofDays(1)));
+        MarginRule current = rule(BRAND, null, "15", NOW.minus(Duration.ofDays(10)), null);
+        MarginRule newer = rule(BRAND, null, "18", NOW.minus(Duration.ofDays(2)), NOW.plus(Duration.ofDays(2)));
+        MarginRule future = rule(BRAND, null, "25", NOW.plus(Duration.ofDays(1)), null);
+        MarginRule inactive = rule(BRAND, null, "30");
+        inactive.setIsActive(false);
+        MarginRuleIndex index = MarginRuleIndex.build(List.of(expired, current, newer, future, inactive), Map.of());
+
+        assertThat(index.resolve(BRAND, List.of(), NOW)).isSameAs(newer);
+        assertThat(index.resolve(BRAND, List.of(), NOW.plus(Duration.ofDays(3)))).isSameAs(future);
+        assertThat(index.resolve(BRAND, List.of(), NOW.minus(Duration.ofDays(20)))).isSameAs(expired);
+        assertThat(index.resolve(BRAND, List.of(), NOW.minus(Duration.ofDays(90)))).isNull();
+    }
+
+    @Test
+    void settlementPrice_subtractsMarginRoundedHalfUp() {
+        assertThat(MarginRuleIndex.settlementPrice(10_000, new BigDecimal("12.50"))).isEqualTo(8_750);
+        // 999 * 2.5% = 24.975 -> 25
+        assertThat(MarginRuleIndex.settlementPrice(999, new BigDecimal("2.50"))).isEqualTo(974);
+        assertThat(MarginRuleIndex.settlementPrice(999, (MarginRule) null)).isEqualTo(999);
+        assertThat(MarginRuleIndex.settlementPrice(999, new BigDecimal("100"))).isZero();
+    }
+}
@@ -0,0 +1,103 @@
+package com.merchant.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MediaImagesTest {
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+
+    /** Stripes of uneven brightness (vertical or horizontal) under a dark disc. */
+    private static BufferedImage picture(int size, boolean vertical) {
+        int[] levels = {30, 200, 90, 240, 10, 160, 120, 220, 60};
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        int stripe = size / levels.length;
+        for (int i = 0; i < levels.length; i++) {
+            g.setColor(new Color(levels[i], levels[i], levels[i]));
+            if (vertical) {
+                g.fillRect(i * stripe, 0, stripe, size);
+            } else {
+                g.fillRect(0, i * stripe, size, stripe);
+            }
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.fillOval(size / 8, size / 4, size * 3 / 8, size * 3 / 8);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void sha256Hex_isStableLowercaseHex() {
+        assertThat(MediaImages.sha256Hex("abc".getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    void detectContentType_readsFormatFromContent() throws IOException {
+        assertThat(MediaImages.detectContentType(png(4, 4))).isEqualTo("image/png");
+        assertThat(MediaImages.detectContentType("<html></html>".getBytes(StandardCharsets.UTF_8))).isNull();
+    }
+
+    @Test
+    void thumbnailJpeg_fitsLongestEdgeAndKeepsAspectRatio() throws IOException {
+        BufferedImage wide = MediaImages.decode(png(1000, 500), 1_000_000, 320).image();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(MediaImages.thumbnailJpeg(wide, 320)));
+
+        assertThat(thumbnail.getWidth()).isEqualTo(320);
+        assertThat(thumbnail.getHeight()).isEqualTo(160);
+    }
+
+    @Test
+    void dHash_staysCloseForResizedCopiesAndFarForDifferentPictures() throws IOException {
+        long original = MediaImages.dHash(picture(600, true));
+        // Same picture re-encoded as a smaller JPEG
+        long copy = MediaImages.dHash(ImageIO.read(new ByteArrayInputStream(
+                MediaImages.thumbnailJpeg(picture(600, true), 150))));
+        long other = MediaImages.dHash(picture(600, false));
+
+        assertThat(Long.bitCount(original ^ copy)).isLessThanOrEqualTo(4);
+        assertThat(Long.bitCount(original ^ other)).isGreaterThan(16);
+    }
+
+    @Test
+    void thumbnailJpeg_neverUpscales() throws IOException {
+        BufferedImage small = MediaImages.decode(png(100, 40), 1_000_000, 320).image();
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(MediaImages.thumbnailJpeg(small, 320)));
+
+        assertThat(thumbnail.getWidth()).isEqualTo(100);
+        assertThat(thumbnail.getHeight()).isEqualTo(40);
+    }
+
+    @Test
+    void decode_refusesImagesDeclaringMorePixelsThanTheCap() throws IOException {
+        assertThat(MediaImages.decode(png(2000, 1000), 1_999_999, 320)).isNull();
+        assertThat(MediaImages.decode(png(2000, 1000), 2_000_000, 320)).isNotNull();
+    }
+
+    @Test
+    void decode_subsamplesLargeImagesButReportsTheirFullSize() throws IOException {
+        MediaImages.Decoded decoded = MediaImages.decode(png(2000, 1000), 10_000_000, 320);
+
+        assertThat(decoded.width()).isEqualTo(2000);
+        assertThat(decoded.height()).isEqualTo(1000);
+        // Every 6th pixel: the longest edge stays at least 320
+        assertThat(decoded.image().getWidth()).isEqualTo(334);
+        assertThat(decoded.image().getHeight()).isEqualTo(167);
+    }
+}
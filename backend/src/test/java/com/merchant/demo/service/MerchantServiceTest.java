@@ -45,4 +45,47 @@ class MerchantServiceTest {
         assertEquals("New", result.getName());
         verify(merchantRepository).save(existing);
     }
+
+    @Test
+    void updateMerchant_ShouldSwitchSourceType_AndRejectUnknownOnes() {
+        Integer id = 1;
+        Merchant existing = Merchant.builder().id(id).name("Store").build();
+        when(merchantRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(merchantRepository.save(any(Merchant.class))).thenAnswer(i -> i.getArguments()[0]);
+        UpdateMerchantRequest request = new UpdateMerchantRequest();
+        request.setSourceType("file");
+
+        assertEquals("FILE", merchantService.updateMerchant(id, request).getSourceType());
+
+        request.setSourceType("FTP");
+        assertThrows(IllegalArgumentException.class, () -> merchantService.updateMerchant(id, request));
+        assertEquals("FILE", existing.getSourceType());
+    }
+
+    @Test
+    void updateMerchant_ShouldClearShopifyConfigured_WhenSwitchingToFile() {
+        Integer id = 1;
+        Merchant existing = Merchant.builder().id(id).name("Store").shopifyConfigured(true).build();
+        when(merchantRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(merchantRepository.save(any(Merchant.class))).thenAnswer(i -> i.getArguments()[0]);
+        UpdateMerchantRequest request = new UpdateMerchantRequest();
+        request.setSourceType("FILE");
+
+        Merchant result = merchantService.updateMerchant(id, request);
+
+        assertEquals("FILE", result.getSourceType());
+        assertFalse(result.getShopifyConfigured());
+    }
+
+    @Test
+    void updateMerchant_ShouldRejectShopifyConfigured_ForFileMerchants() {
+        Integer id = 1;
+        Merchant existing = Merchant.builder().id(id).name("Store").sourceType("FILE").build();
+        when(merchantRepository.findById(id)).thenReturn(Optional.of(existing));
+        UpdateMerchantRequest request = new UpdateMerchantRequest();
+        request.setShopifyConfigured(true);
+
+        assertThrows(IllegalArgumentException.class, () -> merchantService.updateMerchant(id, request));
+        verify(merchantRepository, never()).save(any());
+    }
 }
\ No newline at end of file
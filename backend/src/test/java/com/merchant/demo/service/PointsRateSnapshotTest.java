@@ -0,0 +1,57 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.repository.PointsPricingRepository.ConversionRuleRow;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PointsRateSnapshotTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T00:00:00Z");
+    private static final int PARTNER = 1;
+
+    private static ConversionRuleRow rule(int id, String currency, String rate, Instant from, Instant to) {
+        return new ConversionRuleRow(id, PARTNER, currency, new BigDecimal(rate), from, to);
+    }
+
+    @Test
+    void pointsFor_usesNewestValidRuleAndCurrencyMinorUnits() {
+        PointsRateSnapshot snapshot = PointsRateSnapshot.build(3, "fp", NOW, Set.of(PARTNER),
+                Map.of("INR", 2, "JPY", 0),
+                List.of(rule(1, "INR", "0.25", NOW.minus(Duration.ofDays(30)), null),
+                        rule(2, "INR", "0.50", NOW.minus(Duration.ofDays(1)), NOW.plus(Duration.ofDays(1))),
+                        rule(3, "JPY", "2", NOW.minus(Duration.ofDays(30)), null)));
+
+        // 100.00 INR at 0.50 INR per point
+        assertThat(snapshot.pointsFor(PARTNER, "INR", 10_000, NOW)).isEqualTo(200L);
+        // Newer rule expired -> falls back to the older one
+        assertThat(snapshot.pointsFor(PARTNER, "INR", 10_000, NOW.plus(Duration.ofDays(2)))).isEqualTo(400L);
+        // JPY has no minor units: 999 yen at 2 yen per point, rounded up
+        assertThat(snapshot.pointsFor(PARTNER, "JPY", 999, NOW)).isEqualTo(500L);
+        assertThat(snapshot.pointsFor(PARTNER, "USD", 10_000, NOW)).isNull();
+        assertThat(snapshot.pointsFor(2, "INR", 10_000, NOW)).isNull();
+        assertThat(snapshot.isActivePartner(PARTNER)).isTrue();
+        assertThat(snapshot.version()).isEqualTo(3);
+    }
+
+    @Test
+    void points_roundsUpToWholePoints() {
+        assertThat(PointsRateSnapshot.points(101, 2, new BigDecimal("0.25"))).isEqualTo(5);
+        assertThat(PointsRateSnapshot.points(100, 2, new BigDecimal("0.25"))).isEqualTo(4);
+        assertThat(PointsRateSnapshot.points(0, 2, new BigDecimal("0.25"))).isZero();
+    }
+
+    @Test
+    void build_ignoresNonPositiveRates() {
+        PointsRateSnapshot snapshot = PointsRateSnapshot.build(1, "fp", NOW, Set.of(PARTNER), Map.of("INR", 2),
+                List.of(rule(1, "INR", "0", NOW.minus(Duration.ofDays(1)), null)));
+        assertThat(snapshot.resolve(PARTNER, "INR", NOW)).isNull();
+    }
+}
@@ -0,0 +1,125 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.config.MatchingProperties;
+import com.merchant.demo.dto.admin.MatchingRunDto;
+import com.merchant.demo.repository.StagingMatchRepository;
+import com.merchant.demo.repository.StagingMatchRepository.GtinHit;
+import com.merchant.demo.repository.StagingMatchRepository.Suggestion;
+import com.merchant.demo.repository.StagingMatchRepository.TitleHit;
+import com.merchant.demo.service.ImageHashIndex.ImageMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductMatchingServiceTest {
+
+    @Mock
+    private StagingMatchRepository stagingMatchRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private JobQueue jobQueue;
+
+    @Mock
+    private ImageSimilarityService imageSimilarityService;
+
+    private final MatchingProperties matchingProperties = new MatchingProperties();
+
+    private ProductMatchingService productMatchingService;
+
+    @BeforeEach
+    void setUp() {
+        matchingProperties.setBatchSize(3);
+        productMatchingService = new ProductMatchingService(stagingMatchRepository, matchingProperties, transactionTemplate,
+                jobQueue, imageSimilarityService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchMerchant_prefersBarcodeHitsThenFallsBackToTitle() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        when(stagingMatchRepository.findMatchableIds(7, 0, 3)).thenReturn(List.of(1, 2, 3));
+        when(stagingMatchRepository.findMatchableIds(7, 3, 3)).thenReturn(List.of(4));
+        when(stagingMatchRepository.findGtinHits(List.of(1, 2, 3))).thenReturn(List.of(
+                new GtinHit(1, 50, 2, 2),
+                new GtinHit(1, 51, 1, 2)));
+        when(stagingMatchRepository.findTitleHits(List.of(2, 3), matchingProperties.getVendorBonus())).thenReturn(List.of(
+                new TitleHit(2, 60, 0.82),
+                new TitleHit(3, 61, 0.20)));
+        when(stagingMatchRepository.findGtinHits(List.of(4))).thenReturn(List.of());
+        when(stagingMatchRepository.findTitleHits(List.of(4), matchingProperties.getVendorBonus())).thenReturn(List.of());
+        when(stagingMatchRepository.applySuggestions(any(), anyInt())).thenReturn(1);
+
+        MatchingRunDto result = productMatchingService.matchMerchant(7);
+
+        ArgumentCaptor<List<Suggestion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stagingMatchRepository, times(2)).applySuggestions(captor.capture(), eq(90));
+        assertThat(captor.getAllValues().get(0)).containsExactly(
+                new Suggestion(1, 50, 100),
+                new Suggestion(2, 60, 82),
+                new Suggestion(3, null, 0));
+        assertThat(captor.getAllValues().get(1)).containsExactly(new Suggestion(4, null, 0));
+
+        assertThat(result.getProcessed()).isEqualTo(4);
+        assertThat(result.getSuggested()).isEqualTo(2);
+        assertThat(result.getAutoMatched()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchMerchant_usesNearDuplicateImageWhenMoreConfidentThanTitle() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        when(stagingMatchRepository.findMatchableIds(7, 0, 3)).thenReturn(List.of(1, 2, 3));
+        when(stagingMatchRepository.findGtinHits(List.of(1, 2, 3))).thenReturn(List.of());
+        when(stagingMatchRepository.findTitleHits(List.of(1, 2, 3), matchingProperties.getVendorBonus())).thenReturn(List.of(
+                new TitleHit(1, 60, 0.60),
+                new TitleHit(2, 61, 0.92)));
+        when(imageSimilarityService.findClosestProducts(List.of(1, 2, 3))).thenReturn(Map.of(
+                1, new ImageMatch(70, 0),
+                2, new ImageMatch(71, 3),
+                3, new ImageMatch(72, 1)));
+        when(stagingMatchRepository.applySuggestions(any(), anyInt())).thenReturn(3);
+
+        productMatchingService.matchMerchant(7);
+
+        ArgumentCaptor<List<Suggestion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stagingMatchRepository).applySuggestions(captor.capture(), eq(90));
+        assertThat(captor.getValue()).containsExactly(
+                new Suggestion(1, 70, 85),
+                // Title confidence stays below the auto-match threshold
+                new Suggestion(2, 61, 89),
+                new Suggestion(3, 72, 83));
+    }
+
+    @Test
+    void confidence_scalesWithBarcodeCoverageAndCapsTitleMatches() {
+        assertThat(ProductMatchingService.gtinConfidence(new GtinHit(1, 1, 1, 4))).isEqualTo(85);
+        assertThat(ProductMatchingService.gtinConfidence(new GtinHit(1, 1, 3, 3))).isEqualTo(100);
+        assertThat(productMatchingService.titleConfidence(1.15)).isEqualTo(89);
+        assertThat(productMatchingService.titleConfidence(0.5)).isEqualTo(50);
+
+        // Follows the configured threshold; images are capped the same way
+        matchingProperties.setAutoMatchThreshold(80);
+        matchingProperties.setImageMatchConfidence(100);
+        assertThat(productMatchingService.titleConfidence(0.95)).isEqualTo(79);
+        assertThat(productMatchingService.imageConfidence(0)).isEqualTo(79);
+    }
+}
@@ -2,24 +2,55 @@ package com.merchant.demo.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.CatalogProperties;
 import com.merchant.demo.dto.ShopifyConfig;
 import com.merchant.demo.dto.SyncResultDto;
 import com.merchant.demo.dto.shopify.*;
 import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.entity.OptionSet;
+import com.merchant.demo.entity.StagingProduct;
+import com.merchant.demo.entity.StagingVariant;
+import com.merchant.demo.repository.MediaMirrorRepository;
 import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.OfferSyncWriter.OfferDelta;
+import com.merchant.demo.repository.StagingMediaSyncWriter;
+import com.merchant.demo.repository.StagingMediaSyncWriter.SyncedMedia;
 import com.merchant.demo.repository.StagingProductRepository;
+import com.merchant.demo.repository.SyncLogRepository;
+import com.merchant.demo.repository.SyncLogRepository.RowError;
+import com.merchant.demo.repository.SyncLogRepository.SyncLogRow;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -39,13 +70,73 @@ class ProductSyncServiceTest {
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private OfferSyncWriter offerSyncWriter;
+
+    @Mock
+    private PricingService pricingService;
+
+    @Mock
+    private SyncLogRepository syncLogRepository;
+
+    @Mock
+    private StagingMediaSyncWriter stagingMediaSyncWriter;
+
+    @Mock
+    private MediaMirrorRepository mediaMirrorRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private CatalogProperties catalogProperties = new CatalogProperties();
+
     @InjectMocks
     private ProductSyncService productSyncService;
 
+    @BeforeEach
+    void initTransactionSynchronization() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void clearTransactionSynchronization() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    private void lockAcquired(Integer merchantId, int syncLogId) {
+        when(syncLogRepository.tryLockMerchantSync(merchantId)).thenReturn(true);
+        when(syncLogRepository.start(eq(merchantId), anyString(), anyBoolean())).thenReturn(Optional.of(syncLogId));
+    }
+
+    /** File imports run their steps through the transaction template; run the callbacks inline. */
+    private void transactionsRunInline() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static String csvRows(int products) {
+        StringBuilder csv = new StringBuilder("product_id,title,variant_id,price,stock\n");
+        for (int i = 1; i <= products; i++) {
+            csv.append("P").append(i).append(",Tee,V").append(i).append(",10.00,3\n");
+        }
+        return csv.toString();
+    }
+
     private static ProductNode productNode(String id, String title, int variantCount) {
         List<VariantConnection.VariantEdge> edges = java.util.stream.IntStream.range(0, variantCount)
                 .mapToObj(i -> new VariantConnection.VariantEdge(
-                        new VariantNode("vid-" + i, "sku-" + i, null, "10.00", List.of())))
+                        new VariantNode("vid-" + i, "sku-" + i, null, "10.00", 3, List.of(), null)))
                 .toList();
         return new ProductNode(
                 id, title, "...", "Vendor", "Type",
@@ -69,12 +160,251 @@ class ProductSyncServiceTest {
         when(merchantRepository.findById(merchantId)).thenReturn(Optional.of(mockMerchant));
         when(shopifyAdapter.fetchAllProducts(any(ShopifyConfig.class))).thenReturn(mockProducts);
         when(stagingProductRepository.findByMerchantIdAndExternalProductId(anyInt(), anyString())).thenReturn(Optional.empty());
+        lockAcquired(merchantId, 5);
 
         SyncResultDto result = productSyncService.syncProductsForMerchant(merchantId);
 
+        assertThat(result.getSyncLogId()).isEqualTo(5);
         assertThat(result.getProductsSynced()).isEqualTo(2);
         assertThat(result.getVariantsSynced()).isEqualTo(3);
 
         verify(stagingProductRepository, times(2)).save(any());
+        verify(eventPublisher).publishEvent(new CatalogSyncedEvent(merchantId));
+    }
+
+    @Test
+    void syncProductsForMerchant_pushesPriceChangesToLiveOffers() {
+        Integer merchantId = 1;
+        String sourceConfigJson = "{\"store_url\":\"my-store.myshopify.com\",\"access_token\":\"shpat_test_token\"}";
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceConfig(sourceConfigJson).build()));
+        when(shopifyAdapter.fetchAllProducts(any(ShopifyConfig.class)))
+                .thenReturn(List.of(productNode("gid://shopify/Product/1", "Test Product 1", 2)));
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(anyInt(), anyString())).thenReturn(Optional.empty());
+        // vid-0: price 9.00 -> 10.00; vid-1: stock only
+        when(offerSyncWriter.apply(eq(merchantId), anyList(), any())).thenReturn(List.of(
+                new OfferDelta(11, 900, 1000, 3, 3),
+                new OfferDelta(12, 1000, 1000, 5, 3)));
+        lockAcquired(merchantId, 6);
+
+        SyncResultDto result = productSyncService.syncProductsForMerchant(merchantId);
+
+        assertThat(result.getOffersUpdated()).isEqualTo(2);
+        verify(offerSyncWriter).apply(eq(merchantId), argThat(variants -> variants.size() == 2
+                && variants.stream().allMatch(v -> v.priceMinor() == 1000L && v.stock() == 3)), any());
+        verify(pricingService).repriceOffers(merchantId, List.of(11));
+    }
+
+    @Test
+    void applyProductUpdate_reconcilesMediaInsteadOfReplacingThem() {
+        Merchant merchant = Merchant.builder().id(1).build();
+        when(syncLogRepository.tryLockMerchantSyncShared(1)).thenReturn(true);
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(1, "gid://shopify/Product/1"))
+                .thenReturn(Optional.of(StagingProduct.builder().id(42).merchantId(1)
+                        .externalProductId("gid://shopify/Product/1").rawTitle("Test Product 1").status("APPROVED").build()));
+        ProductNode base = productNode("gid://shopify/Product/1", "Test Product 1", 1);
+        ProductNode node = new ProductNode(base.id(), base.title(), base.descriptionHtml(), base.vendor(),
+                base.productType(), base.tags(), base.options(), base.variants(), new MediaConnection(List.of(
+                        new MediaConnection.MediaEdge(new MediaConnection.MediaNode("gid://shopify/MediaImage/1", "IMAGE",
+                                "Front", new MediaConnection.MediaImage("https://cdn/front.jpg", "Front"), null)),
+                        // Video without preview image: not staged, and does not take a position
+                        new MediaConnection.MediaEdge(new MediaConnection.MediaNode("gid://shopify/Video/2", "VIDEO",
+                                null, null, null)),
+                        new MediaConnection.MediaEdge(new MediaConnection.MediaNode("gid://shopify/MediaImage/3", "IMAGE",
+                                null, new MediaConnection.MediaImage("https://cdn/back.jpg", null), null)))));
+
+        boolean created = productSyncService.applyProductUpdate(merchant, node);
+
+        assertThat(created).isFalse();
+        verify(stagingMediaSyncWriter).apply(Map.of(42, List.of(
+                new SyncedMedia("gid://shopify/MediaImage/1", "IMAGE", "https://cdn/front.jpg", "Front", 1),
+                new SyncedMedia("gid://shopify/MediaImage/3", "IMAGE", "https://cdn/back.jpg", null, 2))));
+        verify(mediaMirrorRepository).registerSources(List.of("https://cdn/front.jpg", "https://cdn/back.jpg"));
+    }
+
+    @Test
+    void applyProductUpdate_reconcilesVariantsAndKeepsMatchState() {
+        Merchant merchant = Merchant.builder().id(1).build();
+        when(syncLogRepository.tryLockMerchantSyncShared(1)).thenReturn(true);
+        StagingProduct staged = StagingProduct.builder().id(42).merchantId(1)
+                .externalProductId("gid://shopify/Product/1").rawTitle("Test Product 1").status("APPROVED").build();
+        StagingVariant unchanged = stagedVariant(100, "vid-0", "sku-0", 900L);
+        StagingVariant skuChanged = stagedVariant(101, "vid-1", "old-sku", 1000L);
+        StagingVariant removed = stagedVariant(102, "vid-gone", "sku-gone", 1000L);
+        staged.addVariant(unchanged);
+        staged.addVariant(skuChanged);
+        staged.addVariant(removed);
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(1, "gid://shopify/Product/1"))
+                .thenReturn(Optional.of(staged));
+
+        // vid-0: price 9.00 -> 10.00, vid-1: new SKU, vid-2: new variant
+        productSyncService.applyProductUpdate(merchant, productNode("gid://shopify/Product/1", "Test Product 1", 3));
+
+        assertThat(staged.getVariants()).extracting(StagingVariant::getExternalVariantId)
+                .containsExactly("vid-0", "vid-1", "vid-2");
+        assertThat(staged.getVariants().get(0)).isSameAs(unchanged);
+        assertThat(unchanged.getRawPriceMinor()).isEqualTo(1000L);
+        assertThat(unchanged.getStatus()).isEqualTo("APPROVED");
+        assertThat(unchanged.getMatchedVariantId()).isEqualTo(7);
+        assertThat(staged.getVariants().get(1)).isSameAs(skuChanged);
+        assertThat(skuChanged.getRawSku()).isEqualTo("sku-1");
+        assertThat(skuChanged.getStatus()).isEqualTo("NEEDS_REVIEW");
+        assertThat(staged.getVariants().get(2).getId()).isNull();
+        assertThat(staged.getVariants().get(2).getStatus()).isEqualTo("PENDING");
+    }
+
+    private static StagingVariant stagedVariant(int id, String externalId, String sku, long priceMinor) {
+        StagingVariant variant = StagingVariant.builder()
+                .id(id)
+                .externalVariantId(externalId)
+                .rawSku(sku)
+                .rawPriceMinor(priceMinor)
+                .status("APPROVED")
+                .matchedVariantId(7)
+                .build();
+        variant.setOptionSet(OptionSet.EMPTY);
+        return variant;
+    }
+
+    @Test
+    void syncProductsForMerchant_whenSyncAlreadyRunning_returnsItsProgressWithoutFetching() {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId)).thenReturn(Optional.of(Merchant.builder().id(merchantId).build()));
+        when(syncLogRepository.tryLockMerchantSync(merchantId)).thenReturn(false);
+        when(syncLogRepository.findLatest(merchantId)).thenReturn(Optional.of(
+                new SyncLogRow(9, merchantId, "IN_PROGRESS", Instant.now(), null, 300, 0, "Staged 300 of 800 products")));
+
+        assertThatThrownBy(() -> productSyncService.syncProductsForMerchant(merchantId))
+                .isInstanceOfSatisfying(SyncInProgressException.class, e -> {
+                    assertThat(e.getRunning().getSyncLogId()).isEqualTo(9);
+                    assertThat(e.getRunning().getStatus()).isEqualTo("IN_PROGRESS");
+                    assertThat(e.getRunning().getProductsSynced()).isEqualTo(300);
+                });
+
+        verify(syncLogRepository, never()).start(any(), any(), anyBoolean());
+        verifyNoInteractions(shopifyAdapter);
+    }
+
+    @Test
+    void syncProductsForMerchant_refusesFileMerchants() {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceType("FILE").build()));
+
+        assertThatThrownBy(() -> productSyncService.syncProductsForMerchant(merchantId))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(shopifyAdapter, syncLogRepository);
+    }
+
+    @Test
+    void syncProductsForMerchant_closesSyncLogWhenTransactionCompletes() {
+        Integer merchantId = 1;
+        String sourceConfigJson = "{\"store_url\":\"my-store.myshopify.com\",\"access_token\":\"shpat_test_token\"}";
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceConfig(sourceConfigJson).build()));
+        when(shopifyAdapter.fetchAllProducts(any(ShopifyConfig.class)))
+                .thenReturn(List.of(productNode("gid://shopify/Product/1", "Test Product 1", 1)));
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(anyInt(), anyString())).thenReturn(Optional.empty());
+        lockAcquired(merchantId, 7);
+
+        productSyncService.syncProductsForMerchant(merchantId);
+
+        // Not closed before the transaction ends
+        verify(syncLogRepository, never()).finish(anyInt(), anyString(), anyInt(), anyInt(), any());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(syncLogRepository).finish(7, "SUCCESS", 1, 0, null);
+    }
+
+    @Test
+    void importCatalogFile_stagesValidProductsAndRecordsRejectedRows() throws Exception {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceType("FILE").build()));
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(anyInt(), anyString())).thenReturn(Optional.empty());
+        transactionsRunInline();
+        lockAcquired(merchantId, 8);
+        when(syncLogRepository.heartbeat(eq(8), anyInt(), anyString())).thenReturn(true);
+        String csv = """
+                product_id,title,variant_id,price,stock
+                P1,Tee,V1,10.00,3
+                P1,Tee,V2,12.50,
+                P2,Mug,V3,abc,1
+                P3,Cap,V4,5,2
+                """;
+
+        SyncResultDto result = productSyncService.importCatalogFile(merchantId, CatalogFileParser.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getStatus()).isEqualTo("PARTIAL_SUCCESS");
+        assertThat(result.getProductsSynced()).isEqualTo(2);
+        assertThat(result.getVariantsSynced()).isEqualTo(3);
+        verify(stagingProductRepository, times(2)).save(any());
+        verify(syncLogRepository).addErrors(8, List.of(new RowError(4, "P2", "price is not a number: abc")));
+        verify(syncLogRepository).start(merchantId, "Importing CSV file", true);
+        verify(syncLogRepository).lockMerchantSync(merchantId);
+        verify(entityManager).flush();
+        verify(offerSyncWriter).apply(eq(merchantId), argThat(variants -> variants.size() == 3), any());
+        verify(syncLogRepository).heartbeat(eq(8), eq(2), anyString());
+        verify(eventPublisher).publishEvent(new CatalogSyncedEvent(merchantId));
+        verify(syncLogRepository).finish(eq(8), eq("PARTIAL_SUCCESS"), eq(2), eq(1), argThat(notes -> notes.contains("row 4")));
+    }
+
+    @Test
+    void importCatalogFile_keepsCommittedBatchesWhenALaterBatchFails() throws Exception {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceType("FILE").build()));
+        when(stagingProductRepository.findByMerchantIdAndExternalProductId(anyInt(), anyString())).thenReturn(Optional.empty());
+        transactionsRunInline();
+        lockAcquired(merchantId, 8);
+        // The second batch finds its run closed by another sync
+        when(syncLogRepository.heartbeat(eq(8), anyInt(), anyString())).thenReturn(true, false);
+
+        assertThatThrownBy(() -> productSyncService.importCatalogFile(merchantId, CatalogFileParser.Format.CSV,
+                new ByteArrayInputStream(csvRows(501).getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(syncLogRepository).heartbeat(eq(8), eq(500), anyString());
+        verify(syncLogRepository).heartbeat(eq(8), eq(501), anyString());
+        verify(syncLogRepository).finish(eq(8), eq("FAILED"), eq(500), eq(0),
+                argThat(notes -> notes.startsWith("500 products imported")));
+        // The committed batch still gets matched
+        verify(eventPublisher).publishEvent(new CatalogSyncedEvent(merchantId));
+    }
+
+    @Test
+    void importCatalogFile_whileAnotherImportHoldsTheMerchant_returnsItsProgress() {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).sourceType("FILE").build()));
+        transactionsRunInline();
+        when(syncLogRepository.tryLockMerchantSync(merchantId)).thenReturn(true);
+        when(syncLogRepository.start(merchantId, "Importing CSV file", true)).thenReturn(Optional.empty());
+        when(syncLogRepository.findLatest(merchantId)).thenReturn(Optional.of(
+                new SyncLogRow(9, merchantId, "IN_PROGRESS", Instant.now(), null, 1000, 0, "Imported 1000 products")));
+
+        assertThatThrownBy(() -> productSyncService.importCatalogFile(merchantId, CatalogFileParser.Format.CSV,
+                new ByteArrayInputStream(csvRows(1).getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOfSatisfying(SyncInProgressException.class,
+                        e -> assertThat(e.getRunning().getProductsSynced()).isEqualTo(1000));
+
+        verify(stagingProductRepository, never()).save(any());
+        verify(syncLogRepository, never()).finish(anyInt(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void importCatalogFile_rejectsShopifyMerchants() {
+        Integer merchantId = 1;
+        when(merchantRepository.findById(merchantId)).thenReturn(Optional.of(Merchant.builder().id(merchantId).build()));
+
+        assertThatThrownBy(() -> productSyncService.importCatalogFile(merchantId, CatalogFileParser.Format.CSV,
+                new ByteArrayInputStream(new byte[0])))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("source_type");
+
+        verifyNoInteractions(syncLogRepository);
     }
 }
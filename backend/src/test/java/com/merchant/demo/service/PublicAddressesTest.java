@@ -0,0 +1,59 @@
+package com.merchant.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PublicAddressesTest {
+
+    private static boolean isPublic(String literal) throws UnknownHostException {
+        return PublicAddresses.isPublic(InetAddress.getByName(literal));
+    }
+
+    @Test
+    void isPublic_rejectsLoopbackPrivateLinkLocalAndMetadataAddresses() throws Exception {
+        for (String literal : new String[]{"127.0.0.1", "10.1.2.3", "172.16.0.1", "172.31.255.255", "192.168.1.1",
+                "169.254.169.254", "100.64.0.1", "0.0.0.0", "198.18.0.1", "224.0.0.1", "255.255.255.255",
+                "::1", "::", "fe80::1", "fd00:ec2::254", "::ffff:10.0.0.1", "::127.0.0.1", "64:ff9b::a9fe:a9fe"}) {
+            assertThat(isPublic(literal)).as(literal).isFalse();
+        }
+    }
+
+    @Test
+    void isPublic_acceptsPublicAddresses() throws Exception {
+        for (String literal : new String[]{"93.184.216.34", "172.32.0.1", "100.128.0.1", "8.8.8.8",
+                "2606:4700::1111", "::ffff:8.8.8.8", "64:ff9b::808:808"}) {
+            assertThat(isPublic(literal)).as(literal).isTrue();
+        }
+    }
+
+    @Test
+    void check_rejectsNonHttpSchemesAndMissingHost() {
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("ftp://93.184.216.34/a.jpg")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("file:///etc/passwd")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("/relative.jpg")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void check_rejectsUrlsOnNonPublicAddresses() {
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("http://127.0.0.1:8080/a.jpg")))
+                .isInstanceOf(PublicAddresses.BlockedAddressException.class);
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("http://169.254.169.254/latest/meta-data/")))
+                .isInstanceOf(PublicAddresses.BlockedAddressException.class);
+        assertThatThrownBy(() -> PublicAddresses.check(URI.create("https://[::1]/a.jpg")))
+                .isInstanceOf(PublicAddresses.BlockedAddressException.class);
+    }
+
+    @Test
+    void check_acceptsPublicIpLiteral() throws Exception {
+        PublicAddresses.check(URI.create("https://93.184.216.34/a.jpg"));
+    }
+}
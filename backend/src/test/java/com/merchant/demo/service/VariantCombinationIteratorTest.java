@@ -0,0 +1,61 @@
+package com.merchant.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VariantCombinationIteratorTest {
+
+    private static List<Map<String, String>> drain(VariantCombinationIterator it) {
+        List<Map<String, String>> all = new ArrayList<>();
+        it.forEachRemaining(all::add);
+        return all;
+    }
+
+    @Test
+    void next_turnsLastOptionFastest() {
+        Map<String, List<String>> def = new LinkedHashMap<>();
+        def.put("Color", List.of("Red", "Blue"));
+        def.put("Size", List.of("S", "M"));
+
+        VariantCombinationIterator it = new VariantCombinationIterator(def);
+
+        assertThat(it.size()).isEqualTo(4);
+        assertThat(drain(it)).containsExactly(
+                Map.of("Color", "Red", "Size", "S"),
+                Map.of("Color", "Red", "Size", "M"),
+                Map.of("Color", "Blue", "Size", "S"),
+                Map.of("Color", "Blue", "Size", "M"));
+        assertThatThrownBy(it::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void noOptions_yieldsSingleEmptyCombination() {
+        Map<String, List<String>> def = new LinkedHashMap<>();
+        def.put("Material", List.of());
+
+        assertThat(drain(new VariantCombinationIterator(Map.of()))).containsExactly(Map.of());
+        assertThat(drain(new VariantCombinationIterator(def))).containsExactly(Map.of());
+    }
+
+    @Test
+    void largeDefinition_isCountedWithoutMaterializing() {
+        Map<String, List<String>> def = new LinkedHashMap<>();
+        for (String name : List.of("A", "B", "C", "D", "E", "F")) {
+            def.put(name, List.of("1", "2", "3", "4", "5", "6", "7", "8", "9", "10"));
+        }
+
+        VariantCombinationIterator it = new VariantCombinationIterator(def);
+
+        assertThat(it.size()).isEqualTo(1_000_000L);
+        Set<Map<String, String>> firstThousand = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            firstThousand.add(it.next());
+        }
+        assertThat(firstThousand).hasSize(1000);
+        assertThat(it.next()).containsEntry("B", "1").containsEntry("C", "2").containsEntry("F", "1");
+    }
+}
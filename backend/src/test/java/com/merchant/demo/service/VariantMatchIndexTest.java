@@ -0,0 +1,99 @@
+package com.merchant.demo.service;
+
+import com.merchant.demo.entity.OptionSet;
+import com.merchant.demo.entity.Variant;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VariantMatchIndexTest {
+
+    private static final int SIZE = 250;
+
+    private static OptionSet parse(Variant variant) {
+        return OptionSet.parseJson(variant.getOptions());
+    }
+
+    private static List<Variant> masterVariants() {
+        List<Variant> variants = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            variants.add(Variant.builder()
+                    .id(i + 1)
+                    .internalSku("SKU-" + i)
+                    .gtin(String.format("%013d", i))
+                    .options("{\"Color\":\"Color-" + (i / 10) + "\",\"Size\":\"Size-" + (i % 10) + "\"}")
+                    .build());
+        }
+        return variants;
+    }
+
+    @Test
+    void match_prefersBarcodeThenSkuThenOptions() {
+        VariantMatchIndex index = VariantMatchIndex.build(masterVariants(), VariantMatchIndexTest::parse);
+
+        VariantMatchIndex.Match barcode = index.match(String.format("%013d", 7), "SKU-9", OptionSet.EMPTY);
+        assertThat(barcode.variantId()).isEqualTo(8);
+        assertThat(barcode.reason()).isEqualTo(VariantMatchIndex.REASON_BARCODE);
+        assertThat(barcode.confidence()).isEqualTo(VariantMatchIndex.CONFIDENCE_BARCODE);
+
+        VariantMatchIndex.Match sku = index.match("no-such-barcode", "SKU-9", OptionSet.EMPTY);
+        assertThat(sku.variantId()).isEqualTo(10);
+        assertThat(sku.reason()).isEqualTo(VariantMatchIndex.REASON_SKU);
+
+        VariantMatchIndex.Match options = index.match(null, null, OptionSet.of(Map.of("size", " SIZE-3 ", "COLOR", "color-2")));
+        assertThat(options.variantId()).isEqualTo(24);
+        assertThat(options.reason()).isEqualTo(VariantMatchIndex.REASON_OPTIONS);
+        assertThat(options.confidence()).isEqualTo(VariantMatchIndex.CONFIDENCE_OPTIONS);
+
+        VariantMatchIndex.Match none = index.match(null, null, OptionSet.of(Map.of("Color", "Purple")));
+        assertThat(none.variantId()).isNull();
+        assertThat(none.reason()).isEqualTo(VariantMatchIndex.REASON_NONE);
+        assertThat(none.confidence()).isZero();
+    }
+
+    /**
+     * 250 x 250 options-only matching (the worst case for the old nested loops, which re-parsed
+     * master options for every staging variant): the index parses each master variant once.
+     */
+    @Test
+    void match_250x250_optionsOnly_parsesEachMasterOnce() {
+        List<Variant> masters = masterVariants();
+        List<OptionSet> staging = new ArrayList<>(SIZE);
+        for (int i = SIZE - 1; i >= 0; i--) {
+            staging.add(OptionSet.of(Map.of("Color", "Color-" + (i / 10), "Size", "Size-" + (i % 10))));
+        }
+
+        AtomicInteger naiveParses = new AtomicInteger();
+        int naiveMatched = 0;
+        for (OptionSet options : staging) {
+            for (Variant mv : masters) {
+                naiveParses.incrementAndGet();
+                if (options.matches(parse(mv))) {
+                    naiveMatched++;
+                    break;
+                }
+            }
+        }
+
+        AtomicInteger indexedParses = new AtomicInteger();
+        Function<Variant, OptionSet> countingParser = mv -> {
+            indexedParses.incrementAndGet();
+            return parse(mv);
+        };
+        VariantMatchIndex index = VariantMatchIndex.build(masters, countingParser);
+        int indexedMatched = 0;
+        for (OptionSet options : staging) {
+            if (index.match(null, null, options).variantId() != null) indexedMatched++;
+        }
+
+        assertThat(indexedMatched).isEqualTo(SIZE).isEqualTo(naiveMatched);
+        assertThat(indexedParses.get()).isEqualTo(SIZE);
+        assertThat(naiveParses.get()).isGreaterThan(SIZE * SIZE / 2);
+    }
+}
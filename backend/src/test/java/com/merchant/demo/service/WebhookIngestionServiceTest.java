@@ -0,0 +1,125 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.config.WebhookProperties;
+import com.merchant.demo.dto.shopify.ProductNode;
+import com.merchant.demo.dto.shopify.ProductWebhookPayload;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.WebhookEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookIngestionServiceTest {
+
+    private static final String SECRET = "shpss_test_secret";
+    private static final String PRODUCT_JSON = """
+            {"id":632910392,"admin_graphql_api_id":"gid://shopify/Product/632910392","title":"IPod Nano",
+             "vendor":"Apple","product_type":"Cult Products","tags":"Emotive, Flash Memory",
+             "updated_at":"2024-03-01T10:30:00+01:00","options":[{"name":"Color","position":1,"values":["Pink","Black"]}],
+             "variants":[{"id":808950810,"admin_graphql_api_id":"gid://shopify/ProductVariant/808950810",
+                          "sku":"IPOD2008PINK","price":"199.00","inventory_quantity":10,"image_id":850703190,"option1":"Pink"}],
+             "images":[{"id":850703190,"src":"https://cdn.shopify.com/ipod.jpg","alt":null}]}
+            """;
+
+    @Mock
+    private MerchantRepository merchantRepository;
+
+    @Mock
+    private WebhookEventRepository webhookEventRepository;
+
+    @Spy
+    private WebhookProperties webhookProperties = new WebhookProperties();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private WebhookIngestionService webhookIngestionService;
+
+    private static String sign(String secret, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(body));
+    }
+
+    private void givenMerchant() {
+        String config = "{\"store_url\":\"https://my-store.myshopify.com\",\"access_token\":\"shpat\",\"webhook_secret\":\"" + SECRET + "\"}";
+        when(merchantRepository.findActiveByShopDomain("my-store.myshopify.com"))
+                .thenReturn(Optional.of(Merchant.builder().id(7).sourceConfig(config).isActive(true).build()));
+    }
+
+    @Test
+    void ingest_validSignature_enqueuesByProductGid() throws Exception {
+        givenMerchant();
+        byte[] body = PRODUCT_JSON.getBytes(StandardCharsets.UTF_8);
+
+        boolean accepted = webhookIngestionService.ingest("products/update", "https://My-Store.myshopify.com/",
+                sign(SECRET, body), "wh-1", body);
+
+        assertThat(accepted).isTrue();
+        verify(webhookEventRepository).enqueue(eq(7), eq("products/update"), eq("gid://shopify/Product/632910392"),
+                eq(Instant.parse("2024-03-01T09:30:00Z")), eq("wh-1"), anyString(), anyLong());
+    }
+
+    @Test
+    void ingest_invalidSignature_isRejected() throws Exception {
+        givenMerchant();
+        byte[] body = PRODUCT_JSON.getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> webhookIngestionService.ingest("products/update", "my-store.myshopify.com",
+                sign("other-secret", body), "wh-1", body))
+                .isInstanceOf(SecurityException.class);
+        verifyNoInteractions(webhookEventRepository);
+    }
+
+    @Test
+    void productPayload_mapsToSyncProductNode() throws Exception {
+        ProductNode node = new ObjectMapper().readValue(PRODUCT_JSON, ProductWebhookPayload.class).toProductNode();
+
+        assertThat(node.id()).isEqualTo("gid://shopify/Product/632910392");
+        assertThat(node.tags()).containsExactly("Emotive", "Flash Memory");
+        var variant = node.variants().edges().get(0).node();
+        assertThat(variant.id()).isEqualTo("gid://shopify/ProductVariant/808950810");
+        assertThat(variant.inventoryQuantity()).isEqualTo(10);
+        assertThat(variant.selectedOptions()).extracting("name", "value").containsExactly(tuple("Color", "Pink"));
+        assertThat(variant.imageMediaId()).isEqualTo(node.media().edges().get(0).node().id());
+        assertThat(node.media().edges().get(0).node().image().url()).isEqualTo("https://cdn.shopify.com/ipod.jpg");
+    }
+
+    @Test
+    void resourceUpdatedAt_isNullWhenMissingOrMalformed() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(WebhookIngestionService.resourceUpdatedAt(mapper.readTree("{\"updated_at\":\"2024-03-01T10:30:00-05:00\"}")))
+                .isEqualTo(Instant.parse("2024-03-01T15:30:00Z"));
+        assertThat(WebhookIngestionService.resourceUpdatedAt(mapper.readTree("{\"id\":1}"))).isNull();
+        assertThat(WebhookIngestionService.resourceUpdatedAt(mapper.readTree("{\"updated_at\":\"yesterday\"}"))).isNull();
+    }
+
+    @Test
+    void resourceKey_inventoryLevelsUseInventoryItemGid() throws Exception {
+        var payload = new ObjectMapper().readTree("{\"inventory_item_id\":271878346596884015,\"location_id\":1,\"available\":6}");
+        assertThat(WebhookIngestionService.resourceKey("inventory_levels/update", payload))
+                .isEqualTo("gid://shopify/InventoryItem/271878346596884015");
+    }
+}
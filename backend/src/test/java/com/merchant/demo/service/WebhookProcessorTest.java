@@ -0,0 +1,100 @@
+package com.merchant.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merchant.demo.adapter.ShopifyAdapter;
+import com.merchant.demo.config.WebhookProperties;
+import com.merchant.demo.entity.Merchant;
+import com.merchant.demo.repository.MerchantRepository;
+import com.merchant.demo.repository.OfferSyncWriter;
+import com.merchant.demo.repository.WebhookEventRepository;
+import com.merchant.demo.repository.WebhookEventRepository.WebhookEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookProcessorTest {
+
+    @Mock
+    private WebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private MerchantRepository merchantRepository;
+
+    @Mock
+    private ProductSyncService productSyncService;
+
+    @Mock
+    private ShopifyAdapter shopifyAdapter;
+
+    @Mock
+    private OfferSyncWriter offerSyncWriter;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private WebhookProperties webhookProperties = new WebhookProperties();
+
+    @InjectMocks
+    private WebhookProcessor webhookProcessor;
+
+    @Test
+    void processDue_defersProductEventsWhileTheMerchantSyncRunsWithoutUsingAnAttempt() {
+        Integer merchantId = 7;
+        List<WebhookEvent> events = List.of(
+                new WebhookEvent(1L, merchantId, "products/delete", "gid://shopify/Product/1", "{\"id\":1}", 1),
+                new WebhookEvent(2L, merchantId, "products/update", "gid://shopify/Product/2", "{\"id\":2}", 1));
+        when(transactionTemplate.execute(any())).thenReturn(events);
+        when(merchantRepository.findById(merchantId))
+                .thenReturn(Optional.of(Merchant.builder().id(merchantId).isActive(true).build()));
+        doThrow(new SyncInProgressException(merchantId, null))
+                .when(productSyncService).archiveProduct(merchantId, "gid://shopify/Product/1");
+
+        webhookProcessor.processDue();
+
+        verify(webhookEventRepository).defer(List.of(1L, 2L), webhookProperties.getSyncBusyDelayMs());
+        verify(webhookEventRepository, never()).markFailed(anyLong(), anyString(), anyInt());
+        verify(webhookEventRepository).markDone(List.of());
+        // The second event is not even tried while the sync holds the merchant
+        verify(productSyncService, never()).applyProductUpdate(any(), any());
+        verify(productSyncService, times(1)).archiveProduct(eq(merchantId), anyString());
+    }
+
+    @Test
+    void processDue_dropsEventsOfMerchantsThatSwitchedToFileImports() {
+        Integer merchantId = 8;
+        List<WebhookEvent> events = List.of(
+                new WebhookEvent(3L, merchantId, "products/update", "gid://shopify/Product/3", "{\"id\":3}", 1),
+                new WebhookEvent(4L, merchantId, "inventory_levels/update", "gid://shopify/InventoryItem/4", "{}", 1));
+        when(transactionTemplate.execute(any())).thenReturn(events);
+        when(merchantRepository.findById(merchantId)).thenReturn(Optional.of(
+                Merchant.builder().id(merchantId).isActive(true).sourceType("FILE").build()));
+
+        webhookProcessor.processDue();
+
+        verify(webhookEventRepository).markDone(List.of(3L, 4L));
+        verifyNoInteractions(productSyncService, shopifyAdapter, offerSyncWriter);
+    }
+}